@@ -0,0 +1,153 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ *
+ */
+package org.knime.ext.tsne.algorithm;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Times the computation of the input similarities: the search for the nearest neighbors and the calibration of the
+ * Gaussian kernels to the perplexity, followed by the symmetrization.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class AffinityBenchmark {
+
+    private static final double PERPLEXITY = 30;
+
+    private static final int K = (int)(3 * PERPLEXITY);
+
+    @Param({"10000", "100000", "1000000"})
+    int m_numRows;
+
+    @Param({"VANTAGE_POINT_TREE", "RANDOM_PROJECTION_FOREST", "NN_DESCENT"})
+    NeighborSearchMethod m_neighborSearch;
+
+    @Param("0")
+    int m_numThreads;
+
+    private double[] m_data;
+
+    private int[] m_neighbors;
+
+    private double[] m_distances;
+
+    private ParallelRange m_parallel;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        m_data = GaussianBlobs.create(m_numRows, 1);
+        m_parallel = new ParallelRange(
+            m_numThreads > 0 ? m_numThreads : Runtime.getRuntime().availableProcessors());
+        m_neighbors = new int[m_numRows * K];
+        m_distances = new double[m_numRows * K];
+        // the calibration starts from the neighbors of the exact search
+        createSearch(NeighborSearchMethod.VANTAGE_POINT_TREE).findNeighbors(K, m_neighbors, m_distances, m_parallel);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        m_parallel.close();
+    }
+
+    private NeighborSearch createSearch(final NeighborSearchMethod method) {
+        final FeatureMatrix data = FeatureMatrix.of(m_data, GaussianBlobs.NUM_COLS);
+        final Random random = new Random(2);
+        switch (method) {
+            case RANDOM_PROJECTION_FOREST:
+                return new RandomProjectionForest(data, m_numRows, 8, random);
+            case NN_DESCENT:
+                return new NnDescent(new EuclideanDistance(data), m_numRows,
+                    new RandomProjectionForest(data, m_numRows, 3, random), 15, 6);
+            case VANTAGE_POINT_TREE:
+            default:
+                return new VantagePointTree(new EuclideanDistance(data), m_numRows, random);
+        }
+    }
+
+    /**
+     * @return the neighbor indices, returned to keep the search from being eliminated
+     */
+    @Benchmark
+    public int[] neighborSearch() {
+        final int[] neighbors = new int[m_numRows * K];
+        createSearch(m_neighborSearch).findNeighbors(K, neighbors, new double[m_numRows * K], m_parallel);
+        return neighbors;
+    }
+
+    /**
+     * @return the joint probabilities
+     */
+    @Benchmark
+    public SparseAffinities calibration() {
+        final SparseAffinities joint =
+            GaussianAffinities.fromNeighbors(m_neighbors, m_distances, K, PERPLEXITY, m_parallel).symmetrize();
+        joint.normalize();
+        return joint;
+    }
+
+}
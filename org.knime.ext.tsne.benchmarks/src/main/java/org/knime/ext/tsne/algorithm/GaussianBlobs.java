@@ -0,0 +1,91 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ *
+ */
+package org.knime.ext.tsne.algorithm;
+
+import java.util.Random;
+
+/**
+ * Synthetic benchmark input: isotropic Gaussian clusters around uniformly drawn centers, stored row-major like the
+ * data that is read from the input table of the t-SNE node.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+public final class GaussianBlobs {
+
+    /** The number of features of the generated rows. */
+    public static final int NUM_COLS = 50;
+
+    /** The number of clusters the rows are drawn from. */
+    static final int NUM_CLUSTERS = 10;
+
+    private static final double CENTER_RANGE = 10.0;
+
+    private GaussianBlobs() {
+    }
+
+    /**
+     * @param numRows the number of rows
+     * @param seed the seed of the random numbers
+     * @return the row-major {@code numRows} x {@link #NUM_COLS} matrix of the rows
+     */
+    public static double[] create(final int numRows, final long seed) {
+        final Random random = new Random(seed);
+        final double[] centers = new double[NUM_CLUSTERS * NUM_COLS];
+        for (int i = 0; i < centers.length; i++) {
+            centers[i] = (2 * random.nextDouble() - 1) * CENTER_RANGE;
+        }
+        final double[] data = new double[numRows * NUM_COLS];
+        for (int i = 0; i < numRows; i++) {
+            final int center = random.nextInt(NUM_CLUSTERS) * NUM_COLS;
+            for (int d = 0; d < NUM_COLS; d++) {
+                data[i * NUM_COLS + d] = centers[center + d] + random.nextGaussian();
+            }
+        }
+        return data;
+    }
+
+}
@@ -0,0 +1,127 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ *
+ */
+package org.knime.ext.tsne.algorithm;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the gradient iterations per second, i.e. the evaluations of the approximated repulsive forces that
+ * dominate each iteration of the optimization, on an embedding of clustered points.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class GradientBenchmark {
+
+    private static final int DIMS = 2;
+
+    @Param({"10000", "100000", "1000000"})
+    int m_numRows;
+
+    @Param({"BARNES_HUT", "INTERPOLATION"})
+    RepulsionMethod m_repulsionMethod;
+
+    @Param("0")
+    int m_numThreads;
+
+    private double[] m_y;
+
+    private double[] m_negF;
+
+    private ParallelRange m_parallel;
+
+    private Repulsion m_repulsion;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // the blobs are projected onto their first coordinates to obtain a clustered embedding
+        final double[] data = GaussianBlobs.create(m_numRows, 1);
+        m_y = new double[m_numRows * DIMS];
+        for (int i = 0; i < m_numRows; i++) {
+            System.arraycopy(data, i * GaussianBlobs.NUM_COLS, m_y, i * DIMS, DIMS);
+        }
+        m_negF = new double[m_numRows * DIMS];
+        m_parallel = new ParallelRange(
+            m_numThreads > 0 ? m_numThreads : Runtime.getRuntime().availableProcessors());
+        m_repulsion = m_repulsionMethod == RepulsionMethod.INTERPOLATION
+            ? new InterpolationRepulsion(DIMS, m_numRows, m_parallel)
+            : new BarnesHutRepulsion(DIMS, m_numRows, 0.5, m_parallel);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        m_parallel.close();
+    }
+
+    /**
+     * @return the normalization of the output similarities
+     */
+    @Benchmark
+    public double repulsion() {
+        return m_repulsion.compute(m_y, m_negF);
+    }
+
+}
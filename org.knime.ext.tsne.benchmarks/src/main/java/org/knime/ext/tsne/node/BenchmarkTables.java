@@ -0,0 +1,123 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ *
+ */
+package org.knime.ext.tsne.node;
+
+import org.knime.core.data.DataCell;
+import org.knime.core.data.DataColumnSpec;
+import org.knime.core.data.DataColumnSpecCreator;
+import org.knime.core.data.DataTableSpec;
+import org.knime.core.data.RowKey;
+import org.knime.core.data.def.DefaultRow;
+import org.knime.core.data.def.DoubleCell;
+import org.knime.core.data.filestore.internal.NotInWorkflowDataRepository;
+import org.knime.core.node.BufferedDataContainer;
+import org.knime.core.node.BufferedDataTable;
+import org.knime.core.node.DefaultNodeProgressMonitor;
+import org.knime.core.node.ExecutionContext;
+import org.knime.core.node.Node;
+import org.knime.core.node.NodeFactory;
+import org.knime.core.node.NodeModel;
+import org.knime.core.node.port.PortType;
+import org.knime.core.node.workflow.SingleNodeContainer;
+import org.knime.core.node.workflow.virtual.parchunk.VirtualParallelizedChunkPortObjectInNodeFactory;
+import org.knime.ext.tsne.algorithm.GaussianBlobs;
+
+/**
+ * Creates the tables of the benchmarks of the t-SNE node, which are held by an execution context that doesn't
+ * belong to a workflow.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+final class BenchmarkTables {
+
+    private BenchmarkTables() {
+    }
+
+    /**
+     * @return an execution context of a node outside of any workflow that keeps small tables in memory
+     */
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    static ExecutionContext createExecutionContext() {
+        final NodeFactory<NodeModel> factory =
+            (NodeFactory)new VirtualParallelizedChunkPortObjectInNodeFactory(new PortType[0]);
+        return new ExecutionContext(new DefaultNodeProgressMonitor(), new Node(factory),
+            SingleNodeContainer.MemoryPolicy.CacheSmallInMemory, NotInWorkflowDataRepository.newInstance());
+    }
+
+    /**
+     * @param numRows the number of rows
+     * @param exec creates the table
+     * @return a table of {@link GaussianBlobs#NUM_COLS} double columns holding Gaussian clusters
+     */
+    static BufferedDataTable createBlobs(final int numRows, final ExecutionContext exec) {
+        final double[] data = GaussianBlobs.create(numRows, 1);
+        final BufferedDataContainer container = exec.createDataContainer(createSpec("x", GaussianBlobs.NUM_COLS));
+        final DataCell[] cells = new DataCell[GaussianBlobs.NUM_COLS];
+        for (int i = 0; i < numRows; i++) {
+            for (int c = 0; c < cells.length; c++) {
+                cells[c] = new DoubleCell(data[i * cells.length + c]);
+            }
+            container.addRowToTable(new DefaultRow(RowKey.createRowKey((long)i), cells));
+        }
+        container.close();
+        return container.getTable();
+    }
+
+    /**
+     * @param prefix the prefix of the column names, which are suffixed by the column index
+     * @param numCols the number of columns
+     * @return the spec of {@code numCols} double columns
+     */
+    static DataTableSpec createSpec(final String prefix, final int numCols) {
+        final DataColumnSpec[] specs = new DataColumnSpec[numCols];
+        for (int c = 0; c < numCols; c++) {
+            specs[c] = new DataColumnSpecCreator(prefix + c, DoubleCell.TYPE).createSpec();
+        }
+        return new DataTableSpec(specs);
+    }
+
+}
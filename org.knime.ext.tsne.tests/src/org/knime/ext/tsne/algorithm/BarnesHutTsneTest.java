@@ -0,0 +1,616 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ *
+ */
+package org.knime.ext.tsne.algorithm;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for {@link BarnesHutTsne}.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+final class BarnesHutTsneTest {
+
+    private static final int NUM_CLUSTERS = 3;
+
+    private static final int NUM_ROWS = 300;
+
+    private static final int NUM_COLS = 5;
+
+    private static double[] createBlobs() {
+        final Random random = new Random(1);
+        final double[] data = new double[NUM_ROWS * NUM_COLS];
+        for (int i = 0; i < NUM_ROWS; i++) {
+            for (int d = 0; d < NUM_COLS; d++) {
+                data[i * NUM_COLS + d] = random.nextGaussian() + (d == i % NUM_CLUSTERS ? 10 : 0);
+            }
+        }
+        return data;
+    }
+
+    private static double[] embed(final double theta, final int numThreads) {
+        return embed(theta, 20, 42, numThreads);
+    }
+
+    private static double[] embed(final double theta, final double perplexity, final long seed,
+        final int numThreads) {
+        return BarnesHutTsne.builder()//
+            .theta(theta)//
+            .perplexity(perplexity)//
+            .iterations(400)//
+            .seed(seed)//
+            .numberOfThreads(numThreads)//
+            .build()//
+            .embed(createBlobs(), NUM_ROWS, NUM_COLS);
+    }
+
+    @Test
+    void testResultIsIndependentOfNumberOfThreads() {
+        assertThat(embed(0.5, 4)).containsExactly(embed(0.5, 1));
+    }
+
+    @Test
+    void testBarnesHutSeparatesClusters() {
+        assertClustersSeparated(embed(0.5, 2));
+    }
+
+    @Test
+    void testExactSeparatesClusters() {
+        assertClustersSeparated(embed(0, 2));
+    }
+
+    /**
+     * The exact algorithm with the schedule of FastTSne (T-SNE-Java) follows a plain dense implementation of the
+     * gradient descent of the original t-SNE (tsne.py), which FastTSne is a port of. The optimization amplifies
+     * rounding differences, hence the reference continues from checkpoints of the engine for a few iterations
+     * around every change of the schedule. The reference leaves out the floors of 1e-12 of the similarities and
+     * updates the gains with the sign rule of the engine, which differs from tsne.py only in the first iteration.
+     */
+    @Test
+    void testExactFollowsDenseReference() {
+        final int numRows = 60;
+        final double perplexity = 10;
+        final EuclideanDistance euclidean = new EuclideanDistance(createBlobs(), NUM_COLS);
+        final DistanceFunction distance = euclidean::distance;
+        final List<TsneCheckpoint> checkpoints = new ArrayList<>();
+        BarnesHutTsne.builder()//
+            .theta(0)//
+            .perplexity(perplexity)//
+            .iterations(200)//
+            .learningRate(500)//
+            .earlyExaggeration(4, 101)//
+            .momentum(0.5, 0.8, 20)//
+            .seed(42)//
+            .checkpoints(1, checkpoints::add)//
+            .build()//
+            .embed(distance, numRows);
+        assertThat(checkpoints.size()).isEqualTo(200);
+        final int steps = 10;
+        // the first iterations, the momentum switch, the end of the exaggeration and the last iterations
+        for (final int start : new int[]{1, 15, 96, 190}) {
+            final TsneCheckpoint from = checkpoints.get(start - 1);
+            final double[] reference = denseReference(distance, numRows, 2, perplexity, from, steps);
+            final double[] embedding = checkpoints.get(start + steps - 1).getEmbedding();
+            for (int i = 0; i < reference.length; i++) {
+                assertThat(embedding[i]).as("coordinate %d after iteration %d", i, start + steps)
+                    .isCloseTo(reference[i], within(1e-6));
+            }
+        }
+    }
+
+    /** Continues the gradient descent of tsne.py from {@code checkpoint} for {@code steps} iterations. */
+    private static double[] denseReference(final DistanceFunction distance, final int n, final int dims,
+        final double perplexity, final TsneCheckpoint checkpoint, final int steps) {
+        final double[][] p = new double[n][n];
+        for (int i = 0; i < n; i++) {
+            // binary search for the precision of the Gaussian that yields the perplexity
+            double beta = 1;
+            double minBeta = Double.NEGATIVE_INFINITY;
+            double maxBeta = Double.POSITIVE_INFINITY;
+            for (int step = 0; step < 200; step++) {
+                double sum = 0;
+                double weighted = 0;
+                for (int j = 0; j < n; j++) {
+                    if (j != i) {
+                        final double d = Math.pow(distance.distance(i, j), 2);
+                        p[i][j] = Math.exp(-beta * d);
+                        sum += p[i][j];
+                        weighted += d * p[i][j];
+                    }
+                }
+                for (int j = 0; j < n; j++) {
+                    p[i][j] /= sum;
+                }
+                final double diff = Math.log(sum) + beta * weighted / sum - Math.log(perplexity);
+                if (Math.abs(diff) < 1e-5) {
+                    break;
+                }
+                if (diff > 0) {
+                    minBeta = beta;
+                    beta = maxBeta == Double.POSITIVE_INFINITY ? beta * 2 : (beta + maxBeta) / 2;
+                } else {
+                    maxBeta = beta;
+                    beta = minBeta == Double.NEGATIVE_INFINITY ? beta / 2 : (beta + minBeta) / 2;
+                }
+            }
+        }
+        double sumP = 0;
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                sumP += p[i][j] + p[j][i];
+            }
+        }
+        final double[][] joint = new double[n][n];
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                joint[i][j] = (p[i][j] + p[j][i]) / sumP;
+            }
+        }
+        final double[] y = checkpoint.m_y.clone();
+        final double[] iY = checkpoint.m_update.clone();
+        final double[] gains = checkpoint.m_gains.clone();
+        final double[][] num = new double[n][n];
+        final double[] dY = new double[y.length];
+        for (int iter = checkpoint.getIteration(); iter < checkpoint.getIteration() + steps; iter++) {
+            // tsne.py multiplies the similarities by 4 and divides them by 4 at the end of iteration 100
+            final double exaggeration = iter <= 100 ? 4 : 1;
+            double sumNum = 0;
+            for (int i = 0; i < n; i++) {
+                for (int j = 0; j < n; j++) {
+                    double d = 0;
+                    for (int k = 0; k < dims; k++) {
+                        d += (y[i * dims + k] - y[j * dims + k]) * (y[i * dims + k] - y[j * dims + k]);
+                    }
+                    num[i][j] = i == j ? 0 : 1 / (1 + d);
+                    sumNum += num[i][j];
+                }
+            }
+            Arrays.fill(dY, 0);
+            for (int i = 0; i < n; i++) {
+                for (int j = 0; j < n; j++) {
+                    final double pq = (exaggeration * joint[i][j] - num[i][j] / sumNum) * num[i][j];
+                    for (int k = 0; k < dims; k++) {
+                        dY[i * dims + k] += pq * (y[i * dims + k] - y[j * dims + k]);
+                    }
+                }
+            }
+            final double momentum = iter < 20 ? 0.5 : 0.8;
+            for (int i = 0; i < y.length; i++) {
+                gains[i] = Math.signum(dY[i]) != Math.signum(iY[i]) ? gains[i] + 0.2 : gains[i] * 0.8;
+                gains[i] = Math.max(gains[i], 0.01);
+                iY[i] = momentum * iY[i] - 500 * gains[i] * dY[i];
+                y[i] += iY[i];
+            }
+            for (int k = 0; k < dims; k++) {
+                double mean = 0;
+                for (int i = 0; i < n; i++) {
+                    mean += y[i * dims + k] / n;
+                }
+                for (int i = 0; i < n; i++) {
+                    y[i * dims + k] -= mean;
+                }
+            }
+        }
+        return y;
+    }
+
+    @Test
+    void testResumeFromCheckpointReproducesUninterruptedRun() throws IOException {
+        final List<TsneCheckpoint> checkpoints = new ArrayList<>();
+        final double[] uninterrupted = BarnesHutTsne.builder()//
+            .perplexity(20)//
+            .iterations(400)//
+            .seed(42)//
+            .checkpoints(100, checkpoints::add)//
+            .build()//
+            .embed(createBlobs(), NUM_ROWS, NUM_COLS);
+        assertThat(checkpoints.size()).isEqualTo(4);
+        // resume after the early exaggeration phase from a serialized checkpoint
+        final TsneCheckpoint checkpoint = checkpoints.get(2);
+        assertThat(checkpoint.getIteration()).isEqualTo(300);
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        checkpoint.save(new DataOutputStream(bytes));
+        final TsneCheckpoint loaded =
+            TsneCheckpoint.load(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        final double[] resumed = BarnesHutTsne.builder()//
+            .perplexity(20)//
+            .iterations(400)//
+            .seed(7)//
+            .resumeFrom(loaded)//
+            .build()//
+            .embed(createBlobs(), NUM_ROWS, NUM_COLS);
+        assertThat(resumed).containsExactly(uninterrupted);
+    }
+
+    @Test
+    void testKlToleranceStopsEarly() {
+        final TsneModel complete = BarnesHutTsne.builder()//
+            .perplexity(20)//
+            .iterations(2000)//
+            .seed(42)//
+            .build()//
+            .fit(createBlobs(), NUM_ROWS, NUM_COLS);
+        assertThat(complete.getIterations()).isEqualTo(2000);
+        final TsneModel stopped = BarnesHutTsne.builder()//
+            .perplexity(20)//
+            .iterations(2000)//
+            .seed(42)//
+            .stoppingCriteria(1e-3, 0)//
+            .build()//
+            .fit(createBlobs(), NUM_ROWS, NUM_COLS);
+        // the divergence is checked every 50 iterations after the exaggeration phase
+        assertThat(stopped.getIterations()).isGreaterThan(250).isLessThan(2000);
+        assertThat(stopped.getIterations() % 50).isEqualTo(0);
+        assertThat(stopped.getKlDivergence()).isLessThan(2 * complete.getKlDivergence());
+        assertClustersSeparated(stopped.getEmbedding());
+    }
+
+    @Test
+    void testShortExaggerationPhaseSeparatesClusters() {
+        assertClustersSeparated(BarnesHutTsne.builder()//
+            .perplexity(20)//
+            .iterations(400)//
+            .seed(42)//
+            .earlyExaggeration(4, 100)//
+            .momentum(0.5, 0.8, 100)//
+            .build()//
+            .embed(createBlobs(), NUM_ROWS, NUM_COLS));
+    }
+
+    private static float[] toFloats(final double[] values) {
+        final float[] floats = new float[values.length];
+        for (int i = 0; i < values.length; i++) {
+            floats[i] = (float)values[i];
+        }
+        return floats;
+    }
+
+    private static TsneModel fit(final boolean singlePrecision, final int iterations) {
+        final BarnesHutTsne tsne = BarnesHutTsne.builder()//
+            .perplexity(20)//
+            .iterations(iterations)//
+            .seed(42)//
+            .build();
+        return singlePrecision ? tsne.fit(toFloats(createBlobs()), NUM_ROWS, NUM_COLS)
+            : tsne.fit(createBlobs(), NUM_ROWS, NUM_COLS);
+    }
+
+    @Test
+    void testSinglePrecisionFollowsDoublePrecision() {
+        // the optimization amplifies rounding differences over time, hence only the first iterations are compared
+        final double[] expected = fit(false, 10).getEmbedding();
+        final double[] actual = fit(true, 10).getEmbedding();
+        for (int i = 0; i < expected.length; i++) {
+            assertThat(actual[i]).isCloseTo(expected[i], within(1e-3));
+        }
+    }
+
+    @Test
+    void testSinglePrecisionReachesDoublePrecisionQuality() {
+        final TsneModel expected = fit(false, 1000);
+        final TsneModel actual = fit(true, 1000);
+        assertThat(actual.getKlDivergence()).isCloseTo(expected.getKlDivergence(),
+            within(0.1 * expected.getKlDivergence()));
+        assertClustersSeparated(actual.getEmbedding());
+    }
+
+    private static TsneModel fitWithPca(final int pcaComponents, final boolean pcaInitialization,
+        final int numThreads) {
+        return BarnesHutTsne.builder()//
+            .perplexity(20)//
+            .iterations(400)//
+            .seed(42)//
+            .numberOfThreads(numThreads)//
+            .pcaComponents(pcaComponents)//
+            .pcaInitialization(pcaInitialization)//
+            .build()//
+            .fit(createBlobs(), NUM_ROWS, NUM_COLS);
+    }
+
+    @Test
+    void testPcaReductionSeparatesClusters() {
+        final TsneModel model = fitWithPca(3, false, 2);
+        assertClustersSeparated(model.getEmbedding());
+        assertThat(model.getNumCols()).isEqualTo(NUM_COLS);
+    }
+
+    @Test
+    void testPcaInitializationSeparatesClusters() {
+        assertClustersSeparated(fitWithPca(0, true, 2).getEmbedding());
+        assertClustersSeparated(fitWithPca(3, true, 2).getEmbedding());
+    }
+
+    @Test
+    void testPcaResultIsIndependentOfNumberOfThreads() {
+        assertThat(fitWithPca(3, true, 4).getEmbedding()).containsExactly(fitWithPca(3, true, 1).getEmbedding());
+    }
+
+    @Test
+    void testPcaComponentsMustCoverOutputDimensions() {
+        assertThatThrownBy(() -> BarnesHutTsne.builder().outputDimensions(3).pcaComponents(2).build())
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    /** Each cluster sets a random half of its own block of 64 bits and a few random bits anywhere. */
+    private static PackedBitVectors createFingerprints() {
+        final Random random = new Random(1);
+        final PackedBitVectors fingerprints =
+            new PackedBitVectors(NUM_ROWS, 64 * NUM_CLUSTERS, VectorDistance.TANIMOTO);
+        for (int i = 0; i < NUM_ROWS; i++) {
+            for (int b = 0; b < 32; b++) {
+                fingerprints.set(i, 64 * (i % NUM_CLUSTERS) + random.nextInt(64));
+            }
+            for (int b = 0; b < 8; b++) {
+                fingerprints.set(i, random.nextInt(64 * NUM_CLUSTERS));
+            }
+        }
+        return fingerprints;
+    }
+
+    private static double[] embedDistances(final DistanceFunction distance, final NeighborSearchMethod method,
+        final int numThreads) {
+        return BarnesHutTsne.builder()//
+            .perplexity(20)//
+            .iterations(400)//
+            .seed(42)//
+            .neighborSearchMethod(method)//
+            .numberOfThreads(numThreads)//
+            .build()//
+            .embed(distance, NUM_ROWS);
+    }
+
+    @Test
+    void testFingerprintsSeparateClusters() {
+        final PackedBitVectors fingerprints = createFingerprints();
+        assertClustersSeparated(embedDistances(fingerprints, NeighborSearchMethod.VANTAGE_POINT_TREE, 2));
+        assertClustersSeparated(embedDistances(fingerprints, NeighborSearchMethod.NN_DESCENT, 2));
+    }
+
+    @Test
+    void testDistanceMatrixSeparatesClusters() {
+        final double[] blobs = createBlobs();
+        final EuclideanDistance euclidean = new EuclideanDistance(blobs, NUM_COLS);
+        final double[] matrix = new double[NUM_ROWS * NUM_ROWS];
+        for (int i = 0; i < NUM_ROWS; i++) {
+            for (int j = 0; j < NUM_ROWS; j++) {
+                matrix[i * NUM_ROWS + j] = euclidean.distance(i, j);
+            }
+        }
+        final DistanceFunction distance = (i, j) -> matrix[i * NUM_ROWS + j];
+        assertClustersSeparated(embedDistances(distance, NeighborSearchMethod.VANTAGE_POINT_TREE, 2));
+        assertClustersSeparated(embedDistances(distance, NeighborSearchMethod.RANDOM_PROJECTION_FOREST, 2));
+        assertClustersSeparated(BarnesHutTsne.builder()//
+            .perplexity(20)//
+            .iterations(400)//
+            .theta(0)//
+            .seed(42)//
+            .build()//
+            .embed(distance, NUM_ROWS));
+    }
+
+    @Test
+    void testDistanceInputIsIndependentOfNumberOfThreads() {
+        final PackedBitVectors fingerprints = createFingerprints();
+        assertThat(embedDistances(fingerprints, NeighborSearchMethod.NN_DESCENT, 4))
+            .containsExactly(embedDistances(fingerprints, NeighborSearchMethod.NN_DESCENT, 1));
+    }
+
+    @Test
+    void testDistanceInputRejectsPca() {
+        final BarnesHutTsne tsne = BarnesHutTsne.builder().pcaInitialization(true).build();
+        assertThatThrownBy(() -> tsne.embed(createFingerprints(), NUM_ROWS))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static List<TsneEmbedding> embedAll(final double theta, final int numThreads) {
+        return BarnesHutTsne.builder()//
+            .theta(theta)//
+            .iterations(400)//
+            .numberOfThreads(numThreads)//
+            .build()//
+            .embedAll(createBlobs(), NUM_ROWS, NUM_COLS, new double[]{10, 20}, new long[]{42, 7});
+    }
+
+    /** The exact neighbors of a smaller perplexity are a prefix of those of the largest one. */
+    @Test
+    void testEmbedAllMatchesSeparateRuns() {
+        for (final double theta : new double[]{0.5, 0}) {
+            final List<TsneEmbedding> runs = embedAll(theta, 4);
+            assertThat(runs.size()).isEqualTo(4);
+            for (int r = 0; r < runs.size(); r++) {
+                final TsneEmbedding run = runs.get(r);
+                assertThat(run.getPerplexity()).isEqualTo(r < 2 ? 10.0 : 20.0);
+                assertThat(run.getSeed()).isEqualTo(r % 2 == 0 ? 42L : 7L);
+                assertThat(run.getEmbedding())
+                    .containsExactly(embed(theta, run.getPerplexity(), run.getSeed(), 1));
+            }
+        }
+    }
+
+    /** The runs are spread over at most as many tasks as there are threads, each run on the given executor. */
+    @Test
+    void testEmbedAllRunsOnTheGivenExecutor() {
+        final AtomicInteger tasks = new AtomicInteger();
+        final ExecutorService executor = Executors.newCachedThreadPool();
+        try {
+            final List<TsneEmbedding> runs = BarnesHutTsne.builder()//
+                .iterations(400)//
+                .numberOfThreads(3)//
+                .executor(task -> {
+                    tasks.incrementAndGet();
+                    executor.execute(task);
+                })//
+                .build()//
+                .embedAll(createBlobs(), NUM_ROWS, NUM_COLS, new double[]{10, 20}, new long[]{42, 7});
+            assertThat(tasks.get()).isEqualTo(3);
+            final List<TsneEmbedding> expected = embedAll(0.5, 3);
+            for (int r = 0; r < runs.size(); r++) {
+                assertThat(runs.get(r).getEmbedding()).containsExactly(expected.get(r).getEmbedding());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void testEmbedAllSeparatesClusters() {
+        for (final TsneEmbedding run : embedAll(0.5, 3)) {
+            assertClustersSeparated(run.getEmbedding());
+        }
+    }
+
+    @Test
+    void testEmbedAllRejectsCheckpoints() {
+        final BarnesHutTsne tsne = BarnesHutTsne.builder().checkpoints(10, checkpoint -> {
+        }).build();
+        assertThatThrownBy(
+            () -> tsne.embedAll(createBlobs(), NUM_ROWS, NUM_COLS, new double[]{10, 20}, new long[]{42}))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void testCancellationStopsWithinTheCurrentIteration() {
+        final AtomicBoolean canceled = new AtomicBoolean();
+        final List<TsneCheckpoint> checkpoints = new ArrayList<>();
+        final BarnesHutTsne tsne = BarnesHutTsne.builder()//
+            .perplexity(20)//
+            .iterations(400)//
+            .seed(42)//
+            .numberOfThreads(2)//
+            .progress(new CancelableProgress(canceled))//
+            .checkpoints(1, checkpoint -> {
+                checkpoints.add(checkpoint);
+                canceled.set(checkpoint.getIteration() == 300);
+            })//
+            .build();
+        assertThatThrownBy(() -> tsne.embed(createBlobs(), NUM_ROWS, NUM_COLS))
+            .isInstanceOf(CancellationException.class);
+        assertThat(checkpoints.size()).isEqualTo(300);
+    }
+
+    @Test
+    void testCancellationStopsNeighborSearch() {
+        final AtomicBoolean canceled = new AtomicBoolean(true);
+        final List<TsneCheckpoint> checkpoints = new ArrayList<>();
+        final BarnesHutTsne tsne = BarnesHutTsne.builder()//
+            .perplexity(20)//
+            .seed(42)//
+            .progress(new CancelableProgress(canceled))//
+            .checkpoints(1, checkpoints::add)//
+            .build();
+        assertThatThrownBy(() -> tsne.embed(createBlobs(), NUM_ROWS, NUM_COLS))
+            .isInstanceOf(CancellationException.class);
+        assertThat(checkpoints.size()).isEqualTo(0);
+    }
+
+    private static final class CancelableProgress implements TsneProgress {
+
+        private final AtomicBoolean m_canceled;
+
+        CancelableProgress(final AtomicBoolean canceled) {
+            m_canceled = canceled;
+        }
+
+        @Override
+        public void setProgress(final double progress) {
+            // not checked
+        }
+
+        @Override
+        public void setMessage(final String message) {
+            // not checked
+        }
+
+        @Override
+        public boolean isCanceled() {
+            return m_canceled.get();
+        }
+
+    }
+
+    /** Every point must be closer to the centroid of its own cluster than to any other centroid. */
+    private static void assertClustersSeparated(final double[] embedding) {
+        final double[] centroids = new double[NUM_CLUSTERS * 2];
+        for (int i = 0; i < NUM_ROWS; i++) {
+            centroids[(i % NUM_CLUSTERS) * 2] += embedding[i * 2] / (NUM_ROWS / NUM_CLUSTERS);
+            centroids[(i % NUM_CLUSTERS) * 2 + 1] += embedding[i * 2 + 1] / (NUM_ROWS / NUM_CLUSTERS);
+        }
+        for (int i = 0; i < NUM_ROWS; i++) {
+            int closest = -1;
+            double minDist = Double.POSITIVE_INFINITY;
+            for (int c = 0; c < NUM_CLUSTERS; c++) {
+                final double dx = embedding[i * 2] - centroids[c * 2];
+                final double dy = embedding[i * 2 + 1] - centroids[c * 2 + 1];
+                if (dx * dx + dy * dy < minDist) {
+                    minDist = dx * dx + dy * dy;
+                    closest = c;
+                }
+            }
+            assertThat(closest).as("cluster of row %s", i).isEqualTo(i % NUM_CLUSTERS);
+        }
+    }
+
+}
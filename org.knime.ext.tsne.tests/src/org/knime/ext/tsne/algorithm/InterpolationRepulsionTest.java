@@ -0,0 +1,95 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ *
+ */
+package org.knime.ext.tsne.algorithm;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Random;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * Tests for {@link InterpolationRepulsion}.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+final class InterpolationRepulsionTest {
+
+    private static final int NUM_POINTS = 500;
+
+    /**
+     * Compares the interpolated forces and normalization with the exact values (Barnes-Hut with theta zero).
+     *
+     * @param dims the dimensionality of the embedding
+     */
+    @ParameterizedTest
+    @ValueSource(ints = {1, 2})
+    void testMatchesExactRepulsion(final int dims) {
+        final Random random = new Random(3);
+        final double[] y = new double[NUM_POINTS * dims];
+        for (int i = 0; i < y.length; i++) {
+            y[i] = random.nextGaussian() * 5;
+        }
+        final double[] interpolated = new double[y.length];
+        final double[] exact = new double[y.length];
+        try (final ParallelRange parallel = new ParallelRange(2)) {
+            final double interpolatedZ =
+                new InterpolationRepulsion(dims, NUM_POINTS, parallel).compute(y, interpolated);
+            final double exactZ = new BarnesHutRepulsion(dims, NUM_POINTS, 0, parallel).compute(y, exact);
+            assertThat(Math.abs(interpolatedZ - exactZ) / exactZ).isLessThan(1e-3);
+        }
+        double error = 0;
+        double norm = 0;
+        for (int i = 0; i < y.length; i++) {
+            error += (interpolated[i] - exact[i]) * (interpolated[i] - exact[i]);
+            norm += exact[i] * exact[i];
+        }
+        assertThat(Math.sqrt(error / norm)).isLessThan(1e-2);
+    }
+
+}
@@ -0,0 +1,149 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ *
+ */
+package org.knime.ext.tsne.algorithm;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the approximate {@link NeighborSearch} implementations against the exact {@link VantagePointTree}.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+final class NeighborSearchTest {
+
+    private static final int NUM_ROWS = 1000;
+
+    private static final int NUM_COLS = 10;
+
+    private static final int K = 15;
+
+    private static final double[] DATA = createData();
+
+    private static double[] createData() {
+        final Random random = new Random(3);
+        final double[] data = new double[NUM_ROWS * NUM_COLS];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = random.nextGaussian();
+        }
+        return data;
+    }
+
+    private static int[] findNeighbors(final NeighborSearch search, final int numThreads) {
+        final int[] neighbors = new int[NUM_ROWS * K];
+        final double[] distances = new double[NUM_ROWS * K];
+        try (final ParallelRange parallel = new ParallelRange(numThreads)) {
+            search.findNeighbors(K, neighbors, distances, parallel);
+        }
+        for (int i = 0; i < NUM_ROWS; i++) {
+            for (int m = i * K + 1; m < (i + 1) * K; m++) {
+                assertThat(distances[m]).as("sorted distances").isGreaterThanOrEqualTo(distances[m - 1]);
+            }
+        }
+        return neighbors;
+    }
+
+    private static double recall(final int[] approximate) {
+        final int[] exact = findNeighbors(
+            new VantagePointTree(new EuclideanDistance(DATA, NUM_COLS), NUM_ROWS, new Random(0)), 1);
+        int hits = 0;
+        for (int i = 0; i < NUM_ROWS; i++) {
+            for (int m = i * K; m < (i + 1) * K; m++) {
+                for (int e = i * K; e < (i + 1) * K; e++) {
+                    if (approximate[e] == exact[m]) {
+                        hits++;
+                        break;
+                    }
+                }
+            }
+        }
+        return hits / (double)exact.length;
+    }
+
+    private static RandomProjectionForest forest(final int numTrees) {
+        return new RandomProjectionForest(DATA, NUM_ROWS, NUM_COLS, numTrees, new Random(1));
+    }
+
+    private static NnDescent nnDescent() {
+        return new NnDescent(new EuclideanDistance(DATA, NUM_COLS), NUM_ROWS, forest(2), 15, 10);
+    }
+
+    private static NnDescent nnDescentFromRandomNeighbors() {
+        final EuclideanDistance distance = new EuclideanDistance(DATA, NUM_COLS);
+        return new NnDescent(distance, NUM_ROWS, new RandomNeighbors(distance, NUM_ROWS, 1), 15, 20);
+    }
+
+    @Test
+    void testRandomProjectionForestRecallGrowsWithTrees() {
+        final double fewTrees = recall(findNeighbors(forest(2), 1));
+        final double manyTrees = recall(findNeighbors(forest(16), 1));
+        assertThat(manyTrees).isGreaterThan(fewTrees);
+        assertThat(manyTrees).isGreaterThan(0.8);
+    }
+
+    @Test
+    void testNnDescentRecall() {
+        assertThat(recall(findNeighbors(nnDescent(), 1))).isGreaterThan(0.95);
+    }
+
+    @Test
+    void testNnDescentFromRandomNeighborsRecall() {
+        assertThat(recall(findNeighbors(nnDescentFromRandomNeighbors(), 1))).isGreaterThan(0.9);
+    }
+
+    @Test
+    void testResultIsIndependentOfNumberOfThreads() {
+        assertThat(findNeighbors(forest(4), 3)).containsExactly(findNeighbors(forest(4), 1));
+        assertThat(findNeighbors(nnDescent(), 3)).containsExactly(findNeighbors(nnDescent(), 1));
+        assertThat(findNeighbors(nnDescentFromRandomNeighbors(), 3))
+            .containsExactly(findNeighbors(nnDescentFromRandomNeighbors(), 1));
+    }
+
+}
@@ -0,0 +1,146 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ *
+ */
+package org.knime.ext.tsne.algorithm;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the distances of {@link PackedBitVectors} and {@link PackedByteVectors} against a naive computation.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+final class PackedVectorsTest {
+
+    private static final int NUM_ROWS = 20;
+
+    /** Not a multiple of 64 so that the last word is only partially used. */
+    private static final int LENGTH = 150;
+
+    private static int[][] createCounts(final int maxCount) {
+        final Random random = new Random(5);
+        final int[][] counts = new int[NUM_ROWS][LENGTH];
+        for (int i = 0; i < NUM_ROWS; i++) {
+            // the first row stays empty
+            for (int d = 0; i > 0 && d < LENGTH; d++) {
+                counts[i][d] = random.nextInt(4) == 0 ? random.nextInt(maxCount + 1) : 0;
+            }
+        }
+        return counts;
+    }
+
+    private static double naiveDistance(final int[] a, final int[] b, final VectorDistance distance) {
+        double min = 0;
+        double max = 0;
+        double diff = 0;
+        for (int d = 0; d < a.length; d++) {
+            min += Math.min(a[d], b[d]);
+            max += Math.max(a[d], b[d]);
+            diff += Math.abs(a[d] - b[d]);
+        }
+        if (distance == VectorDistance.HAMMING) {
+            return diff;
+        }
+        return max == 0 ? 0 : (1 - min / max);
+    }
+
+    @Test
+    void testBitVectorDistances() {
+        final int[][] bits = createCounts(1);
+        for (final VectorDistance distance : VectorDistance.values()) {
+            final PackedBitVectors vectors = new PackedBitVectors(NUM_ROWS, LENGTH, distance);
+            for (int i = 0; i < NUM_ROWS; i++) {
+                for (int d = 0; d < LENGTH; d++) {
+                    if (bits[i][d] == 1) {
+                        vectors.set(i, d);
+                        // setting a bit twice does not change the vector
+                        vectors.set(i, d);
+                    }
+                }
+            }
+            for (int i = 0; i < NUM_ROWS; i++) {
+                for (int j = 0; j < NUM_ROWS; j++) {
+                    assertThat(vectors.distance(i, j)).as("%s distance of rows %s and %s", distance, i, j)
+                        .isCloseTo(naiveDistance(bits[i], bits[j], distance), within(1e-12));
+                }
+            }
+        }
+    }
+
+    @Test
+    void testByteVectorDistances() {
+        final int[][] counts = createCounts(255);
+        for (final VectorDistance distance : VectorDistance.values()) {
+            final PackedByteVectors vectors = new PackedByteVectors(NUM_ROWS, LENGTH, distance);
+            for (int i = 0; i < NUM_ROWS; i++) {
+                for (int d = 0; d < LENGTH; d++) {
+                    // overwriting an entry must keep the sum of the vector consistent
+                    vectors.set(i, d, 7);
+                    vectors.set(i, d, counts[i][d]);
+                }
+            }
+            for (int i = 0; i < NUM_ROWS; i++) {
+                for (int j = 0; j < NUM_ROWS; j++) {
+                    assertThat(vectors.distance(i, j)).as("%s distance of rows %s and %s", distance, i, j)
+                        .isCloseTo(naiveDistance(counts[i], counts[j], distance), within(1e-12));
+                }
+            }
+        }
+    }
+
+    @Test
+    void testByteVectorRejectsLargeCounts() {
+        final PackedByteVectors vectors = new PackedByteVectors(1, 1, VectorDistance.HAMMING);
+        assertThatThrownBy(() -> vectors.set(0, 0, 256)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+}
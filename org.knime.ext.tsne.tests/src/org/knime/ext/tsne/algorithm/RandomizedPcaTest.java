@@ -0,0 +1,166 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ *
+ */
+package org.knime.ext.tsne.algorithm;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for {@link RandomizedPca}.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+final class RandomizedPcaTest {
+
+    private static final int NUM_ROWS = 500;
+
+    private static final int NUM_COLS = 30;
+
+    private static final int NUM_COMPONENTS = 3;
+
+    /** Three latent factors with decreasing variance plus a little noise, centered column-wise. */
+    private static double[] createData() {
+        final Random random = new Random(5);
+        final double[] loadings = new double[NUM_COMPONENTS * NUM_COLS];
+        for (int i = 0; i < loadings.length; i++) {
+            loadings[i] = random.nextGaussian();
+        }
+        final double[] data = new double[NUM_ROWS * NUM_COLS];
+        for (int i = 0; i < NUM_ROWS; i++) {
+            for (int f = 0; f < NUM_COMPONENTS; f++) {
+                final double factor = random.nextGaussian() * (10 >> f);
+                for (int c = 0; c < NUM_COLS; c++) {
+                    data[i * NUM_COLS + c] += factor * loadings[f * NUM_COLS + c];
+                }
+            }
+            for (int c = 0; c < NUM_COLS; c++) {
+                data[i * NUM_COLS + c] += 0.1 * random.nextGaussian();
+            }
+        }
+        for (int c = 0; c < NUM_COLS; c++) {
+            double mean = 0;
+            for (int i = 0; i < NUM_ROWS; i++) {
+                mean += data[i * NUM_COLS + c] / NUM_ROWS;
+            }
+            for (int i = 0; i < NUM_ROWS; i++) {
+                data[i * NUM_COLS + c] -= mean;
+            }
+        }
+        return data;
+    }
+
+    private static RandomizedPca fit(final double[] data, final int numThreads) {
+        try (final ParallelRange parallel = new ParallelRange(numThreads)) {
+            return RandomizedPca.fit(FeatureMatrix.of(data, NUM_COLS), NUM_ROWS, NUM_COMPONENTS, new Random(0),
+                parallel);
+        }
+    }
+
+    @Test
+    void testComponentsMatchExactEigenvectors() {
+        final double[] data = createData();
+        final double[] covariance = new double[NUM_COLS * NUM_COLS];
+        for (int i = 0; i < NUM_ROWS; i++) {
+            for (int c = 0; c < NUM_COLS; c++) {
+                for (int e = 0; e < NUM_COLS; e++) {
+                    covariance[c * NUM_COLS + e] += data[i * NUM_COLS + c] * data[i * NUM_COLS + e];
+                }
+            }
+        }
+        final double[] values = new double[NUM_COLS];
+        final double[] vectors = new double[NUM_COLS * NUM_COLS];
+        RandomizedPca.symmetricEigen(covariance, NUM_COLS, values, vectors);
+        final double[] components = fit(data, 1).getComponents();
+        for (int j = 0; j < NUM_COMPONENTS; j++) {
+            double dot = 0;
+            for (int c = 0; c < NUM_COLS; c++) {
+                dot += components[c * NUM_COMPONENTS + j] * vectors[c * NUM_COLS + j];
+            }
+            // eigenvectors are unique up to their sign
+            assertThat(Math.abs(dot)).as("component %s", j).isCloseTo(1, within(1e-6));
+        }
+    }
+
+    @Test
+    void testEigenvectorsDiagonalizeMatrix() {
+        final Random random = new Random(2);
+        final int n = 12;
+        final double[] matrix = new double[n * n];
+        for (int i = 0; i < n; i++) {
+            for (int j = i; j < n; j++) {
+                matrix[i * n + j] = random.nextGaussian();
+                matrix[j * n + i] = matrix[i * n + j];
+            }
+        }
+        final double[] values = new double[n];
+        final double[] vectors = new double[n * n];
+        RandomizedPca.symmetricEigen(matrix.clone(), n, values, vectors);
+        for (int j = 0; j < n; j++) {
+            if (j > 0) {
+                assertThat(values[j]).isLessThan(values[j - 1]);
+            }
+            for (int i = 0; i < n; i++) {
+                double product = 0;
+                for (int l = 0; l < n; l++) {
+                    product += matrix[i * n + l] * vectors[l * n + j];
+                }
+                assertThat(product).isCloseTo(values[j] * vectors[i * n + j], within(1e-9));
+            }
+        }
+    }
+
+    @Test
+    void testResultIsIndependentOfNumberOfThreads() {
+        final double[] data = createData();
+        assertThat(fit(data, 4).getComponents()).containsExactly(fit(data, 1).getComponents());
+    }
+
+}
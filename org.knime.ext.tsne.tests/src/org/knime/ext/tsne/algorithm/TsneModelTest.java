@@ -0,0 +1,218 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ *
+ */
+package org.knime.ext.tsne.algorithm;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for {@link TsneModel}.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+final class TsneModelTest {
+
+    private static final int NUM_CLUSTERS = 3;
+
+    private static final int NUM_ROWS = 300;
+
+    private static final int NUM_NEW_ROWS = 90;
+
+    private static final int NUM_COLS = 5;
+
+    private static final int ITERATIONS = 100;
+
+    private static double[] createBlobs(final int numRows, final long seed) {
+        final Random random = new Random(seed);
+        final double[] data = new double[numRows * NUM_COLS];
+        for (int i = 0; i < numRows; i++) {
+            for (int d = 0; d < NUM_COLS; d++) {
+                data[i * NUM_COLS + d] = random.nextGaussian() + (d == i % NUM_CLUSTERS ? 10 : 0);
+            }
+        }
+        return data;
+    }
+
+    private static TsneModel fit() {
+        return BarnesHutTsne.builder()//
+            .perplexity(20)//
+            .iterations(400)//
+            .seed(42)//
+            .build()//
+            .fit(createBlobs(NUM_ROWS, 1), NUM_ROWS, NUM_COLS);
+    }
+
+    @Test
+    void testFitReturnsEmbedding() {
+        final double[] embedding = BarnesHutTsne.builder()//
+            .perplexity(20)//
+            .iterations(400)//
+            .seed(42)//
+            .build()//
+            .embed(createBlobs(NUM_ROWS, 1), NUM_ROWS, NUM_COLS);
+        assertThat(fit().getEmbedding()).containsExactly(embedding);
+    }
+
+    @Test
+    void testTrainingRowsArePlacedAtTheirEmbedding() {
+        final TsneModel model = fit();
+        final double[] embedding = model.getEmbedding();
+        final double[] placed = model.transform(createBlobs(NUM_ROWS, 1), NUM_ROWS, ITERATIONS, 2);
+        double displacement = 0;
+        double radius = 0;
+        for (int i = 0; i < NUM_ROWS; i++) {
+            displacement += Math.hypot(placed[i * 2] - embedding[i * 2], placed[i * 2 + 1] - embedding[i * 2 + 1]);
+            radius += Math.hypot(embedding[i * 2], embedding[i * 2 + 1]);
+        }
+        assertThat(displacement).isLessThan(0.05 * radius);
+    }
+
+    @Test
+    void testNewRowsAreClosestToTheirCluster() {
+        final TsneModel model = fit();
+        final double[] embedding = model.getEmbedding();
+        final double[] centroids = new double[NUM_CLUSTERS * 2];
+        for (int i = 0; i < NUM_ROWS; i++) {
+            centroids[(i % NUM_CLUSTERS) * 2] += embedding[i * 2] / (NUM_ROWS / NUM_CLUSTERS);
+            centroids[(i % NUM_CLUSTERS) * 2 + 1] += embedding[i * 2 + 1] / (NUM_ROWS / NUM_CLUSTERS);
+        }
+        final double[] placed = model.transform(createBlobs(NUM_NEW_ROWS, 2), NUM_NEW_ROWS, ITERATIONS, 1);
+        for (int i = 0; i < NUM_NEW_ROWS; i++) {
+            int closest = -1;
+            double minDist = Double.POSITIVE_INFINITY;
+            for (int c = 0; c < NUM_CLUSTERS; c++) {
+                final double dist =
+                    Math.hypot(placed[i * 2] - centroids[c * 2], placed[i * 2 + 1] - centroids[c * 2 + 1]);
+                if (dist < minDist) {
+                    minDist = dist;
+                    closest = c;
+                }
+            }
+            assertThat(closest).as("cluster of new row %s", i).isEqualTo(i % NUM_CLUSTERS);
+        }
+    }
+
+    @Test
+    void testTransformIsIndependentOfBatchingAndThreads() {
+        final TsneModel model = fit();
+        final double[] data = createBlobs(NUM_NEW_ROWS, 2);
+        final double[] batch = model.transform(data, NUM_NEW_ROWS, ITERATIONS, 4);
+        assertThat(model.transform(data, NUM_NEW_ROWS, ITERATIONS, 1)).containsExactly(batch);
+        final double[] row = new double[NUM_COLS];
+        for (int i = 0; i < NUM_NEW_ROWS; i++) {
+            System.arraycopy(data, i * NUM_COLS, row, 0, NUM_COLS);
+            assertThat(model.transform(row, ITERATIONS)).containsExactly(batch[i * 2], batch[i * 2 + 1]);
+        }
+    }
+
+    @Test
+    void testSaveLoad() throws IOException {
+        final TsneModel model = fit();
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        model.save(new DataOutputStream(bytes));
+        final TsneModel loaded = TsneModel.load(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        assertThat(loaded.getNumRows()).isEqualTo(NUM_ROWS);
+        assertThat(loaded.getNumCols()).isEqualTo(NUM_COLS);
+        assertThat(loaded.getOutputDimensions()).isEqualTo(2);
+        assertThat(loaded.getIterations()).isEqualTo(400);
+        assertThat(loaded.getKlDivergence()).isEqualTo(model.getKlDivergence());
+        assertThat(loaded.getEmbedding()).containsExactly(model.getEmbedding());
+        final double[] data = createBlobs(NUM_NEW_ROWS, 2);
+        assertThat(loaded.transform(data, NUM_NEW_ROWS, ITERATIONS, 1))
+            .containsExactly(model.transform(data, NUM_NEW_ROWS, ITERATIONS, 1));
+    }
+
+    @Test
+    void testSaveLoadSinglePrecision() throws IOException {
+        final double[] blobs = createBlobs(NUM_ROWS, 1);
+        final float[] floats = new float[blobs.length];
+        for (int i = 0; i < blobs.length; i++) {
+            floats[i] = (float)blobs[i];
+        }
+        final TsneModel model = BarnesHutTsne.builder()//
+            .perplexity(20)//
+            .iterations(400)//
+            .seed(42)//
+            .build()//
+            .fit(floats, NUM_ROWS, NUM_COLS);
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        model.save(new DataOutputStream(bytes));
+        // the reference data is stored in single precision
+        assertThat(bytes.size()).isLessThan(8 * NUM_ROWS * NUM_COLS);
+        final TsneModel loaded = TsneModel.load(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        final double[] data = createBlobs(NUM_NEW_ROWS, 2);
+        assertThat(loaded.transform(data, NUM_NEW_ROWS, ITERATIONS, 1))
+            .containsExactly(model.transform(data, NUM_NEW_ROWS, ITERATIONS, 1));
+    }
+
+    @Test
+    void testSaveLoadWithPcaReduction() throws IOException {
+        final TsneModel model = BarnesHutTsne.builder()//
+            .perplexity(20)//
+            .iterations(400)//
+            .seed(42)//
+            .pcaComponents(3)//
+            .build()//
+            .fit(createBlobs(NUM_ROWS, 1), NUM_ROWS, NUM_COLS);
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        model.save(new DataOutputStream(bytes));
+        final TsneModel loaded = TsneModel.load(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        assertThat(loaded.getNumCols()).isEqualTo(NUM_COLS);
+        final double[] data = createBlobs(NUM_NEW_ROWS, 2);
+        assertThat(loaded.transform(data, NUM_NEW_ROWS, ITERATIONS, 1))
+            .containsExactly(model.transform(data, NUM_NEW_ROWS, ITERATIONS, 1));
+    }
+
+}
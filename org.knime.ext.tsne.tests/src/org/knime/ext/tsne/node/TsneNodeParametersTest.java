@@ -45,11 +45,14 @@
  */
 package org.knime.ext.tsne.node;
 
+import static org.assertj.core.api.Assertions.assertThat;
+
 import java.io.FileInputStream;
 import java.io.IOException;
 
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
 import org.knime.core.data.DataTableSpec;
 import org.knime.core.data.DataType;
 import org.knime.core.data.def.DoubleCell;
@@ -89,6 +92,31 @@ void closeMock() {
         m_numberOfThreadsMock.close();
     }
 
+    /**
+     * The settings file was saved before the settings that were added later existed, they must load the behavior of
+     * that version.
+     */
+    @Test
+    void testLoadSettingsWithoutNewKeys() {
+        final TsneNodeParameters parameters = readSettings();
+        assertThat(parameters.m_repulsionMethod).isEqualTo(TsneNodeParameters.RepulsionMethod.BARNES_HUT);
+        assertThat(parameters.m_neighborSearchMethod)
+            .isEqualTo(TsneNodeParameters.NeighborSearchMethod.VANTAGE_POINT_TREE);
+        assertThat(parameters.m_resumable).isFalse();
+        assertThat(parameters.m_earlyExaggeration).isEqualTo(12.0);
+        assertThat(parameters.m_exaggerationIterations).isEqualTo(250);
+        assertThat(parameters.m_initialMomentum).isEqualTo(0.5);
+        assertThat(parameters.m_finalMomentum).isEqualTo(0.8);
+        assertThat(parameters.m_momentumSwitchIteration).isEqualTo(250);
+        assertThat(parameters.m_earlyStopping).isFalse();
+        assertThat(parameters.m_singlePrecision).isFalse();
+        assertThat(parameters.m_pcaReduction).isFalse();
+        assertThat(parameters.m_pcaInitialization).isFalse();
+        assertThat(parameters.m_inputType).isEqualTo(TsneNodeParameters.InputType.COLUMNS);
+        assertThat(parameters.m_multipleRuns).isFalse();
+        assertThat(parameters.m_embeddingOnly).isFalse();
+    }
+
     private static SnapshotTestConfiguration getConfig() {
         return SnapshotTestConfiguration.builder() //
             .withInputPortObjectSpecs(createInputPortSpecs()) //
@@ -0,0 +1,99 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ *
+ */
+package org.knime.ext.tsne.algorithm;
+
+/**
+ * Repulsive forces approximated with a {@link SpacePartitioningTree} as proposed by van der Maaten (2014).
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+final class BarnesHutRepulsion implements Repulsion {
+
+    private final int m_dims;
+
+    private final int m_numPoints;
+
+    private final double m_theta;
+
+    private final ParallelRange m_parallel;
+
+    private final SpacePartitioningTree m_tree;
+
+    private final double[] m_rowSumQ;
+
+    BarnesHutRepulsion(final int dims, final int numPoints, final double theta, final ParallelRange parallel) {
+        m_dims = dims;
+        m_numPoints = numPoints;
+        m_theta = theta;
+        m_parallel = parallel;
+        m_tree = new SpacePartitioningTree(dims, numPoints);
+        m_rowSumQ = new double[numPoints];
+    }
+
+    @Override
+    public double compute(final double[] y, final double[] negF) {
+        final int dims = m_dims;
+        m_tree.rebuild(y, m_numPoints);
+        m_parallel.forEach(m_numPoints, (from, to) -> {
+            final SpacePartitioningTree.Traverser traverser = m_tree.traverser();
+            for (int i = from; i < to; i++) {
+                final int offset = i * dims;
+                for (int d = 0; d < dims; d++) {
+                    negF[offset + d] = 0;
+                }
+                m_rowSumQ[i] = traverser.computeNonEdgeForces(i, m_theta, negF, offset);
+            }
+        });
+        // summing up in row order keeps the result independent of the number of threads
+        double sumQ = 0;
+        for (int i = 0; i < m_numPoints; i++) {
+            sumQ += m_rowSumQ[i];
+        }
+        return sumQ;
+    }
+
+}
@@ -0,0 +1,1544 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ *
+ */
+package org.knime.ext.tsne.algorithm;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Barnes-Hut t-SNE (van der Maaten, 2014) on flat primitive arrays.
+ * <p>
+ * The input similarities are computed from the {@code 3 * perplexity} nearest neighbors of each point (found exactly
+ * with a {@link VantagePointTree} or approximately, see {@link NeighborSearchMethod}) and the repulsive forces are
+ * approximated with a {@link SpacePartitioningTree} or, for one- and two-dimensional embeddings, by
+ * {@link RepulsionMethod#INTERPOLATION interpolation} on a grid. Both the neighbor search and the gradient are
+ * computed in parallel. A theta of zero selects the exact (quadratic) algorithm, which keeps the dense
+ * {@code n x n} input similarities in an array and is therefore limited to 46340 rows.
+ * The default optimization schedule (early exaggeration, momentum, gains) follows the reference implementation.
+ * Optionally, the optimization stops before the requested number of iterations once the Kullback-Leibler divergence
+ * or the norm of the gradient indicate convergence.
+ * <p>
+ * Besides a feature matrix, the input can be given by an arbitrary {@link DistanceFunction}, e.g. a precomputed
+ * distance matrix or {@link PackedBitVectors fingerprints}. Without coordinates, the approximate neighbor searches
+ * refine random neighbor lists with nearest-neighbor descent.
+ * <p>
+ * Several runs with different perplexities and seeds can be learned at once, see
+ * {@link #embedAll(double[], int, int, double[], long[])}. They share the neighbor search and are optimized
+ * concurrently.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+public final class BarnesHutTsne {
+
+    private static final double MIN_GAIN = 0.01;
+
+    private static final double INITIAL_SOLUTION_SCALE = 1e-4;
+
+    private static final int ERROR_REPORT_INTERVAL = 50;
+
+    /** Minimum time between two progress updates during the optimization. */
+    private static final long PROGRESS_INTERVAL_NANOS = 200_000_000L;
+
+    /** Share of the overall progress that is attributed to the computation of the input similarities. */
+    private static final double SIMILARITY_PROGRESS = 0.1;
+
+    /** Largest number of rows for which the dense n x n similarity matrix of the exact algorithm fits in an array. */
+    private static final int MAX_EXACT_ROWS = 46340;
+
+    /** Bounds of the number of trees of a {@link RandomProjectionForest} search, scaled by the accuracy. */
+    private static final int MIN_FOREST_TREES = 2;
+
+    private static final int MAX_FOREST_TREES = 16;
+
+    /**
+     * Bounds of the number of trees that initialize {@link NnDescent}, scaled by the accuracy. With a single tree,
+     * the neighbors of neighbors never leave the leaf of a point, hence at least two trees.
+     */
+    private static final int MIN_DESCENT_TREES = 2;
+
+    private static final int MAX_DESCENT_TREES = 5;
+
+    /** Bounds of the number of sampled candidates per point of {@link NnDescent}, scaled by the accuracy. */
+    private static final int MIN_DESCENT_SAMPLES = 5;
+
+    private static final int MAX_DESCENT_SAMPLES = 30;
+
+    /** Bounds of the number of {@link NnDescent} iterations, scaled by the accuracy. */
+    private static final int MIN_DESCENT_ITERATIONS = 3;
+
+    private static final int MAX_DESCENT_ITERATIONS = 10;
+
+    /** Stabilizes the logarithms in the Kullback-Leibler divergence (corresponds to FLT_MIN). */
+    private static final double KL_EPSILON = Float.MIN_NORMAL;
+
+    private final int m_outputDimensions;
+
+    private final double m_earlyExaggeration;
+
+    private final int m_exaggerationIterations;
+
+    private final double m_initialMomentum;
+
+    private final double m_finalMomentum;
+
+    private final int m_momentumSwitchIteration;
+
+    private final double m_learningRate;
+
+    private final double m_klTolerance;
+
+    private final double m_minGradientNorm;
+
+    private final int m_pcaComponents;
+
+    private final boolean m_pcaInitialization;
+
+    private final double m_perplexity;
+
+    private final int m_iterations;
+
+    private final double m_theta;
+
+    private final RepulsionMethod m_repulsionMethod;
+
+    private final NeighborSearchMethod m_neighborSearchMethod;
+
+    private final double m_neighborSearchAccuracy;
+
+    private final long m_seed;
+
+    private final int m_numThreads;
+
+    private final Executor m_executor;
+
+    private final TsneProgress m_progress;
+
+    private final int m_checkpointInterval;
+
+    private final Consumer<TsneCheckpoint> m_checkpointConsumer;
+
+    private final TsneCheckpoint m_resumeFrom;
+
+    private volatile boolean m_aborted;
+
+    private BarnesHutTsne(final Builder builder) {
+        m_outputDimensions = builder.m_outputDimensions;
+        m_earlyExaggeration = builder.m_earlyExaggeration;
+        m_exaggerationIterations = builder.m_exaggerationIterations;
+        m_initialMomentum = builder.m_initialMomentum;
+        m_finalMomentum = builder.m_finalMomentum;
+        m_momentumSwitchIteration = builder.m_momentumSwitchIteration;
+        m_learningRate = builder.m_learningRate;
+        m_klTolerance = builder.m_klTolerance;
+        m_minGradientNorm = builder.m_minGradientNorm;
+        m_pcaComponents = builder.m_pcaComponents;
+        m_pcaInitialization = builder.m_pcaInitialization;
+        m_perplexity = builder.m_perplexity;
+        m_iterations = builder.m_iterations;
+        m_theta = builder.m_theta;
+        m_repulsionMethod = builder.m_repulsionMethod;
+        m_neighborSearchMethod = builder.m_neighborSearchMethod;
+        m_neighborSearchAccuracy = builder.m_neighborSearchAccuracy;
+        m_seed = builder.m_seed;
+        m_numThreads = builder.m_numThreads;
+        m_executor = builder.m_executor;
+        m_progress = builder.m_progress;
+        m_checkpointInterval = builder.m_checkpointInterval;
+        m_checkpointConsumer = builder.m_checkpointConsumer;
+        m_resumeFrom = builder.m_resumeFrom;
+    }
+
+    /**
+     * @return a builder with the default settings of the reference implementation
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Stops a running {@link #embed(double[], int, int)} as soon as possible. Long-running steps such as the neighbor
+     * search and the gradient computation poll this flag, and the {@link TsneProgress#isCanceled() progress}, for
+     * every chunk of rows they process.
+     */
+    public void abort() {
+        m_aborted = true;
+    }
+
+    /**
+     * Learns the embedding of {@code data}.
+     *
+     * @param data row-major input matrix, it is centered and rescaled in place; entries beyond the first
+     *            {@code numRows} rows are ignored
+     * @param numRows the number of rows (points) of {@code data}
+     * @param numCols the number of columns (input dimensions) of {@code data}
+     * @return the row-major embedding with {@code outputDimensions} columns
+     * @throws CancellationException if the computation was {@link #abort() aborted}
+     * @throws IllegalArgumentException if the checkpoint to resume from has a different number of rows or output
+     *             dimensions
+     */
+    public double[] embed(final double[] data, final int numRows, final int numCols) {
+        return embed(FeatureMatrix.of(data, numCols), numRows, new double[numCols + 1]).m_states[0].m_y;
+    }
+
+    /**
+     * Learns the embedding of {@code data} given in single precision. Besides the input matrix, the input
+     * similarities are stored in single precision, which roughly halves the memory consumption for large tables.
+     * The embedding differs from the one in double precision only by rounding effects.
+     *
+     * @param data row-major input matrix, it is centered and rescaled in place; entries beyond the first
+     *            {@code numRows} rows are ignored
+     * @param numRows the number of rows (points) of {@code data}
+     * @param numCols the number of columns (input dimensions) of {@code data}
+     * @return the row-major embedding with {@code outputDimensions} columns
+     * @throws CancellationException if the computation was {@link #abort() aborted}
+     * @throws IllegalArgumentException if the checkpoint to resume from has a different number of rows or output
+     *             dimensions
+     * @see #embed(double[], int, int)
+     */
+    public double[] embed(final float[] data, final int numRows, final int numCols) {
+        return embed(FeatureMatrix.of(data, numCols), numRows, new double[numCols + 1]).m_states[0].m_y;
+    }
+
+    /**
+     * Learns the embedding of {@code data} and returns it together with the reference data that is needed to embed
+     * further rows, see {@link TsneModel#transform(double[], int, int, int)}.
+     *
+     * @param data row-major input matrix, it is centered and rescaled in place and referenced by the returned model;
+     *            entries beyond the first {@code numRows} rows are ignored
+     * @param numRows the number of rows (points) of {@code data}
+     * @param numCols the number of columns (input dimensions) of {@code data}
+     * @return the model holding the embedding
+     * @throws CancellationException if the computation was {@link #abort() aborted}
+     * @throws IllegalArgumentException if the checkpoint to resume from has a different number of rows or output
+     *             dimensions
+     */
+    public TsneModel fit(final double[] data, final int numRows, final int numCols) {
+        return fit(FeatureMatrix.of(data, numCols), numRows);
+    }
+
+    /**
+     * Learns the embedding of {@code data} given in single precision, see {@link #embed(float[], int, int)}, and
+     * returns it together with the reference data that is needed to embed further rows. The reference data stays in
+     * single precision.
+     *
+     * @param data row-major input matrix, it is centered and rescaled in place and referenced by the returned model;
+     *            entries beyond the first {@code numRows} rows are ignored
+     * @param numRows the number of rows (points) of {@code data}
+     * @param numCols the number of columns (input dimensions) of {@code data}
+     * @return the model holding the embedding
+     * @throws CancellationException if the computation was {@link #abort() aborted}
+     * @throws IllegalArgumentException if the checkpoint to resume from has a different number of rows or output
+     *             dimensions
+     */
+    public TsneModel fit(final float[] data, final int numRows, final int numCols) {
+        return fit(FeatureMatrix.of(data, numCols), numRows);
+    }
+
+    /**
+     * Learns the embedding of points that are only given by their pairwise distances. The distances are used as
+     * they are, i.e. neither centered nor rescaled, and the exact neighbor search assumes that they form a metric.
+     *
+     * @param distance the finite distance between the points {@code 0, ..., numRows - 1}, must be thread-safe
+     * @param numRows the number of points
+     * @return the row-major embedding with {@code outputDimensions} columns
+     * @throws CancellationException if the computation was {@link #abort() aborted}
+     * @throws IllegalArgumentException if the checkpoint to resume from has a different number of rows or output
+     *             dimensions, or if a PCA reduction or initialization is configured, which requires a feature
+     *             matrix
+     */
+    public double[] embed(final DistanceFunction distance, final int numRows) {
+        return fit(distance, numRows).getEmbedding();
+    }
+
+    /**
+     * Learns the embedding of points that are only given by their pairwise distances, see
+     * {@link #embed(DistanceFunction, int)}, and returns it together with the number of iterations and the final
+     * divergence.
+     *
+     * @param distance the finite distance between the points {@code 0, ..., numRows - 1}, must be thread-safe
+     * @param numRows the number of points
+     * @return the embedding
+     * @throws CancellationException if the computation was {@link #abort() aborted}
+     * @throws IllegalArgumentException if the checkpoint to resume from has a different number of rows or output
+     *             dimensions, or if a PCA reduction or initialization is configured, which requires a feature
+     *             matrix
+     */
+    public TsneEmbedding fit(final DistanceFunction distance, final int numRows) {
+        checkDistanceInput();
+        checkInput(numRows);
+        return toEmbedding(m_perplexity, embed(null, distance, numRows, new double[]{m_perplexity},
+            new long[]{m_seed}).m_states[0]);
+    }
+
+    /**
+     * Learns one embedding of {@code data} for every combination of the given perplexities and seeds, which replace
+     * the configured perplexity and seed. The nearest neighbors are searched only once, for the largest perplexity,
+     * and the input similarities of a perplexity are shared by all of its runs. The runs are optimized concurrently,
+     * each on a share of the threads. With a PCA initialization, all runs start from the same embedding.
+     *
+     * @param data row-major input matrix, it is centered and rescaled in place; entries beyond the first
+     *            {@code numRows} rows are ignored
+     * @param numRows the number of rows (points) of {@code data}
+     * @param numCols the number of columns (input dimensions) of {@code data}
+     * @param perplexities the perplexities of the runs
+     * @param seeds the seeds of the initial solutions of the runs, the first one also seeds the neighbor search
+     * @return the embeddings ordered by perplexity and then by seed
+     * @throws CancellationException if the computation was {@link #abort() aborted}
+     * @throws IllegalArgumentException if a perplexity is not positive or too large for the number of rows, or if
+     *             checkpoints are configured, which are not supported for several runs
+     */
+    public List<TsneEmbedding> embedAll(final double[] data, final int numRows, final int numCols,
+        final double[] perplexities, final long[] seeds) {
+        return embedAll(FeatureMatrix.of(data, numCols), numRows, perplexities, seeds);
+    }
+
+    /**
+     * Learns one embedding of {@code data} given in single precision for every combination of the given
+     * perplexities and seeds, see {@link #embedAll(double[], int, int, double[], long[])}.
+     *
+     * @param data row-major input matrix, it is centered and rescaled in place; entries beyond the first
+     *            {@code numRows} rows are ignored
+     * @param numRows the number of rows (points) of {@code data}
+     * @param numCols the number of columns (input dimensions) of {@code data}
+     * @param perplexities the perplexities of the runs
+     * @param seeds the seeds of the initial solutions of the runs, the first one also seeds the neighbor search
+     * @return the embeddings ordered by perplexity and then by seed
+     * @throws CancellationException if the computation was {@link #abort() aborted}
+     * @throws IllegalArgumentException if a perplexity is not positive or too large for the number of rows, or if
+     *             checkpoints are configured, which are not supported for several runs
+     */
+    public List<TsneEmbedding> embedAll(final float[] data, final int numRows, final int numCols,
+        final double[] perplexities, final long[] seeds) {
+        return embedAll(FeatureMatrix.of(data, numCols), numRows, perplexities, seeds);
+    }
+
+    /**
+     * Learns one embedding of points that are only given by their pairwise distances for every combination of the
+     * given perplexities and seeds, see {@link #embedAll(double[], int, int, double[], long[])} and
+     * {@link #embed(DistanceFunction, int)}.
+     *
+     * @param distance the finite distance between the points {@code 0, ..., numRows - 1}, must be thread-safe
+     * @param numRows the number of points
+     * @param perplexities the perplexities of the runs
+     * @param seeds the seeds of the initial solutions of the runs, the first one also seeds the neighbor search
+     * @return the embeddings ordered by perplexity and then by seed
+     * @throws CancellationException if the computation was {@link #abort() aborted}
+     * @throws IllegalArgumentException if a perplexity is not positive or too large for the number of rows, if
+     *             checkpoints are configured, which are not supported for several runs, or if a PCA reduction or
+     *             initialization is configured, which requires a feature matrix
+     */
+    public List<TsneEmbedding> embedAll(final DistanceFunction distance, final int numRows,
+        final double[] perplexities, final long[] seeds) {
+        checkDistanceInput();
+        checkRuns(numRows, perplexities, seeds);
+        return toEmbeddings(embed(null, distance, numRows, perplexities, seeds).m_states, perplexities, seeds);
+    }
+
+    private List<TsneEmbedding> embedAll(final FeatureMatrix data, final int numRows, final double[] perplexities,
+        final long[] seeds) {
+        checkRuns(numRows, perplexities, seeds);
+        normalize(data, numRows, new double[data.getNumCols() + 1]);
+        return toEmbeddings(embed(data, null, numRows, perplexities, seeds).m_states, perplexities, seeds);
+    }
+
+    private List<TsneEmbedding> toEmbeddings(final OptimizerState[] states, final double[] perplexities,
+        final long[] seeds) {
+        final List<TsneEmbedding> embeddings = new ArrayList<>(states.length);
+        for (int r = 0; r < states.length; r++) {
+            embeddings.add(toEmbedding(perplexities[r / seeds.length], states[r]));
+        }
+        return embeddings;
+    }
+
+    private TsneEmbedding toEmbedding(final double perplexity, final OptimizerState state) {
+        return new TsneEmbedding(perplexity, state.m_seed, m_outputDimensions, state.m_y, state.m_iteration,
+            state.m_finalKlDivergence);
+    }
+
+    private TsneModel fit(final FeatureMatrix data, final int numRows) {
+        final int numCols = data.getNumCols();
+        final double[] normalization = new double[numCols + 1];
+        final Result result = embed(data, numRows, normalization);
+        final OptimizerState state = result.m_states[0];
+        return new TsneModel(m_perplexity, numRows, numCols, m_outputDimensions,
+            Arrays.copyOf(normalization, numCols), normalization[numCols], result.m_pca, result.m_input, state.m_y,
+            state.m_iteration, state.m_finalKlDivergence);
+    }
+
+    /** Receives the column means followed by the scale of the normalization in {@code normalization}. */
+    private Result embed(final FeatureMatrix data, final int numRows, final double[] normalization) {
+        checkInput(numRows);
+        normalize(data, numRows, normalization);
+        return embed(data, null, numRows, new double[]{m_perplexity}, new long[]{m_seed});
+    }
+
+    private void checkDistanceInput() {
+        if (m_pcaComponents > 0 || m_pcaInitialization) {
+            throw new IllegalArgumentException("PCA requires the input as a feature matrix, not as distances.");
+        }
+    }
+
+    private void checkInput(final int numRows) {
+        checkPerplexity(m_perplexity, numRows);
+        final TsneCheckpoint checkpoint = m_resumeFrom;
+        if (checkpoint != null && checkpoint.m_y.length != numRows * m_outputDimensions) {
+            throw new IllegalArgumentException(
+                "The checkpoint does not match the number of rows and output dimensions of the input.");
+        }
+    }
+
+    private void checkRuns(final int numRows, final double[] perplexities, final long[] seeds) {
+        if (perplexities.length == 0 || seeds.length == 0) {
+            throw new IllegalArgumentException("At least one perplexity and one seed are required.");
+        }
+        if (m_checkpointConsumer != null || m_resumeFrom != null) {
+            throw new IllegalArgumentException("Checkpoints are not supported for several runs.");
+        }
+        for (final double perplexity : perplexities) {
+            checkPerplexity(perplexity, numRows);
+        }
+    }
+
+    private static void checkPerplexity(final double perplexity, final int numRows) {
+        if (!(perplexity > 0)) {
+            throw new IllegalArgumentException("The perplexity must be positive but was " + perplexity + ".");
+        }
+        if (numRows - 1 < 3 * perplexity) {
+            throw new IllegalArgumentException(
+                String.format("The perplexity (%s) is too large for the number of rows (%s).", perplexity, numRows));
+        }
+    }
+
+    /**
+     * Runs the optimization for every combination of the perplexities and seeds on the normalized {@code data} or,
+     * if it is {@code null}, on the points given by {@code distance}. The states of the runs are ordered by
+     * perplexity and then by seed. A checkpoint to resume from replaces the first run, including its seed.
+     */
+    private Result embed(final FeatureMatrix data, final DistanceFunction distance, final int numRows,
+        final double[] perplexities, final long[] seeds) {
+        final TsneCheckpoint checkpoint = m_resumeFrom;
+        final long seed = checkpoint == null ? seeds[0] : checkpoint.m_seed;
+        final Random random = new Random(seed);
+        // the initial solution is drawn even when resuming so that the neighbor search sees the same random numbers
+        final double[] y = initialSolution(random, numRows);
+        try (final ParallelRange parallel = new ParallelRange(m_numThreads, this::isCanceled)) {
+            RandomizedPca pca = null;
+            FeatureMatrix input = data;
+            if (data != null && m_pcaComponents > 0 && m_pcaComponents < data.getNumCols()) {
+                m_progress.setMessage("Reducing the input to " + m_pcaComponents + " principal components");
+                pca = RandomizedPca.fit(data, numRows, m_pcaComponents, random, parallel);
+                input = pca.transform(data, numRows, parallel);
+            }
+            if (m_pcaInitialization && checkpoint == null) {
+                // an own generator keeps the random numbers of the neighbor search independent of the initialization
+                initializeWithPca(pca != null ? input
+                    : RandomizedPca.fit(data, numRows, m_outputDimensions, new Random(seed), parallel)
+                        .transform(data, numRows, parallel),
+                    numRows, y);
+            }
+            final OptimizerState[] states = new OptimizerState[perplexities.length * seeds.length];
+            for (int r = 0; r < states.length; r++) {
+                final long runSeed = r % seeds.length == 0 ? seed : seeds[r % seeds.length];
+                if (r == 0) {
+                    states[r] = checkpoint == null ? new OptimizerState(y, seed) : new OptimizerState(checkpoint);
+                } else if (runSeed == seed || m_pcaInitialization) {
+                    // the states are created before the first run starts, which modifies y in place
+                    states[r] = new OptimizerState(y.clone(), runSeed);
+                } else {
+                    states[r] = new OptimizerState(initialSolution(new Random(runSeed), numRows), runSeed);
+                }
+            }
+            m_progress.setMessage("Computing input similarities");
+            final DistanceFunction metric = input != null ? new EuclideanDistance(input) : distance;
+            final List<Function<ParallelRange, Gradient>> gradients =
+                createGradients(input, metric, numRows, perplexities, parallel, random);
+            m_progress.setProgress(SIMILARITY_PROGRESS);
+            if (states.length == 1) {
+                optimize(gradients.get(0).apply(parallel), states[0], numRows, m_progress);
+            } else {
+                optimizeConcurrently(gradients, states, seeds.length, numRows);
+            }
+            return new Result(states, input, pca);
+        }
+    }
+
+    private double[] initialSolution(final Random random, final int numRows) {
+        final double[] y = new double[numRows * m_outputDimensions];
+        for (int i = 0; i < y.length; i++) {
+            y[i] = random.nextGaussian() * INITIAL_SOLUTION_SCALE;
+        }
+        return y;
+    }
+
+    /**
+     * Optimizes the runs concurrently on the {@link Builder#executor(Executor) executor}, each with its own share of
+     * the threads. The runs don't interact, hence their results are independent of the number of threads and of the
+     * scheduling. All runs stop as soon as one failed.
+     */
+    private void optimizeConcurrently(final List<Function<ParallelRange, Gradient>> gradients,
+        final OptimizerState[] states, final int runsPerGradient, final int numRows) {
+        final int concurrentRuns = Math.min(states.length, Math.max(1, m_numThreads));
+        final int threadsPerRun = Math.max(1, m_numThreads / concurrentRuns);
+        final RunsProgress progress = new RunsProgress(states.length);
+        // each task optimizes the next run that is not taken yet, so that at most concurrentRuns runs are active
+        final AtomicInteger nextRun = new AtomicInteger();
+        final List<CompletableFuture<Void>> futures = new ArrayList<>(concurrentRuns);
+        for (int t = 0; t < concurrentRuns; t++) {
+            futures.add(CompletableFuture.runAsync(() -> {
+                for (int run = nextRun.getAndIncrement(); run < states.length; run = nextRun.getAndIncrement()) {
+                    final Function<ParallelRange, Gradient> gradient = gradients.get(run / runsPerGradient);
+                    try (final ParallelRange parallel = new ParallelRange(threadsPerRun, progress::isCanceled)) {
+                        optimize(gradient.apply(parallel), states[run], numRows, progress.new RunProgress(run));
+                    } catch (RuntimeException | Error e) {
+                        progress.fail(e);
+                        throw e;
+                    }
+                }
+            }, m_executor));
+        }
+        for (final CompletableFuture<Void> future : futures) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                abort();
+                throw new CancellationException("t-SNE was aborted.");
+            } catch (ExecutionException e) {
+                throw progress.getFailure();
+            }
+        }
+    }
+
+    /** Combines the progress of concurrent runs and remembers the first failure, which stops all runs. */
+    private final class RunsProgress {
+
+        private final double[] m_runProgress;
+
+        private final AtomicReference<Throwable> m_failure = new AtomicReference<>();
+
+        RunsProgress(final int numRuns) {
+            m_runProgress = new double[numRuns];
+            Arrays.fill(m_runProgress, SIMILARITY_PROGRESS);
+        }
+
+        boolean isCanceled() {
+            return m_failure.get() != null || BarnesHutTsne.this.isCanceled();
+        }
+
+        void fail(final Throwable failure) {
+            m_failure.compareAndSet(null, failure);
+        }
+
+        /** Rethrows an error, runtime exceptions are returned so that the caller can throw them. */
+        RuntimeException getFailure() {
+            final Throwable failure = m_failure.get();
+            if (failure instanceof Error) {
+                throw (Error)failure;
+            }
+            return (RuntimeException)failure;
+        }
+
+        /** The progress of a single run, which reports the average progress of all runs. */
+        private final class RunProgress implements TsneProgress {
+
+            private final int m_run;
+
+            RunProgress(final int run) {
+                m_run = run;
+            }
+
+            @Override
+            public void setProgress(final double progress) {
+                synchronized (m_runProgress) {
+                    m_runProgress[m_run] = progress;
+                    double sum = 0;
+                    for (final double runProgress : m_runProgress) {
+                        sum += runProgress;
+                    }
+                    m_progress.setProgress(sum / m_runProgress.length);
+                }
+            }
+
+            @Override
+            public void setMessage(final String message) {
+                synchronized (m_runProgress) {
+                    m_progress.setMessage(String.format("Run %d of %d: %s", m_run + 1, m_runProgress.length, message));
+                }
+            }
+
+            @Override
+            public boolean isCanceled() {
+                return RunsProgress.this.isCanceled();
+            }
+        }
+    }
+
+    /**
+     * Initializes the embedding with the leading principal component scores, scaled such that the first coordinate
+     * has the standard deviation of the random initialization.
+     */
+    private void initializeWithPca(final FeatureMatrix scores, final int numRows, final double[] y) {
+        final int numComponents = scores.getNumCols();
+        double variance = 0;
+        for (int i = 0; i < numRows; i++) {
+            final double score = scores.get(i * numComponents);
+            variance += score * score / numRows;
+        }
+        if (variance == 0) {
+            // all rows are identical, the random initialization is as good as any
+            return;
+        }
+        final double scale = INITIAL_SOLUTION_SCALE / Math.sqrt(variance);
+        final int dims = m_outputDimensions;
+        for (int i = 0; i < numRows; i++) {
+            for (int d = 0; d < dims; d++) {
+                y[i * dims + d] = d < numComponents ? scores.get(i * numComponents + d) * scale : 0;
+            }
+        }
+    }
+
+    /**
+     * Computes the input similarities of each perplexity and returns the functions that create the gradients of its
+     * runs on a given {@link ParallelRange}. The feature matrix {@code data} is {@code null} if the points are only
+     * given by their distances.
+     */
+    private List<Function<ParallelRange, Gradient>> createGradients(final FeatureMatrix data,
+        final DistanceFunction distance, final int numRows, final double[] perplexities, final ParallelRange parallel,
+        final Random random) {
+        final List<Function<ParallelRange, Gradient>> gradients = new ArrayList<>(perplexities.length);
+        if (m_repulsionMethod == RepulsionMethod.BARNES_HUT && m_theta == 0) {
+            if (numRows > MAX_EXACT_ROWS) {
+                throw new IllegalArgumentException(String.format(
+                    "The exact t-SNE algorithm (theta = 0) supports at most %s rows, use a positive theta instead.",
+                    MAX_EXACT_ROWS));
+            }
+            // the squared Euclidean distance is computed directly to avoid rounding by the square root
+            final DistanceFunction squaredDistance = data != null ? new EuclideanDistance(data)::squaredDistance
+                : (i, j) -> Math.pow(distance.distance(i, j), 2);
+            for (final double perplexity : perplexities) {
+                final double[] p = computeDenseAffinities(squaredDistance, numRows, perplexity, parallel);
+                gradients.add(runParallel -> new ExactGradient(p, numRows, runParallel));
+            }
+            return gradients;
+        }
+        for (final SparseAffinities p : computeSparseAffinities(data, distance, numRows, perplexities, parallel,
+            random)) {
+            gradients.add(runParallel -> new SparseGradient(p, createRepulsion(numRows, runParallel), runParallel));
+        }
+        return gradients;
+    }
+
+    private Repulsion createRepulsion(final int numRows, final ParallelRange parallel) {
+        return m_repulsionMethod == RepulsionMethod.INTERPOLATION
+            ? new InterpolationRepulsion(m_outputDimensions, numRows, parallel)
+            : new BarnesHutRepulsion(m_outputDimensions, numRows, m_theta, parallel);
+    }
+
+    /** Computes the symmetric joint probabilities from the squared distances between all points. */
+    private double[] computeDenseAffinities(final DistanceFunction squaredDistance, final int n,
+        final double perplexity, final ParallelRange parallel) {
+        final double[] p = new double[n * n];
+        final double logPerplexity = Math.log(perplexity);
+        parallel.forEach(n, (from, to) -> {
+            final double[] rowDistances = new double[n - 1];
+            final double[] rowP = new double[n - 1];
+            for (int i = from; i < to; i++) {
+                for (int j = 0, m = 0; j < n; j++) {
+                    if (j != i) {
+                        rowDistances[m++] = squaredDistance.distance(i, j);
+                    }
+                }
+                GaussianAffinities.calibrateRow(rowDistances, 0, n - 1, logPerplexity, rowP);
+                for (int j = 0, m = 0; j < n; j++) {
+                    p[i * n + j] = j == i ? 0 : rowP[m++];
+                }
+            }
+        });
+        checkAborted();
+        double sum = 0;
+        for (int i = 0; i < n; i++) {
+            for (int j = i + 1; j < n; j++) {
+                final double value = p[i * n + j] + p[j * n + i];
+                p[i * n + j] = value;
+                p[j * n + i] = value;
+                sum += 2 * value;
+            }
+        }
+        for (int i = 0; i < p.length; i++) {
+            p[i] /= sum;
+        }
+        return p;
+    }
+
+    private boolean isCanceled() {
+        return m_aborted || m_progress.isCanceled();
+    }
+
+    private void checkAborted() {
+        if (isCanceled()) {
+            throw new CancellationException("t-SNE was aborted.");
+        }
+    }
+
+    private void optimize(final Gradient gradient, final OptimizerState state, final int numRows,
+        final TsneProgress progress) {
+        final double[] y = state.m_y;
+        final double[] uY = state.m_update;
+        final double[] gains = state.m_gains;
+        final int length = y.length;
+        final double[] dY = new double[length];
+        final int start = state.m_iteration;
+        gradient.setExaggeration(start < m_exaggerationIterations ? m_earlyExaggeration : 1.0);
+        int lastKlIteration = -1;
+        double kl = Double.NaN;
+        long lastReport = System.nanoTime();
+        for (int iter = start; iter < m_iterations; iter++) {
+            checkAborted();
+            if (iter == m_exaggerationIterations) {
+                gradient.setExaggeration(1.0);
+            }
+            final boolean exaggerated = iter < m_exaggerationIterations;
+            final double momentum = iter < m_momentumSwitchIteration ? m_initialMomentum : m_finalMomentum;
+            gradient.compute(y, dY);
+            double squaredGradientNorm = 0;
+            for (int i = 0; i < length; i++) {
+                squaredGradientNorm += dY[i] * dY[i];
+                final double gain = Math.signum(dY[i]) != Math.signum(uY[i]) ? gains[i] + 0.2 : gains[i] * 0.8;
+                gains[i] = Math.max(gain, MIN_GAIN);
+                uY[i] = momentum * uY[i] - m_learningRate * gains[i] * dY[i];
+                y[i] += uY[i];
+            }
+            zeroMean(y, numRows, m_outputDimensions);
+            // the exaggerated gradient says nothing about the convergence of the actual objective
+            boolean converged = !exaggerated && squaredGradientNorm < m_minGradientNorm * m_minGradientNorm;
+            if ((iter + 1) % ERROR_REPORT_INTERVAL == 0) {
+                kl = gradient.klDivergence(y);
+                lastKlIteration = iter;
+                if (!exaggerated) {
+                    converged |= hasConverged(state.m_klDivergence, kl);
+                    state.m_klDivergence = kl;
+                }
+            }
+            state.m_iteration = iter + 1;
+            if (m_checkpointConsumer != null
+                && (converged || state.m_iteration % m_checkpointInterval == 0 || iter == m_iterations - 1)) {
+                m_checkpointConsumer.accept(state.toCheckpoint());
+            }
+            if (converged) {
+                progress.setMessage(String.format("Converged after %d iterations", state.m_iteration));
+                break;
+            }
+            // throttled by time, small inputs would otherwise flood the listener with thousands of updates
+            final long now = System.nanoTime();
+            if (now - lastReport >= PROGRESS_INTERVAL_NANOS) {
+                reportProgress(progress, state.m_iteration, kl);
+                lastReport = now;
+            }
+        }
+        progress.setProgress(1);
+        state.m_finalKlDivergence = lastKlIteration == state.m_iteration - 1 ? kl : gradient.klDivergence(y);
+    }
+
+    private void reportProgress(final TsneProgress progress, final int iteration, final double kl) {
+        progress.setProgress(SIMILARITY_PROGRESS + (1 - SIMILARITY_PROGRESS) * iteration / m_iterations);
+        if (Double.isNaN(kl)) {
+            progress.setMessage("Iteration " + iteration + " of " + m_iterations);
+        } else {
+            progress.setMessage(String.format("Iteration %d of %d, error is %f", iteration, m_iterations, kl));
+        }
+    }
+
+    /** The relative decrease of the divergence since the last check is below the tolerance. */
+    private boolean hasConverged(final double previousKl, final double kl) {
+        // there is no previous value (NaN) right after the exaggeration phase
+        return m_klTolerance > 0 && previousKl - kl < m_klTolerance * previousKl;
+    }
+
+    /** The final states of the runs and the (possibly reduced) input they were computed from. */
+    private static final class Result {
+
+        private final OptimizerState[] m_states;
+
+        private final FeatureMatrix m_input;
+
+        /** The reduction of the input, {@code null} if the input was not reduced. */
+        private final RandomizedPca m_pca;
+
+        Result(final OptimizerState[] states, final FeatureMatrix input, final RandomizedPca pca) {
+            m_states = states;
+            m_input = input;
+            m_pca = pca;
+        }
+
+    }
+
+    /** The variables of the gradient descent that change from iteration to iteration. */
+    private static final class OptimizerState {
+
+        private final long m_seed;
+
+        private final double[] m_y;
+
+        private final double[] m_update;
+
+        private final double[] m_gains;
+
+        private int m_iteration;
+
+        /** The divergence at the last convergence check, NaN if there was none yet. */
+        private double m_klDivergence = Double.NaN;
+
+        private double m_finalKlDivergence = Double.NaN;
+
+        OptimizerState(final double[] y, final long seed) {
+            m_seed = seed;
+            m_y = y;
+            m_update = new double[y.length];
+            m_gains = new double[y.length];
+            Arrays.fill(m_gains, 1.0);
+        }
+
+        OptimizerState(final TsneCheckpoint checkpoint) {
+            m_seed = checkpoint.m_seed;
+            m_y = checkpoint.m_y.clone();
+            m_update = checkpoint.m_update.clone();
+            m_gains = checkpoint.m_gains.clone();
+            m_iteration = checkpoint.m_iteration;
+            m_klDivergence = checkpoint.m_klDivergence;
+        }
+
+        TsneCheckpoint toCheckpoint() {
+            return new TsneCheckpoint(m_seed, m_iteration, m_klDivergence, m_y.clone(), m_gains.clone(),
+                m_update.clone());
+        }
+    }
+
+    /** Searches the neighbors once for the largest perplexity and derives the similarities of all perplexities. */
+    private List<SparseAffinities> computeSparseAffinities(final FeatureMatrix data, final DistanceFunction distance,
+        final int numRows, final double[] perplexities, final ParallelRange parallel, final Random random) {
+        final int maxK = Math.min(numRows - 1, (int)(3 * Arrays.stream(perplexities).max().orElseThrow()));
+        final int[] neighbors = new int[numRows * maxK];
+        final double[] distances = new double[numRows * maxK];
+        createNeighborSearch(data, distance, numRows, random).findNeighbors(maxK, neighbors, distances, parallel);
+        checkAborted();
+        final List<SparseAffinities> affinities = new ArrayList<>(perplexities.length);
+        for (final double perplexity : perplexities) {
+            final int k = Math.min(numRows - 1, (int)(3 * perplexity));
+            // the neighbors of each row are sorted by distance, hence those of a smaller perplexity form a prefix
+            final SparseAffinities conditional = k == maxK
+                ? GaussianAffinities.fromNeighbors(neighbors, distances, k, perplexity, parallel)
+                : GaussianAffinities.fromNeighbors(truncate(neighbors, maxK, k), truncate(distances, maxK, k), k,
+                    perplexity, parallel);
+            final SparseAffinities joint = conditional.symmetrize();
+            joint.normalize();
+            affinities.add(data != null && data.isSinglePrecision() ? joint.toSinglePrecision() : joint);
+        }
+        return affinities;
+    }
+
+    /** Keeps the first {@code k} of the {@code maxK} entries of each row. */
+    private static int[] truncate(final int[] rows, final int maxK, final int k) {
+        final int numRows = rows.length / maxK;
+        final int[] truncated = new int[numRows * k];
+        for (int i = 0; i < numRows; i++) {
+            System.arraycopy(rows, i * maxK, truncated, i * k, k);
+        }
+        return truncated;
+    }
+
+    /** Keeps the first {@code k} of the {@code maxK} entries of each row. */
+    private static double[] truncate(final double[] rows, final int maxK, final int k) {
+        final int numRows = rows.length / maxK;
+        final double[] truncated = new double[numRows * k];
+        for (int i = 0; i < numRows; i++) {
+            System.arraycopy(rows, i * maxK, truncated, i * k, k);
+        }
+        return truncated;
+    }
+
+    private NeighborSearch createNeighborSearch(final FeatureMatrix data, final DistanceFunction distance,
+        final int numRows, final Random random) {
+        if (data == null) {
+            // random projections need coordinates, hence both approximate searches start from random neighbors
+            return m_neighborSearchMethod == NeighborSearchMethod.VANTAGE_POINT_TREE
+                ? new VantagePointTree(distance, numRows, random)
+                : new NnDescent(distance, numRows, new RandomNeighbors(distance, numRows, random.nextLong()),
+                    scaleByAccuracy(MIN_DESCENT_SAMPLES, MAX_DESCENT_SAMPLES),
+                    scaleByAccuracy(MIN_DESCENT_ITERATIONS, MAX_DESCENT_ITERATIONS));
+        }
+        switch (m_neighborSearchMethod) {
+            case RANDOM_PROJECTION_FOREST:
+                return new RandomProjectionForest(data, numRows, scaleByAccuracy(MIN_FOREST_TREES, MAX_FOREST_TREES),
+                    random);
+            case NN_DESCENT:
+                final RandomProjectionForest forest = new RandomProjectionForest(data, numRows,
+                    scaleByAccuracy(MIN_DESCENT_TREES, MAX_DESCENT_TREES), random);
+                return new NnDescent(distance, numRows, forest,
+                    scaleByAccuracy(MIN_DESCENT_SAMPLES, MAX_DESCENT_SAMPLES),
+                    scaleByAccuracy(MIN_DESCENT_ITERATIONS, MAX_DESCENT_ITERATIONS));
+            case VANTAGE_POINT_TREE:
+            default:
+                return new VantagePointTree(distance, numRows, random);
+        }
+    }
+
+    private int scaleByAccuracy(final int min, final int max) {
+        return min + (int)Math.round(m_neighborSearchAccuracy * (max - min));
+    }
+
+    /**
+     * Centers the columns and scales the matrix to a maximal absolute value of one. The column means followed by
+     * the scale are written to {@code normalization}.
+     */
+    private static void normalize(final FeatureMatrix data, final int numRows, final double[] normalization) {
+        final int numCols = data.getNumCols();
+        final double[] mean = new double[numCols];
+        for (int i = 0; i < numRows; i++) {
+            final int offset = i * numCols;
+            for (int d = 0; d < numCols; d++) {
+                mean[d] += data.get(offset + d);
+            }
+        }
+        for (int d = 0; d < numCols; d++) {
+            mean[d] /= numRows;
+        }
+        System.arraycopy(mean, 0, normalization, 0, numCols);
+        double max = 0;
+        for (int i = 0; i < numRows; i++) {
+            final int offset = i * numCols;
+            for (int d = 0; d < numCols; d++) {
+                max = Math.max(max, Math.abs(data.get(offset + d) - mean[d]));
+            }
+        }
+        final double scale = max > 0 ? max : 1.0;
+        // centering and scaling in one step rounds only once in single precision
+        for (int i = 0; i < numRows; i++) {
+            final int offset = i * numCols;
+            for (int d = 0; d < numCols; d++) {
+                data.set(offset + d, (data.get(offset + d) - mean[d]) / scale);
+            }
+        }
+        normalization[numCols] = scale;
+    }
+
+    /** Centers the columns. */
+    private static void zeroMean(final double[] data, final int numRows, final int numCols) {
+        final double[] mean = new double[numCols];
+        for (int i = 0; i < numRows; i++) {
+            final int offset = i * numCols;
+            for (int d = 0; d < numCols; d++) {
+                mean[d] += data[offset + d];
+            }
+        }
+        for (int d = 0; d < numCols; d++) {
+            mean[d] /= numRows;
+        }
+        for (int i = 0; i < numRows; i++) {
+            final int offset = i * numCols;
+            for (int d = 0; d < numCols; d++) {
+                data[offset + d] -= mean[d];
+            }
+        }
+    }
+
+    /**
+     * The gradient of the Kullback-Leibler divergence between the input and the output similarities.
+     */
+    private interface Gradient {
+
+        /**
+         * Computes the gradient at the embedding {@code y} into {@code dY}.
+         *
+         * @param y the current embedding
+         * @param dY receives the gradient
+         */
+        void compute(double[] y, double[] dY);
+
+        /**
+         * Sets the factor the input similarities are multiplied with in the attractive forces. The similarities
+         * themselves are not modified, so that the state after the exaggeration phase does not depend on rounding
+         * errors of the scaling, which keeps resumed runs identical to uninterrupted ones.
+         *
+         * @param factor the exaggeration factor
+         */
+        void setExaggeration(double factor);
+
+        /**
+         * @param y the current embedding
+         * @return the Kullback-Leibler divergence of the current embedding
+         */
+        double klDivergence(double[] y);
+    }
+
+    /** Exact attractive forces along the edges of the sparse input similarities plus approximated repulsion. */
+    private final class SparseGradient implements Gradient {
+
+        private final SparseAffinities m_p;
+
+        private final Repulsion m_repulsion;
+
+        private final ParallelRange m_parallel;
+
+        private final double[] m_negF;
+
+        private double m_exaggeration = 1.0;
+
+        SparseGradient(final SparseAffinities p, final Repulsion repulsion, final ParallelRange parallel) {
+            m_p = p;
+            m_repulsion = repulsion;
+            m_parallel = parallel;
+            m_negF = new double[p.getNumRows() * m_outputDimensions];
+        }
+
+        @Override
+        public void setExaggeration(final double factor) {
+            m_exaggeration = factor;
+        }
+
+        @Override
+        public void compute(final double[] y, final double[] dY) {
+            final double sumQ = m_repulsion.compute(y, m_negF);
+            final double[] negF = m_negF;
+            final int dims = m_outputDimensions;
+            m_parallel.forEach(m_p.getNumRows(), (from, to) -> {
+                for (int i = from; i < to; i++) {
+                    computeEdgeForces(y, i, dY);
+                    for (int d = i * dims; d < (i + 1) * dims; d++) {
+                        dY[d] -= negF[d] / sumQ;
+                    }
+                }
+            });
+        }
+
+        /** Writes the attractive forces acting on point {@code i} to {@code posF}. */
+        private void computeEdgeForces(final double[] y, final int i, final double[] posF) {
+            final int dims = m_outputDimensions;
+            final int[] rowPtr = m_p.m_rowPtr;
+            final int[] cols = m_p.m_cols;
+            final SparseAffinities p = m_p;
+            final int offsetI = i * dims;
+            for (int d = 0; d < dims; d++) {
+                posF[offsetI + d] = 0;
+            }
+            for (int e = rowPtr[i]; e < rowPtr[i + 1]; e++) {
+                final int offsetJ = cols[e] * dims;
+                double dist = 1.0;
+                for (int d = 0; d < dims; d++) {
+                    final double diff = y[offsetI + d] - y[offsetJ + d];
+                    dist += diff * diff;
+                }
+                final double mult = m_exaggeration * p.getValue(e) / dist;
+                for (int d = 0; d < dims; d++) {
+                    posF[offsetI + d] += mult * (y[offsetI + d] - y[offsetJ + d]);
+                }
+            }
+        }
+
+        @Override
+        public double klDivergence(final double[] y) {
+            final int dims = m_outputDimensions;
+            final int numRows = m_p.getNumRows();
+            final double sumQ = m_repulsion.compute(y, m_negF);
+            final int[] rowPtr = m_p.m_rowPtr;
+            final int[] cols = m_p.m_cols;
+            double kl = 0;
+            for (int i = 0; i < numRows; i++) {
+                for (int e = rowPtr[i]; e < rowPtr[i + 1]; e++) {
+                    double dist = 1.0;
+                    for (int d = 0; d < dims; d++) {
+                        final double diff = y[i * dims + d] - y[cols[e] * dims + d];
+                        dist += diff * diff;
+                    }
+                    final double q = 1.0 / dist / sumQ;
+                    final double p = m_p.getValue(e);
+                    kl += p * Math.log((p + KL_EPSILON) / (q + KL_EPSILON));
+                }
+            }
+            return kl;
+        }
+    }
+
+    private final class ExactGradient implements Gradient {
+
+        private final double[] m_p;
+
+        private final int m_numRows;
+
+        private final ParallelRange m_parallel;
+
+        private final double[] m_rowSumQ;
+
+        private double m_exaggeration = 1.0;
+
+        /** The dense joint probabilities {@code p} are only read and may be shared by several gradients. */
+        ExactGradient(final double[] p, final int numRows, final ParallelRange parallel) {
+            m_numRows = numRows;
+            m_parallel = parallel;
+            m_rowSumQ = new double[numRows];
+            m_p = p;
+        }
+
+        @Override
+        public void setExaggeration(final double factor) {
+            m_exaggeration = factor;
+        }
+
+        private double sumQ(final double[] y) {
+            final int dims = m_outputDimensions;
+            final int n = m_numRows;
+            m_parallel.forEach(n, (from, to) -> {
+                for (int i = from; i < to; i++) {
+                    double rowSum = 0;
+                    for (int j = 0; j < n; j++) {
+                        if (j != i) {
+                            rowSum += 1.0 / (1.0 + squaredDistance(y, i, j, dims));
+                        }
+                    }
+                    m_rowSumQ[i] = rowSum;
+                }
+            });
+            double sumQ = 0;
+            for (int i = 0; i < n; i++) {
+                sumQ += m_rowSumQ[i];
+            }
+            return sumQ;
+        }
+
+        @Override
+        public void compute(final double[] y, final double[] dY) {
+            final int dims = m_outputDimensions;
+            final int n = m_numRows;
+            final double sumQ = sumQ(y);
+            m_parallel.forEach(n, (from, to) -> {
+                for (int i = from; i < to; i++) {
+                    final int offsetI = i * dims;
+                    for (int d = 0; d < dims; d++) {
+                        dY[offsetI + d] = 0;
+                    }
+                    for (int j = 0; j < n; j++) {
+                        if (j == i) {
+                            continue;
+                        }
+                        final double q = 1.0 / (1.0 + squaredDistance(y, i, j, dims));
+                        final double mult = (m_exaggeration * m_p[i * n + j] - q / sumQ) * q;
+                        for (int d = 0; d < dims; d++) {
+                            dY[offsetI + d] += mult * (y[offsetI + d] - y[j * dims + d]);
+                        }
+                    }
+                }
+            });
+        }
+
+        @Override
+        public double klDivergence(final double[] y) {
+            final int dims = m_outputDimensions;
+            final int n = m_numRows;
+            final double sumQ = sumQ(y);
+            m_parallel.forEach(n, (from, to) -> {
+                for (int i = from; i < to; i++) {
+                    double rowKl = 0;
+                    for (int j = 0; j < n; j++) {
+                        if (j != i) {
+                            final double p = m_p[i * n + j];
+                            final double q = 1.0 / (1.0 + squaredDistance(y, i, j, dims)) / sumQ;
+                            rowKl += p * Math.log((p + KL_EPSILON) / (q + KL_EPSILON));
+                        }
+                    }
+                    m_rowSumQ[i] = rowKl;
+                }
+            });
+            double kl = 0;
+            for (int i = 0; i < n; i++) {
+                kl += m_rowSumQ[i];
+            }
+            return kl;
+        }
+    }
+
+    private static double squaredDistance(final double[] y, final int i, final int j, final int dims) {
+        double dist = 0;
+        for (int d = 0; d < dims; d++) {
+            final double diff = y[i * dims + d] - y[j * dims + d];
+            dist += diff * diff;
+        }
+        return dist;
+    }
+
+    /**
+     * Builder for {@link BarnesHutTsne}.
+     */
+    public static final class Builder {
+
+        private int m_outputDimensions = 2;
+
+        private double m_earlyExaggeration = 12.0;
+
+        private int m_exaggerationIterations = 250;
+
+        private double m_initialMomentum = 0.5;
+
+        private double m_finalMomentum = 0.8;
+
+        private int m_momentumSwitchIteration = 250;
+
+        private double m_learningRate = 200.0;
+
+        private double m_klTolerance;
+
+        private double m_minGradientNorm;
+
+        private int m_pcaComponents;
+
+        private boolean m_pcaInitialization;
+
+        private double m_perplexity = 30;
+
+        private int m_iterations = 1000;
+
+        private double m_theta = 0.5;
+
+        private RepulsionMethod m_repulsionMethod = RepulsionMethod.BARNES_HUT;
+
+        private NeighborSearchMethod m_neighborSearchMethod = NeighborSearchMethod.VANTAGE_POINT_TREE;
+
+        private double m_neighborSearchAccuracy = 0.5;
+
+        private long m_seed = System.currentTimeMillis();
+
+        private int m_numThreads = 1;
+
+        private Executor m_executor = ForkJoinPool.commonPool();
+
+        private TsneProgress m_progress = NoProgress.INSTANCE;
+
+        private int m_checkpointInterval;
+
+        private Consumer<TsneCheckpoint> m_checkpointConsumer;
+
+        private TsneCheckpoint m_resumeFrom;
+
+        private Builder() {
+        }
+
+        /**
+         * @param outputDimensions the dimensionality of the embedding
+         * @return this builder
+         */
+        public Builder outputDimensions(final int outputDimensions) {
+            m_outputDimensions = outputDimensions;
+            return this;
+        }
+
+        /**
+         * @param factor the factor the input similarities are multiplied with during the early exaggeration phase,
+         *            which lets clusters form and move freely in the beginning
+         * @param iterations the length of the early exaggeration phase, zero disables it
+         * @return this builder
+         */
+        public Builder earlyExaggeration(final double factor, final int iterations) {
+            if (!(factor > 0) || iterations < 0) {
+                throw new IllegalArgumentException(String.format(
+                    "The exaggeration factor must be positive and the number of iterations non-negative but were %s "
+                        + "and %s.",
+                    factor, iterations));
+            }
+            m_earlyExaggeration = factor;
+            m_exaggerationIterations = iterations;
+            return this;
+        }
+
+        /**
+         * @param initial the momentum of the first {@code switchIteration} iterations in [0, 1)
+         * @param end the momentum of the remaining iterations in [0, 1)
+         * @param switchIteration the iteration the final momentum is used from
+         * @return this builder
+         */
+        public Builder momentum(final double initial, final double end, final int switchIteration) {
+            if (!(initial >= 0 && initial < 1 && end >= 0 && end < 1) || switchIteration < 0) {
+                throw new IllegalArgumentException(String.format(
+                    "The momentum values must be in [0, 1) and the switch iteration non-negative but were %s, %s "
+                        + "and %s.",
+                    initial, end, switchIteration));
+            }
+            m_initialMomentum = initial;
+            m_finalMomentum = end;
+            m_momentumSwitchIteration = switchIteration;
+            return this;
+        }
+
+        /**
+         * @param learningRate the step size of the gradient descent, 200 by default
+         * @return this builder
+         */
+        public Builder learningRate(final double learningRate) {
+            if (!(learningRate > 0)) {
+                throw new IllegalArgumentException("The learning rate must be positive but was " + learningRate + ".");
+            }
+            m_learningRate = learningRate;
+            return this;
+        }
+
+        /**
+         * Stops the optimization after the early exaggeration phase as soon as one of the criteria is met. The
+         * divergence is evaluated every 50 iterations, the gradient in every iteration. Both criteria are disabled
+         * by default.
+         *
+         * @param klTolerance stop if the Kullback-Leibler divergence decreased by less than this fraction since its
+         *            last evaluation, zero disables the criterion
+         * @param minGradientNorm stop if the Euclidean norm of the gradient is below this value, zero disables the
+         *            criterion
+         * @return this builder
+         */
+        public Builder stoppingCriteria(final double klTolerance, final double minGradientNorm) {
+            if (!(klTolerance >= 0 && minGradientNorm >= 0)) {
+                throw new IllegalArgumentException(String.format(
+                    "The stopping criteria must be non-negative but were %s and %s.", klTolerance, minGradientNorm));
+            }
+            m_klTolerance = klTolerance;
+            m_minGradientNorm = minGradientNorm;
+            return this;
+        }
+
+        /**
+         * Reduces the input to its leading principal components before the input similarities are computed, which
+         * makes the neighbor search and the similarities cheaper in proportion to the reduction of the
+         * dimensionality. The components are computed by a randomized singular value decomposition.
+         *
+         * @param numComponents the number of principal components, at least the number of output dimensions; zero
+         *            (the default) disables the reduction, which is also skipped if the input has at most this many
+         *            columns
+         * @return this builder
+         */
+        public Builder pcaComponents(final int numComponents) {
+            if (numComponents < 0) {
+                throw new IllegalArgumentException(
+                    "The number of principal components must be non-negative but was " + numComponents + ".");
+            }
+            m_pcaComponents = numComponents;
+            return this;
+        }
+
+        /**
+         * @param pcaInitialization whether the embedding starts from the leading principal components of the input
+         *            instead of random points, which preserves more of the global structure of the data; disabled by
+         *            default
+         * @return this builder
+         */
+        public Builder pcaInitialization(final boolean pcaInitialization) {
+            m_pcaInitialization = pcaInitialization;
+            return this;
+        }
+
+        /**
+         * @param perplexity the perplexity of the input similarities
+         * @return this builder
+         */
+        public Builder perplexity(final double perplexity) {
+            m_perplexity = perplexity;
+            return this;
+        }
+
+        /**
+         * @param iterations the number of gradient descent iterations
+         * @return this builder
+         */
+        public Builder iterations(final int iterations) {
+            m_iterations = iterations;
+            return this;
+        }
+
+        /**
+         * @param theta the accuracy of the Barnes-Hut approximation, zero selects the exact algorithm
+         * @return this builder
+         */
+        public Builder theta(final double theta) {
+            m_theta = theta;
+            return this;
+        }
+
+        /**
+         * @param repulsionMethod the approximation of the repulsive forces
+         * @return this builder
+         */
+        public Builder repulsionMethod(final RepulsionMethod repulsionMethod) {
+            m_repulsionMethod = repulsionMethod;
+            return this;
+        }
+
+        /**
+         * @param neighborSearchMethod the search for the nearest neighbors that define the input similarities
+         * @return this builder
+         */
+        public Builder neighborSearchMethod(final NeighborSearchMethod neighborSearchMethod) {
+            m_neighborSearchMethod = neighborSearchMethod;
+            return this;
+        }
+
+        /**
+         * @param accuracy the tradeoff between recall and speed of the approximate neighbor searches in [0, 1],
+         *            higher values find more of the true nearest neighbors at the cost of a longer runtime
+         * @return this builder
+         */
+        public Builder neighborSearchAccuracy(final double accuracy) {
+            if (!(accuracy >= 0 && accuracy <= 1)) {
+                throw new IllegalArgumentException("The neighbor search accuracy must be in [0, 1] but was "
+                    + accuracy + ".");
+            }
+            m_neighborSearchAccuracy = accuracy;
+            return this;
+        }
+
+        /**
+         * @param seed the seed for the initial solution and the neighbor search
+         * @return this builder
+         */
+        public Builder seed(final long seed) {
+            m_seed = seed;
+            return this;
+        }
+
+        /**
+         * @param numThreads the number of threads used for the neighbor search and the gradient
+         * @return this builder
+         */
+        public Builder numberOfThreads(final int numThreads) {
+            m_numThreads = numThreads;
+            return this;
+        }
+
+        /**
+         * @param executor runs the optimizations if several perplexities or seeds are compared, defaults to the common
+         *            {@link ForkJoinPool}
+         * @return this builder
+         */
+        public Builder executor(final Executor executor) {
+            m_executor = executor;
+            return this;
+        }
+
+        /**
+         * @param progress receives progress updates
+         * @return this builder
+         */
+        public Builder progress(final TsneProgress progress) {
+            m_progress = progress;
+            return this;
+        }
+
+        /**
+         * @param interval the number of iterations between two checkpoints, the final state is always passed on
+         * @param consumer receives the checkpoints on the thread that runs the optimization
+         * @return this builder
+         */
+        public Builder checkpoints(final int interval, final Consumer<TsneCheckpoint> consumer) {
+            if (interval < 1) {
+                throw new IllegalArgumentException(
+                    "The checkpoint interval must be positive but was " + interval + ".");
+            }
+            m_checkpointInterval = interval;
+            m_checkpointConsumer = consumer;
+            return this;
+        }
+
+        /**
+         * The checkpoint must stem from a run with the same input data and settings, except for the number of
+         * iterations, which may be larger (to continue a finished run) or smaller (in which case no further
+         * iterations are run).
+         *
+         * @param checkpoint the state to continue from, or {@code null} to start from scratch
+         * @return this builder
+         */
+        public Builder resumeFrom(final TsneCheckpoint checkpoint) {
+            m_resumeFrom = checkpoint;
+            return this;
+        }
+
+        /**
+         * @return the configured t-SNE
+         */
+        public BarnesHutTsne build() {
+            if (m_pcaComponents > 0 && m_pcaComponents < m_outputDimensions) {
+                throw new IllegalArgumentException(String.format(
+                    "The number of principal components (%s) must not be smaller than the number of output "
+                        + "dimensions (%s).",
+                    m_pcaComponents, m_outputDimensions));
+            }
+            return new BarnesHutTsne(this);
+        }
+    }
+
+    private enum NoProgress implements TsneProgress {
+            INSTANCE;
+
+        @Override
+        public void setProgress(final double progress) {
+            // ignored
+        }
+
+        @Override
+        public void setMessage(final String message) {
+            // ignored
+        }
+
+        @Override
+        public boolean isCanceled() {
+            return false;
+        }
+    }
+
+}
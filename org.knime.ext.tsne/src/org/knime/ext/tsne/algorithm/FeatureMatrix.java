@@ -0,0 +1,274 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ *
+ */
+package org.knime.ext.tsne.algorithm;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * The row-major input matrix of t-SNE stored in a single flat array, either in double or in single precision.
+ * Single precision halves the memory of the matrix, which dominates the memory consumption for wide tables. All
+ * computations on the entries are carried out in double precision in both cases.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+abstract class FeatureMatrix {
+
+    private final int m_numCols;
+
+    private FeatureMatrix(final int numCols) {
+        m_numCols = numCols;
+    }
+
+    /**
+     * @param data the row-major matrix, it is referenced, not copied
+     * @param numCols the number of columns
+     * @return a matrix backed by {@code data}
+     */
+    static FeatureMatrix of(final double[] data, final int numCols) {
+        return new DoubleMatrix(data, numCols);
+    }
+
+    /**
+     * @param data the row-major matrix, it is referenced, not copied
+     * @param numCols the number of columns
+     * @return a matrix backed by {@code data}
+     */
+    static FeatureMatrix of(final float[] data, final int numCols) {
+        return new FloatMatrix(data, numCols);
+    }
+
+    final int getNumCols() {
+        return m_numCols;
+    }
+
+    /**
+     * @param index the position in the flat row-major array
+     * @return the entry at {@code index}
+     */
+    abstract double get(int index);
+
+    /**
+     * @param index the position in the flat row-major array
+     * @param value the new value, rounded to single precision if the matrix is stored in single precision
+     */
+    abstract void set(int index, double value);
+
+    /**
+     * @return {@code true} if the entries are stored in single precision
+     */
+    abstract boolean isSinglePrecision();
+
+    /**
+     * @param i the first row
+     * @param j the second row
+     * @return the squared Euclidean distance between rows {@code i} and {@code j}
+     */
+    abstract double squaredDistance(int i, int j);
+
+    /**
+     * @param i a row of this matrix
+     * @param point a point with {@link #getNumCols()} dimensions
+     * @return the squared Euclidean distance between row {@code i} and {@code point}
+     */
+    abstract double squaredDistance(int i, double[] point);
+
+    /**
+     * Writes the first {@code length} entries in the precision of the matrix.
+     *
+     * @param out the output to write to
+     * @param length the number of entries to write
+     * @throws IOException if writing fails
+     */
+    abstract void write(DataOutput out, int length) throws IOException;
+
+    /**
+     * Reads a matrix written by {@link #write(DataOutput, int)}.
+     *
+     * @param in the input to read from
+     * @param length the number of entries
+     * @param numCols the number of columns
+     * @param singlePrecision whether the entries were written in single precision
+     * @return the matrix
+     * @throws IOException if reading fails
+     */
+    static FeatureMatrix read(final DataInput in, final int length, final int numCols, final boolean singlePrecision)
+        throws IOException {
+        if (singlePrecision) {
+            final float[] data = new float[length];
+            for (int i = 0; i < length; i++) {
+                data[i] = in.readFloat();
+            }
+            return of(data, numCols);
+        }
+        final double[] data = new double[length];
+        for (int i = 0; i < length; i++) {
+            data[i] = in.readDouble();
+        }
+        return of(data, numCols);
+    }
+
+    private static final class DoubleMatrix extends FeatureMatrix {
+
+        private final double[] m_data;
+
+        DoubleMatrix(final double[] data, final int numCols) {
+            super(numCols);
+            m_data = data;
+        }
+
+        @Override
+        double get(final int index) {
+            return m_data[index];
+        }
+
+        @Override
+        void set(final int index, final double value) {
+            m_data[index] = value;
+        }
+
+        @Override
+        boolean isSinglePrecision() {
+            return false;
+        }
+
+        @Override
+        double squaredDistance(final int i, final int j) {
+            final double[] data = m_data;
+            final int numCols = getNumCols();
+            final int offsetI = i * numCols;
+            final int offsetJ = j * numCols;
+            double sum = 0;
+            for (int d = 0; d < numCols; d++) {
+                final double diff = data[offsetI + d] - data[offsetJ + d];
+                sum += diff * diff;
+            }
+            return sum;
+        }
+
+        @Override
+        double squaredDistance(final int i, final double[] point) {
+            final double[] data = m_data;
+            final int offset = i * getNumCols();
+            double sum = 0;
+            for (int d = 0; d < point.length; d++) {
+                final double diff = data[offset + d] - point[d];
+                sum += diff * diff;
+            }
+            return sum;
+        }
+
+        @Override
+        void write(final DataOutput out, final int length) throws IOException {
+            for (int i = 0; i < length; i++) {
+                out.writeDouble(m_data[i]);
+            }
+        }
+
+    }
+
+    private static final class FloatMatrix extends FeatureMatrix {
+
+        private final float[] m_data;
+
+        FloatMatrix(final float[] data, final int numCols) {
+            super(numCols);
+            m_data = data;
+        }
+
+        @Override
+        double get(final int index) {
+            return m_data[index];
+        }
+
+        @Override
+        void set(final int index, final double value) {
+            m_data[index] = (float)value;
+        }
+
+        @Override
+        boolean isSinglePrecision() {
+            return true;
+        }
+
+        @Override
+        double squaredDistance(final int i, final int j) {
+            final float[] data = m_data;
+            final int numCols = getNumCols();
+            final int offsetI = i * numCols;
+            final int offsetJ = j * numCols;
+            double sum = 0;
+            for (int d = 0; d < numCols; d++) {
+                final double diff = (double)data[offsetI + d] - data[offsetJ + d];
+                sum += diff * diff;
+            }
+            return sum;
+        }
+
+        @Override
+        double squaredDistance(final int i, final double[] point) {
+            final float[] data = m_data;
+            final int offset = i * getNumCols();
+            double sum = 0;
+            for (int d = 0; d < point.length; d++) {
+                final double diff = data[offset + d] - point[d];
+                sum += diff * diff;
+            }
+            return sum;
+        }
+
+        @Override
+        void write(final DataOutput out, final int length) throws IOException {
+            for (int i = 0; i < length; i++) {
+                out.writeFloat(m_data[i]);
+            }
+        }
+
+    }
+
+}
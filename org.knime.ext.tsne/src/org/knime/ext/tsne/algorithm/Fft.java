@@ -0,0 +1,147 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ *
+ */
+package org.knime.ext.tsne.algorithm;
+
+/**
+ * In-place iterative radix-2 fast Fourier transform of a fixed power-of-two size. The twiddle factors and the
+ * bit-reversal permutation are computed once, so a single instance can be shared by multiple threads.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+final class Fft {
+
+    private final int m_size;
+
+    private final int[] m_reverse;
+
+    private final double[] m_cos;
+
+    private final double[] m_sin;
+
+    /**
+     * @param size the transform size, must be a power of two
+     */
+    Fft(final int size) {
+        if (Integer.bitCount(size) != 1) {
+            throw new IllegalArgumentException("The FFT size must be a power of two but was " + size + ".");
+        }
+        m_size = size;
+        final int bits = Integer.numberOfTrailingZeros(size);
+        m_reverse = new int[size];
+        for (int i = 0; i < size; i++) {
+            m_reverse[i] = bits == 0 ? 0 : Integer.reverse(i) >>> (32 - bits);
+        }
+        m_cos = new double[size / 2];
+        m_sin = new double[size / 2];
+        for (int i = 0; i < size / 2; i++) {
+            final double angle = 2 * Math.PI * i / size;
+            m_cos[i] = Math.cos(angle);
+            m_sin[i] = Math.sin(angle);
+        }
+    }
+
+    /**
+     * @return the transform size
+     */
+    int getSize() {
+        return m_size;
+    }
+
+    /**
+     * @param n a positive number
+     * @return the smallest power of two that is greater than or equal to {@code n}
+     */
+    static int nextPowerOfTwo(final int n) {
+        return n <= 1 ? 1 : Integer.highestOneBit(n - 1) << 1;
+    }
+
+    /**
+     * Transforms the {@code size} complex values starting at {@code offset} in place. The inverse transform is not
+     * scaled by 1 / size.
+     *
+     * @param re the real parts
+     * @param im the imaginary parts
+     * @param offset position of the first value
+     * @param inverse whether to compute the inverse transform
+     */
+    void transform(final double[] re, final double[] im, final int offset, final boolean inverse) {
+        final int n = m_size;
+        for (int i = 0; i < n; i++) {
+            final int j = m_reverse[i];
+            if (i < j) {
+                swap(re, offset + i, offset + j);
+                swap(im, offset + i, offset + j);
+            }
+        }
+        final double sign = inverse ? 1 : -1;
+        for (int len = 2; len <= n; len <<= 1) {
+            final int half = len >> 1;
+            final int step = n / len;
+            for (int start = 0; start < n; start += len) {
+                for (int k = 0; k < half; k++) {
+                    final double wr = m_cos[k * step];
+                    final double wi = sign * m_sin[k * step];
+                    final int a = offset + start + k;
+                    final int b = a + half;
+                    final double xr = re[b] * wr - im[b] * wi;
+                    final double xi = re[b] * wi + im[b] * wr;
+                    re[b] = re[a] - xr;
+                    im[b] = im[a] - xi;
+                    re[a] += xr;
+                    im[a] += xi;
+                }
+            }
+        }
+    }
+
+    private static void swap(final double[] values, final int i, final int j) {
+        final double tmp = values[i];
+        values[i] = values[j];
+        values[j] = tmp;
+    }
+
+}
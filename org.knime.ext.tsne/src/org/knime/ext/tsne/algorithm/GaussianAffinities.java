@@ -0,0 +1,138 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ *
+ */
+package org.knime.ext.tsne.algorithm;
+
+/**
+ * Calibrates the Gaussian kernels of the input similarities such that the conditional distribution of each point
+ * has the requested perplexity.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+final class GaussianAffinities {
+
+    private static final double TOLERANCE = 1e-5;
+
+    private static final int MAX_SEARCH_STEPS = 200;
+
+    private GaussianAffinities() {
+        // utility class
+    }
+
+    /**
+     * Computes the conditional probabilities p<sub>j|i</sub> from the distances to the {@code k} nearest neighbors
+     * of each point.
+     *
+     * @param neighbors row-major n x k matrix of neighbor indices (excluding the point itself)
+     * @param distances row-major n x k matrix of the corresponding distances
+     * @param k the number of neighbors per point
+     * @param perplexity the target perplexity
+     * @param parallel used to calibrate rows concurrently
+     * @return the (asymmetric) conditional probabilities
+     */
+    static SparseAffinities fromNeighbors(final int[] neighbors, final double[] distances, final int k,
+        final double perplexity, final ParallelRange parallel) {
+        final int n = neighbors.length / k;
+        final int[] rowPtr = new int[n + 1];
+        for (int i = 0; i < n; i++) {
+            rowPtr[i + 1] = rowPtr[i] + k;
+        }
+        final double[] values = new double[n * k];
+        final double logPerplexity = Math.log(perplexity);
+        parallel.forEach(n, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                calibrateRow(distances, i * k, k, logPerplexity, values);
+            }
+        });
+        return new SparseAffinities(rowPtr, neighbors, values);
+    }
+
+    /**
+     * Binary search for the precision (beta) of the Gaussian kernel centered at a point such that the entropy of the
+     * resulting distribution matches {@code logPerplexity}. The normalized probabilities are written to
+     * {@code probabilities} at the same positions as the distances.
+     *
+     * @param distances the distances to the neighbors
+     * @param offset position of the first distance of the row
+     * @param length number of distances in the row
+     * @param logPerplexity the target entropy
+     * @param probabilities receives the probabilities
+     */
+    static void calibrateRow(final double[] distances, final int offset, final int length,
+        final double logPerplexity, final double[] probabilities) {
+        final int end = offset + length;
+        double beta = 1.0;
+        double minBeta = -Double.MAX_VALUE;
+        double maxBeta = Double.MAX_VALUE;
+        double sum = Double.MIN_VALUE;
+        for (int step = 0; step < MAX_SEARCH_STEPS; step++) {
+            sum = Double.MIN_VALUE;
+            double entropy = 0;
+            for (int m = offset; m < end; m++) {
+                final double p = Math.exp(-beta * distances[m]);
+                probabilities[m] = p;
+                sum += p;
+                entropy += beta * distances[m] * p;
+            }
+            entropy = entropy / sum + Math.log(sum);
+            final double diff = entropy - logPerplexity;
+            if (Math.abs(diff) < TOLERANCE) {
+                break;
+            }
+            if (diff > 0) {
+                minBeta = beta;
+                beta = maxBeta == Double.MAX_VALUE ? beta * 2.0 : (beta + maxBeta) / 2.0;
+            } else {
+                maxBeta = beta;
+                beta = minBeta == -Double.MAX_VALUE ? beta / 2.0 : (beta + minBeta) / 2.0;
+            }
+        }
+        for (int m = offset; m < end; m++) {
+            probabilities[m] /= sum;
+        }
+    }
+
+}
@@ -0,0 +1,439 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ *
+ */
+package org.knime.ext.tsne.algorithm;
+
+import java.util.Arrays;
+
+/**
+ * Repulsive forces computed with FFT-accelerated polynomial interpolation (FIt-SNE, Linderman et al., 2019).
+ * <p>
+ * The embedding is covered by a regular grid of boxes with a few equispaced interpolation nodes each. The charges of
+ * the points are spread to the nodes with Lagrange polynomials, the kernel is applied to the node grid as a
+ * convolution via FFT and the resulting potentials are interpolated back to the points. The cost per iteration is
+ * linear in the number of points plus the cost of the FFT on the grid, which only depends on the extent of the
+ * embedding. Only one- and two-dimensional embeddings are supported.
+ * <p>
+ * The forces use the squared Cauchy kernel 1 / (1 + |y<sub>i</sub> - y<sub>j</sub>|<sup>2</sup>)<sup>2</sup> with
+ * the charges 1 and y<sub>j</sub>. The normalization constant Z is evaluated in the frequency domain with the Cauchy
+ * kernel, which avoids the cancellation of large terms for widely spread embeddings.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+final class InterpolationRepulsion implements Repulsion {
+
+    /** Number of interpolation nodes per box and dimension. */
+    private static final int NODES_PER_BOX = 3;
+
+    private static final int MIN_BOXES = 50;
+
+    /** Number of boxes per unit length of the embedding. */
+    private static final double BOXES_PER_UNIT = 1.0;
+
+    /** Limits the grid of two-dimensional embeddings to 2048 x 2048 complex values. */
+    private static final int MAX_FFT_SIZE_2D = 2048;
+
+    /** Lower bound for the extent of the embedding, guards against degenerate embeddings. */
+    private static final double MIN_EXTENT = 1e-6;
+
+    private static final int TRANSPOSE_BLOCK = 32;
+
+    private final int m_dims;
+
+    private final int m_numPoints;
+
+    /** Charges 1, y_1, ..., y_dims. */
+    private final int m_numTerms;
+
+    private final ParallelRange m_parallel;
+
+    /** Lagrange denominators of the interpolation nodes. */
+    private final double[] m_denominators;
+
+    /** Grid index of the first node of the box containing each point, per dimension. */
+    private final int[] m_gridStart;
+
+    /** Interpolation weights of the nodes of the box containing each point, per dimension. */
+    private final double[] m_weights;
+
+    private final double[] m_potentials;
+
+    private Fft m_fft;
+
+    /** Transform of the squared Cauchy kernel (real because the kernel is even). */
+    private double[] m_kernel;
+
+    /** Transform of the Cauchy kernel. */
+    private double[] m_cauchyKernel;
+
+    private double[] m_gridRe;
+
+    private double[] m_gridIm;
+
+    private int m_numNodes;
+
+    private double m_sumQ;
+
+    /**
+     * @param dims the dimensionality of the embedding (1 or 2)
+     * @param numPoints the number of points in the embedding
+     * @param parallel used to interpolate and transform concurrently
+     */
+    InterpolationRepulsion(final int dims, final int numPoints, final ParallelRange parallel) {
+        if (dims < 1 || dims > 2) {
+            throw new IllegalArgumentException(
+                "The interpolation-based repulsion supports only one- and two-dimensional embeddings.");
+        }
+        m_dims = dims;
+        m_numPoints = numPoints;
+        m_numTerms = dims + 1;
+        m_parallel = parallel;
+        m_denominators = new double[NODES_PER_BOX];
+        for (int k = 0; k < NODES_PER_BOX; k++) {
+            double denominator = 1;
+            for (int m = 0; m < NODES_PER_BOX; m++) {
+                if (m != k) {
+                    denominator *= node(k) - node(m);
+                }
+            }
+            m_denominators[k] = denominator;
+        }
+        m_gridStart = new int[numPoints * dims];
+        m_weights = new double[numPoints * dims * NODES_PER_BOX];
+        m_potentials = new double[numPoints * m_numTerms];
+    }
+
+    /** @return position of interpolation node {@code k} relative to its box, in [0, 1] */
+    private static double node(final int k) {
+        return (k + 0.5) / NODES_PER_BOX;
+    }
+
+    @Override
+    public double compute(final double[] y, final double[] negF) {
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        for (final double value : y) {
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+        }
+        final double extent = Math.max(max - min, MIN_EXTENT);
+        final int minBoxes = Math.max(MIN_BOXES, (int)Math.ceil(extent * BOXES_PER_UNIT));
+        int fftSize = Fft.nextPowerOfTwo(2 * minBoxes * NODES_PER_BOX);
+        if (m_dims == 2) {
+            fftSize = Math.min(fftSize, MAX_FFT_SIZE_2D);
+        }
+        // use all of the zero padding that the power of two provides for additional boxes
+        final int numBoxes = fftSize / (2 * NODES_PER_BOX);
+        final double boxWidth = extent / numBoxes;
+        m_numNodes = numBoxes * NODES_PER_BOX;
+        prepareGrid(fftSize);
+        computeWeights(y, min, boxWidth, numBoxes);
+        final double spacing = boxWidth / NODES_PER_BOX;
+        computeKernel(m_kernel, spacing, true);
+        computeKernel(m_cauchyKernel, spacing, false);
+        // the kernels are real and even, so two real-valued charge terms can share one complex transform
+        for (int term = 0; term < m_numTerms; term += 2) {
+            convolve(y, term, Math.min(term + 1, m_numTerms - 1));
+        }
+        combine(y, negF);
+        return m_sumQ;
+    }
+
+    private void prepareGrid(final int fftSize) {
+        if (m_fft == null || m_fft.getSize() != fftSize) {
+            m_fft = new Fft(fftSize);
+            final int gridLength = m_dims == 1 ? fftSize : fftSize * fftSize;
+            m_kernel = new double[gridLength];
+            m_cauchyKernel = new double[gridLength];
+            m_gridRe = new double[gridLength];
+            m_gridIm = new double[gridLength];
+        }
+    }
+
+    private void computeWeights(final double[] y, final double min, final double boxWidth, final int numBoxes) {
+        final int dims = m_dims;
+        m_parallel.forEach(m_numPoints, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                for (int d = 0; d < dims; d++) {
+                    final int index = i * dims + d;
+                    final double position = (y[index] - min) / boxWidth;
+                    final int box = Math.min((int)position, numBoxes - 1);
+                    m_gridStart[index] = box * NODES_PER_BOX;
+                    final double u = position - box;
+                    final int offset = index * NODES_PER_BOX;
+                    for (int k = 0; k < NODES_PER_BOX; k++) {
+                        double numerator = 1;
+                        for (int m = 0; m < NODES_PER_BOX; m++) {
+                            if (m != k) {
+                                numerator *= u - node(m);
+                            }
+                        }
+                        m_weights[offset + k] = numerator / m_denominators[k];
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Computes the transform of the circulant embedding of the (squared) Cauchy kernel between all pairs of grid
+     * nodes. The imaginary part of the transform of an even real kernel vanishes and is discarded.
+     */
+    private void computeKernel(final double[] kernel, final double spacing, final boolean squared) {
+        final int size = m_fft.getSize();
+        final int numNodes = m_numNodes;
+        Arrays.fill(kernel, 0);
+        Arrays.fill(m_gridIm, 0);
+        if (m_dims == 1) {
+            for (int a = 0; a < numNodes; a++) {
+                final double value = cauchy(a * a * spacing * spacing, squared);
+                kernel[a] = value;
+                if (a > 0) {
+                    kernel[size - a] = value;
+                }
+            }
+            m_fft.transform(kernel, m_gridIm, 0, false);
+        } else {
+            m_parallel.forEach(2 * numNodes - 1, (from, to) -> {
+                for (int r = from; r < to; r++) {
+                    final int a = r - numNodes + 1;
+                    final int row = (a + size) % size;
+                    for (int b = 1 - numNodes; b < numNodes; b++) {
+                        kernel[row * size + (b + size) % size] =
+                            cauchy((a * a + b * b) * spacing * spacing, squared);
+                    }
+                }
+            });
+            transform2d(kernel, m_gridIm, false, size);
+        }
+    }
+
+    private static double cauchy(final double squaredDistance, final boolean squared) {
+        final double q = 1.0 / (1.0 + squaredDistance);
+        return squared ? q * q : q;
+    }
+
+    /** Convolves the charges {@code termRe} and {@code termIm} with the kernel and interpolates the potentials. */
+    private void convolve(final double[] y, final int termRe, final int termIm) {
+        final int dims = m_dims;
+        final int size = m_fft.getSize();
+        final double[] re = m_gridRe;
+        final double[] im = m_gridIm;
+        Arrays.fill(re, 0);
+        Arrays.fill(im, 0);
+        final boolean pair = termIm != termRe;
+        // spreading is sequential because points of different threads would write to the same nodes
+        for (int i = 0; i < m_numPoints; i++) {
+            final double chargeRe = charge(y, i, termRe);
+            final double chargeIm = pair ? charge(y, i, termIm) : 0;
+            final int w0 = i * dims * NODES_PER_BOX;
+            if (dims == 1) {
+                final int start = m_gridStart[i];
+                for (int k = 0; k < NODES_PER_BOX; k++) {
+                    re[start + k] += m_weights[w0 + k] * chargeRe;
+                    im[start + k] += m_weights[w0 + k] * chargeIm;
+                }
+            } else {
+                final int start0 = m_gridStart[2 * i];
+                final int start1 = m_gridStart[2 * i + 1];
+                final int w1 = w0 + NODES_PER_BOX;
+                for (int k1 = 0; k1 < NODES_PER_BOX; k1++) {
+                    final int row = (start1 + k1) * size + start0;
+                    for (int k0 = 0; k0 < NODES_PER_BOX; k0++) {
+                        final double weight = m_weights[w1 + k1] * m_weights[w0 + k0];
+                        re[row + k0] += weight * chargeRe;
+                        im[row + k0] += weight * chargeIm;
+                    }
+                }
+            }
+        }
+        final double scale;
+        if (dims == 1) {
+            m_fft.transform(re, im, 0, false);
+            scale = 1.0 / size;
+        } else {
+            // only the rows of the grid nodes are non-zero
+            transform2d(re, im, false, m_numNodes);
+            scale = 1.0 / ((double)size * size);
+        }
+        if (termRe == 0) {
+            m_sumQ = sumQ(scale);
+        }
+        final double[] kernel = m_kernel;
+        for (int i = 0; i < kernel.length; i++) {
+            re[i] *= kernel[i];
+            im[i] *= kernel[i];
+        }
+        if (dims == 1) {
+            m_fft.transform(re, im, 0, true);
+        } else {
+            transform2d(re, im, true, m_numNodes);
+        }
+        interpolate(re, im, termRe, pair ? termIm : -1, scale);
+    }
+
+    /**
+     * Evaluates Z = sum_ij q_ij from the transform of the unit charges (held in the real part of the grid) via
+     * Parseval's theorem: sum_m g[m] (K * g)[m] = 1 / L sum_k |G[k]|<sup>2</sup> K[k]. The unit charges have to be
+     * separated from the charges stored in the imaginary part of the grid first.
+     */
+    private double sumQ(final double scale) {
+        final int size = m_fft.getSize();
+        final double[] re = m_gridRe;
+        final double[] im = m_gridIm;
+        final double[] kernel = m_cauchyKernel;
+        double sum = 0;
+        for (int i = 0; i < kernel.length; i++) {
+            final int neg = m_dims == 1 ? (size - i) % size
+                : ((size - i / size) % size) * size + (size - i % size) % size;
+            // G[k] = (Z[k] + conj(Z[-k])) / 2
+            final double gRe = (re[i] + re[neg]) / 2;
+            final double gIm = (im[i] - im[neg]) / 2;
+            sum += (gRe * gRe + gIm * gIm) * kernel[i];
+        }
+        // remove the self-interactions, which contribute q_ii = 1 each
+        return sum * scale - m_numPoints;
+    }
+
+    private void interpolate(final double[] re, final double[] im, final int termRe, final int termIm,
+        final double scale) {
+        final int dims = m_dims;
+        final int size = m_fft.getSize();
+        final int numTerms = m_numTerms;
+        m_parallel.forEach(m_numPoints, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                double potentialRe = 0;
+                double potentialIm = 0;
+                final int w0 = i * dims * NODES_PER_BOX;
+                if (dims == 1) {
+                    final int start = m_gridStart[i];
+                    for (int k = 0; k < NODES_PER_BOX; k++) {
+                        potentialRe += m_weights[w0 + k] * re[start + k];
+                        potentialIm += m_weights[w0 + k] * im[start + k];
+                    }
+                } else {
+                    final int start0 = m_gridStart[2 * i];
+                    final int start1 = m_gridStart[2 * i + 1];
+                    final int w1 = w0 + NODES_PER_BOX;
+                    for (int k1 = 0; k1 < NODES_PER_BOX; k1++) {
+                        final int row = (start1 + k1) * size + start0;
+                        for (int k0 = 0; k0 < NODES_PER_BOX; k0++) {
+                            final double weight = m_weights[w1 + k1] * m_weights[w0 + k0];
+                            potentialRe += weight * re[row + k0];
+                            potentialIm += weight * im[row + k0];
+                        }
+                    }
+                }
+                m_potentials[i * numTerms + termRe] = potentialRe * scale;
+                if (termIm >= 0) {
+                    m_potentials[i * numTerms + termIm] = potentialIm * scale;
+                }
+            }
+        });
+    }
+
+    private double charge(final double[] y, final int i, final int term) {
+        return term == 0 ? 1 : y[i * m_dims + term - 1];
+    }
+
+    /**
+     * Two-dimensional transform as row transforms, transposition and row transforms again. The forward transform
+     * leaves the result transposed, which the inverse transform undoes. Only the first {@code numRows} rows of the
+     * input (forward) respectively of the output (inverse) are considered, the remaining rows are zero padding.
+     */
+    private void transform2d(final double[] re, final double[] im, final boolean inverse, final int numRows) {
+        final int size = m_fft.getSize();
+        m_parallel.forEach(inverse ? size : numRows, (from, to) -> {
+            for (int row = from; row < to; row++) {
+                m_fft.transform(re, im, row * size, inverse);
+            }
+        });
+        transpose(re, size);
+        transpose(im, size);
+        m_parallel.forEach(inverse ? numRows : size, (from, to) -> {
+            for (int row = from; row < to; row++) {
+                m_fft.transform(re, im, row * size, inverse);
+            }
+        });
+    }
+
+    /** Blocked in-place transposition of a square matrix. */
+    private void transpose(final double[] values, final int size) {
+        final int numBlocks = (size + TRANSPOSE_BLOCK - 1) / TRANSPOSE_BLOCK;
+        m_parallel.forEach(numBlocks, (from, to) -> {
+            for (int bi = from; bi < to; bi++) {
+                final int iStart = bi * TRANSPOSE_BLOCK;
+                final int iEnd = Math.min(iStart + TRANSPOSE_BLOCK, size);
+                for (int jStart = iStart; jStart < size; jStart += TRANSPOSE_BLOCK) {
+                    final int jEnd = Math.min(jStart + TRANSPOSE_BLOCK, size);
+                    for (int i = iStart; i < iEnd; i++) {
+                        for (int j = Math.max(jStart, i + 1); j < jEnd; j++) {
+                            final double tmp = values[i * size + j];
+                            values[i * size + j] = values[j * size + i];
+                            values[j * size + i] = tmp;
+                        }
+                    }
+                }
+            }
+        });
+    }
+
+    /** Assembles the unnormalized forces sum_j q_ij<sup>2</sup> (y_i - y_j) from the interpolated potentials. */
+    private void combine(final double[] y, final double[] negF) {
+        final int dims = m_dims;
+        final int numTerms = m_numTerms;
+        m_parallel.forEach(m_numPoints, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                final int offset = i * dims;
+                final int p = i * numTerms;
+                for (int d = 0; d < dims; d++) {
+                    negF[offset + d] = y[offset + d] * m_potentials[p] - m_potentials[p + 1 + d];
+                }
+            }
+        });
+    }
+
+}
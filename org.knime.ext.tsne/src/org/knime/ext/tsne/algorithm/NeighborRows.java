@@ -0,0 +1,112 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ *
+ */
+package org.knime.ext.tsne.algorithm;
+
+import java.util.Arrays;
+
+/**
+ * Static helpers for neighbor lists that are stored as rows of fixed length {@code k} in flat arrays, each row
+ * sorted by ascending distance.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+final class NeighborRows {
+
+    private NeighborRows() {
+    }
+
+    /**
+     * Marks all entries as empty, i.e. with an infinite distance.
+     *
+     * @param neighbors the neighbor indices
+     * @param distances the neighbor distances
+     */
+    static void clear(final int[] neighbors, final double[] distances) {
+        Arrays.fill(neighbors, -1);
+        Arrays.fill(distances, Double.POSITIVE_INFINITY);
+    }
+
+    /**
+     * Inserts a candidate into a sorted row unless it is farther away than all current entries or already contained.
+     *
+     * @param neighbors the neighbor indices
+     * @param distances the neighbor distances
+     * @param flags optional per-entry flags that are shifted along with the entries, may be {@code null}
+     * @param offset the start of the row
+     * @param k the length of the row
+     * @param candidate the candidate index
+     * @param distance the distance of the candidate
+     * @return {@code true} if the candidate was inserted, in which case its flag is set
+     */
+    static boolean insert(final int[] neighbors, final double[] distances, final boolean[] flags, final int offset,
+        final int k, final int candidate, final double distance) {
+        final int last = offset + k - 1;
+        if (!(distance < distances[last])) {
+            return false;
+        }
+        int pos = last;
+        while (pos > offset && distances[pos - 1] > distance) {
+            pos--;
+        }
+        // the same candidate always has the same distance, so duplicates can only be among the equal distances
+        for (int i = pos - 1; i >= offset && distances[i] == distance; i--) {
+            if (neighbors[i] == candidate) {
+                return false;
+            }
+        }
+        System.arraycopy(neighbors, pos, neighbors, pos + 1, last - pos);
+        System.arraycopy(distances, pos, distances, pos + 1, last - pos);
+        neighbors[pos] = candidate;
+        distances[pos] = distance;
+        if (flags != null) {
+            System.arraycopy(flags, pos, flags, pos + 1, last - pos);
+            flags[pos] = true;
+        }
+        return true;
+    }
+
+}
@@ -0,0 +1,223 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ *
+ */
+package org.knime.ext.tsne.algorithm;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Approximate k-nearest-neighbor search with nearest-neighbor descent (Dong et al., 2011). Starting from the result
+ * of another (usually coarse) search, each iteration compares every point with the neighbors of its neighbors and
+ * keeps the closest candidates. Only pairs that involve a neighbor that was found in the previous iteration are
+ * compared, and the search stops once hardly any neighbor lists change.
+ * <p>
+ * Unlike the original formulation, in which each comparison updates the lists of both points, every point collects
+ * its own candidates (the neighbors of its sampled neighbors and reverse neighbors). Hence, the neighbor lists can be
+ * updated in parallel without synchronization and the result does not depend on the number of threads.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+final class NnDescent implements NeighborSearch {
+
+    /** The search stops once fewer than this fraction of all neighbor list entries changed in an iteration. */
+    private static final double MIN_UPDATE_RATE = 0.001;
+
+    private final DistanceFunction m_distance;
+
+    private final int m_numRows;
+
+    private final NeighborSearch m_initialization;
+
+    private final int m_sampleSize;
+
+    private final int m_maxIterations;
+
+    /**
+     * @param distance the metric
+     * @param numRows the number of points
+     * @param initialization provides the initial neighbor lists
+     * @param sampleSize the maximal number of new (and old) neighbors per point that are explored in each iteration
+     * @param maxIterations the maximal number of refinement iterations
+     */
+    NnDescent(final DistanceFunction distance, final int numRows, final NeighborSearch initialization,
+        final int sampleSize, final int maxIterations) {
+        m_distance = distance;
+        m_numRows = numRows;
+        m_initialization = initialization;
+        m_sampleSize = Math.max(1, sampleSize);
+        m_maxIterations = maxIterations;
+    }
+
+    @Override
+    public void findNeighbors(final int k, final int[] neighbors, final double[] distances,
+        final ParallelRange parallel) {
+        m_initialization.findNeighbors(k, neighbors, distances, parallel);
+        final int n = m_numRows;
+        final int sampleSize = Math.min(m_sampleSize, k);
+        final Candidates newCandidates = new Candidates(n, sampleSize);
+        final Candidates oldCandidates = new Candidates(n, sampleSize);
+        // marks the entries that were added in the last iteration and have not yet been explored
+        final boolean[] isNew = new boolean[neighbors.length];
+        Arrays.fill(isNew, true);
+        final AtomicLong numUpdates = new AtomicLong();
+        for (int iter = 0; iter < m_maxIterations; iter++) {
+            sampleCandidates(k, neighbors, isNew, newCandidates, oldCandidates, parallel);
+            numUpdates.set(0);
+            parallel.forEach(n, (from, to) -> {
+                long updates = 0;
+                for (int i = from; i < to; i++) {
+                    updates += joinNeighbors(i, k, neighbors, distances, isNew, newCandidates, oldCandidates);
+                }
+                numUpdates.addAndGet(updates);
+            });
+            if (numUpdates.get() < MIN_UPDATE_RATE * n * k) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Collects for each point up to {@code sampleSize} new and old neighbors (closest first) plus as many reverse
+     * neighbors, and marks the sampled new neighbors as old.
+     */
+    private void sampleCandidates(final int k, final int[] neighbors, final boolean[] isNew,
+        final Candidates newCandidates, final Candidates oldCandidates, final ParallelRange parallel) {
+        final int n = m_numRows;
+        final int sampleSize = newCandidates.m_sampleSize;
+        parallel.forEach(n, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                newCandidates.m_counts[i] = 0;
+                oldCandidates.m_counts[i] = 0;
+                for (int e = i * k; e < (i + 1) * k; e++) {
+                    final int j = neighbors[e];
+                    if (j < 0) {
+                        continue;
+                    }
+                    if (isNew[e]) {
+                        if (newCandidates.m_counts[i] < sampleSize) {
+                            newCandidates.add(i, j);
+                            isNew[e] = false;
+                        }
+                    } else if (oldCandidates.m_counts[i] < sampleSize) {
+                        oldCandidates.add(i, j);
+                    }
+                }
+            }
+        });
+        // the reverse neighbors are added sequentially to keep their order deterministic
+        newCandidates.addReverse();
+        oldCandidates.addReverse();
+    }
+
+    /** Compares point {@code i} with the candidates of its candidates and returns the number of updates. */
+    private int joinNeighbors(final int i, final int k, final int[] neighbors, final double[] distances,
+        final boolean[] isNew, final Candidates newCandidates, final Candidates oldCandidates) {
+        int updates = 0;
+        final int capacity = newCandidates.m_capacity;
+        for (int a = i * capacity, aEnd = a + newCandidates.m_counts[i]; a < aEnd; a++) {
+            final int u = newCandidates.m_items[a];
+            updates += joinCandidates(i, u, newCandidates, k, neighbors, distances, isNew);
+            updates += joinCandidates(i, u, oldCandidates, k, neighbors, distances, isNew);
+        }
+        for (int a = i * capacity, aEnd = a + oldCandidates.m_counts[i]; a < aEnd; a++) {
+            updates += joinCandidates(i, oldCandidates.m_items[a], newCandidates, k, neighbors, distances, isNew);
+        }
+        return updates;
+    }
+
+    private int joinCandidates(final int i, final int u, final Candidates candidates, final int k,
+        final int[] neighbors, final double[] distances, final boolean[] isNew) {
+        int updates = 0;
+        for (int b = u * candidates.m_capacity, bEnd = b + candidates.m_counts[u]; b < bEnd; b++) {
+            final int v = candidates.m_items[b];
+            if (v != i && NeighborRows.insert(neighbors, distances, isNew, i * k, k, v, m_distance.distance(i, v))) {
+                updates++;
+            }
+        }
+        return updates;
+    }
+
+    /** Fixed-capacity candidate lists, the first part of each list holds neighbors, the rest reverse neighbors. */
+    private static final class Candidates {
+
+        private final int m_sampleSize;
+
+        private final int m_capacity;
+
+        private final int[] m_items;
+
+        private final int[] m_counts;
+
+        private final int[] m_forwardCounts;
+
+        Candidates(final int numRows, final int sampleSize) {
+            m_sampleSize = sampleSize;
+            m_capacity = 2 * sampleSize;
+            m_items = new int[numRows * m_capacity];
+            m_counts = new int[numRows];
+            m_forwardCounts = new int[numRows];
+        }
+
+        void add(final int i, final int j) {
+            m_items[i * m_capacity + m_counts[i]++] = j;
+        }
+
+        void addReverse() {
+            final int n = m_counts.length;
+            System.arraycopy(m_counts, 0, m_forwardCounts, 0, n);
+            for (int i = 0; i < n; i++) {
+                for (int a = i * m_capacity, aEnd = a + m_forwardCounts[i]; a < aEnd; a++) {
+                    final int j = m_items[a];
+                    if (m_counts[j] < m_capacity) {
+                        add(j, i);
+                    }
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,120 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ *
+ */
+package org.knime.ext.tsne.algorithm;
+
+/**
+ * Bit vectors of equal length packed row-major into 64-bit words, e.g. molecular fingerprints. The distances are
+ * computed on whole words with population counts, which is considerably cheaper than expanding the bits into one
+ * numeric column each. Instances are filled with {@link #set(int, long)} and may be read concurrently afterwards.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+public final class PackedBitVectors implements DistanceFunction {
+
+    private final long[] m_words;
+
+    private final int m_wordsPerRow;
+
+    private final int[] m_cardinalities;
+
+    private final VectorDistance m_distance;
+
+    /**
+     * @param numRows the number of vectors
+     * @param length the number of bits per vector
+     * @param distance the distance between two vectors
+     * @throws IllegalArgumentException if the vectors need more than {@code Integer.MAX_VALUE - 8} words
+     */
+    public PackedBitVectors(final int numRows, final long length, final VectorDistance distance) {
+        final long wordsPerRow = (length + Long.SIZE - 1) / Long.SIZE;
+        if (numRows * wordsPerRow > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException(String.format(
+                "The bit vectors are too large, at most %s bits (rows times length) are supported.",
+                (Integer.MAX_VALUE - 8L) * Long.SIZE));
+        }
+        m_wordsPerRow = (int)wordsPerRow;
+        m_words = new long[numRows * m_wordsPerRow];
+        m_cardinalities = new int[numRows];
+        m_distance = distance;
+    }
+
+    /**
+     * Sets a bit of a vector.
+     *
+     * @param row the index of the vector
+     * @param bit the index of the bit within the vector
+     */
+    public void set(final int row, final long bit) {
+        final int word = row * m_wordsPerRow + (int)(bit >>> 6);
+        final long mask = 1L << bit;
+        if ((m_words[word] & mask) == 0) {
+            m_words[word] |= mask;
+            m_cardinalities[row]++;
+        }
+    }
+
+    @Override
+    public double distance(final int i, final int j) {
+        final long[] words = m_words;
+        final int offsetI = i * m_wordsPerRow;
+        final int offsetJ = j * m_wordsPerRow;
+        if (m_distance == VectorDistance.HAMMING) {
+            int differing = 0;
+            for (int w = 0; w < m_wordsPerRow; w++) {
+                differing += Long.bitCount(words[offsetI + w] ^ words[offsetJ + w]);
+            }
+            return differing;
+        }
+        int common = 0;
+        for (int w = 0; w < m_wordsPerRow; w++) {
+            common += Long.bitCount(words[offsetI + w] & words[offsetJ + w]);
+        }
+        final int union = m_cardinalities[i] + m_cardinalities[j] - common;
+        return union == 0 ? 0 : (1 - (double)common / union);
+    }
+
+}
@@ -0,0 +1,124 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ *
+ */
+package org.knime.ext.tsne.algorithm;
+
+/**
+ * Count vectors of equal length with entries in [0, 255] packed row-major into a byte array, e.g. count-based
+ * fingerprints. Instances are filled with {@link #set(int, long, int)} and may be read concurrently afterwards.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+public final class PackedByteVectors implements DistanceFunction {
+
+    private static final int MAX_COUNT = 0xFF;
+
+    private final byte[] m_counts;
+
+    private final int m_length;
+
+    /** The sum of the counts of each vector. */
+    private final long[] m_sums;
+
+    private final VectorDistance m_distance;
+
+    /**
+     * @param numRows the number of vectors
+     * @param length the number of entries per vector
+     * @param distance the distance between two vectors
+     * @throws IllegalArgumentException if the vectors have more than {@code Integer.MAX_VALUE - 8} entries in total
+     */
+    public PackedByteVectors(final int numRows, final long length, final VectorDistance distance) {
+        if (numRows * length > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException(String.format(
+                "The byte vectors are too large, at most %s entries (rows times length) are supported.",
+                Integer.MAX_VALUE - 8));
+        }
+        m_length = (int)length;
+        m_counts = new byte[numRows * m_length];
+        m_sums = new long[numRows];
+        m_distance = distance;
+    }
+
+    /**
+     * Sets an entry of a vector.
+     *
+     * @param row the index of the vector
+     * @param index the index of the entry within the vector
+     * @param count the new value of the entry
+     * @throws IllegalArgumentException if {@code count} is not in [0, 255]
+     */
+    public void set(final int row, final long index, final int count) {
+        if (count < 0 || count > MAX_COUNT) {
+            throw new IllegalArgumentException("The count must be in [0, 255] but was " + count + ".");
+        }
+        final int position = row * m_length + (int)index;
+        m_sums[row] += count - (m_counts[position] & MAX_COUNT);
+        m_counts[position] = (byte)count;
+    }
+
+    @Override
+    public double distance(final int i, final int j) {
+        final byte[] counts = m_counts;
+        final int offsetI = i * m_length;
+        final int offsetJ = j * m_length;
+        if (m_distance == VectorDistance.HAMMING) {
+            long sum = 0;
+            for (int d = 0; d < m_length; d++) {
+                sum += Math.abs((counts[offsetI + d] & MAX_COUNT) - (counts[offsetJ + d] & MAX_COUNT));
+            }
+            return sum;
+        }
+        long minSum = 0;
+        for (int d = 0; d < m_length; d++) {
+            minSum += Math.min(counts[offsetI + d] & MAX_COUNT, counts[offsetJ + d] & MAX_COUNT);
+        }
+        // the sum of the maxima is the sum of both vectors minus the sum of the minima
+        final long maxSum = m_sums[i] + m_sums[j] - minSum;
+        return maxSum == 0 ? 0 : (1 - (double)minSum / maxSum);
+    }
+
+}
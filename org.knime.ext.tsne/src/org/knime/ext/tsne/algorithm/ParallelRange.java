@@ -0,0 +1,181 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ *
+ */
+package org.knime.ext.tsne.algorithm;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Executes loops over index ranges on a fixed number of threads.
+ * With a single thread, the loop body is executed directly on the calling thread.
+ * Before each chunk of a loop is processed, the cancellation check is polled, so that a cancelled loop stops after
+ * at most one chunk per thread.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+final class ParallelRange implements AutoCloseable {
+
+    /** The smallest range that is still split into further tasks. */
+    private static final int MIN_GRAIN = 64;
+
+    /** The number of chunks a loop is split into on a single thread, for the sake of the cancellation checks. */
+    private static final int SEQUENTIAL_CHUNKS = 16;
+
+    /**
+     * The body of a parallel loop.
+     */
+    @FunctionalInterface
+    interface RangeBody {
+        /**
+         * Processes the indices {@code from} (inclusive) to {@code to} (exclusive).
+         *
+         * @param from first index of the range
+         * @param to end of the range (exclusive)
+         */
+        void run(int from, int to);
+    }
+
+    private final ForkJoinPool m_pool;
+
+    private final int m_numThreads;
+
+    private final BooleanSupplier m_canceled;
+
+    ParallelRange(final int numThreads) {
+        this(numThreads, () -> false);
+    }
+
+    /**
+     * @param numThreads the number of threads
+     * @param canceled polled before each chunk of a loop, a loop throws a {@link CancellationException} once it
+     *            returns {@code true}
+     */
+    ParallelRange(final int numThreads, final BooleanSupplier canceled) {
+        m_numThreads = Math.max(1, numThreads);
+        m_pool = m_numThreads > 1 ? new ForkJoinPool(m_numThreads) : null;
+        m_canceled = canceled;
+    }
+
+    int getNumThreads() {
+        return m_numThreads;
+    }
+
+    /**
+     * Runs {@code body} on all indices in [0, size).
+     *
+     * @param size the number of indices
+     * @param body the loop body
+     * @throws CancellationException if the cancellation check returned {@code true}
+     */
+    void forEach(final int size, final RangeBody body) {
+        if (m_pool == null || size <= MIN_GRAIN) {
+            final int grain = Math.max(MIN_GRAIN, size / SEQUENTIAL_CHUNKS);
+            for (int from = 0; from < size; from += grain) {
+                checkCanceled();
+                body.run(from, Math.min(size, from + grain));
+            }
+        } else {
+            // a few tasks per thread compensate for uneven costs per index (e.g. dense vs. sparse tree regions)
+            final int grain = Math.max(MIN_GRAIN, size / (m_numThreads * 8));
+            m_pool.invoke(new RangeAction(this, body, 0, size, grain));
+        }
+    }
+
+    /**
+     * @throws CancellationException if the cancellation check returns {@code true}
+     */
+    void checkCanceled() {
+        if (m_canceled.getAsBoolean()) {
+            throw new CancellationException("t-SNE was aborted.");
+        }
+    }
+
+    @Override
+    public void close() {
+        if (m_pool != null) {
+            m_pool.shutdownNow();
+        }
+    }
+
+    private static final class RangeAction extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final transient ParallelRange m_range;
+
+        private final transient RangeBody m_body;
+
+        private final int m_from;
+
+        private final int m_to;
+
+        private final int m_grain;
+
+        RangeAction(final ParallelRange range, final RangeBody body, final int from, final int to, final int grain) {
+            m_range = range;
+            m_body = body;
+            m_from = from;
+            m_to = to;
+            m_grain = grain;
+        }
+
+        @Override
+        protected void compute() {
+            if (m_to - m_from <= m_grain) {
+                m_range.checkCanceled();
+                m_body.run(m_from, m_to);
+            } else {
+                final int mid = (m_from + m_to) >>> 1;
+                invokeAll(new RangeAction(m_range, m_body, m_from, mid, m_grain),
+                    new RangeAction(m_range, m_body, mid, m_to, m_grain));
+            }
+        }
+    }
+
+}
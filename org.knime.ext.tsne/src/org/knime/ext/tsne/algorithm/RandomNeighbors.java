@@ -0,0 +1,101 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ *
+ */
+package org.knime.ext.tsne.algorithm;
+
+import java.util.Random;
+
+/**
+ * Draws {@code k} distinct random neighbors for every point. Serves as the initialization of {@link NnDescent} if the
+ * points have no coordinates for random projections. Each row has its own generator, so the result does not depend
+ * on the number of threads.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+final class RandomNeighbors implements NeighborSearch {
+
+    private final DistanceFunction m_distance;
+
+    private final int m_numRows;
+
+    private final long m_seed;
+
+    /**
+     * @param distance the metric
+     * @param numRows the number of points
+     * @param seed the seed of the random neighbors
+     */
+    RandomNeighbors(final DistanceFunction distance, final int numRows, final long seed) {
+        m_distance = distance;
+        m_numRows = numRows;
+        m_seed = seed;
+    }
+
+    @Override
+    public void findNeighbors(final int k, final int[] neighbors, final double[] distances,
+        final ParallelRange parallel) {
+        NeighborRows.clear(neighbors, distances);
+        final int n = m_numRows;
+        parallel.forEach(n, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                final Random random = new Random(m_seed + i);
+                // duplicates are rejected by the insertion, every other candidate fits into the row until it is full
+                for (int inserted = 0; inserted < k;) {
+                    final int j = random.nextInt(n - 1);
+                    final int candidate = j < i ? j : (j + 1);
+                    final double distance = m_distance.distance(i, candidate);
+                    if (!(distance < Double.POSITIVE_INFINITY)) {
+                        throw new IllegalArgumentException("The distances must be finite.");
+                    }
+                    if (NeighborRows.insert(neighbors, distances, null, i * k, k, candidate, distance)) {
+                        inserted++;
+                    }
+                }
+            }
+        });
+    }
+
+}
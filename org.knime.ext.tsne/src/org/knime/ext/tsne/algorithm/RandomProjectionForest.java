@@ -0,0 +1,210 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ *
+ */
+package org.knime.ext.tsne.algorithm;
+
+import java.util.Random;
+
+/**
+ * Approximate k-nearest-neighbor search with a forest of random projection trees. Each tree recursively splits the
+ * points at the median of their projections onto the direction between two randomly chosen points until the leaves
+ * contain fewer than {@code 2 * (k + 1)} points. The neighbors of a point are the k closest points among all points
+ * that share a leaf with it in any tree.
+ * <p>
+ * The trees are built one after another, so only a single tree is kept in memory, and the leaves of each tree are
+ * searched in parallel. Each point only updates its own neighbor list, which makes the result independent of the
+ * number of threads.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+final class RandomProjectionForest implements NeighborSearch {
+
+    /** Number of attempts to find two distinct points that define a projection direction. */
+    private static final int MAX_DIRECTION_ATTEMPTS = 8;
+
+    private final FeatureMatrix m_data;
+
+    private final int m_numCols;
+
+    private final int m_numRows;
+
+    private final EuclideanDistance m_distance;
+
+    private final int m_numTrees;
+
+    private final Random m_random;
+
+    /**
+     * @param data the row-major input matrix
+     * @param numRows the number of rows of {@code data}
+     * @param numCols the number of columns of {@code data}
+     * @param numTrees the number of trees, more trees increase the recall and the runtime
+     * @param random provides the seeds of the trees
+     */
+    RandomProjectionForest(final double[] data, final int numRows, final int numCols, final int numTrees,
+        final Random random) {
+        this(FeatureMatrix.of(data, numCols), numRows, numTrees, random);
+    }
+
+    /**
+     * @param data the input matrix
+     * @param numRows the number of rows of {@code data}
+     * @param numTrees the number of trees, more trees increase the recall and the runtime
+     * @param random provides the seeds of the trees
+     */
+    RandomProjectionForest(final FeatureMatrix data, final int numRows, final int numTrees, final Random random) {
+        m_data = data;
+        m_numCols = data.getNumCols();
+        m_numRows = numRows;
+        m_distance = new EuclideanDistance(data);
+        m_numTrees = Math.max(1, numTrees);
+        m_random = random;
+    }
+
+    @Override
+    public void findNeighbors(final int k, final int[] neighbors, final double[] distances,
+        final ParallelRange parallel) {
+        NeighborRows.clear(neighbors, distances);
+        final int n = m_numRows;
+        final int minLeafSize = k + 1;
+        final int[] items = new int[n];
+        final int[] leafOf = new int[n];
+        final int[] leafStarts = new int[n / minLeafSize + 2];
+        final double[] projections = new double[n];
+        for (int t = 0; t < m_numTrees; t++) {
+            final Random treeRandom = new Random(m_random.nextLong());
+            buildTree(items, leafOf, leafStarts, projections, minLeafSize, treeRandom, parallel);
+            parallel.forEach(n, (from, to) -> {
+                for (int i = from; i < to; i++) {
+                    final int leaf = leafOf[i];
+                    for (int p = leafStarts[leaf]; p < leafStarts[leaf + 1]; p++) {
+                        final int j = items[p];
+                        if (j != i) {
+                            NeighborRows.insert(neighbors, distances, null, i * k, k, j, m_distance.distance(i, j));
+                        }
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Builds one tree by permuting {@code items} such that the points of each leaf are contiguous. Leaf {@code l}
+     * holds {@code items[leafStarts[l]]} to {@code items[leafStarts[l + 1] - 1]}.
+     */
+    private void buildTree(final int[] items, final int[] leafOf, final int[] leafStarts, final double[] projections,
+        final int minLeafSize, final Random random, final ParallelRange parallel) {
+        final int n = m_numRows;
+        for (int i = 0; i < n; i++) {
+            items[i] = i;
+        }
+        // explicit stack of [lower, upper) ranges, its depth is bounded by the depth of the tree
+        final int[] stack = new int[2 * (Integer.SIZE + 1)];
+        int top = 0;
+        stack[top++] = 0;
+        stack[top++] = n;
+        int numLeaves = 0;
+        final double[] direction = new double[m_numCols];
+        while (top > 0) {
+            final int upper = stack[--top];
+            final int lower = stack[--top];
+            if (upper - lower < 2 * minLeafSize) {
+                leafStarts[numLeaves] = lower;
+                for (int p = lower; p < upper; p++) {
+                    leafOf[items[p]] = numLeaves;
+                }
+                numLeaves++;
+                leafStarts[numLeaves] = upper;
+                continue;
+            }
+            chooseDirection(items, lower, upper, direction, random);
+            parallel.forEach(upper - lower, (from, to) -> {
+                for (int p = lower + from; p < lower + to; p++) {
+                    projections[p] = project(items[p], direction);
+                }
+            });
+            // both halves contain at least minLeafSize points because the range has at least twice as many
+            final int median = (lower + upper) >>> 1;
+            VantagePointTree.select(items, projections, lower, upper - 1, median);
+            // at most one pending range per tree level, and the depth is logarithmic since the split is balanced
+            stack[top++] = median;
+            stack[top++] = upper;
+            stack[top++] = lower;
+            stack[top++] = median;
+        }
+    }
+
+    /** Uses the difference of two random points as direction, falls back to a random direction for duplicates. */
+    private void chooseDirection(final int[] items, final int lower, final int upper, final double[] direction,
+        final Random random) {
+        final int numCols = m_numCols;
+        for (int attempt = 0; attempt < MAX_DIRECTION_ATTEMPTS; attempt++) {
+            final int a = items[lower + random.nextInt(upper - lower)];
+            final int b = items[lower + random.nextInt(upper - lower)];
+            double norm = 0;
+            for (int d = 0; d < numCols; d++) {
+                direction[d] = m_data.get(a * numCols + d) - m_data.get(b * numCols + d);
+                norm += direction[d] * direction[d];
+            }
+            if (norm > 0) {
+                return;
+            }
+        }
+        for (int d = 0; d < numCols; d++) {
+            direction[d] = random.nextGaussian();
+        }
+    }
+
+    private double project(final int item, final double[] direction) {
+        final int offset = item * m_numCols;
+        double projection = 0;
+        for (int d = 0; d < m_numCols; d++) {
+            projection += m_data.get(offset + d) * direction[d];
+        }
+        return projection;
+    }
+
+}
@@ -0,0 +1,396 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ *
+ */
+package org.knime.ext.tsne.algorithm;
+
+import java.util.Random;
+
+/**
+ * Principal component analysis of a column-centered {@link FeatureMatrix} by randomized singular value decomposition
+ * (Halko, Martinsson and Tropp: Finding structure with randomness, 2011). The range of the matrix is sampled with a
+ * few more Gaussian test vectors than components and refined by power iterations, so the cost is proportional to
+ * rows times columns times components instead of the cubic cost of an exact decomposition.
+ * <p>
+ * Sums over the rows are accumulated in a fixed number of row blocks that are added in order, which keeps the result
+ * independent of the number of threads.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+final class RandomizedPca {
+
+    /** Number of additional test vectors, improves the accuracy of the trailing components. */
+    private static final int OVERSAMPLING = 10;
+
+    /** Number of power iterations, which sharpen the spectrum for slowly decaying singular values. */
+    private static final int POWER_ITERATIONS = 2;
+
+    /** Number of row blocks whose partial sums are added in order. */
+    private static final int NUM_BLOCKS = 32;
+
+    /** Eigenvalues below this fraction of the largest eigenvalue are treated as zero. */
+    private static final double RANK_TOLERANCE = 1e-12;
+
+    private static final int MAX_JACOBI_SWEEPS = 100;
+
+    private final int m_numCols;
+
+    private final int m_numComponents;
+
+    /** Row-major numCols x numComponents matrix, the columns are the principal axes. */
+    private final double[] m_components;
+
+    RandomizedPca(final int numCols, final int numComponents, final double[] components) {
+        m_numCols = numCols;
+        m_numComponents = numComponents;
+        m_components = components;
+    }
+
+    /**
+     * @param data the column-centered data
+     * @param numRows the number of rows of {@code data}
+     * @param numComponents the number of principal components, at most the number of rows and columns
+     * @param random draws the test vectors
+     * @param parallel executes the matrix products
+     * @return the principal axes ordered by decreasing variance
+     */
+    static RandomizedPca fit(final FeatureMatrix data, final int numRows, final int numComponents, final Random random,
+        final ParallelRange parallel) {
+        final int numCols = data.getNumCols();
+        final int numSamples = Math.min(numComponents + OVERSAMPLING, Math.min(numRows, numCols));
+        final double[] omega = new double[numCols * numSamples];
+        for (int i = 0; i < omega.length; i++) {
+            omega[i] = random.nextGaussian();
+        }
+        double[] q = orthonormalize(times(data, numRows, omega, numSamples, parallel), numRows, numSamples, parallel);
+        for (int iter = 0; iter < POWER_ITERATIONS; iter++) {
+            final double[] z = orthonormalize(transposeTimes(data, numRows, q, numSamples, parallel), numCols,
+                numSamples, parallel);
+            q = orthonormalize(times(data, numRows, z, numSamples, parallel), numRows, numSamples, parallel);
+        }
+        // data ~ Q B with B^T = data^T Q; the eigenvectors of B B^T yield the right singular vectors of B
+        final double[] bt = transposeTimes(data, numRows, q, numSamples, parallel);
+        final double[] values = new double[numSamples];
+        final double[] vectors = new double[numSamples * numSamples];
+        symmetricEigen(gram(bt, numCols, numSamples, parallel), numSamples, values, vectors);
+        final double[] components = new double[numCols * numComponents];
+        for (int j = 0; j < Math.min(numComponents, numSamples); j++) {
+            if (values[j] <= RANK_TOLERANCE * values[0]) {
+                break;
+            }
+            final double inverseSigma = 1 / Math.sqrt(values[j]);
+            for (int c = 0; c < numCols; c++) {
+                double sum = 0;
+                for (int m = 0; m < numSamples; m++) {
+                    sum += bt[c * numSamples + m] * vectors[m * numSamples + j];
+                }
+                components[c * numComponents + j] = sum * inverseSigma;
+            }
+        }
+        return new RandomizedPca(numCols, numComponents, components);
+    }
+
+    int getNumCols() {
+        return m_numCols;
+    }
+
+    int getNumComponents() {
+        return m_numComponents;
+    }
+
+    /**
+     * @return the row-major numCols x numComponents matrix whose columns are the principal axes
+     */
+    double[] getComponents() {
+        return m_components;
+    }
+
+    /**
+     * Projects the rows of {@code data} onto the principal axes.
+     *
+     * @param data the column-centered data
+     * @param numRows the number of rows to project
+     * @param parallel executes the projection
+     * @return the scores in the precision of {@code data}
+     */
+    FeatureMatrix transform(final FeatureMatrix data, final int numRows, final ParallelRange parallel) {
+        final int k = m_numComponents;
+        final FeatureMatrix scores = data.isSinglePrecision() ? FeatureMatrix.of(new float[numRows * k], k)
+            : FeatureMatrix.of(new double[numRows * k], k);
+        parallel.forEach(numRows, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                for (int j = 0; j < k; j++) {
+                    scores.set(i * k + j, projectRow(data, i * m_numCols, j));
+                }
+            }
+        });
+        return scores;
+    }
+
+    /**
+     * @param row a column-centered row
+     * @param scores receives the projection of {@code row} onto the principal axes
+     */
+    void transform(final double[] row, final double[] scores) {
+        final int k = m_numComponents;
+        for (int j = 0; j < k; j++) {
+            double sum = 0;
+            for (int c = 0; c < m_numCols; c++) {
+                sum += row[c] * m_components[c * k + j];
+            }
+            scores[j] = sum;
+        }
+    }
+
+    private double projectRow(final FeatureMatrix data, final int offset, final int component) {
+        final int k = m_numComponents;
+        double sum = 0;
+        for (int c = 0; c < m_numCols; c++) {
+            sum += data.get(offset + c) * m_components[c * k + component];
+        }
+        return sum;
+    }
+
+    /** @return the row-major numRows x m product of {@code data} and the numCols x m matrix {@code right} */
+    private static double[] times(final FeatureMatrix data, final int numRows, final double[] right, final int m,
+        final ParallelRange parallel) {
+        final int numCols = data.getNumCols();
+        final double[] result = new double[numRows * m];
+        parallel.forEach(numRows, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                for (int c = 0; c < numCols; c++) {
+                    final double value = data.get(i * numCols + c);
+                    for (int j = 0; j < m; j++) {
+                        result[i * m + j] += value * right[c * m + j];
+                    }
+                }
+            }
+        });
+        return result;
+    }
+
+    /** @return the row-major numCols x m product of the transposed {@code data} and the numRows x m {@code right} */
+    private static double[] transposeTimes(final FeatureMatrix data, final int numRows, final double[] right,
+        final int m, final ParallelRange parallel) {
+        final int numCols = data.getNumCols();
+        final int numBlocks = Math.min(NUM_BLOCKS, numRows);
+        final double[][] partials = new double[numBlocks][];
+        parallel.forEach(numBlocks, (from, to) -> {
+            for (int b = from; b < to; b++) {
+                final double[] partial = new double[numCols * m];
+                for (int i = blockStart(b, numBlocks, numRows); i < blockStart(b + 1, numBlocks, numRows); i++) {
+                    for (int c = 0; c < numCols; c++) {
+                        final double value = data.get(i * numCols + c);
+                        for (int j = 0; j < m; j++) {
+                            partial[c * m + j] += value * right[i * m + j];
+                        }
+                    }
+                }
+                partials[b] = partial;
+            }
+        });
+        return sum(partials);
+    }
+
+    /** @return the m x m matrix A<sup>T</sup>A of the row-major numRows x m matrix {@code a} */
+    private static double[] gram(final double[] a, final int numRows, final int m, final ParallelRange parallel) {
+        final int numBlocks = Math.min(NUM_BLOCKS, numRows);
+        final double[][] partials = new double[numBlocks][];
+        parallel.forEach(numBlocks, (from, to) -> {
+            for (int b = from; b < to; b++) {
+                final double[] partial = new double[m * m];
+                for (int i = blockStart(b, numBlocks, numRows); i < blockStart(b + 1, numBlocks, numRows); i++) {
+                    for (int j = 0; j < m; j++) {
+                        final double value = a[i * m + j];
+                        for (int l = j; l < m; l++) {
+                            partial[j * m + l] += value * a[i * m + l];
+                        }
+                    }
+                }
+                partials[b] = partial;
+            }
+        });
+        final double[] gram = sum(partials);
+        for (int j = 0; j < m; j++) {
+            for (int l = j + 1; l < m; l++) {
+                gram[l * m + j] = gram[j * m + l];
+            }
+        }
+        return gram;
+    }
+
+    private static int blockStart(final int block, final int numBlocks, final int numRows) {
+        return (int)((long)block * numRows / numBlocks);
+    }
+
+    private static double[] sum(final double[][] partials) {
+        final double[] sum = partials[0];
+        for (int b = 1; b < partials.length; b++) {
+            for (int i = 0; i < sum.length; i++) {
+                sum[i] += partials[b][i];
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * Orthonormalizes the columns of the row-major numRows x m matrix {@code a} in place by the eigendecomposition
+     * A<sup>T</sup>A = U &Lambda; U<sup>T</sup>, i.e. A U &Lambda;<sup>-1/2</sup> has orthonormal columns. Columns for
+     * (numerically) zero eigenvalues are set to zero. The step is applied twice because forming A<sup>T</sup>A squares
+     * the condition number.
+     */
+    private static double[] orthonormalize(final double[] a, final int numRows, final int m,
+        final ParallelRange parallel) {
+        final double[] values = new double[m];
+        final double[] vectors = new double[m * m];
+        for (int pass = 0; pass < 2; pass++) {
+            symmetricEigen(gram(a, numRows, m, parallel), m, values, vectors);
+            for (int j = 0; j < m; j++) {
+                final double scale = values[j] > RANK_TOLERANCE * values[0] ? 1 / Math.sqrt(values[j]) : 0;
+                for (int l = 0; l < m; l++) {
+                    vectors[l * m + j] *= scale;
+                }
+            }
+            parallel.forEach(numRows, (from, to) -> {
+                final double[] row = new double[m];
+                for (int i = from; i < to; i++) {
+                    for (int j = 0; j < m; j++) {
+                        double sum = 0;
+                        for (int l = 0; l < m; l++) {
+                            sum += a[i * m + l] * vectors[l * m + j];
+                        }
+                        row[j] = sum;
+                    }
+                    System.arraycopy(row, 0, a, i * m, m);
+                }
+            });
+        }
+        return a;
+    }
+
+    /**
+     * Cyclic Jacobi eigenvalue algorithm for the symmetric row-major n x n matrix {@code a}, which is destroyed.
+     *
+     * @param values receives the eigenvalues in decreasing order
+     * @param vectors receives the corresponding eigenvectors as columns of a row-major n x n matrix
+     */
+    static void symmetricEigen(final double[] a, final int n, final double[] values, final double[] vectors) {
+        final double[] v = new double[n * n];
+        for (int i = 0; i < n; i++) {
+            v[i * n + i] = 1;
+        }
+        for (int sweep = 0; sweep < MAX_JACOBI_SWEEPS; sweep++) {
+            double offDiagonal = 0;
+            double diagonal = 0;
+            for (int p = 0; p < n; p++) {
+                diagonal += a[p * n + p] * a[p * n + p];
+                for (int r = p + 1; r < n; r++) {
+                    offDiagonal += a[p * n + r] * a[p * n + r];
+                }
+            }
+            if (offDiagonal <= 1e-30 * diagonal || offDiagonal == 0) {
+                break;
+            }
+            for (int p = 0; p < n - 1; p++) {
+                for (int r = p + 1; r < n; r++) {
+                    rotate(a, v, n, p, r);
+                }
+            }
+        }
+        // selection sort by decreasing eigenvalue, n is small
+        final int[] order = new int[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+        }
+        for (int i = 0; i < n; i++) {
+            int max = i;
+            for (int j = i + 1; j < n; j++) {
+                if (a[order[j] * n + order[j]] > a[order[max] * n + order[max]]) {
+                    max = j;
+                }
+            }
+            final int tmp = order[i];
+            order[i] = order[max];
+            order[max] = tmp;
+        }
+        for (int j = 0; j < n; j++) {
+            values[j] = a[order[j] * n + order[j]];
+            for (int i = 0; i < n; i++) {
+                vectors[i * n + j] = v[i * n + order[j]];
+            }
+        }
+    }
+
+    /** Applies the Jacobi rotation that zeroes the entry (p, r) of {@code a} and accumulates it in {@code v}. */
+    private static void rotate(final double[] a, final double[] v, final int n, final int p, final int r) {
+        final double apr = a[p * n + r];
+        if (apr == 0) {
+            return;
+        }
+        final double theta = (a[r * n + r] - a[p * n + p]) / (2 * apr);
+        final double t = Math.signum(theta == 0 ? 1 : theta) / (Math.abs(theta) + Math.sqrt(theta * theta + 1));
+        final double c = 1 / Math.sqrt(t * t + 1);
+        final double s = t * c;
+        for (int k = 0; k < n; k++) {
+            final double akp = a[k * n + p];
+            final double akr = a[k * n + r];
+            a[k * n + p] = c * akp - s * akr;
+            a[k * n + r] = s * akp + c * akr;
+        }
+        for (int k = 0; k < n; k++) {
+            final double apk = a[p * n + k];
+            final double ark = a[r * n + k];
+            a[p * n + k] = c * apk - s * ark;
+            a[r * n + k] = s * apk + c * ark;
+        }
+        for (int k = 0; k < n; k++) {
+            final double vkp = v[k * n + p];
+            final double vkr = v[k * n + r];
+            v[k * n + p] = c * vkp - s * vkr;
+            v[k * n + r] = s * vkp + c * vkr;
+        }
+    }
+
+}
@@ -0,0 +1,338 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ *
+ */
+package org.knime.ext.tsne.algorithm;
+
+import java.util.Arrays;
+
+/**
+ * Barnes-Hut space-partitioning tree (a quadtree in 2D, an octree in 3D) over the points of an embedding.
+ * <p>
+ * All nodes live in flat primitive arrays indexed by node id and the 2<sup>d</sup> children of a node occupy
+ * consecutive ids, so traversals touch contiguous memory. A tree instance can be {@link #rebuild(double[], int)
+ * rebuilt} for every gradient iteration without reallocating its arrays.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+final class SpacePartitioningTree {
+
+    /** Points closer than this depth are treated as duplicates to avoid unbounded subdivision. */
+    private static final int MAX_DEPTH = 64;
+
+    private final int m_dims;
+
+    private final int m_numChildren;
+
+    private double[] m_y;
+
+    private int m_numNodes;
+
+    private double[] m_center;
+
+    private double[] m_halfWidth;
+
+    private double[] m_maxHalfWidth;
+
+    private double[] m_centerOfMass;
+
+    private int[] m_cumSize;
+
+    private int[] m_firstChild;
+
+    private int[] m_point;
+
+    /**
+     * @param dims the dimensionality of the embedding
+     * @param numPoints the expected number of points (used for the initial capacity)
+     */
+    SpacePartitioningTree(final int dims, final int numPoints) {
+        m_dims = dims;
+        m_numChildren = 1 << dims;
+        allocate(Math.max(16, 2 * numPoints));
+    }
+
+    private void allocate(final int capacity) {
+        m_center = new double[capacity * m_dims];
+        m_halfWidth = new double[capacity * m_dims];
+        m_maxHalfWidth = new double[capacity];
+        m_centerOfMass = new double[capacity * m_dims];
+        m_cumSize = new int[capacity];
+        m_firstChild = new int[capacity];
+        m_point = new int[capacity];
+    }
+
+    private void ensureCapacity(final int numNodes) {
+        final int capacity = m_cumSize.length;
+        if (numNodes <= capacity) {
+            return;
+        }
+        final int newCapacity = Math.max(numNodes, capacity + (capacity >> 1));
+        m_center = Arrays.copyOf(m_center, newCapacity * m_dims);
+        m_halfWidth = Arrays.copyOf(m_halfWidth, newCapacity * m_dims);
+        m_maxHalfWidth = Arrays.copyOf(m_maxHalfWidth, newCapacity);
+        m_centerOfMass = Arrays.copyOf(m_centerOfMass, newCapacity * m_dims);
+        m_cumSize = Arrays.copyOf(m_cumSize, newCapacity);
+        m_firstChild = Arrays.copyOf(m_firstChild, newCapacity);
+        m_point = Arrays.copyOf(m_point, newCapacity);
+    }
+
+    /**
+     * Discards the current content and inserts all points of {@code y}.
+     *
+     * @param y row-major embedding
+     * @param numPoints number of points in {@code y}
+     */
+    void rebuild(final double[] y, final int numPoints) {
+        m_y = y;
+        final int dims = m_dims;
+        // the root is centered at the mean of the points and spans all of them
+        final double[] mean = new double[dims];
+        for (int i = 0; i < numPoints; i++) {
+            for (int d = 0; d < dims; d++) {
+                mean[d] += y[i * dims + d];
+            }
+        }
+        for (int d = 0; d < dims; d++) {
+            mean[d] /= numPoints;
+        }
+        final double[] width = new double[dims];
+        for (int i = 0; i < numPoints; i++) {
+            for (int d = 0; d < dims; d++) {
+                width[d] = Math.max(width[d], Math.abs(y[i * dims + d] - mean[d]));
+            }
+        }
+        m_numNodes = 0;
+        final int root = newNode();
+        double maxHalfWidth = 0;
+        for (int d = 0; d < dims; d++) {
+            m_center[d] = mean[d];
+            m_halfWidth[d] = width[d] + 1e-5;
+            maxHalfWidth = Math.max(maxHalfWidth, m_halfWidth[d]);
+        }
+        m_maxHalfWidth[root] = maxHalfWidth;
+        for (int i = 0; i < numPoints; i++) {
+            insert(i);
+        }
+    }
+
+    private int newNode() {
+        final int node = m_numNodes++;
+        ensureCapacity(m_numNodes);
+        m_cumSize[node] = 0;
+        m_firstChild[node] = -1;
+        m_point[node] = -1;
+        Arrays.fill(m_centerOfMass, node * m_dims, (node + 1) * m_dims, 0);
+        return node;
+    }
+
+    private void insert(final int point) {
+        final int dims = m_dims;
+        final double[] y = m_y;
+        final int pointOffset = point * dims;
+        int node = 0;
+        for (int depth = 0;; depth++) {
+            // update the center of mass with a running mean
+            final int cumSize = ++m_cumSize[node];
+            final double oldWeight = (cumSize - 1) / (double)cumSize;
+            final int nodeOffset = node * dims;
+            for (int d = 0; d < dims; d++) {
+                m_centerOfMass[nodeOffset + d] =
+                    m_centerOfMass[nodeOffset + d] * oldWeight + y[pointOffset + d] / cumSize;
+            }
+            if (m_firstChild[node] == -1) {
+                final int stored = m_point[node];
+                if (stored == -1) {
+                    m_point[node] = point;
+                    return;
+                }
+                if (depth >= MAX_DEPTH || isDuplicate(stored, point)) {
+                    // duplicates only contribute to the mass of the leaf
+                    return;
+                }
+                subdivide(node);
+                m_point[node] = -1;
+                final int child = childFor(node, stored);
+                m_cumSize[child] = 1;
+                System.arraycopy(y, stored * dims, m_centerOfMass, child * dims, dims);
+                m_point[child] = stored;
+            }
+            node = childFor(node, point);
+        }
+    }
+
+    private boolean isDuplicate(final int a, final int b) {
+        final int dims = m_dims;
+        for (int d = 0; d < dims; d++) {
+            if (m_y[a * dims + d] != m_y[b * dims + d]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void subdivide(final int node) {
+        final int dims = m_dims;
+        final int first = m_numNodes;
+        for (int c = 0; c < m_numChildren; c++) {
+            final int child = newNode();
+            for (int d = 0; d < dims; d++) {
+                final double hw = m_halfWidth[node * dims + d] / 2;
+                m_halfWidth[child * dims + d] = hw;
+                // bit d of the child number selects the upper or lower half along dimension d
+                m_center[child * dims + d] = m_center[node * dims + d] + ((c >> d & 1) == 1 ? hw : -hw);
+            }
+            m_maxHalfWidth[child] = m_maxHalfWidth[node] / 2;
+        }
+        m_firstChild[node] = first;
+    }
+
+    private int childFor(final int node, final int point) {
+        final int dims = m_dims;
+        int child = 0;
+        for (int d = 0; d < dims; d++) {
+            if (m_y[point * dims + d] > m_center[node * dims + d]) {
+                child |= 1 << d;
+            }
+        }
+        return m_firstChild[node] + child;
+    }
+
+    /**
+     * Creates a traverser for the computation of repulsive forces. Traversers are not thread-safe, each thread has to
+     * use its own instance.
+     *
+     * @return a new traverser
+     */
+    Traverser traverser() {
+        return new Traverser();
+    }
+
+    /**
+     * Computes the Barnes-Hut approximation of the repulsive forces acting on single points.
+     */
+    final class Traverser {
+
+        private int[] m_stack = new int[64];
+
+        private Traverser() {
+        }
+
+        /**
+         * Adds the unnormalized repulsive force acting on {@code point} to {@code negF} and returns the contribution
+         * of the point to the normalization constant Z.
+         *
+         * @param point the point
+         * @param theta the accuracy threshold of the Barnes-Hut approximation
+         * @param negF receives the force, the dimensions of the point are written starting at {@code offset}
+         * @param offset position of the first dimension in {@code negF}
+         * @return the sum of the unnormalized low-dimensional similarities q<sub>ij</sub> * Z over all j
+         */
+        double computeNonEdgeForces(final int point, final double theta, final double[] negF, final int offset) {
+            return computeNonEdgeForces(m_y, point * m_dims, point, theta, negF, offset);
+        }
+
+        /**
+         * Adds the unnormalized repulsive force that the points of the tree exert on a point that is not part of the
+         * tree to {@code negF} and returns the contribution of the point to the normalization constant Z.
+         *
+         * @param y contains the coordinates of the point
+         * @param pointOffset position of the first coordinate of the point in {@code y}
+         * @param theta the accuracy threshold of the Barnes-Hut approximation
+         * @param negF receives the force, the dimensions of the point are written starting at {@code offset}
+         * @param offset position of the first dimension in {@code negF}
+         * @return the sum of the unnormalized low-dimensional similarities to all points of the tree
+         */
+        double computeNonEdgeForces(final double[] y, final int pointOffset, final double theta,
+            final double[] negF, final int offset) {
+            return computeNonEdgeForces(y, pointOffset, -1, theta, negF, offset);
+        }
+
+        private double computeNonEdgeForces(final double[] y, final int pointOffset, final int point,
+            final double theta, final double[] negF, final int offset) {
+            final int dims = m_dims;
+            final double[] com = m_centerOfMass;
+            final double thetaSquared = theta * theta;
+            double sumQ = 0;
+            int top = 0;
+            m_stack[top++] = 0;
+            while (top > 0) {
+                final int node = m_stack[--top];
+                final int cumSize = m_cumSize[node];
+                final boolean isLeaf = m_firstChild[node] == -1;
+                if (cumSize == 0 || (isLeaf && m_point[node] == point)) {
+                    continue;
+                }
+                final int nodeOffset = node * dims;
+                double dist = 0;
+                for (int d = 0; d < dims; d++) {
+                    final double diff = y[pointOffset + d] - com[nodeOffset + d];
+                    dist += diff * diff;
+                }
+                final double maxWidth = m_maxHalfWidth[node];
+                // maxWidth / sqrt(dist) < theta without taking the square root
+                if (isLeaf || maxWidth * maxWidth < thetaSquared * dist) {
+                    final double q = 1.0 / (1.0 + dist);
+                    final double mult = cumSize * q;
+                    sumQ += mult;
+                    final double force = mult * q;
+                    for (int d = 0; d < dims; d++) {
+                        negF[offset + d] += force * (y[pointOffset + d] - com[nodeOffset + d]);
+                    }
+                } else {
+                    final int first = m_firstChild[node];
+                    if (top + m_numChildren > m_stack.length) {
+                        m_stack = Arrays.copyOf(m_stack, 2 * (top + m_numChildren));
+                    }
+                    for (int c = m_numChildren; c-- > 0;) {
+                        m_stack[top++] = first + c;
+                    }
+                }
+            }
+            return sumQ;
+        }
+    }
+
+}
@@ -0,0 +1,219 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ *
+ */
+package org.knime.ext.tsne.algorithm;
+
+import java.util.Arrays;
+
+/**
+ * The input similarities P of t-SNE as sparse matrix in compressed sparse row (CSR) format.
+ * The entries of row {@code i} are stored at the positions {@code rowPtr[i]} (inclusive) to {@code rowPtr[i + 1]}
+ * (exclusive) of {@code cols} and {@code values}. The values are either stored in double precision or, after
+ * {@link #toSinglePrecision()}, in single precision; the modifying operations require double precision.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+final class SparseAffinities {
+
+    final int[] m_rowPtr;
+
+    final int[] m_cols;
+
+    /** The values in double precision, {@code null} if they are stored in single precision. */
+    final double[] m_values;
+
+    /** The values in single precision, {@code null} if they are stored in double precision. */
+    private final float[] m_singleValues;
+
+    SparseAffinities(final int[] rowPtr, final int[] cols, final double[] values) {
+        m_rowPtr = rowPtr;
+        m_cols = cols;
+        m_values = values;
+        m_singleValues = null;
+    }
+
+    private SparseAffinities(final int[] rowPtr, final int[] cols, final float[] values) {
+        m_rowPtr = rowPtr;
+        m_cols = cols;
+        m_values = null;
+        m_singleValues = values;
+    }
+
+    /**
+     * @param e the position of the entry
+     * @return the value of the entry
+     */
+    double getValue(final int e) {
+        return m_values != null ? m_values[e] : m_singleValues[e];
+    }
+
+    /**
+     * Rounds the values to single precision, which reduces the memory of the matrix by a third.
+     *
+     * @return a matrix that shares the structure with this matrix and stores its values in single precision
+     */
+    SparseAffinities toSinglePrecision() {
+        final float[] values = new float[m_values.length];
+        for (int e = 0; e < values.length; e++) {
+            values[e] = (float)m_values[e];
+        }
+        return new SparseAffinities(m_rowPtr, m_cols, values);
+    }
+
+    int getNumRows() {
+        return m_rowPtr.length - 1;
+    }
+
+    int getNumEntries() {
+        return m_rowPtr[m_rowPtr.length - 1];
+    }
+
+    /**
+     * Multiplies all values with {@code factor}.
+     *
+     * @param factor the scaling factor
+     */
+    void scale(final double factor) {
+        final double[] values = m_values;
+        for (int i = 0; i < values.length; i++) {
+            values[i] *= factor;
+        }
+    }
+
+    /**
+     * Creates the symmetrized matrix (P + P<sup>T</sup>) / 2.
+     *
+     * @return the symmetric matrix
+     */
+    SparseAffinities symmetrize() {
+        final int n = getNumRows();
+        // sorted copy of the column indices of each row allows to look up transposed entries by binary search
+        final int[] sortedCols = m_cols.clone();
+        final int[] sortedPos = new int[m_cols.length];
+        sortRows(sortedCols, sortedPos);
+
+        final int[] rowCounts = new int[n];
+        for (int i = 0; i < n; i++) {
+            for (int e = m_rowPtr[i]; e < m_rowPtr[i + 1]; e++) {
+                final int j = m_cols[e];
+                rowCounts[i]++;
+                if (find(sortedCols, j, i) < 0) {
+                    rowCounts[j]++;
+                }
+            }
+        }
+        final int[] symRowPtr = new int[n + 1];
+        for (int i = 0; i < n; i++) {
+            symRowPtr[i + 1] = symRowPtr[i] + rowCounts[i];
+        }
+        final int numEntries = symRowPtr[n];
+        final int[] symCols = new int[numEntries];
+        final double[] symValues = new double[numEntries];
+        final int[] offset = new int[n];
+        for (int i = 0; i < n; i++) {
+            for (int e = m_rowPtr[i]; e < m_rowPtr[i + 1]; e++) {
+                final int j = m_cols[e];
+                final int transposed = find(sortedCols, j, i);
+                if (transposed < 0) {
+                    // P_ji == 0, hence both symmetric entries are P_ij / 2
+                    symCols[symRowPtr[i] + offset[i]++] = j;
+                    symValues[symRowPtr[i] + offset[i] - 1] = m_values[e] / 2.0;
+                    symCols[symRowPtr[j] + offset[j]++] = i;
+                    symValues[symRowPtr[j] + offset[j] - 1] = m_values[e] / 2.0;
+                } else if (i < j) {
+                    // entries present in both directions are written once, when the smaller row is visited
+                    final double value = (m_values[e] + m_values[sortedPos[transposed]]) / 2.0;
+                    symCols[symRowPtr[i] + offset[i]++] = j;
+                    symValues[symRowPtr[i] + offset[i] - 1] = value;
+                    symCols[symRowPtr[j] + offset[j]++] = i;
+                    symValues[symRowPtr[j] + offset[j] - 1] = value;
+                }
+            }
+        }
+        return new SparseAffinities(symRowPtr, symCols, symValues);
+    }
+
+    /** Sorts the column indices within each row and remembers the original entry positions in {@code positions}. */
+    private void sortRows(final int[] cols, final int[] positions) {
+        final int n = getNumRows();
+        long[] buffer = new long[0];
+        for (int i = 0; i < n; i++) {
+            final int from = m_rowPtr[i];
+            final int to = m_rowPtr[i + 1];
+            if (buffer.length < to - from) {
+                buffer = new long[to - from];
+            }
+            for (int e = from; e < to; e++) {
+                buffer[e - from] = ((long)cols[e] << 32) | e;
+            }
+            Arrays.sort(buffer, 0, to - from);
+            for (int e = from; e < to; e++) {
+                cols[e] = (int)(buffer[e - from] >>> 32);
+                positions[e] = (int)buffer[e - from];
+            }
+        }
+    }
+
+    /** @return the position of column {@code col} in the sorted {@code row} or a negative value if absent */
+    private int find(final int[] sortedCols, final int row, final int col) {
+        final int from = m_rowPtr[row];
+        final int to = m_rowPtr[row + 1];
+        final int pos = Arrays.binarySearch(sortedCols, from, to, col);
+        return pos >= 0 ? pos : -1;
+    }
+
+    /**
+     * Divides all values by their sum so that they form a joint probability distribution.
+     */
+    void normalize() {
+        double sum = 0;
+        for (final double value : m_values) {
+            sum += value;
+        }
+        scale(1.0 / sum);
+    }
+
+}
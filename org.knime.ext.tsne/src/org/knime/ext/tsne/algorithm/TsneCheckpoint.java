@@ -0,0 +1,160 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ *
+ */
+package org.knime.ext.tsne.algorithm;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Snapshot of the state of the gradient descent of {@link BarnesHutTsne} after a number of completed iterations.
+ * Together with the unchanged input data and settings, it allows to continue an interrupted optimization with
+ * exactly the same result as an uninterrupted one. The schedule (exaggeration and momentum) follows from the
+ * iteration, and the input similarities are recomputed from the stored seed.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+public final class TsneCheckpoint {
+
+    /** Version 2 added the divergence of the last convergence check. */
+    private static final int FORMAT_VERSION = 2;
+
+    final long m_seed;
+
+    final int m_iteration;
+
+    final double m_klDivergence;
+
+    final double[] m_y;
+
+    final double[] m_gains;
+
+    final double[] m_update;
+
+    TsneCheckpoint(final long seed, final int iteration, final double klDivergence, final double[] y,
+        final double[] gains, final double[] update) {
+        m_seed = seed;
+        m_iteration = iteration;
+        m_klDivergence = klDivergence;
+        m_y = y;
+        m_gains = gains;
+        m_update = update;
+    }
+
+    /**
+     * @return the number of completed iterations
+     */
+    public int getIteration() {
+        return m_iteration;
+    }
+
+    /**
+     * @return the seed the optimization was started with
+     */
+    public long getSeed() {
+        return m_seed;
+    }
+
+    /**
+     * @return the row-major embedding after {@link #getIteration()} iterations
+     */
+    public double[] getEmbedding() {
+        return m_y.clone();
+    }
+
+    /**
+     * Writes the checkpoint in a binary format that can be read by {@link #load(DataInput)}.
+     *
+     * @param out the output to write to
+     * @throws IOException if writing fails
+     */
+    public void save(final DataOutput out) throws IOException {
+        out.writeInt(FORMAT_VERSION);
+        out.writeLong(m_seed);
+        out.writeInt(m_iteration);
+        out.writeDouble(m_klDivergence);
+        out.writeInt(m_y.length);
+        writeArray(out, m_y);
+        writeArray(out, m_gains);
+        writeArray(out, m_update);
+    }
+
+    /**
+     * Reads a checkpoint written by {@link #save(DataOutput)}.
+     *
+     * @param in the input to read from
+     * @return the checkpoint
+     * @throws IOException if reading fails or the format is unknown
+     */
+    public static TsneCheckpoint load(final DataInput in) throws IOException {
+        final int version = in.readInt();
+        if (version < 1 || version > FORMAT_VERSION) {
+            throw new IOException("Unsupported t-SNE checkpoint version: " + version);
+        }
+        final long seed = in.readLong();
+        final int iteration = in.readInt();
+        final double klDivergence = version >= 2 ? in.readDouble() : Double.NaN;
+        final int length = in.readInt();
+        return new TsneCheckpoint(seed, iteration, klDivergence, readArray(in, length), readArray(in, length),
+            readArray(in, length));
+    }
+
+    private static void writeArray(final DataOutput out, final double[] values) throws IOException {
+        for (final double value : values) {
+            out.writeDouble(value);
+        }
+    }
+
+    private static double[] readArray(final DataInput in, final int length) throws IOException {
+        final double[] values = new double[length];
+        for (int i = 0; i < length; i++) {
+            values[i] = in.readDouble();
+        }
+        return values;
+    }
+
+}
@@ -0,0 +1,123 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ *
+ */
+package org.knime.ext.tsne.algorithm;
+
+/**
+ * A learned t-SNE embedding of points that were only given by their distances, or one of the embeddings of several
+ * runs with different perplexities and seeds. Unlike a {@link TsneModel}, it holds no reference data, hence new
+ * points cannot be placed into it.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+public final class TsneEmbedding {
+
+    private final double m_perplexity;
+
+    private final long m_seed;
+
+    private final int m_outputDimensions;
+
+    private final double[] m_embedding;
+
+    private final int m_iterations;
+
+    private final double m_klDivergence;
+
+    TsneEmbedding(final double perplexity, final long seed, final int outputDimensions, final double[] embedding,
+        final int iterations, final double klDivergence) {
+        m_perplexity = perplexity;
+        m_seed = seed;
+        m_outputDimensions = outputDimensions;
+        m_embedding = embedding;
+        m_iterations = iterations;
+        m_klDivergence = klDivergence;
+    }
+
+    /**
+     * @return the perplexity of the input similarities
+     */
+    public double getPerplexity() {
+        return m_perplexity;
+    }
+
+    /**
+     * @return the seed of the initial solution
+     */
+    public long getSeed() {
+        return m_seed;
+    }
+
+    /**
+     * @return the number of output dimensions
+     */
+    public int getOutputDimensions() {
+        return m_outputDimensions;
+    }
+
+    /**
+     * @return the number of iterations the embedding was optimized for, less than requested if the optimization
+     *         converged early
+     */
+    public int getIterations() {
+        return m_iterations;
+    }
+
+    /**
+     * @return the Kullback-Leibler divergence between the input similarities and the embedding
+     */
+    public double getKlDivergence() {
+        return m_klDivergence;
+    }
+
+    /**
+     * @return the row-major embedding of the points
+     */
+    public double[] getEmbedding() {
+        return m_embedding.clone();
+    }
+
+}
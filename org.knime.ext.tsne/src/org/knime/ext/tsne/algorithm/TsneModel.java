@@ -0,0 +1,433 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ *
+ */
+package org.knime.ext.tsne.algorithm;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.function.IntToDoubleFunction;
+
+/**
+ * A learned t-SNE embedding together with the (normalized) reference data it was learned from. New rows are placed
+ * into the fixed embedding by optimizing only their own coordinates, so the cost of
+ * {@link #transform(double[], int, int, int)} is proportional to the number of new rows.
+ * <p>
+ * Each new row is treated independently: its input similarities p<sub>j|x</sub> to its {@code 3 * perplexity}
+ * nearest reference rows are calibrated to the perplexity of the training, the row starts at the p-weighted mean
+ * of the embeddings of these neighbors, and gradient descent minimizes the Kullback-Leibler divergence between
+ * p<sub>j|x</sub> and the Student-t similarities to all reference points, whose repulsion is approximated with a
+ * {@link SpacePartitioningTree} over the fixed embedding.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+public final class TsneModel {
+
+    private static final int FORMAT_VERSION = 1;
+
+    private static final double THETA = 0.5;
+
+    private static final double LEARNING_RATE = 1.0;
+
+    private static final double INITIAL_MOMENTUM = 0.5;
+
+    private static final double FINAL_MOMENTUM = 0.8;
+
+    private static final double MIN_GAIN = 0.01;
+
+    private final double m_perplexity;
+
+    private final int m_numRows;
+
+    private final int m_numCols;
+
+    private final int m_outputDimensions;
+
+    private final double[] m_center;
+
+    private final double m_scale;
+
+    /** Reduces normalized rows to the dimensions of the reference data, {@code null} if they are not reduced. */
+    private final RandomizedPca m_pca;
+
+    private final FeatureMatrix m_data;
+
+    private final double[] m_embedding;
+
+    private final int m_iterations;
+
+    private final double m_klDivergence;
+
+    /** The search structures over the reference data and its embedding, built on first use. */
+    private volatile Index m_index;
+
+    /**
+     * @param perplexity the perplexity of the input similarities
+     * @param numRows the number of reference rows
+     * @param numCols the number of input dimensions
+     * @param outputDimensions the number of output dimensions
+     * @param center the column means that are subtracted from new rows
+     * @param scale the positive value new rows are divided by after centering
+     * @param pca projects normalized rows onto the principal components of the reference data, {@code null} if the
+     *            reference data was not reduced
+     * @param data the normalized (and reduced) reference data, entries beyond {@code numRows} rows are ignored
+     * @param embedding the row-major embedding of the reference data
+     * @param iterations the number of iterations the embedding was optimized for
+     * @param klDivergence the Kullback-Leibler divergence of the embedding
+     */
+    TsneModel(final double perplexity, final int numRows, final int numCols, final int outputDimensions,
+        final double[] center, final double scale, final RandomizedPca pca, final FeatureMatrix data,
+        final double[] embedding,
+        final int iterations, final double klDivergence) {
+        m_perplexity = perplexity;
+        m_numRows = numRows;
+        m_numCols = numCols;
+        m_outputDimensions = outputDimensions;
+        m_center = center;
+        m_scale = scale;
+        m_pca = pca;
+        m_data = data;
+        m_embedding = embedding;
+        m_iterations = iterations;
+        m_klDivergence = klDivergence;
+    }
+
+    /**
+     * @return the perplexity of the input similarities
+     */
+    public double getPerplexity() {
+        return m_perplexity;
+    }
+
+    /**
+     * @return the number of reference rows
+     */
+    public int getNumRows() {
+        return m_numRows;
+    }
+
+    /**
+     * @return the number of input dimensions
+     */
+    public int getNumCols() {
+        return m_numCols;
+    }
+
+    /**
+     * @return the number of output dimensions
+     */
+    public int getOutputDimensions() {
+        return m_outputDimensions;
+    }
+
+    /**
+     * @return the number of iterations the embedding was optimized for, less than requested if the optimization
+     *         converged early
+     */
+    public int getIterations() {
+        return m_iterations;
+    }
+
+    /**
+     * @return the Kullback-Leibler divergence between the input similarities and the embedding
+     */
+    public double getKlDivergence() {
+        return m_klDivergence;
+    }
+
+    /**
+     * @return the row-major embedding of the reference rows
+     */
+    public double[] getEmbedding() {
+        return m_embedding.clone();
+    }
+
+    /**
+     * Places new rows into the embedding. The result is independent of the number of threads and of how the rows are
+     * split into batches.
+     *
+     * @param data row-major matrix of new rows in the original (not normalized) scale, it is not modified; entries
+     *            beyond the first {@code numRows} rows are ignored
+     * @param numRows the number of new rows
+     * @param iterations the number of gradient descent iterations per row
+     * @param numThreads the number of threads that place rows concurrently
+     * @return the row-major embedding of the new rows
+     */
+    public double[] transform(final double[] data, final int numRows, final int iterations, final int numThreads) {
+        final Index index = getIndex();
+        final int dims = m_outputDimensions;
+        final double[] y = new double[numRows * dims];
+        try (final ParallelRange parallel = new ParallelRange(numThreads)) {
+            parallel.forEach(numRows, (from, to) -> {
+                final Placement placement = new Placement(index);
+                for (int i = from; i < to; i++) {
+                    placement.place(data, i * m_numCols, iterations, y, i * dims);
+                }
+            });
+        }
+        return y;
+    }
+
+    /**
+     * Places a single new row into the embedding, may be called concurrently.
+     *
+     * @param row the new row in the original (not normalized) scale, it is not modified
+     * @param iterations the number of gradient descent iterations
+     * @return the embedding of the row
+     */
+    public double[] transform(final double[] row, final int iterations) {
+        final double[] y = new double[m_outputDimensions];
+        new Placement(getIndex()).place(row, 0, iterations, y, 0);
+        return y;
+    }
+
+    private Index getIndex() {
+        Index index = m_index;
+        if (index == null) {
+            synchronized (this) {
+                index = m_index;
+                if (index == null) {
+                    index = new Index();
+                    m_index = index;
+                }
+            }
+        }
+        return index;
+    }
+
+    /** Nearest neighbor search over the reference data and Barnes-Hut tree over the reference embedding. */
+    private final class Index {
+
+        private final VantagePointTree m_referenceTree;
+
+        private final SpacePartitioningTree m_embeddingTree;
+
+        Index() {
+            // the search is exact, so the choice of the vantage points only affects the runtime
+            m_referenceTree = new VantagePointTree(new EuclideanDistance(m_data), m_numRows, new Random(0));
+            m_embeddingTree = new SpacePartitioningTree(m_outputDimensions, m_numRows);
+            m_embeddingTree.rebuild(m_embedding, m_numRows);
+        }
+    }
+
+    /** Places single rows, instances are not thread-safe. */
+    private final class Placement {
+
+        private final int m_k = Math.min(m_numRows, (int)(3 * m_perplexity));
+
+        private final VantagePointTree.Searcher m_searcher;
+
+        private final SpacePartitioningTree.Traverser m_traverser;
+
+        private final double[] m_input = new double[m_numCols];
+
+        /** The normalized and reduced row. */
+        private final double[] m_row = new double[m_data.getNumCols()];
+
+        private final IntToDoubleFunction m_rowDistance = this::distanceToRow;
+
+        private final int[] m_neighbors = new int[m_k];
+
+        private final double[] m_distances = new double[m_k];
+
+        private final double[] m_p = new double[m_k];
+
+        private final double[] m_gradient = new double[m_outputDimensions];
+
+        private final double[] m_negF = new double[m_outputDimensions];
+
+        private final double[] m_update = new double[m_outputDimensions];
+
+        private final double[] m_gains = new double[m_outputDimensions];
+
+        Placement(final Index index) {
+            m_searcher = index.m_referenceTree.searcher(m_k);
+            m_traverser = index.m_embeddingTree.traverser();
+        }
+
+        private double distanceToRow(final int reference) {
+            return Math.sqrt(m_data.squaredDistance(reference, m_row));
+        }
+
+        void place(final double[] data, final int dataOffset, final int iterations, final double[] y,
+            final int yOffset) {
+            for (int d = 0; d < m_numCols; d++) {
+                m_input[d] = (data[dataOffset + d] - m_center[d]) / m_scale;
+            }
+            if (m_pca == null) {
+                System.arraycopy(m_input, 0, m_row, 0, m_numCols);
+            } else {
+                m_pca.transform(m_input, m_row);
+            }
+            m_searcher.search(m_rowDistance, m_neighbors, m_distances, 0);
+            GaussianAffinities.calibrateRow(m_distances, 0, m_k, Math.log(m_perplexity), m_p);
+            final int dims = m_outputDimensions;
+            final double[] embedding = m_embedding;
+            for (int d = 0; d < dims; d++) {
+                y[yOffset + d] = 0;
+            }
+            for (int m = 0; m < m_k; m++) {
+                final int offsetJ = m_neighbors[m] * dims;
+                for (int d = 0; d < dims; d++) {
+                    y[yOffset + d] += m_p[m] * embedding[offsetJ + d];
+                }
+            }
+            Arrays.fill(m_update, 0);
+            Arrays.fill(m_gains, 1.0);
+            final int momentumSwitch = iterations / 4;
+            for (int iter = 0; iter < iterations; iter++) {
+                computeGradient(y, yOffset);
+                final double momentum = iter < momentumSwitch ? INITIAL_MOMENTUM : FINAL_MOMENTUM;
+                for (int d = 0; d < dims; d++) {
+                    final double gain = Math.signum(m_gradient[d]) != Math.signum(m_update[d]) ? m_gains[d] + 0.2
+                        : m_gains[d] * 0.8;
+                    m_gains[d] = Math.max(gain, MIN_GAIN);
+                    m_update[d] = momentum * m_update[d] - LEARNING_RATE * m_gains[d] * m_gradient[d];
+                    y[yOffset + d] += m_update[d];
+                }
+            }
+        }
+
+        /** Attraction towards the neighbors minus the normalized repulsion of all reference points. */
+        private void computeGradient(final double[] y, final int yOffset) {
+            final int dims = m_outputDimensions;
+            final double[] embedding = m_embedding;
+            final double[] gradient = m_gradient;
+            Arrays.fill(gradient, 0);
+            for (int m = 0; m < m_k; m++) {
+                final int offsetJ = m_neighbors[m] * dims;
+                double dist = 1.0;
+                for (int d = 0; d < dims; d++) {
+                    final double diff = y[yOffset + d] - embedding[offsetJ + d];
+                    dist += diff * diff;
+                }
+                final double mult = m_p[m] / dist;
+                for (int d = 0; d < dims; d++) {
+                    gradient[d] += mult * (y[yOffset + d] - embedding[offsetJ + d]);
+                }
+            }
+            Arrays.fill(m_negF, 0);
+            final double sumQ = m_traverser.computeNonEdgeForces(y, yOffset, THETA, m_negF, 0);
+            for (int d = 0; d < dims; d++) {
+                gradient[d] -= m_negF[d] / sumQ;
+            }
+        }
+    }
+
+    /**
+     * Writes the model in a binary format that can be read by {@link #load(DataInput)}.
+     *
+     * @param out the output to write to
+     * @throws IOException if writing fails
+     */
+    public void save(final DataOutput out) throws IOException {
+        out.writeInt(FORMAT_VERSION);
+        out.writeDouble(m_perplexity);
+        out.writeInt(m_numRows);
+        out.writeInt(m_numCols);
+        out.writeInt(m_outputDimensions);
+        out.writeDouble(m_scale);
+        out.writeInt(m_iterations);
+        out.writeDouble(m_klDivergence);
+        writeArray(out, m_center, m_numCols);
+        final int numComponents = m_pca == null ? 0 : m_pca.getNumComponents();
+        out.writeInt(numComponents);
+        if (m_pca != null) {
+            writeArray(out, m_pca.getComponents(), m_numCols * numComponents);
+        }
+        out.writeBoolean(m_data.isSinglePrecision());
+        m_data.write(out, m_numRows * m_data.getNumCols());
+        writeArray(out, m_embedding, m_numRows * m_outputDimensions);
+    }
+
+    /**
+     * Reads a model written by {@link #save(DataOutput)}.
+     *
+     * @param in the input to read from
+     * @return the model
+     * @throws IOException if reading fails or the format is unknown
+     */
+    public static TsneModel load(final DataInput in) throws IOException {
+        final int version = in.readInt();
+        if (version != FORMAT_VERSION) {
+            throw new IOException("Unsupported t-SNE model version: " + version);
+        }
+        final double perplexity = in.readDouble();
+        final int numRows = in.readInt();
+        final int numCols = in.readInt();
+        final int outputDimensions = in.readInt();
+        final double scale = in.readDouble();
+        final int iterations = in.readInt();
+        final double klDivergence = in.readDouble();
+        final double[] center = readArray(in, numCols);
+        final int numComponents = in.readInt();
+        final RandomizedPca pca = numComponents == 0 ? null
+            : new RandomizedPca(numCols, numComponents, readArray(in, numCols * numComponents));
+        final int dataCols = pca == null ? numCols : numComponents;
+        final FeatureMatrix data = FeatureMatrix.read(in, numRows * dataCols, dataCols, in.readBoolean());
+        final double[] embedding = readArray(in, numRows * outputDimensions);
+        return new TsneModel(perplexity, numRows, numCols, outputDimensions, center, scale, pca, data, embedding,
+            iterations, klDivergence);
+    }
+
+    private static void writeArray(final DataOutput out, final double[] values, final int length)
+        throws IOException {
+        for (int i = 0; i < length; i++) {
+            out.writeDouble(values[i]);
+        }
+    }
+
+    private static double[] readArray(final DataInput in, final int length) throws IOException {
+        final double[] values = new double[length];
+        for (int i = 0; i < length; i++) {
+            values[i] = in.readDouble();
+        }
+        return values;
+    }
+
+}
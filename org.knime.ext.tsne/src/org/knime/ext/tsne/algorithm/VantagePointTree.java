@@ -0,0 +1,344 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ *
+ */
+package org.knime.ext.tsne.algorithm;
+
+import java.util.Random;
+import java.util.function.IntToDoubleFunction;
+
+/**
+ * Vantage-point tree for exact k-nearest-neighbor queries in arbitrary metric spaces.
+ * The tree has exactly one node per point and is stored in flat primitive arrays, the node with index {@code i}
+ * uses the point {@code m_vantage[i]} as vantage point.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+final class VantagePointTree implements NeighborSearch {
+
+    private final DistanceFunction m_distance;
+
+    private final int[] m_vantage;
+
+    private final double[] m_threshold;
+
+    private final int[] m_left;
+
+    private final int[] m_right;
+
+    private int m_numNodes;
+
+    /**
+     * Builds the tree over the points {@code 0, ..., numPoints - 1}.
+     *
+     * @param distance the metric
+     * @param numPoints the number of points
+     * @param random used to select the vantage points
+     */
+    VantagePointTree(final DistanceFunction distance, final int numPoints, final Random random) {
+        m_distance = distance;
+        m_vantage = new int[numPoints];
+        m_threshold = new double[numPoints];
+        m_left = new int[numPoints];
+        m_right = new int[numPoints];
+        final int[] items = new int[numPoints];
+        for (int i = 0; i < numPoints; i++) {
+            items[i] = i;
+        }
+        build(items, new double[numPoints], 0, numPoints, random);
+    }
+
+    private int build(final int[] items, final double[] dists, final int lower, final int upper,
+        final Random random) {
+        if (upper == lower) {
+            return -1;
+        }
+        final int node = m_numNodes++;
+        final int randomIdx = lower + random.nextInt(upper - lower);
+        swap(items, dists, lower, randomIdx);
+        final int vantage = items[lower];
+        m_vantage[node] = vantage;
+        m_left[node] = -1;
+        m_right[node] = -1;
+        if (upper - lower > 1) {
+            for (int i = lower + 1; i < upper; i++) {
+                dists[i] = m_distance.distance(vantage, items[i]);
+            }
+            final int median = (upper + lower) >>> 1;
+            select(items, dists, lower + 1, upper - 1, median);
+            m_threshold[node] = dists[median];
+            // the children are assigned after the recursive calls return, hence the local variables
+            final int left = build(items, dists, lower + 1, median, random);
+            final int right = build(items, dists, median, upper, random);
+            m_left[node] = left;
+            m_right[node] = right;
+        }
+        return node;
+    }
+
+    /**
+     * Quickselect on {@code dists} (with {@code items} permuted alongside) so that position {@code k} is final.
+     * The range [{@code from}, {@code to}] is inclusive.
+     */
+    static void select(final int[] items, final double[] dists, final int from, final int to, final int k) {
+        int lo = from;
+        int hi = to;
+        while (hi > lo) {
+            final double pivot = dists[(lo + hi) >>> 1];
+            int i = lo;
+            int j = hi;
+            while (i <= j) {
+                while (dists[i] < pivot) {
+                    i++;
+                }
+                while (dists[j] > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    swap(items, dists, i, j);
+                    i++;
+                    j--;
+                }
+            }
+            if (k <= j) {
+                hi = j;
+            } else if (k >= i) {
+                lo = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    private static void swap(final int[] items, final double[] dists, final int i, final int j) {
+        final int tmpItem = items[i];
+        items[i] = items[j];
+        items[j] = tmpItem;
+        final double tmpDist = dists[i];
+        dists[i] = dists[j];
+        dists[j] = tmpDist;
+    }
+
+    @Override
+    public void findNeighbors(final int k, final int[] neighbors, final double[] distances,
+        final ParallelRange parallel) {
+        parallel.forEach(m_vantage.length, (from, to) -> {
+            final Searcher searcher = searcher(k + 1);
+            final int[] idx = new int[k + 1];
+            final double[] dist = new double[k + 1];
+            for (int i = from; i < to; i++) {
+                searcher.search(i, idx, dist, 0);
+                copyNeighbors(i, idx, dist, k, neighbors, distances);
+            }
+        });
+    }
+
+    /** Copies the k neighbors of {@code query} from the k + 1 search results, skipping the query itself. */
+    private static void copyNeighbors(final int query, final int[] idx, final double[] dist, final int k,
+        final int[] neighbors, final double[] distances) {
+        int pos = query * k;
+        final int end = pos + k;
+        for (int m = 0; m <= k && pos < end; m++) {
+            // the query is usually the first result but duplicates of it can have the same distance
+            if (idx[m] != query) {
+                neighbors[pos] = idx[m];
+                distances[pos] = dist[m];
+                pos++;
+            }
+        }
+    }
+
+    /**
+     * Creates a searcher for queries with {@code k} neighbors.
+     * Searchers are not thread-safe but the tree is, so each thread should use its own searcher.
+     *
+     * @param k the number of neighbors to find
+     * @return a new searcher
+     */
+    Searcher searcher(final int k) {
+        return new Searcher(k);
+    }
+
+    /**
+     * Answers k-nearest-neighbor queries on the enclosing tree using a bounded max-heap.
+     */
+    final class Searcher {
+
+        private final int m_k;
+
+        private final int[] m_heapIdx;
+
+        private final double[] m_heapDist;
+
+        private int m_size;
+
+        private IntToDoubleFunction m_queryDistance;
+
+        private double m_tau;
+
+        private Searcher(final int k) {
+            m_k = k;
+            m_heapIdx = new int[k];
+            m_heapDist = new double[k];
+        }
+
+        /**
+         * Finds the {@code k} nearest neighbors of the point {@code query} (the query itself is part of the result).
+         *
+         * @param query index of the query point
+         * @param indices receives the neighbor indices sorted by ascending distance starting at {@code offset}
+         * @param distances receives the corresponding distances starting at {@code offset}
+         * @param offset the first position to write to
+         */
+        void search(final int query, final int[] indices, final double[] distances, final int offset) {
+            search(point -> m_distance.distance(point, query), indices, distances, offset);
+        }
+
+        /**
+         * Finds the {@code k} nearest neighbors of a query that is not necessarily one of the points of the tree.
+         *
+         * @param queryDistance the distance between a point of the tree and the query, must obey the metric of the
+         *            tree
+         * @param indices receives the neighbor indices sorted by ascending distance starting at {@code offset}
+         * @param distances receives the corresponding distances starting at {@code offset}
+         * @param offset the first position to write to
+         */
+        void search(final IntToDoubleFunction queryDistance, final int[] indices, final double[] distances,
+            final int offset) {
+            m_size = 0;
+            m_queryDistance = queryDistance;
+            m_tau = Double.MAX_VALUE;
+            if (m_numNodes > 0) {
+                search(0);
+            }
+            // repeatedly removing the maximum yields the neighbors in descending order
+            for (int i = m_size; i-- > 0;) {
+                indices[offset + i] = m_heapIdx[0];
+                distances[offset + i] = m_heapDist[0];
+                removeMax();
+            }
+        }
+
+        private void search(final int node) {
+            final double dist = m_queryDistance.applyAsDouble(m_vantage[node]);
+            if (dist < m_tau) {
+                offer(m_vantage[node], dist);
+            }
+            final int left = m_left[node];
+            final int right = m_right[node];
+            if (left == -1 && right == -1) {
+                return;
+            }
+            final double threshold = m_threshold[node];
+            if (dist < threshold) {
+                if (left != -1 && dist - m_tau <= threshold) {
+                    search(left);
+                }
+                if (right != -1 && dist + m_tau >= threshold) {
+                    search(right);
+                }
+            } else {
+                if (right != -1 && dist + m_tau >= threshold) {
+                    search(right);
+                }
+                if (left != -1 && dist - m_tau <= threshold) {
+                    search(left);
+                }
+            }
+        }
+
+        private void offer(final int idx, final double dist) {
+            if (m_size < m_k) {
+                int pos = m_size++;
+                while (pos > 0) {
+                    final int parent = (pos - 1) >>> 1;
+                    if (m_heapDist[parent] >= dist) {
+                        break;
+                    }
+                    m_heapIdx[pos] = m_heapIdx[parent];
+                    m_heapDist[pos] = m_heapDist[parent];
+                    pos = parent;
+                }
+                m_heapIdx[pos] = idx;
+                m_heapDist[pos] = dist;
+            } else {
+                siftDown(idx, dist);
+            }
+            if (m_size == m_k) {
+                m_tau = m_heapDist[0];
+            }
+        }
+
+        private void removeMax() {
+            m_size--;
+            if (m_size > 0) {
+                siftDown(m_heapIdx[m_size], m_heapDist[m_size]);
+            }
+        }
+
+        /** Replaces the root of the heap with the given element and restores the heap property. */
+        private void siftDown(final int idx, final double dist) {
+            int pos = 0;
+            while (true) {
+                int child = 2 * pos + 1;
+                if (child >= m_size) {
+                    break;
+                }
+                if (child + 1 < m_size && m_heapDist[child + 1] > m_heapDist[child]) {
+                    child++;
+                }
+                if (m_heapDist[child] <= dist) {
+                    break;
+                }
+                m_heapIdx[pos] = m_heapIdx[child];
+                m_heapDist[pos] = m_heapDist[child];
+                pos = child;
+            }
+            m_heapIdx[pos] = idx;
+            m_heapDist[pos] = dist;
+        }
+    }
+
+}
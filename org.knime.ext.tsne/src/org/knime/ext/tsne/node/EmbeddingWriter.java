@@ -0,0 +1,193 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ *
+ */
+package org.knime.ext.tsne.node;
+
+import java.io.IOException;
+import java.util.BitSet;
+import java.util.List;
+
+import org.knime.core.data.DataTableSpec;
+import org.knime.core.data.container.filter.TableFilter;
+import org.knime.core.data.v2.RowContainer;
+import org.knime.core.data.v2.RowCursor;
+import org.knime.core.data.v2.RowRead;
+import org.knime.core.data.v2.RowWrite;
+import org.knime.core.data.v2.RowWriteCursor;
+import org.knime.core.data.v2.value.DoubleValueFactory.DoubleWriteValue;
+import org.knime.core.data.v2.value.LongValueFactory.LongWriteValue;
+import org.knime.core.node.BufferedDataTable;
+import org.knime.core.node.CanceledExecutionException;
+import org.knime.core.node.ExecutionContext;
+import org.knime.ext.tsne.algorithm.TsneEmbedding;
+
+/**
+ * Writes tables that consist only of the row keys of the input and the embeddings. The coordinates are written as
+ * primitive doubles through the row cursor API, which the columnar backend stores directly in its write buffers
+ * without creating a cell per value, and the input is read without materializing any of its columns.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+final class EmbeddingWriter {
+
+    /** The number of rows between two cancellation checks and progress updates. */
+    private static final int CHECK_INTERVAL = 1024;
+
+    private EmbeddingWriter() {
+    }
+
+    /**
+     * Writes one row per input row, which holds the coordinates of each embedding one after the other.
+     *
+     * @param table the input table, only its row keys are read
+     * @param spec the spec of the output, {@code dims} double columns per embedding
+     * @param missingRows the input rows that were ignored, their coordinates are missing values
+     * @param embeddings the row-major embeddings of the rows that were not ignored
+     * @param dims the number of output dimensions
+     * @param exec for the output table, progress and cancellation
+     * @return the written table
+     * @throws CanceledExecutionException if the execution was cancelled
+     * @throws IOException if the table could not be written
+     */
+    static BufferedDataTable writeColumns(final BufferedDataTable table, final DataTableSpec spec,
+        final BitSet missingRows, final List<double[]> embeddings, final int dims, final ExecutionContext exec)
+        throws CanceledExecutionException, IOException {
+        final double numRows = table.size();
+        try (final RowContainer container = exec.createRowContainer(spec);
+                final RowWriteCursor out = container.createCursor();
+                final RowCursor in = table.cursor(TableFilter.materializeCols())) {
+            long rowIdx = 0;
+            int embeddingIdx = 0;
+            while (in.canForward()) {
+                final RowRead row = in.forward();
+                checkCanceled(rowIdx, numRows, exec);
+                final RowWrite write = out.forward();
+                write.setRowKey(row.getRowKey());
+                final boolean missing = missingRows.get((int)rowIdx++);
+                int column = 0;
+                for (final double[] embedding : embeddings) {
+                    column = writeCoordinates(write, column, missing ? null : embedding, embeddingIdx * dims, dims);
+                }
+                if (!missing) {
+                    embeddingIdx++;
+                }
+            }
+            return container.finish();
+        }
+    }
+
+    /**
+     * Writes every input row once per run, with the perplexity, the seed and the coordinates of the run. The row
+     * keys are suffixed by the index of the run.
+     *
+     * @param table the input table, only its row keys are read
+     * @param spec the spec of the output, a double and a long column followed by {@code dims} double columns
+     * @param missingRows the input rows that were ignored, their coordinates are missing values
+     * @param runs the embeddings of the runs
+     * @param dims the number of output dimensions
+     * @param exec for the output table, progress and cancellation
+     * @return the written table
+     * @throws CanceledExecutionException if the execution was cancelled
+     * @throws IOException if the table could not be written
+     */
+    static BufferedDataTable writeRuns(final BufferedDataTable table, final DataTableSpec spec,
+        final BitSet missingRows, final List<TsneEmbedding> runs, final int dims, final ExecutionContext exec)
+        throws CanceledExecutionException, IOException {
+        final double numRows = (double)table.size() * runs.size();
+        long outputRow = 0;
+        try (final RowContainer container = exec.createRowContainer(spec);
+                final RowWriteCursor out = container.createCursor()) {
+            for (int r = 0; r < runs.size(); r++) {
+                final TsneEmbedding run = runs.get(r);
+                final double[] embedding = run.getEmbedding();
+                final String keySuffix = "#" + r;
+                try (final RowCursor in = table.cursor(TableFilter.materializeCols())) {
+                    int rowIdx = 0;
+                    int embeddingIdx = 0;
+                    while (in.canForward()) {
+                        final RowRead row = in.forward();
+                        checkCanceled(outputRow++, numRows, exec);
+                        final RowWrite write = out.forward();
+                        write.setRowKey(row.getRowKey().getString() + keySuffix);
+                        write.<DoubleWriteValue> getWriteValue(0).setDoubleValue(run.getPerplexity());
+                        write.<LongWriteValue> getWriteValue(1).setLongValue(run.getSeed());
+                        final boolean missing = missingRows.get(rowIdx++);
+                        writeCoordinates(write, 2, missing ? null : embedding, embeddingIdx * dims, dims);
+                        if (!missing) {
+                            embeddingIdx++;
+                        }
+                    }
+                }
+            }
+            return container.finish();
+        }
+    }
+
+    /**
+     * Writes {@code dims} coordinates starting at {@code offset} of {@code embedding}, or missing values if it is
+     * {@code null}, and returns the next column.
+     */
+    private static int writeCoordinates(final RowWrite write, final int column, final double[] embedding,
+        final int offset, final int dims) {
+        for (int d = 0; d < dims; d++) {
+            if (embedding == null) {
+                write.setMissing(column + d);
+            } else {
+                write.<DoubleWriteValue> getWriteValue(column + d).setDoubleValue(embedding[offset + d]);
+            }
+        }
+        return column + dims;
+    }
+
+    private static void checkCanceled(final long row, final double numRows, final ExecutionContext exec)
+        throws CanceledExecutionException {
+        if (row % CHECK_INTERVAL == 0) {
+            exec.checkCanceled();
+            exec.setProgress(row / numRows);
+        }
+    }
+
+}
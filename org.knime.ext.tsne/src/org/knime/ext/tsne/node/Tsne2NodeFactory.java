@@ -0,0 +1,207 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ *
+ */
+package org.knime.ext.tsne.node;
+
+import static org.knime.node.impl.description.PortDescription.fixedPort;
+
+import java.util.List;
+import java.util.Map;
+
+import org.knime.core.node.NodeDescription;
+import org.knime.core.node.NodeDialogPane;
+import org.knime.core.node.NodeFactory;
+import org.knime.core.node.NodeView;
+import org.knime.core.webui.node.dialog.NodeDialog;
+import org.knime.core.webui.node.dialog.NodeDialogFactory;
+import org.knime.core.webui.node.dialog.NodeDialogManager;
+import org.knime.core.webui.node.dialog.SettingsType;
+import org.knime.core.webui.node.dialog.defaultdialog.DefaultKaiNodeInterface;
+import org.knime.core.webui.node.dialog.defaultdialog.DefaultNodeDialog;
+import org.knime.core.webui.node.dialog.kai.KaiNodeInterface;
+import org.knime.core.webui.node.dialog.kai.KaiNodeInterfaceFactory;
+import org.knime.node.impl.description.DefaultNodeDescriptionUtil;
+import org.knime.node.impl.description.PortDescription;
+
+/**
+ * {@link NodeFactory} for the t-SNE node with a t-SNE model output that can be used by the t-SNE Apply node.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+@SuppressWarnings("restriction")
+public final class Tsne2NodeFactory extends NodeFactory<TsneNodeModel>
+    implements NodeDialogFactory, KaiNodeInterfaceFactory {
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public TsneNodeModel createNodeModel() {
+        return new TsneNodeModel(true);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected int getNrNodeViews() {
+        return 0;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public NodeView<TsneNodeModel> createNodeView(final int viewIndex, final TsneNodeModel nodeModel) {
+        return null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected boolean hasDialog() {
+        return true;
+    }
+
+    private static final String NODE_NAME = "t-SNE";
+
+    static final String NODE_ICON = "./icon.png";
+
+    static final String SHORT_DESCRIPTION = """
+            t-SNE is a manifold learning technique, which learns low dimensional embeddings for high dimensional
+                data.
+            """;
+
+    private static final String FULL_DESCRIPTION_TEMPLATE = """
+            t-SNE is a manifold learning technique, which learns low dimensional embeddings for high dimensional
+                data. It is most often used for visualization purposes because it exploits the local relationships
+                between datapoints and can subsequently capture nonlinear structures in the data. Unlike other dimension
+                reduction techniques like PCA, a learned t-SNE model can't be applied to new data%s. The t-SNE algorithm
+                can be roughly summarized as two steps: <ol> <li>Create a probability distribution capturing the
+                relationships between points in the high dimensional space </li> <li>Find a low dimensional space that
+                resembles the probability dimension as well as possible </li> </ol> For further details check out this
+                <a href="https://erdem.pl/2020/04/t-sne-clearly-explained/">blog post</a> or the original <a
+                href="http://www.jmlr.org/papers/volume9/vandermaaten08a/vandermaaten08a.pdf">paper</a> . The
+                node implements the Barnes-Hut approximation of t-SNE and follows the optimization schedule of <a
+                href="https://github.com/lejon/T-SNE-Java">T-SNE-Java</a> by Leif Jonsson by default. The number of
+                iterations that were performed and the final Kullback-Leibler divergence of the embedding are
+                exposed as the flow variables <i>tsne-iterations</i> and <i>tsne-kl-divergence</i>. Besides numeric
+                columns, the rows can be given as bit or byte vectors, e.g. molecular fingerprints, or as a
+                precomputed distance matrix. To choose the perplexity, several perplexities and seeds can be
+                compared in a single execution, which shares the neighbor search between the runs.
+                <h4>Disclaimer:</h4>
+                Depending on the size of the input table, the computation of t-SNE can be very expensive both in terms
+                of runtime as well as memory. If you experience problems with memory, try to reduce the size of your
+                data by e.g. using the Row Sampling node. If you have very high-dimensional data, it is also advisable
+                to first reduce the number of dimensions to around 50, e.g. with the option
+                <i>Reduce dimensionality with PCA</i>.
+            """;
+    private static final String FULL_DESCRIPTION = createFullDescription(
+        " exactly, but the t-SNE Apply node can place new rows into the learned embedding");
+
+    static final List<PortDescription> INPUT_PORTS = List.of(
+            fixedPort("Data", """
+                Input port for the data for which a low dimensional embedding should be learned
+                """)
+    );
+
+    private static final List<PortDescription> OUTPUT_PORTS = List.of(
+            fixedPort("Embedded Data", """
+                The low dimensional embedding
+                """),
+            fixedPort("t-SNE Model", """
+                The reference data and its embedding, which allow the t-SNE Apply node to place new rows into
+                the embedding. The port is inactive if the rows are given as vectors or as a distance matrix, or
+                if several perplexities and seeds are compared
+                """)
+    );
+
+    /**
+     * Creates the full description that is shared by the t-SNE nodes.
+     *
+     * @param applyNote completes the sentence stating that a learned t-SNE model can't be applied to new data,
+     *            either empty or starting with a space
+     * @return the full node description
+     */
+    static String createFullDescription(final String applyNote) {
+        return FULL_DESCRIPTION_TEMPLATE.formatted(applyNote);
+    }
+
+    @Override
+    public NodeDialogPane createNodeDialogPane() {
+        return NodeDialogManager.createLegacyFlowVariableNodeDialog(createNodeDialog());
+    }
+
+    @Override
+    public NodeDialog createNodeDialog() {
+        return new DefaultNodeDialog(SettingsType.MODEL, TsneNodeParameters.class);
+    }
+
+    @Override
+    public NodeDescription createNodeDescription() {
+        return DefaultNodeDescriptionUtil.createNodeDescription(
+            NODE_NAME,
+            NODE_ICON,
+            INPUT_PORTS,
+            OUTPUT_PORTS,
+            SHORT_DESCRIPTION,
+            FULL_DESCRIPTION,
+            List.of(),
+            TsneNodeParameters.class,
+            null,
+            NodeType.Manipulator,
+            List.of(),
+            null
+        );
+    }
+
+    @Override
+    public KaiNodeInterface createKaiNodeInterface() {
+        return new DefaultKaiNodeInterface(Map.of(SettingsType.MODEL, TsneNodeParameters.class));
+    }
+
+}
@@ -0,0 +1,318 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ *
+ */
+package org.knime.ext.tsne.node;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.knime.core.data.DataCell;
+import org.knime.core.data.DataColumnSpec;
+import org.knime.core.data.DataRow;
+import org.knime.core.data.DataTableSpec;
+import org.knime.core.data.DoubleValue;
+import org.knime.core.data.MissingCell;
+import org.knime.core.data.MissingValue;
+import org.knime.core.data.MissingValueException;
+import org.knime.core.data.container.AbstractCellFactory;
+import org.knime.core.data.container.ColumnRearranger;
+import org.knime.core.data.def.DoubleCell;
+import org.knime.core.node.BufferedDataTable;
+import org.knime.core.node.CanceledExecutionException;
+import org.knime.core.node.ExecutionContext;
+import org.knime.core.node.ExecutionMonitor;
+import org.knime.core.node.InvalidSettingsException;
+import org.knime.core.node.NodeModel;
+import org.knime.core.node.NodeSettingsRO;
+import org.knime.core.node.NodeSettingsWO;
+import org.knime.core.node.defaultnodesettings.SettingsModelBoolean;
+import org.knime.core.node.defaultnodesettings.SettingsModelIntegerBounded;
+import org.knime.core.node.port.PortObject;
+import org.knime.core.node.port.PortObjectSpec;
+import org.knime.core.node.port.PortType;
+import org.knime.core.node.streamable.InputPortRole;
+import org.knime.core.node.streamable.OutputPortRole;
+import org.knime.core.node.streamable.PartitionInfo;
+import org.knime.core.node.streamable.PortInput;
+import org.knime.core.node.streamable.PortObjectInput;
+import org.knime.core.node.streamable.PortOutput;
+import org.knime.core.node.streamable.RowInput;
+import org.knime.core.node.streamable.StreamableOperator;
+import org.knime.core.node.util.CheckUtils;
+import org.knime.core.util.UniqueNameGenerator;
+import org.knime.ext.tsne.algorithm.TsneModel;
+import org.knime.ext.tsne.port.TsneModelPortObject;
+import org.knime.ext.tsne.port.TsneModelPortObjectSpec;
+
+/**
+ * Places the rows of a table into the embedding of a {@link TsneModelPortObject}. Each row is placed independently
+ * against the fixed reference embedding, hence the node is streamable and its runtime is proportional to the number
+ * of rows.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+final class TsneApplyNodeModel extends NodeModel {
+
+    static final int MODEL_IN_PORT = 0;
+
+    static final int DATA_IN_PORT = 1;
+
+    // Configuration keys
+    static final String CFG_ITERATIONS = "iterations";
+    static final String CFG_REMOVE_ORIGINAL_COLUMNS = "removeOriginalColumns";
+    static final String CFG_FAIL_ON_MISSING_VALUES = "failOnMissingValues";
+
+    static SettingsModelIntegerBounded createIterationsModel() {
+        return new SettingsModelIntegerBounded(CFG_ITERATIONS, 100, 0, Integer.MAX_VALUE);
+    }
+
+    static SettingsModelBoolean createRemoveOriginalColumnsModel() {
+        return new SettingsModelBoolean(CFG_REMOVE_ORIGINAL_COLUMNS, false);
+    }
+
+    static SettingsModelBoolean createFailOnMissingValuesModel() {
+        return new SettingsModelBoolean(CFG_FAIL_ON_MISSING_VALUES, false);
+    }
+
+    private final SettingsModelIntegerBounded m_iterations = createIterationsModel();
+
+    private final SettingsModelBoolean m_removeOriginalColumns = createRemoveOriginalColumnsModel();
+
+    private final SettingsModelBoolean m_failOnMissingValues = createFailOnMissingValuesModel();
+
+    TsneApplyNodeModel() {
+        super(new PortType[]{TsneModelPortObject.TYPE, BufferedDataTable.TYPE},
+            new PortType[]{BufferedDataTable.TYPE});
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected PortObjectSpec[] configure(final PortObjectSpec[] inSpecs) throws InvalidSettingsException {
+        final TsneModelPortObjectSpec modelSpec = (TsneModelPortObjectSpec)inSpecs[MODEL_IN_PORT];
+        final DataTableSpec tableSpec = (DataTableSpec)inSpecs[DATA_IN_PORT];
+        return new PortObjectSpec[]{createColumnRearranger(tableSpec, modelSpec, null).createSpec()};
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected PortObject[] execute(final PortObject[] inObjects, final ExecutionContext exec) throws Exception {
+        final TsneModelPortObject model = (TsneModelPortObject)inObjects[MODEL_IN_PORT];
+        final BufferedDataTable table = (BufferedDataTable)inObjects[DATA_IN_PORT];
+        final ColumnRearranger cr = createColumnRearranger(table.getDataTableSpec(), model.getSpec(), model.getModel());
+        return new PortObject[]{exec.createColumnRearrangeTable(table, cr, exec)};
+    }
+
+    private ColumnRearranger createColumnRearranger(final DataTableSpec tableSpec,
+        final TsneModelPortObjectSpec modelSpec, final TsneModel model) throws InvalidSettingsException {
+        final String[] features = modelSpec.getFeatures();
+        for (final String feature : features) {
+            final DataColumnSpec colSpec = tableSpec.getColumnSpec(feature);
+            CheckUtils.checkSetting(colSpec != null, "The column '%s' the t-SNE model was learned on is missing.",
+                feature);
+            CheckUtils.checkSetting(colSpec.getType().isCompatible(DoubleValue.class),
+                "The column '%s' is not numeric.", feature);
+        }
+        final ColumnRearranger cr = new ColumnRearranger(tableSpec);
+        if (m_removeOriginalColumns.getBooleanValue()) {
+            cr.remove(features);
+        }
+        final UniqueNameGenerator nameGen = new UniqueNameGenerator(cr.createSpec());
+        cr.append(new PlacementCellFactory(model, tableSpec.columnsToIndices(features),
+            TsneNodeModel.createSpecs(nameGen, modelSpec.getOutputDimensions()), m_iterations.getIntValue(),
+            m_failOnMissingValues.getBooleanValue()));
+        return cr;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public InputPortRole[] getInputPortRoles() {
+        return new InputPortRole[]{InputPortRole.NONDISTRIBUTED_NONSTREAMABLE, InputPortRole.DISTRIBUTED_STREAMABLE};
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public OutputPortRole[] getOutputPortRoles() {
+        return new OutputPortRole[]{OutputPortRole.DISTRIBUTED};
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public StreamableOperator createStreamableOperator(final PartitionInfo partitionInfo,
+        final PortObjectSpec[] inSpecs) throws InvalidSettingsException {
+        return new StreamableOperator() {
+
+            @Override
+            public void runFinal(final PortInput[] inputs, final PortOutput[] outputs, final ExecutionContext exec)
+                throws Exception {
+                final TsneModelPortObject model =
+                    (TsneModelPortObject)((PortObjectInput)inputs[MODEL_IN_PORT]).getPortObject();
+                final DataTableSpec tableSpec = ((RowInput)inputs[DATA_IN_PORT]).getDataTableSpec();
+                createColumnRearranger(tableSpec, model.getSpec(), model.getModel())
+                    .createStreamableFunction(DATA_IN_PORT, 0).runFinal(inputs, outputs, exec);
+            }
+        };
+    }
+
+    /**
+     * Places rows into the embedding. Rows are independent of each other, so they are processed concurrently.
+     */
+    private static final class PlacementCellFactory extends AbstractCellFactory {
+
+        private final TsneModel m_model;
+
+        private final int[] m_featureIndices;
+
+        private final int m_iterations;
+
+        private final boolean m_failOnMissingValues;
+
+        private final DataCell[] m_missingCells;
+
+        PlacementCellFactory(final TsneModel model, final int[] featureIndices, final DataColumnSpec[] specs,
+            final int iterations, final boolean failOnMissingValues) {
+            super(true, specs);
+            m_model = model;
+            m_featureIndices = featureIndices;
+            m_iterations = iterations;
+            m_failOnMissingValues = failOnMissingValues;
+            m_missingCells = new DataCell[specs.length];
+            Arrays.fill(m_missingCells, new MissingCell("Missing value in the input of t-SNE."));
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public DataCell[] getCells(final DataRow row) {
+            final double[] values = new double[m_featureIndices.length];
+            for (int j = 0; j < values.length; j++) {
+                final DataCell cell = row.getCell(m_featureIndices[j]);
+                if (cell.isMissing()) {
+                    if (m_failOnMissingValues) {
+                        throw new MissingValueException((MissingValue)cell, "Missing value detected in row " + row);
+                    }
+                    return m_missingCells;
+                }
+                values[j] = ((DoubleValue)cell).getDoubleValue();
+            }
+            final double[] embedding = m_model.transform(values, m_iterations);
+            final DataCell[] cells = new DataCell[embedding.length];
+            for (int d = 0; d < embedding.length; d++) {
+                cells[d] = new DoubleCell(embedding[d]);
+            }
+            return cells;
+        }
+
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void saveSettingsTo(final NodeSettingsWO settings) {
+        m_iterations.saveSettingsTo(settings);
+        m_removeOriginalColumns.saveSettingsTo(settings);
+        m_failOnMissingValues.saveSettingsTo(settings);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void validateSettings(final NodeSettingsRO settings) throws InvalidSettingsException {
+        m_iterations.validateSettings(settings);
+        m_removeOriginalColumns.validateSettings(settings);
+        m_failOnMissingValues.validateSettings(settings);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void loadValidatedSettingsFrom(final NodeSettingsRO settings) throws InvalidSettingsException {
+        m_iterations.loadSettingsFrom(settings);
+        m_removeOriginalColumns.loadSettingsFrom(settings);
+        m_failOnMissingValues.loadSettingsFrom(settings);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void loadInternals(final File nodeInternDir, final ExecutionMonitor exec)
+        throws IOException, CanceledExecutionException {
+        // nothing to do here
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void saveInternals(final File nodeInternDir, final ExecutionMonitor exec)
+        throws IOException, CanceledExecutionException {
+        // nothing to do here
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void reset() {
+        // nothing to do here
+    }
+
+}
@@ -46,8 +46,8 @@
  */
 package org.knime.ext.tsne.node;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.BitSet;
+import java.util.Objects;
 
 import org.knime.core.data.DataCell;
 import org.knime.core.data.DataRow;
@@ -55,75 +55,150 @@
 import org.knime.core.data.MissingValue;
 import org.knime.core.data.MissingValueException;
 import org.knime.core.data.container.CloseableRowIterator;
+import org.knime.core.data.container.filter.TableFilter;
 import org.knime.core.node.BufferedDataTable;
 import org.knime.core.node.util.CheckUtils;
 
 /**
+ * Reads the feature columns of a table into a single row-major {@code double} or, in single precision mode,
+ * {@code float} array in one pass over the table. Rows with missing values are skipped and remembered in a bitmap, so
+ * the memory consumption stays close to the size of the feature matrix.
  *
  * @author Adrian Nembach, KNIME GmbH, Konstanz, Germany
  */
 final class TsneData {
 
-    private final List<Integer> m_missingIndices = new ArrayList<>();
+    private final BitSet m_missingRows = new BitSet();
 
-    private final double[][] m_data;
+    private final double[] m_data;
+
+    private final float[] m_singlePrecisionData;
+
+    private final int[] m_featureIndices;
+
+    private final int m_numCols;
 
     private final boolean m_failOnMissingValues;
 
-    TsneData(final BufferedDataTable featureTable, final boolean failOnMissingValues) {
+    private int m_numRows;
+
+    /**
+     * @param table the input table
+     * @param featureIndices the indices of the feature columns in {@code table}
+     * @param failOnMissingValues whether to throw a {@link MissingValueException} instead of skipping rows
+     * @param singlePrecision whether to store the features in a {@code float} instead of a {@code double} array
+     */
+    TsneData(final BufferedDataTable table, final int[] featureIndices, final boolean failOnMissingValues,
+        final boolean singlePrecision) {
         m_failOnMissingValues = failOnMissingValues;
-        m_data = readIntoDoubleArray(featureTable);
+        m_featureIndices = featureIndices;
+        m_numCols = featureIndices.length;
+        CheckUtils.checkArgument(table.size() * m_numCols <= Integer.MAX_VALUE - 8,
+            "The input table is too large, t-SNE supports at most %s values (rows times columns).",
+            Integer.MAX_VALUE - 8);
+        final int length = (int)table.size() * m_numCols;
+        m_data = singlePrecision ? null : new double[length];
+        m_singlePrecisionData = singlePrecision ? new float[length] : null;
+        readIntoArray(table);
     }
 
-    double[][] getData() {
+    boolean isSinglePrecision() {
+        return m_singlePrecisionData != null;
+    }
+
+    /**
+     * @return the row-major features of the rows without missing values, only the first {@link #getNumRows()} rows
+     *         are valid; {@code null} in single precision mode
+     */
+    double[] getData() {
         return m_data;
     }
 
-    List<Integer> getMissingIndices() {
-        return m_missingIndices;
+    /**
+     * @return the row-major features of the rows without missing values, only the first {@link #getNumRows()} rows
+     *         are valid; {@code null} unless in single precision mode
+     */
+    float[] getSinglePrecisionData() {
+        return m_singlePrecisionData;
+    }
+
+    /**
+     * @param index the position in the row-major feature matrix
+     * @return the feature at {@code index}
+     */
+    double getValue(final int index) {
+        return m_data != null ? m_data[index] : m_singlePrecisionData[index];
     }
 
-    private double[][] readIntoDoubleArray(final BufferedDataTable features) {
-        final int nCols = features.getDataTableSpec().getNumColumns();
-        CheckUtils.checkArgument(features.size() <= Integer.MAX_VALUE,
-            "The input table can only have up to Integer.MAX_VALUE rows.");
-        final int nRows = (int)features.size();
-        final List<double[]> data = new ArrayList<>(nRows);
+    /**
+     * @return the number of rows without missing values
+     */
+    int getNumRows() {
+        return m_numRows;
+    }
 
-        try (final CloseableRowIterator rowIter = features.iterator()) {
+    int getNumCols() {
+        return m_numCols;
+    }
+
+    /**
+     * @return the indices of the input rows that were skipped because they contain missing values
+     */
+    BitSet getMissingRows() {
+        return m_missingRows;
+    }
+
+    /**
+     * @return a hash of the features, the skipped rows and the precision
+     */
+    long getFingerprint() {
+        long hash = 1;
+        for (int i = 0, length = m_numRows * m_numCols; i < length; i++) {
+            hash = 31 * hash + Double.doubleToLongBits(getValue(i));
+        }
+        return 31 * hash + Objects.hash(m_missingRows, m_numRows, m_numCols, isSinglePrecision());
+    }
+
+    private void readIntoArray(final BufferedDataTable table) {
+        final int nRows = (int)table.size();
+        // only the feature columns need to be materialized
+        try (final CloseableRowIterator rowIter = table.filter(TableFilter.materializeCols(m_featureIndices))
+            .iterator()) {
             for (int i = 0; i < nRows; i++) {
-                final DataRow row = rowIter.next();
-                final double[] vector = readRow(nCols, i, row);
-                if (vector != null) {
-                    data.add(vector);
+                if (readRow(i, rowIter.next())) {
+                    m_numRows++;
                 }
             }
             assert !rowIter.hasNext();
         }
-        return data.toArray(new double[data.size()][]);
     }
 
-    private double[] readRow(final int nCols, final int i, final DataRow row) {
-        final double[] vector = new double[nCols];
-        for (int j = 0; j < nCols; j++) {
-            final DataCell cell = row.getCell(j);
+    /** Writes the row to the next free position of the buffer, which is reused if the row has a missing value. */
+    private boolean readRow(final int i, final DataRow row) {
+        final int offset = m_numRows * m_numCols;
+        for (int j = 0; j < m_numCols; j++) {
+            final DataCell cell = row.getCell(m_featureIndices[j]);
             if (cell.isMissing()) {
-                handleMissingValue(row, i, j);
-                // we can't read the row so we return null to indicate that something went wrong
-                return null;
+                handleMissingValue(cell, row, i);
+                return false;
             }
             // we currently only support DoubleValues as features, hence this cast should be safe
-            vector[j] = ((DoubleValue)row.getCell(j)).getDoubleValue();
+            final double value = ((DoubleValue)cell).getDoubleValue();
+            if (m_data != null) {
+                m_data[offset + j] = value;
+            } else {
+                m_singlePrecisionData[offset + j] = (float)value;
+            }
         }
-        return vector;
+        return true;
     }
 
-    private void handleMissingValue(final DataRow row, final int rowIdx, final int colIdx) {
+    private void handleMissingValue(final DataCell cell, final DataRow row, final int rowIdx) {
         if (m_failOnMissingValues) {
-            throw new MissingValueException((MissingValue)row.getCell(colIdx), "Missing value detected in row " + row);
+            throw new MissingValueException((MissingValue)cell, "Missing value detected in row " + row);
         } else {
             // remember the missing idx
-            m_missingIndices.add(rowIdx);
+            m_missingRows.set(rowIdx);
         }
     }
 }
@@ -0,0 +1,235 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ *
+ */
+package org.knime.ext.tsne.node;
+
+import java.util.BitSet;
+
+import org.knime.core.data.DataCell;
+import org.knime.core.data.DataRow;
+import org.knime.core.data.MissingValue;
+import org.knime.core.data.MissingValueException;
+import org.knime.core.data.container.CloseableRowIterator;
+import org.knime.core.data.container.filter.TableFilter;
+import org.knime.core.data.vector.bitvector.BitVectorValue;
+import org.knime.core.data.vector.bytevector.ByteVectorValue;
+import org.knime.core.node.BufferedDataTable;
+import org.knime.core.node.util.CheckUtils;
+import org.knime.ext.tsne.algorithm.DistanceFunction;
+import org.knime.ext.tsne.algorithm.PackedBitVectors;
+import org.knime.ext.tsne.algorithm.PackedByteVectors;
+import org.knime.ext.tsne.algorithm.VectorDistance;
+
+/**
+ * The input of t-SNE given by distances instead of features: either bit or byte vectors that are compared with a
+ * {@link VectorDistance} on packed words, or a precomputed distance matrix. Rows with missing values are skipped and
+ * remembered in a bitmap, like in {@link TsneData}.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+final class TsneDistances {
+
+    private final BitSet m_missingRows;
+
+    private final DistanceFunction m_distance;
+
+    private final int m_numRows;
+
+    private final long m_fingerprint;
+
+    private TsneDistances(final BitSet missingRows, final DistanceFunction distance, final int numRows,
+        final long fingerprint) {
+        m_missingRows = missingRows;
+        m_distance = distance;
+        m_numRows = numRows;
+        m_fingerprint = fingerprint;
+    }
+
+    /**
+     * @return the distance between the rows without missing values
+     */
+    DistanceFunction getDistance() {
+        return m_distance;
+    }
+
+    /**
+     * @return the number of rows without missing values
+     */
+    int getNumRows() {
+        return m_numRows;
+    }
+
+    /**
+     * @return the indices of the input rows that were skipped because they contain missing values
+     */
+    BitSet getMissingRows() {
+        return m_missingRows;
+    }
+
+    /**
+     * @return a hash of the input distances
+     */
+    long getFingerprint() {
+        return m_fingerprint;
+    }
+
+    /**
+     * Interprets the features as a square matrix whose row and column {@code i} belong to the {@code i}-th row of
+     * the table. The columns of rows that were skipped due to missing values are ignored.
+     *
+     * @param data the features, one column per row of the table
+     * @param tableSize the number of rows of the table
+     * @return the distances between the rows of the matrix
+     * @throws IllegalArgumentException if the matrix is not square or symmetric, contains negative or infinite
+     *             distances, or has non-zero distances on its diagonal
+     */
+    static TsneDistances fromMatrix(final TsneData data, final long tableSize) {
+        final int numCols = data.getNumCols();
+        CheckUtils.checkArgument(numCols == tableSize,
+            "The distance matrix must have as many columns as the table has rows (%s) but has %s.", tableSize,
+            numCols);
+        final int numRows = data.getNumRows();
+        final BitSet missingRows = data.getMissingRows();
+        final int[] columns = new int[numRows];
+        for (int i = 0, column = missingRows.nextClearBit(0); i < numRows; i++) {
+            columns[i] = column;
+            column = missingRows.nextClearBit(column + 1);
+        }
+        long fingerprint = 1;
+        for (int i = 0; i < numRows; i++) {
+            for (int j = 0; j < numRows; j++) {
+                final double distance = data.getValue(i * numCols + columns[j]);
+                CheckUtils.checkArgument(distance >= 0 && distance < Double.POSITIVE_INFINITY,
+                    "The distance matrix contains the invalid distance %s, distances must be finite and non-negative.",
+                    distance);
+                if (i == j) {
+                    CheckUtils.checkArgument(distance == 0,
+                        "The distance matrix must have zeros on its diagonal but row %s has the distance %s to itself.",
+                        columns[i], distance);
+                } else if (j < i) {
+                    final double reverse = data.getValue(j * numCols + columns[i]);
+                    CheckUtils.checkArgument(distance == reverse,
+                        "The distance matrix must be symmetric but the distance between rows %s and %s is %s in one "
+                            + "direction and %s in the other.",
+                        columns[j], columns[i], reverse, distance);
+                }
+                fingerprint = 31 * fingerprint + Double.doubleToLongBits(distance);
+            }
+        }
+        return new TsneDistances(missingRows, (i, j) -> data.getValue(i * numCols + columns[j]), numRows,
+            fingerprint);
+    }
+
+    /**
+     * Reads a bit or byte vector column into packed vectors. Vectors of different lengths are padded with zeros.
+     *
+     * @param table the input table
+     * @param columnIndex the index of the vector column
+     * @param distance the distance between two vectors
+     * @param failOnMissingValues whether to throw a {@link MissingValueException} instead of skipping rows
+     * @return the distances between the vectors
+     */
+    static TsneDistances fromVectors(final BufferedDataTable table, final int columnIndex,
+        final VectorDistance distance, final boolean failOnMissingValues) {
+        final boolean isBitVector =
+            table.getDataTableSpec().getColumnSpec(columnIndex).getType().isCompatible(BitVectorValue.class);
+        final int size = (int)table.size();
+        // the vectors are packed into fixed-length rows, hence the longest vector is determined first
+        long length = 0;
+        try (final CloseableRowIterator rowIter = iterator(table, columnIndex)) {
+            while (rowIter.hasNext()) {
+                final DataCell cell = rowIter.next().getCell(columnIndex);
+                if (!cell.isMissing()) {
+                    length = Math.max(length,
+                        isBitVector ? ((BitVectorValue)cell).length() : ((ByteVectorValue)cell).length());
+                }
+            }
+        }
+        final BitSet missingRows = new BitSet();
+        final PackedBitVectors bitVectors = isBitVector ? new PackedBitVectors(size, length, distance) : null;
+        final PackedByteVectors byteVectors = isBitVector ? null : new PackedByteVectors(size, length, distance);
+        int numRows = 0;
+        long fingerprint = 1;
+        try (final CloseableRowIterator rowIter = iterator(table, columnIndex)) {
+            for (int i = 0; i < size; i++) {
+                final DataRow row = rowIter.next();
+                final DataCell cell = row.getCell(columnIndex);
+                if (cell.isMissing()) {
+                    if (failOnMissingValues) {
+                        throw new MissingValueException((MissingValue)cell, "Missing value detected in row " + row);
+                    }
+                    missingRows.set(i);
+                    continue;
+                }
+                if (isBitVector) {
+                    final BitVectorValue vector = (BitVectorValue)cell;
+                    for (long bit = vector.nextSetBit(0); bit >= 0; bit = vector.nextSetBit(bit + 1)) {
+                        bitVectors.set(numRows, bit);
+                        fingerprint = 31 * fingerprint + bit;
+                    }
+                } else {
+                    final ByteVectorValue vector = (ByteVectorValue)cell;
+                    for (long index = vector.nextCountIndex(0); index >= 0;
+                            index = vector.nextCountIndex(index + 1)) {
+                        final int count = vector.get(index);
+                        byteVectors.set(numRows, index, count);
+                        fingerprint = 31 * (31 * fingerprint + index) + count;
+                    }
+                }
+                // separates the vectors so that the same bits spread differently over rows hash differently
+                fingerprint = 31 * fingerprint - 1;
+                numRows++;
+            }
+        }
+        return new TsneDistances(missingRows, isBitVector ? bitVectors : byteVectors, numRows, fingerprint);
+    }
+
+    private static CloseableRowIterator iterator(final BufferedDataTable table, final int columnIndex) {
+        // only the vector column needs to be materialized
+        return table.filter(TableFilter.materializeCols(columnIndex)).iterator();
+    }
+
+}
@@ -46,15 +46,24 @@
  */
 package org.knime.ext.tsne.node;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collections;
-import java.util.Iterator;
+import java.util.BitSet;
 import java.util.List;
-import java.util.Random;
+import java.util.Objects;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
 
 import org.knime.core.data.DataCell;
 import org.knime.core.data.DataColumnSpec;
@@ -62,15 +71,23 @@
 import org.knime.core.data.DataTableSpec;
 import org.knime.core.data.DoubleValue;
 import org.knime.core.data.MissingCell;
+import org.knime.core.data.RowKey;
 import org.knime.core.data.container.AbstractCellFactory;
+import org.knime.core.data.container.CloseableRowIterator;
 import org.knime.core.data.container.ColumnRearranger;
+import org.knime.core.data.def.DefaultRow;
 import org.knime.core.data.def.DoubleCell;
+import org.knime.core.data.def.LongCell;
+import org.knime.core.data.vector.bitvector.BitVectorValue;
+import org.knime.core.data.vector.bytevector.ByteVectorValue;
+import org.knime.core.node.BufferedDataContainer;
 import org.knime.core.node.BufferedDataTable;
 import org.knime.core.node.CanceledExecutionException;
 import org.knime.core.node.ExecutionContext;
 import org.knime.core.node.ExecutionMonitor;
 import org.knime.core.node.InvalidSettingsException;
 import org.knime.core.node.KNIMEConstants;
+import org.knime.core.node.NodeLogger;
 import org.knime.core.node.NodeModel;
 import org.knime.core.node.NodeSettingsRO;
 import org.knime.core.node.NodeSettingsWO;
@@ -79,17 +96,26 @@
 import org.knime.core.node.defaultnodesettings.SettingsModelDoubleBounded;
 import org.knime.core.node.defaultnodesettings.SettingsModelIntegerBounded;
 import org.knime.core.node.defaultnodesettings.SettingsModelSeed;
+import org.knime.core.node.defaultnodesettings.SettingsModelString;
+import org.knime.core.node.port.PortObject;
+import org.knime.core.node.port.PortObjectSpec;
+import org.knime.core.node.port.PortType;
+import org.knime.core.node.port.inactive.InactiveBranchPortObject;
+import org.knime.core.node.port.inactive.InactiveBranchPortObjectSpec;
 import org.knime.core.node.util.CheckUtils;
 import org.knime.core.util.UniqueNameGenerator;
-
-import com.jujutsu.tsne.FastTSne;
-import com.jujutsu.tsne.Progress;
-import com.jujutsu.tsne.TSne;
-import com.jujutsu.tsne.TSneConfiguration;
-import com.jujutsu.tsne.barneshut.BHTSne;
-import com.jujutsu.tsne.barneshut.ParallelBHTsne;
-import com.jujutsu.tsne.barneshut.ParallelBHTsne.ThreadingExceptionHandler;
-import com.jujutsu.utils.TSneUtils;
+import org.knime.ext.tsne.algorithm.BarnesHutTsne;
+import org.knime.ext.tsne.algorithm.NeighborSearchMethod;
+import org.knime.ext.tsne.algorithm.RepulsionMethod;
+import org.knime.ext.tsne.algorithm.TsneCheckpoint;
+import org.knime.ext.tsne.algorithm.TsneEmbedding;
+import org.knime.ext.tsne.algorithm.TsneModel;
+import org.knime.ext.tsne.algorithm.TsneProgress;
+import org.knime.ext.tsne.algorithm.VectorDistance;
+import org.knime.ext.tsne.node.TsneNodeParameters.InputType;
+import org.knime.ext.tsne.node.TsneNodeParameters.RunsOutput;
+import org.knime.ext.tsne.port.TsneModelPortObject;
+import org.knime.ext.tsne.port.TsneModelPortObjectSpec;
 
 /**
  *
@@ -97,10 +123,42 @@
  */
 final class TsneNodeModel extends NodeModel {
 
-    private static final String OUTPUT_PREFIX = "t-SNE dimension ";
+    private static final NodeLogger LOGGER = NodeLogger.getLogger(TsneNodeModel.class);
+
+    static final String OUTPUT_PREFIX = "t-SNE dimension ";
+
+    private static final String CHECKPOINT_FILE = "checkpoint.bin";
+
+    private static final String ITERATIONS_VARIABLE = "tsne-iterations";
+
+    private static final String KL_DIVERGENCE_VARIABLE = "tsne-kl-divergence";
+
+    private static final String PERPLEXITY_COLUMN = "Perplexity";
+
+    private static final String SEED_COLUMN = "Seed";
 
     private static final int DATA_IN_PORT = 0;
 
+    /** The learning rate of the approximations, which is the one of the Barnes-Hut t-SNE of T-SNE-Java. */
+    private static final double LEARNING_RATE = 200;
+
+    /**
+     * The optimization schedule of the exact algorithm (theta of zero) is the one of FastTSne, the exact t-SNE of
+     * T-SNE-Java that the node used before. FastTSne divides the exaggerated similarities at the end of iteration
+     * 100, so the first 101 iterations are exaggerated.
+     */
+    private static final double EXACT_LEARNING_RATE = 500;
+
+    private static final double EXACT_EXAGGERATION = 4;
+
+    private static final int EXACT_EXAGGERATION_ITERATIONS = 101;
+
+    private static final double EXACT_INITIAL_MOMENTUM = 0.5;
+
+    private static final double EXACT_FINAL_MOMENTUM = 0.8;
+
+    private static final int EXACT_MOMENTUM_SWITCH_ITERATION = 20;
+
     // Configuration keys
     static final String CFG_THETA = "theta";
     static final String CFG_OUTPUT_DIMENSIONS = "outputDimensions";
@@ -111,6 +169,31 @@ final class TsneNodeModel extends NodeModel {
     static final String CFG_FEATURES = "features";
     static final String CFG_REMOVE_ORIGINAL_COLUMNS = "removeOriginalColumns";
     static final String CFG_FAIL_ON_MISSING_VALUES = "failOnMissingValues";
+    static final String CFG_REPULSION_METHOD = "repulsionMethod";
+    static final String CFG_NEIGHBOR_SEARCH_METHOD = "neighborSearchMethod";
+    static final String CFG_NEIGHBOR_SEARCH_ACCURACY = "neighborSearchAccuracy";
+    static final String CFG_RESUMABLE = "resumable";
+    static final String CFG_CHECKPOINT_INTERVAL = "checkpointInterval";
+    static final String CFG_EARLY_EXAGGERATION = "earlyExaggeration";
+    static final String CFG_EXAGGERATION_ITERATIONS = "exaggerationIterations";
+    static final String CFG_INITIAL_MOMENTUM = "initialMomentum";
+    static final String CFG_FINAL_MOMENTUM = "finalMomentum";
+    static final String CFG_MOMENTUM_SWITCH_ITERATION = "momentumSwitchIteration";
+    static final String CFG_EARLY_STOPPING = "earlyStopping";
+    static final String CFG_KL_TOLERANCE = "klTolerance";
+    static final String CFG_MIN_GRADIENT_NORM = "minGradientNorm";
+    static final String CFG_SINGLE_PRECISION = "singlePrecision";
+    static final String CFG_PCA_REDUCTION = "pcaReduction";
+    static final String CFG_PCA_COMPONENTS = "pcaComponents";
+    static final String CFG_PCA_INITIALIZATION = "pcaInitialization";
+    static final String CFG_INPUT_TYPE = "inputType";
+    static final String CFG_VECTOR_COLUMN = "vectorColumn";
+    static final String CFG_VECTOR_DISTANCE = "vectorDistance";
+    static final String CFG_MULTIPLE_RUNS = "multipleRuns";
+    static final String CFG_PERPLEXITIES = "perplexities";
+    static final String CFG_SEEDS = "seeds";
+    static final String CFG_RUNS_OUTPUT = "runsOutput";
+    static final String CFG_EMBEDDING_ONLY = "embeddingOnly";
 
     static final Long DEFAULT_SEED = 1764577116286L;
 
@@ -141,18 +224,118 @@ static SettingsModelIntegerBounded createNumberOfThreadsModel() {
 
     @SuppressWarnings("unchecked")
     static SettingsModelColumnFilter2 createFeaturesModel() {
-        // TODO support more data types
+        // bit and byte vectors are selected separately, see createVectorColumnModel
         return new SettingsModelColumnFilter2(CFG_FEATURES, DoubleValue.class);
     }
 
+    static SettingsModelString createInputTypeModel() {
+        return new SettingsModelString(CFG_INPUT_TYPE, InputType.COLUMNS.name());
+    }
+
+    static SettingsModelString createVectorColumnModel() {
+        return new SettingsModelString(CFG_VECTOR_COLUMN, "");
+    }
+
+    static SettingsModelString createVectorDistanceModel() {
+        return new SettingsModelString(CFG_VECTOR_DISTANCE, VectorDistance.TANIMOTO.name());
+    }
+
+    static SettingsModelBoolean createMultipleRunsModel() {
+        return new SettingsModelBoolean(CFG_MULTIPLE_RUNS, false);
+    }
+
+    static SettingsModelString createPerplexitiesModel() {
+        return new SettingsModelString(CFG_PERPLEXITIES, "5, 30, 50");
+    }
+
+    static SettingsModelString createSeedsModel() {
+        return new SettingsModelString(CFG_SEEDS, "");
+    }
+
+    static SettingsModelString createRunsOutputModel() {
+        return new SettingsModelString(CFG_RUNS_OUTPUT, RunsOutput.COLUMN_GROUPS.name());
+    }
+
     static SettingsModelBoolean createRemoveOriginalColumnsModel() {
         return new SettingsModelBoolean(CFG_REMOVE_ORIGINAL_COLUMNS, false);
     }
 
+    static SettingsModelBoolean createEmbeddingOnlyModel() {
+        return new SettingsModelBoolean(CFG_EMBEDDING_ONLY, false);
+    }
+
     static SettingsModelBoolean createFailOnMissingValuesModel() {
         return new SettingsModelBoolean(CFG_FAIL_ON_MISSING_VALUES, false);
     }
 
+    static SettingsModelString createRepulsionMethodModel() {
+        return new SettingsModelString(CFG_REPULSION_METHOD, RepulsionMethod.BARNES_HUT.name());
+    }
+
+    static SettingsModelString createNeighborSearchMethodModel() {
+        return new SettingsModelString(CFG_NEIGHBOR_SEARCH_METHOD, NeighborSearchMethod.VANTAGE_POINT_TREE.name());
+    }
+
+    static SettingsModelDoubleBounded createNeighborSearchAccuracyModel() {
+        return new SettingsModelDoubleBounded(CFG_NEIGHBOR_SEARCH_ACCURACY, 0.5, 0, 1);
+    }
+
+    static SettingsModelBoolean createResumableModel() {
+        return new SettingsModelBoolean(CFG_RESUMABLE, false);
+    }
+
+    static SettingsModelIntegerBounded createCheckpointIntervalModel() {
+        return new SettingsModelIntegerBounded(CFG_CHECKPOINT_INTERVAL, 50, 1, Integer.MAX_VALUE);
+    }
+
+    static SettingsModelDoubleBounded createEarlyExaggerationModel() {
+        return new SettingsModelDoubleBounded(CFG_EARLY_EXAGGERATION, 12, Double.MIN_VALUE, Double.MAX_VALUE);
+    }
+
+    static SettingsModelIntegerBounded createExaggerationIterationsModel() {
+        return new SettingsModelIntegerBounded(CFG_EXAGGERATION_ITERATIONS, 250, 0, Integer.MAX_VALUE);
+    }
+
+    static SettingsModelDoubleBounded createInitialMomentumModel() {
+        return new SettingsModelDoubleBounded(CFG_INITIAL_MOMENTUM, 0.5, 0, 0.99);
+    }
+
+    static SettingsModelDoubleBounded createFinalMomentumModel() {
+        return new SettingsModelDoubleBounded(CFG_FINAL_MOMENTUM, 0.8, 0, 0.99);
+    }
+
+    static SettingsModelIntegerBounded createMomentumSwitchIterationModel() {
+        return new SettingsModelIntegerBounded(CFG_MOMENTUM_SWITCH_ITERATION, 250, 0, Integer.MAX_VALUE);
+    }
+
+    static SettingsModelBoolean createEarlyStoppingModel() {
+        return new SettingsModelBoolean(CFG_EARLY_STOPPING, false);
+    }
+
+    static SettingsModelDoubleBounded createKlToleranceModel() {
+        return new SettingsModelDoubleBounded(CFG_KL_TOLERANCE, 1e-4, 0, Double.MAX_VALUE);
+    }
+
+    static SettingsModelDoubleBounded createMinGradientNormModel() {
+        return new SettingsModelDoubleBounded(CFG_MIN_GRADIENT_NORM, 1e-7, 0, Double.MAX_VALUE);
+    }
+
+    static SettingsModelBoolean createSinglePrecisionModel() {
+        return new SettingsModelBoolean(CFG_SINGLE_PRECISION, false);
+    }
+
+    static SettingsModelBoolean createPcaReductionModel() {
+        return new SettingsModelBoolean(CFG_PCA_REDUCTION, false);
+    }
+
+    static SettingsModelIntegerBounded createPcaComponentsModel() {
+        return new SettingsModelIntegerBounded(CFG_PCA_COMPONENTS, 50, 1, Integer.MAX_VALUE);
+    }
+
+    static SettingsModelBoolean createPcaInitializationModel() {
+        return new SettingsModelBoolean(CFG_PCA_INITIALIZATION, false);
+    }
+
     private final SettingsModelDoubleBounded m_theta = createThetaModel();
 
     private final SettingsModelIntegerBounded m_outputDimensions = createOutputDimensionsModel();
@@ -165,78 +348,475 @@ static SettingsModelBoolean createFailOnMissingValuesModel() {
 
     private final SettingsModelBoolean m_removeOriginalColumns = createRemoveOriginalColumnsModel();
 
+    private final SettingsModelBoolean m_embeddingOnly = createEmbeddingOnlyModel();
+
     private final SettingsModelBoolean m_failOnMissingValues = createFailOnMissingValuesModel();
 
     private final SettingsModelSeed m_seed = createSeedModel();
 
     private final SettingsModelIntegerBounded m_numThreads = createNumberOfThreadsModel();
 
-    TsneNodeModel() {
-        super(1, 1);
+    private final SettingsModelString m_repulsionMethod = createRepulsionMethodModel();
+
+    private final SettingsModelString m_neighborSearchMethod = createNeighborSearchMethodModel();
+
+    private final SettingsModelDoubleBounded m_neighborSearchAccuracy = createNeighborSearchAccuracyModel();
+
+    private final SettingsModelBoolean m_resumable = createResumableModel();
+
+    private final SettingsModelIntegerBounded m_checkpointInterval = createCheckpointIntervalModel();
+
+    private final SettingsModelDoubleBounded m_earlyExaggeration = createEarlyExaggerationModel();
+
+    private final SettingsModelIntegerBounded m_exaggerationIterations = createExaggerationIterationsModel();
+
+    private final SettingsModelDoubleBounded m_initialMomentum = createInitialMomentumModel();
+
+    private final SettingsModelDoubleBounded m_finalMomentum = createFinalMomentumModel();
+
+    private final SettingsModelIntegerBounded m_momentumSwitchIteration = createMomentumSwitchIterationModel();
+
+    private final SettingsModelBoolean m_earlyStopping = createEarlyStoppingModel();
+
+    private final SettingsModelDoubleBounded m_klTolerance = createKlToleranceModel();
+
+    private final SettingsModelDoubleBounded m_minGradientNorm = createMinGradientNormModel();
+
+    private final SettingsModelBoolean m_singlePrecision = createSinglePrecisionModel();
+
+    private final SettingsModelBoolean m_pcaReduction = createPcaReductionModel();
+
+    private final SettingsModelIntegerBounded m_pcaComponents = createPcaComponentsModel();
+
+    private final SettingsModelBoolean m_pcaInitialization = createPcaInitializationModel();
+
+    private final SettingsModelString m_inputType = createInputTypeModel();
+
+    private final SettingsModelString m_vectorColumn = createVectorColumnModel();
+
+    private final SettingsModelString m_vectorDistance = createVectorDistanceModel();
+
+    private final SettingsModelBoolean m_multipleRuns = createMultipleRunsModel();
+
+    private final SettingsModelString m_perplexities = createPerplexitiesModel();
+
+    private final SettingsModelString m_seeds = createSeedsModel();
+
+    private final SettingsModelString m_runsOutput = createRunsOutputModel();
+
+    /**
+     * The latest optimizer state of a resumable run, survives cancellation and is stored in the node internals.
+     * Written by the thread that runs the optimization.
+     */
+    private volatile TsneCheckpoint m_checkpoint;
+
+    /** Identifies the input data and settings {@link #m_checkpoint} was computed for. */
+    private long m_checkpointFingerprint;
+
+    /** {@code false} for the deprecated node, which only outputs the embedded data. */
+    private final boolean m_hasModelPort;
+
+    /**
+     * @param hasModelPort whether the node has a second output with the {@link TsneModelPortObject}
+     */
+    TsneNodeModel(final boolean hasModelPort) {
+        super(new PortType[]{BufferedDataTable.TYPE}, hasModelPort
+            ? new PortType[]{BufferedDataTable.TYPE, TsneModelPortObject.TYPE}
+            : new PortType[]{BufferedDataTable.TYPE});
+        m_hasModelPort = hasModelPort;
+    }
+
+    private PortObjectSpec[] outputSpecs(final DataTableSpec tableSpec, final PortObjectSpec modelSpec) {
+        return m_hasModelPort ? new PortObjectSpec[]{tableSpec, modelSpec} : new PortObjectSpec[]{tableSpec};
+    }
+
+    private PortObject[] outputs(final BufferedDataTable table, final PortObject model) {
+        return m_hasModelPort ? new PortObject[]{table, model} : new PortObject[]{table};
     }
 
     /**
      * {@inheritDoc}
      */
     @Override
-    protected DataTableSpec[] configure(final DataTableSpec[] inSpecs) throws InvalidSettingsException {
-        final int inputDims = m_features.applyTo(inSpecs[0]).getIncludes().length;
+    protected PortObjectSpec[] configure(final PortObjectSpec[] inSpecs) throws InvalidSettingsException {
+        final DataTableSpec tableSpec = (DataTableSpec)inSpecs[DATA_IN_PORT];
+        final InputType inputType = getInputType();
         final int outputDims = m_outputDimensions.getIntValue();
+        CheckUtils.checkSetting(getRepulsionMethod() != RepulsionMethod.INTERPOLATION || outputDims <= 2,
+            "The interpolation-based repulsion supports at most 2 output dimensions.");
+        // fails for unknown methods
+        getNeighborSearchMethod();
+        final boolean usesPca = m_pcaReduction.getBooleanValue() || m_pcaInitialization.getBooleanValue();
+        CheckUtils.checkSetting(inputType == InputType.COLUMNS || !usesPca,
+            "PCA is only available if the input are numeric columns.");
+        if (m_multipleRuns.getBooleanValue()) {
+            CheckUtils.checkSetting(getPerplexities().length > 0, "Please enter at least one perplexity.");
+            parseSeeds();
+            getRunsOutput();
+            CheckUtils.checkSetting(!m_resumable.getBooleanValue(),
+                "Checkpoints are not available for several runs.");
+        }
+        if (inputType == InputType.VECTOR) {
+            getVectorDistance();
+            final String column = m_vectorColumn.getStringValue();
+            final DataColumnSpec columnSpec = tableSpec.getColumnSpec(column);
+            CheckUtils.checkSetting(columnSpec != null, "The vector column '%s' is not contained in the input table.",
+                column);
+            CheckUtils.checkSetting(
+                columnSpec.getType().isCompatible(BitVectorValue.class)
+                    || columnSpec.getType().isCompatible(ByteVectorValue.class),
+                "The column '%s' contains neither bit nor byte vectors.", column);
+            return outputSpecs(createOutputSpec(tableSpec, new String[]{column}),
+                InactiveBranchPortObjectSpec.INSTANCE);
+        }
+        final String[] features = m_features.applyTo(tableSpec).getIncludes();
+        if (inputType == InputType.DISTANCE_MATRIX) {
+            CheckUtils.checkSetting(features.length > 0, "Please select the columns of the distance matrix.");
+            // new rows can't be placed without their distances to the reference rows
+            return outputSpecs(createOutputSpec(tableSpec, features), InactiveBranchPortObjectSpec.INSTANCE);
+        }
+        final int inputDims = features.length;
         CheckUtils.checkSetting(inputDims >= outputDims,
             "The number of output dimensions (%s) must not exceed the number of input dimensions (%s).", outputDims,
             inputDims);
-        // TODO support distance matrices
-        return new DataTableSpec[]{
-            createColumnRearranger(inSpecs[DATA_IN_PORT], Collections.emptyList(), null).createSpec()};
+        CheckUtils.checkSetting(!m_pcaReduction.getBooleanValue() || m_pcaComponents.getIntValue() >= outputDims,
+            "The number of principal components (%s) must not be smaller than the number of output dimensions (%s).",
+            m_pcaComponents.getIntValue(), outputDims);
+        // the runs share no reference data that could be stored in a single model
+        return outputSpecs(createOutputSpec(tableSpec, features), m_multipleRuns.getBooleanValue()
+            ? InactiveBranchPortObjectSpec.INSTANCE : new TsneModelPortObjectSpec(features, outputDims));
+    }
+
+    private DataTableSpec createOutputSpec(final DataTableSpec inputSpec, final String[] usedColumns)
+        throws InvalidSettingsException {
+        if (m_embeddingOnly.getBooleanValue()) {
+            return createEmbeddingOnlySpec();
+        }
+        if (!m_multipleRuns.getBooleanValue()) {
+            return createColumnRearranger(inputSpec, usedColumns, new BitSet(), null).createSpec();
+        }
+        return getRunsOutput() == RunsOutput.LONG_TABLE
+            ? createLongTableSpec(createKeptSpec(inputSpec, usedColumns))
+            : createRunsColumnRearranger(inputSpec, usedColumns, new BitSet(), null).createSpec();
+    }
+
+    /** The embedding columns without any input columns, written by the {@link EmbeddingWriter}. */
+    private DataTableSpec createEmbeddingOnlySpec() throws InvalidSettingsException {
+        final UniqueNameGenerator nameGen = new UniqueNameGenerator(new DataTableSpec());
+        if (!m_multipleRuns.getBooleanValue()) {
+            return new DataTableSpec(createSpecs(nameGen, m_outputDimensions.getIntValue()));
+        }
+        if (getRunsOutput() == RunsOutput.LONG_TABLE) {
+            return createLongTableSpec(new DataTableSpec());
+        }
+        final List<DataColumnSpec> specs = new ArrayList<>();
+        for (final DataColumnSpec[] group : createRunsSpecs(nameGen)) {
+            specs.addAll(Arrays.asList(group));
+        }
+        return new DataTableSpec(specs.toArray(DataColumnSpec[]::new));
+    }
+
+    /** The input columns that are kept in the output. */
+    private DataTableSpec createKeptSpec(final DataTableSpec inputSpec, final String[] usedColumns) {
+        final ColumnRearranger cr = new ColumnRearranger(inputSpec);
+        if (m_removeOriginalColumns.getBooleanValue()) {
+            cr.remove(usedColumns);
+        }
+        return cr.createSpec();
+    }
+
+    /** Writes the embedding either appended to the input table or, if requested, only with the row keys. */
+    private BufferedDataTable createEmbeddingTable(final BufferedDataTable table, final String[] usedColumns,
+        final BitSet missingRows, final double[] embedding, final ExecutionContext exec)
+        throws CanceledExecutionException, InvalidSettingsException, IOException {
+        if (m_embeddingOnly.getBooleanValue()) {
+            exec.setMessage("Writing the embedding");
+            return EmbeddingWriter.writeColumns(table, createEmbeddingOnlySpec(), missingRows, List.of(embedding),
+                m_outputDimensions.getIntValue(), exec);
+        }
+        final ColumnRearranger cr = createColumnRearranger(table.getDataTableSpec(), usedColumns, missingRows,
+            embedding);
+        return exec.createColumnRearrangeTable(table, cr, exec.createSilentSubProgress(0.0));
     }
 
-    private ColumnRearranger createColumnRearranger(final DataTableSpec inputSpec, final List<Integer> missingIndices,
-        final double[][] embedding) {
+    /** Appends the embedding and removes the {@code usedColumns} if the original columns should be removed. */
+    private ColumnRearranger createColumnRearranger(final DataTableSpec inputSpec, final String[] usedColumns,
+        final BitSet missingRows, final double[] embedding) {
         final ColumnRearranger cr = new ColumnRearranger(inputSpec);
         if (m_removeOriginalColumns.getBooleanValue()) {
-            cr.remove(m_features.applyTo(inputSpec).getIncludes());
+            cr.remove(usedColumns);
         }
         final UniqueNameGenerator nameGen = new UniqueNameGenerator(cr.createSpec());
-        cr.append(new EmbeddingCellFactory(embedding, createSpecs(nameGen), missingIndices));
+        cr.append(new EmbeddingCellFactory(embedding, createSpecs(nameGen, m_outputDimensions.getIntValue()),
+            missingRows));
         return cr;
     }
 
-    private DataColumnSpec[] createSpecs(final UniqueNameGenerator nameGen) {
-        final int outDims = m_outputDimensions.getIntValue();
+    /**
+     * Creates the specs of the embedding columns, shared with the t-SNE Apply node.
+     *
+     * @param nameGen ensures unique column names
+     * @param outDims the number of output dimensions
+     * @return the specs of the embedding columns
+     */
+    static DataColumnSpec[] createSpecs(final UniqueNameGenerator nameGen, final int outDims) {
+        return createSpecs(nameGen, outDims, "");
+    }
+
+    private static DataColumnSpec[] createSpecs(final UniqueNameGenerator nameGen, final int outDims,
+        final String suffix) {
         final DataColumnSpec[] specs = new DataColumnSpec[outDims];
         for (int i = 0; i < outDims; i++) {
-            specs[i] = nameGen.newColumn(OUTPUT_PREFIX + i, DoubleCell.TYPE);
+            specs[i] = nameGen.newColumn(OUTPUT_PREFIX + i + suffix, DoubleCell.TYPE);
         }
         return specs;
     }
 
+    /**
+     * Appends one group of embedding columns per run, see {@link #createRunsSpecs(UniqueNameGenerator)}. The
+     * {@code runs} are {@code null} during configure.
+     */
+    private ColumnRearranger createRunsColumnRearranger(final DataTableSpec inputSpec, final String[] usedColumns,
+        final BitSet missingRows, final List<TsneEmbedding> runs) throws InvalidSettingsException {
+        final ColumnRearranger cr = new ColumnRearranger(inputSpec);
+        if (m_removeOriginalColumns.getBooleanValue()) {
+            cr.remove(usedColumns);
+        }
+        final List<DataColumnSpec[]> groups = createRunsSpecs(new UniqueNameGenerator(cr.createSpec()));
+        for (int r = 0; r < groups.size(); r++) {
+            cr.append(new EmbeddingCellFactory(runs == null ? null : runs.get(r).getEmbedding(), groups.get(r),
+                missingRows));
+        }
+        return cr;
+    }
+
+    /**
+     * One group of embedding columns per run, which are named after the perplexity and, if seeds are listed, the
+     * seed of the run.
+     */
+    private List<DataColumnSpec[]> createRunsSpecs(final UniqueNameGenerator nameGen)
+        throws InvalidSettingsException {
+        final long[] seeds = parseSeeds();
+        final List<DataColumnSpec[]> groups = new ArrayList<>();
+        for (final double perplexity : getPerplexities()) {
+            for (int s = 0; s < Math.max(1, seeds.length); s++) {
+                final String suffix = seeds.length == 0 ? String.format(" (perplexity %s)", format(perplexity))
+                    : String.format(" (perplexity %s, seed %s)", format(perplexity), seeds[s]);
+                groups.add(createSpecs(nameGen, m_outputDimensions.getIntValue(), suffix));
+            }
+        }
+        return groups;
+    }
+
+    /** Omits the fraction digits of integral values, which are the common case for perplexities. */
+    private static String format(final double value) {
+        return value == Math.rint(value) && Math.abs(value) < Long.MAX_VALUE ? Long.toString((long)value)
+            : Double.toString(value);
+    }
+
+    /** The kept input columns followed by the perplexity, the seed and the embedding of the run. */
+    private DataTableSpec createLongTableSpec(final DataTableSpec keptSpec) {
+        final UniqueNameGenerator nameGen = new UniqueNameGenerator(keptSpec);
+        final int dims = m_outputDimensions.getIntValue();
+        final DataColumnSpec[] appended = new DataColumnSpec[2 + dims];
+        appended[0] = nameGen.newColumn(PERPLEXITY_COLUMN, DoubleCell.TYPE);
+        appended[1] = nameGen.newColumn(SEED_COLUMN, LongCell.TYPE);
+        System.arraycopy(createSpecs(nameGen, dims), 0, appended, 2, dims);
+        return new DataTableSpec(keptSpec, new DataTableSpec(appended));
+    }
+
+    /** Repeats the kept input columns of every row once per run, the row keys are suffixed by the run. */
+    private BufferedDataTable createLongTable(final BufferedDataTable table, final String[] usedColumns,
+        final BitSet missingRows, final List<TsneEmbedding> runs, final ExecutionContext exec)
+        throws CanceledExecutionException {
+        final DataTableSpec inputSpec = table.getDataTableSpec();
+        final DataTableSpec spec = createLongTableSpec(createKeptSpec(inputSpec, usedColumns));
+        final int dims = m_outputDimensions.getIntValue();
+        final int numKept = spec.getNumColumns() - 2 - dims;
+        final int[] kept = new int[numKept];
+        for (int c = 0; c < numKept; c++) {
+            kept[c] = inputSpec.findColumnIndex(spec.getColumnSpec(c).getName());
+        }
+        final DataCell missingCell = new MissingCell("Missing value in the input of t-SNE.");
+        final BufferedDataContainer container = exec.createDataContainer(spec);
+        final double numOutputRows = (double)table.size() * runs.size();
+        long outputRow = 0;
+        for (int r = 0; r < runs.size(); r++) {
+            final TsneEmbedding run = runs.get(r);
+            final double[] embedding = run.getEmbedding();
+            final DataCell perplexity = new DoubleCell(run.getPerplexity());
+            final DataCell seed = new LongCell(run.getSeed());
+            int rowIdx = 0;
+            int embeddingIdx = 0;
+            try (final CloseableRowIterator rows = table.iterator()) {
+                while (rows.hasNext()) {
+                    final DataRow row = rows.next();
+                    exec.checkCanceled();
+                    exec.setProgress(outputRow++ / numOutputRows);
+                    final DataCell[] cells = new DataCell[spec.getNumColumns()];
+                    for (int c = 0; c < numKept; c++) {
+                        cells[c] = row.getCell(kept[c]);
+                    }
+                    cells[numKept] = perplexity;
+                    cells[numKept + 1] = seed;
+                    final boolean missing = missingRows.get(rowIdx++);
+                    for (int d = 0; d < dims; d++) {
+                        cells[numKept + 2 + d] =
+                            missing ? missingCell : new DoubleCell(embedding[embeddingIdx * dims + d]);
+                    }
+                    if (!missing) {
+                        embeddingIdx++;
+                    }
+                    container.addRowToTable(new DefaultRow(new RowKey(row.getKey().getString() + "#" + r), cells));
+                }
+            }
+        }
+        container.close();
+        return container.getTable();
+    }
+
     /**
      * {@inheritDoc}
      */
     @Override
-    protected BufferedDataTable[] execute(final BufferedDataTable[] inData, final ExecutionContext exec)
-        throws Exception {
-        final BufferedDataTable table = inData[DATA_IN_PORT];
+    protected PortObject[] execute(final PortObject[] inData, final ExecutionContext exec) throws Exception {
+        final BufferedDataTable table = (BufferedDataTable)inData[DATA_IN_PORT];
         CheckUtils.checkSetting(table.size() > 2,
             "The table must have at least 2 rows in order to calculate an embedding.");
         checkPerplexity(table.size());
         final DataTableSpec tableSpec = table.getDataTableSpec();
-        final BufferedDataTable filtered = filterTable(table, exec.createSilentSubExecutionContext(0));
+        final InputType inputType = getInputType();
         try {
-            final TsneData data = new TsneData(filtered, m_failOnMissingValues.getBooleanValue());
-            final List<Integer> missingIndices = data.getMissingIndices();
-            if (!missingIndices.isEmpty()) {
-                setMissingValuesWarning(missingIndices.size());
+            if (inputType == InputType.VECTOR) {
+                final String column = m_vectorColumn.getStringValue();
+                final TsneDistances distances = TsneDistances.fromVectors(table, tableSpec.findColumnIndex(column),
+                    getVectorDistance(), m_failOnMissingValues.getBooleanValue());
+                return embedDistances(table, new String[]{column}, distances, exec);
+            }
+            final String[] features = m_features.applyTo(tableSpec).getIncludes();
+            final TsneData data = new TsneData(table, tableSpec.columnsToIndices(features),
+                m_failOnMissingValues.getBooleanValue(), m_singlePrecision.getBooleanValue());
+            if (inputType == InputType.DISTANCE_MATRIX) {
+                return embedDistances(table, features, TsneDistances.fromMatrix(data, table.size()), exec);
+            }
+            final BitSet missingRows = data.getMissingRows();
+            if (!missingRows.isEmpty()) {
+                setMissingValuesWarning(missingRows.cardinality());
+            }
+            if (m_multipleRuns.getBooleanValue()) {
+                final double[] perplexities = getPerplexities();
+                final long[] seeds = getSeeds();
+                final List<TsneEmbedding> runs = learnEmbedding(data.getNumRows(), null, exec,
+                    tsne -> data.isSinglePrecision()
+                        ? tsne.embedAll(data.getSinglePrecisionData(), data.getNumRows(), data.getNumCols(),
+                            perplexities, seeds)
+                        : tsne.embedAll(data.getData(), data.getNumRows(), data.getNumCols(), perplexities, seeds));
+                return createRunsOutput(table, features, missingRows, runs, exec);
             }
-            final double[][] embedding = learnEmbedding(data.getData(), exec);
-            final ColumnRearranger cr = createColumnRearranger(tableSpec, missingIndices, embedding);
-            return new BufferedDataTable[]{
-                exec.createColumnRearrangeTable(table, cr, exec.createSilentSubProgress(0.0))};
+            final TsneCheckpoint resumeFrom = prepareCheckpoint(data::getFingerprint);
+            final TsneModel model = learnEmbedding(data.getNumRows(), resumeFrom, exec,
+                tsne -> data.isSinglePrecision()
+                    ? tsne.fit(data.getSinglePrecisionData(), data.getNumRows(), data.getNumCols())
+                    : tsne.fit(data.getData(), data.getNumRows(), data.getNumCols()));
+            pushFlowVariableInt(ITERATIONS_VARIABLE, model.getIterations());
+            pushFlowVariableDouble(KL_DIVERGENCE_VARIABLE, model.getKlDivergence());
+            return outputs(createEmbeddingTable(table, features, missingRows, model.getEmbedding(), exec),
+                new TsneModelPortObject(new TsneModelPortObjectSpec(features, model.getOutputDimensions()), model));
         } catch (OutOfMemoryError oome) {
             throw new OutOfMemoryError("Couldn't calculate t-SNE because not enough memory is available.");
         }
     }
 
+    /** Learns the embedding of rows given by their distances, which yields no model. */
+    private PortObject[] embedDistances(final BufferedDataTable table, final String[] usedColumns,
+        final TsneDistances distances, final ExecutionContext exec) throws Exception {
+        final BitSet missingRows = distances.getMissingRows();
+        if (!missingRows.isEmpty()) {
+            setMissingValuesWarning(missingRows.cardinality());
+        }
+        if (m_multipleRuns.getBooleanValue()) {
+            final double[] perplexities = getPerplexities();
+            final long[] seeds = getSeeds();
+            final List<TsneEmbedding> runs = learnEmbedding(distances.getNumRows(), null, exec,
+                tsne -> tsne.embedAll(distances.getDistance(), distances.getNumRows(), perplexities, seeds));
+            return createRunsOutput(table, usedColumns, missingRows, runs, exec);
+        }
+        final TsneCheckpoint resumeFrom = prepareCheckpoint(
+            () -> 31 * distances.getFingerprint() + Objects.hash(missingRows, distances.getNumRows()));
+        final TsneEmbedding embedding = learnEmbedding(distances.getNumRows(), resumeFrom, exec,
+            tsne -> tsne.fit(distances.getDistance(), distances.getNumRows()));
+        pushFlowVariableInt(ITERATIONS_VARIABLE, embedding.getIterations());
+        pushFlowVariableDouble(KL_DIVERGENCE_VARIABLE, embedding.getKlDivergence());
+        return outputs(createEmbeddingTable(table, usedColumns, missingRows, embedding.getEmbedding(), exec),
+            InactiveBranchPortObject.INSTANCE);
+    }
+
+    /** The flow variables describe the first run. */
+    private PortObject[] createRunsOutput(final BufferedDataTable table, final String[] usedColumns,
+        final BitSet missingRows, final List<TsneEmbedding> runs, final ExecutionContext exec)
+        throws CanceledExecutionException, InvalidSettingsException, IOException {
+        pushFlowVariableInt(ITERATIONS_VARIABLE, runs.get(0).getIterations());
+        pushFlowVariableDouble(KL_DIVERGENCE_VARIABLE, runs.get(0).getKlDivergence());
+        if (m_embeddingOnly.getBooleanValue()) {
+            exec.setMessage("Writing the embeddings");
+            final DataTableSpec spec = createEmbeddingOnlySpec();
+            final int dims = m_outputDimensions.getIntValue();
+            final List<double[]> embeddings = new ArrayList<>(runs.size());
+            for (final TsneEmbedding run : runs) {
+                embeddings.add(run.getEmbedding());
+            }
+            return outputs(getRunsOutput() == RunsOutput.LONG_TABLE
+                ? EmbeddingWriter.writeRuns(table, spec, missingRows, runs, dims, exec)
+                : EmbeddingWriter.writeColumns(table, spec, missingRows, embeddings, dims, exec),
+                InactiveBranchPortObject.INSTANCE);
+        }
+        final BufferedDataTable output = getRunsOutput() == RunsOutput.LONG_TABLE
+            ? createLongTable(table, usedColumns, missingRows, runs, exec)
+            : exec.createColumnRearrangeTable(table,
+                createRunsColumnRearranger(table.getDataTableSpec(), usedColumns, missingRows, runs),
+                exec.createSilentSubProgress(0.0));
+        return outputs(output, InactiveBranchPortObject.INSTANCE);
+    }
+
+    /**
+     * Returns the checkpoint to resume from (if any) and discards checkpoints that were computed for different
+     * input data or settings. Must be called before the data is normalized by the embedding. The hash of the input
+     * data is only computed if checkpoints are enabled, because it reads all of the data.
+     */
+    private TsneCheckpoint prepareCheckpoint(final LongSupplier dataFingerprint) throws InvalidSettingsException {
+        if (!m_resumable.getBooleanValue()) {
+            m_checkpoint = null;
+            return null;
+        }
+        final long fingerprint = computeFingerprint(dataFingerprint.getAsLong());
+        if (m_checkpoint != null && m_checkpointFingerprint != fingerprint) {
+            LOGGER.info("The input data or settings changed since the last checkpoint, t-SNE starts from scratch.");
+            m_checkpoint = null;
+        }
+        m_checkpointFingerprint = fingerprint;
+        return m_checkpoint;
+    }
+
+    /**
+     * Combines the hash of the input data with the settings that determine the input similarities, the optimization
+     * schedule and the shape of the embedding.
+     */
+    private long computeFingerprint(final long dataFingerprint) throws InvalidSettingsException {
+        final InputType inputType = getInputType();
+        return 31 * dataFingerprint + Objects.hash(inputType.name(),
+            inputType == InputType.VECTOR ? getVectorDistance().name() : null, m_outputDimensions.getIntValue(),
+            m_perplexity.getDoubleValue(), getRepulsionMethod().name(), isExact(), getNeighborSearchMethod().name(),
+            m_neighborSearchAccuracy.getDoubleValue(), m_seed.getIsActive() ? m_seed.getLongValue() : null,
+            getLearningRate(), m_earlyExaggeration.getDoubleValue(), m_exaggerationIterations.getIntValue(),
+            m_initialMomentum.getDoubleValue(), m_finalMomentum.getDoubleValue(),
+            m_momentumSwitchIteration.getIntValue(), getPcaComponents(), m_pcaInitialization.getBooleanValue());
+    }
+
+    /** Zero if the input is not reduced. */
+    private int getPcaComponents() {
+        return m_pcaReduction.getBooleanValue() ? m_pcaComponents.getIntValue() : 0;
+    }
+
     private void setMissingValuesWarning(final int numMissingValues) {
         final StringBuilder sb = new StringBuilder();
         sb.append(numMissingValues).append(" row");
@@ -253,76 +833,169 @@ private void setMissingValuesWarning(final int numMissingValues) {
             rowSuffix, verb, personalPronoun));
     }
 
-    private BufferedDataTable filterTable(final BufferedDataTable table, final ExecutionContext exec)
-        throws CanceledExecutionException {
-        final DataTableSpec tableSpec = table.getDataTableSpec();
-        final ColumnRearranger cr = new ColumnRearranger(tableSpec);
-        cr.keepOnly(m_features.applyTo(tableSpec).getIncludes());
-        return exec.createColumnRearrangeTable(table, cr, exec);
+    private InputType getInputType() throws InvalidSettingsException {
+        final String type = m_inputType.getStringValue();
+        try {
+            return InputType.valueOf(type);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidSettingsException("Unknown input type: " + type, e);
+        }
+    }
+
+    private RunsOutput getRunsOutput() throws InvalidSettingsException {
+        final String output = m_runsOutput.getStringValue();
+        try {
+            return RunsOutput.valueOf(output);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidSettingsException("Unknown output of several runs: " + output, e);
+        }
+    }
+
+    /** The perplexities of the runs, or the single perplexity if only one run is learned. */
+    private double[] getPerplexities() throws InvalidSettingsException {
+        if (!m_multipleRuns.getBooleanValue()) {
+            return new double[]{m_perplexity.getDoubleValue()};
+        }
+        final String[] values = splitList(m_perplexities.getStringValue());
+        final double[] perplexities = new double[values.length];
+        for (int i = 0; i < values.length; i++) {
+            try {
+                perplexities[i] = Double.parseDouble(values[i]);
+            } catch (NumberFormatException e) {
+                throw new InvalidSettingsException("The perplexity '" + values[i] + "' is not a number.", e);
+            }
+            CheckUtils.checkSetting(perplexities[i] > 0, "The perplexities must be positive but one is %s.",
+                values[i]);
+        }
+        return perplexities;
+    }
+
+    /** The listed seeds of several runs, empty if all runs use the seed setting. */
+    private long[] parseSeeds() throws InvalidSettingsException {
+        final String[] values = splitList(m_seeds.getStringValue());
+        final long[] seeds = new long[values.length];
+        for (int i = 0; i < values.length; i++) {
+            try {
+                seeds[i] = Long.parseLong(values[i]);
+            } catch (NumberFormatException e) {
+                throw new InvalidSettingsException("The seed '" + values[i] + "' is not an integer.", e);
+            }
+        }
+        return seeds;
+    }
+
+    /** The listed seeds or, if there are none, the seed setting. */
+    private long[] getSeeds() throws InvalidSettingsException {
+        final long[] seeds = parseSeeds();
+        return seeds.length > 0 ? seeds : new long[]{getSeed()};
+    }
+
+    private long getSeed() {
+        return m_seed.getIsActive() ? m_seed.getLongValue() : System.currentTimeMillis();
+    }
+
+    private static String[] splitList(final String list) {
+        final String trimmed = list.trim();
+        return trimmed.isEmpty() ? new String[0] : trimmed.split("\\s*[,;]\\s*");
+    }
+
+    private VectorDistance getVectorDistance() throws InvalidSettingsException {
+        final String distance = m_vectorDistance.getStringValue();
+        try {
+            return VectorDistance.valueOf(distance);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidSettingsException("Unknown vector distance: " + distance, e);
+        }
+    }
+
+    private double getLearningRate() throws InvalidSettingsException {
+        return isExact() ? EXACT_LEARNING_RATE : LEARNING_RATE;
+    }
+
+    /** The Barnes-Hut approximation with a theta of zero is the exact algorithm, the interpolation ignores theta. */
+    private boolean isExact() throws InvalidSettingsException {
+        return getRepulsionMethod() == RepulsionMethod.BARNES_HUT && m_theta.getDoubleValue() == 0;
+    }
+
+    private RepulsionMethod getRepulsionMethod() throws InvalidSettingsException {
+        final String method = m_repulsionMethod.getStringValue();
+        try {
+            return RepulsionMethod.valueOf(method);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidSettingsException("Unknown repulsion method: " + method, e);
+        }
+    }
+
+    private NeighborSearchMethod getNeighborSearchMethod() throws InvalidSettingsException {
+        final String method = m_neighborSearchMethod.getStringValue();
+        try {
+            return NeighborSearchMethod.valueOf(method);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidSettingsException("Unknown neighbor search method: " + method, e);
+        }
     }
 
     private void checkPerplexity(final long tableSize) throws InvalidSettingsException {
-        final double perplexity = m_perplexity.getDoubleValue();
+        final double perplexity = Arrays.stream(getPerplexities()).max().orElse(0);
         final double maxPerplexity = (tableSize - 1) / 3.0;
         CheckUtils.checkSetting(perplexity <= maxPerplexity, "For your data the perplexity can be at most %s.",
             maxPerplexity);
     }
 
-    private double[][] learnEmbedding(final double[][] data, final ExecutionMonitor monitor) throws Exception {
-        final int iterations = m_iterations.getIntValue();
+    private <T> T learnEmbedding(final int numRows, final TsneCheckpoint resumeFrom, final ExecutionMonitor monitor,
+        final Function<BarnesHutTsne, T> learner) throws Exception {
         // we need to check the perplexity again because some rows might have been ignored due to missing values
-        checkPerplexity(data.length);
+        checkPerplexity(numRows);
         monitor.checkCanceled();
-        monitor.setMessage("Start learning");
-        // TSNE will reuse this matrix internally (or create it if we don't provide it)
-
-        final double theta = m_theta.getDoubleValue();
-        TSneConfiguration config = TSneUtils.buildConfig(data, m_outputDimensions.getIntValue(), data[0].length,
-            m_perplexity.getDoubleValue(), iterations, false, theta, false);
-        final KnimeProgress progress = new KnimeProgress(monitor);
-        config.setRandom(new Random(m_seed.getIsActive() ? m_seed.getLongValue() : System.currentTimeMillis()));
-        final TSne tsne;
-
-        if (theta == 0) {
-            tsne = new FastTSne(progress);
+        monitor.setMessage(
+            resumeFrom == null ? "Start learning" : ("Resuming from iteration " + resumeFrom.getIteration()));
+        final BarnesHutTsne.Builder builder = BarnesHutTsne.builder()//
+            .outputDimensions(m_outputDimensions.getIntValue())//
+            .perplexity(m_perplexity.getDoubleValue())//
+            .iterations(m_iterations.getIntValue())//
+            .theta(m_theta.getDoubleValue())//
+            .repulsionMethod(getRepulsionMethod())//
+            .neighborSearchMethod(getNeighborSearchMethod())//
+            .neighborSearchAccuracy(m_neighborSearchAccuracy.getDoubleValue())//
+            .seed(getSeed())//
+            .numberOfThreads(m_numThreads.getIntValue())//
+            .executor(KNIMEConstants.GLOBAL_THREAD_POOL.createSubPool(m_numThreads.getIntValue())::enqueue)//
+            .progress(new KnimeProgress(monitor))//
+            .learningRate(getLearningRate())//
+            .pcaComponents(getPcaComponents())//
+            .pcaInitialization(m_pcaInitialization.getBooleanValue())//
+            .resumeFrom(resumeFrom);
+        if (isExact()) {
+            builder.earlyExaggeration(EXACT_EXAGGERATION, EXACT_EXAGGERATION_ITERATIONS)//
+                .momentum(EXACT_INITIAL_MOMENTUM, EXACT_FINAL_MOMENTUM, EXACT_MOMENTUM_SWITCH_ITERATION);
         } else {
-            final int numThreads = m_numThreads.getIntValue();
-            tsne = numThreads == 1 ? new BHTSne(progress)
-                : new ParallelBHTsne(progress, numThreads, KnimeThreadingExceptionHandler.INSTANCE);
+            builder.earlyExaggeration(m_earlyExaggeration.getDoubleValue(), m_exaggerationIterations.getIntValue())//
+                .momentum(m_initialMomentum.getDoubleValue(), m_finalMomentum.getDoubleValue(),
+                    m_momentumSwitchIteration.getIntValue());
+        }
+        if (m_earlyStopping.getBooleanValue()) {
+            builder.stoppingCriteria(m_klTolerance.getDoubleValue(), m_minGradientNorm.getDoubleValue());
         }
-        Future<double[][]> tsneFuture = KNIMEConstants.GLOBAL_THREAD_POOL.enqueue(() -> tsne.tsne(config));
+        if (m_resumable.getBooleanValue()) {
+            builder.checkpoints(m_checkpointInterval.getIntValue(), checkpoint -> m_checkpoint = checkpoint);
+        }
+        final BarnesHutTsne tsne = builder.build();
+        final Future<T> tsneFuture = KNIMEConstants.GLOBAL_THREAD_POOL.enqueue(() -> learner.apply(tsne));
 
         try {
             return tsneFuture.get();
         } catch (InterruptedException e) {
             tsne.abort();
             throw new CanceledExecutionException();
-        }
-    }
-
-    private enum KnimeThreadingExceptionHandler implements ThreadingExceptionHandler {
-            INSTANCE;
-        @Override
-        public void handleInterruptedException(final InterruptedException exception, final List<Future<Double>> futures) {
-            if (futures != null) {
-                futures.stream().filter(f -> !f.isDone()).forEach(f -> f.cancel(true));
-            }
-        }
-
-        @Override
-        public void handleExecutionException(final ExecutionException exception, final List<Future<Double>> futures) {
-            handleAnyException(exception, futures);
-        }
-
-        private static void handleAnyException(final Exception exception, final List<Future<Double>> futures) {
-            if (futures != null) {
-                futures.stream().filter(f -> !f.isDone()).forEach(f -> f.cancel(true));
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof CancellationException) {
+                throw new CanceledExecutionException();
             }
-            throw new IllegalStateException("Calculation could not be completed", exception);
+            throw e;
         }
     }
 
-    private static class KnimeProgress implements Progress {
+    private static class KnimeProgress implements TsneProgress {
 
         private final ExecutionMonitor m_monitor;
 
@@ -331,13 +1004,23 @@ private static class KnimeProgress implements Progress {
         }
 
         @Override
-        public void setProgress(final double arg0) {
-            m_monitor.setProgress(arg0);
+        public void setProgress(final double progress) {
+            m_monitor.setProgress(progress);
+        }
+
+        @Override
+        public void setMessage(final String message) {
+            m_monitor.setMessage(message);
         }
 
         @Override
-        public void log(final String arg0, final Object... arg1) {
-            m_monitor.setMessage(String.format(arg0.replaceAll("\n", " "), arg1));
+        public boolean isCanceled() {
+            try {
+                m_monitor.checkCanceled();
+                return false;
+            } catch (CanceledExecutionException e) {
+                return true;
+            }
         }
 
     }
@@ -348,8 +1031,14 @@ public void log(final String arg0, final Object... arg1) {
     @Override
     protected void loadInternals(final File nodeInternDir, final ExecutionMonitor exec)
         throws IOException, CanceledExecutionException {
-        // nothing to load
-
+        final File file = new File(nodeInternDir, CHECKPOINT_FILE);
+        if (file.exists()) {
+            try (final DataInputStream in =
+                new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+                m_checkpointFingerprint = in.readLong();
+                m_checkpoint = TsneCheckpoint.load(in);
+            }
+        }
     }
 
     /**
@@ -358,7 +1047,14 @@ protected void loadInternals(final File nodeInternDir, final ExecutionMonitor ex
     @Override
     protected void saveInternals(final File nodeInternDir, final ExecutionMonitor exec)
         throws IOException, CanceledExecutionException {
-        // nothing to load
+        final TsneCheckpoint checkpoint = m_checkpoint;
+        if (checkpoint != null) {
+            try (final DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(new File(nodeInternDir, CHECKPOINT_FILE))))) {
+                out.writeLong(m_checkpointFingerprint);
+                checkpoint.save(out);
+            }
+        }
     }
 
     /**
@@ -372,9 +1068,34 @@ protected void saveSettingsTo(final NodeSettingsWO settings) {
         m_outputDimensions.saveSettingsTo(settings);
         m_features.saveSettingsTo(settings);
         m_removeOriginalColumns.saveSettingsTo(settings);
+        m_embeddingOnly.saveSettingsTo(settings);
         m_failOnMissingValues.saveSettingsTo(settings);
         m_seed.saveSettingsTo(settings);
         m_numThreads.saveSettingsTo(settings);
+        m_repulsionMethod.saveSettingsTo(settings);
+        m_neighborSearchMethod.saveSettingsTo(settings);
+        m_neighborSearchAccuracy.saveSettingsTo(settings);
+        m_resumable.saveSettingsTo(settings);
+        m_checkpointInterval.saveSettingsTo(settings);
+        m_earlyExaggeration.saveSettingsTo(settings);
+        m_exaggerationIterations.saveSettingsTo(settings);
+        m_initialMomentum.saveSettingsTo(settings);
+        m_finalMomentum.saveSettingsTo(settings);
+        m_momentumSwitchIteration.saveSettingsTo(settings);
+        m_earlyStopping.saveSettingsTo(settings);
+        m_klTolerance.saveSettingsTo(settings);
+        m_minGradientNorm.saveSettingsTo(settings);
+        m_singlePrecision.saveSettingsTo(settings);
+        m_pcaReduction.saveSettingsTo(settings);
+        m_pcaComponents.saveSettingsTo(settings);
+        m_pcaInitialization.saveSettingsTo(settings);
+        m_inputType.saveSettingsTo(settings);
+        m_vectorColumn.saveSettingsTo(settings);
+        m_vectorDistance.saveSettingsTo(settings);
+        m_multipleRuns.saveSettingsTo(settings);
+        m_perplexities.saveSettingsTo(settings);
+        m_seeds.saveSettingsTo(settings);
+        m_runsOutput.saveSettingsTo(settings);
     }
 
     /**
@@ -391,6 +1112,61 @@ protected void validateSettings(final NodeSettingsRO settings) throws InvalidSet
         m_failOnMissingValues.validateSettings(settings);
         m_seed.validateSettings(settings);
         m_numThreads.validateSettings(settings);
+        // added in 5.11, older workflows use the Barnes-Hut approximation
+        if (settings.containsKey(CFG_REPULSION_METHOD)) {
+            m_repulsionMethod.validateSettings(settings);
+        }
+        // added in 5.11, older workflows use the exact neighbor search
+        if (settings.containsKey(CFG_NEIGHBOR_SEARCH_METHOD)) {
+            m_neighborSearchMethod.validateSettings(settings);
+            m_neighborSearchAccuracy.validateSettings(settings);
+        }
+        // added in 5.11, older workflows always start from scratch
+        if (settings.containsKey(CFG_RESUMABLE)) {
+            m_resumable.validateSettings(settings);
+            m_checkpointInterval.validateSettings(settings);
+        }
+        // added in 5.11, older workflows use the fixed schedule of the reference implementation
+        if (settings.containsKey(CFG_EARLY_EXAGGERATION)) {
+            m_earlyExaggeration.validateSettings(settings);
+            m_exaggerationIterations.validateSettings(settings);
+            m_initialMomentum.validateSettings(settings);
+            m_finalMomentum.validateSettings(settings);
+            m_momentumSwitchIteration.validateSettings(settings);
+        }
+        // added in 5.11, older workflows always run all iterations
+        if (settings.containsKey(CFG_EARLY_STOPPING)) {
+            m_earlyStopping.validateSettings(settings);
+            m_klTolerance.validateSettings(settings);
+            m_minGradientNorm.validateSettings(settings);
+        }
+        // added in 5.11, older workflows compute in double precision
+        if (settings.containsKey(CFG_SINGLE_PRECISION)) {
+            m_singlePrecision.validateSettings(settings);
+        }
+        // added in 5.11, older workflows use the full input and a random initialization
+        if (settings.containsKey(CFG_PCA_REDUCTION)) {
+            m_pcaReduction.validateSettings(settings);
+            m_pcaComponents.validateSettings(settings);
+            m_pcaInitialization.validateSettings(settings);
+        }
+        // added in 5.11, older workflows embed numeric columns
+        if (settings.containsKey(CFG_INPUT_TYPE)) {
+            m_inputType.validateSettings(settings);
+            m_vectorColumn.validateSettings(settings);
+            m_vectorDistance.validateSettings(settings);
+        }
+        // added in 5.11, older workflows learn a single embedding
+        if (settings.containsKey(CFG_MULTIPLE_RUNS)) {
+            m_multipleRuns.validateSettings(settings);
+            m_perplexities.validateSettings(settings);
+            m_seeds.validateSettings(settings);
+            m_runsOutput.validateSettings(settings);
+        }
+        // added in 5.11, older workflows append the embedding to the input table
+        if (settings.containsKey(CFG_EMBEDDING_ONLY)) {
+            m_embeddingOnly.validateSettings(settings);
+        }
     }
 
     /**
@@ -407,6 +1183,51 @@ protected void loadValidatedSettingsFrom(final NodeSettingsRO settings) throws I
         m_failOnMissingValues.loadSettingsFrom(settings);
         m_seed.loadSettingsFrom(settings);
         m_numThreads.loadSettingsFrom(settings);
+        if (settings.containsKey(CFG_REPULSION_METHOD)) {
+            m_repulsionMethod.loadSettingsFrom(settings);
+        }
+        if (settings.containsKey(CFG_NEIGHBOR_SEARCH_METHOD)) {
+            m_neighborSearchMethod.loadSettingsFrom(settings);
+            m_neighborSearchAccuracy.loadSettingsFrom(settings);
+        }
+        if (settings.containsKey(CFG_RESUMABLE)) {
+            m_resumable.loadSettingsFrom(settings);
+            m_checkpointInterval.loadSettingsFrom(settings);
+        }
+        if (settings.containsKey(CFG_EARLY_EXAGGERATION)) {
+            m_earlyExaggeration.loadSettingsFrom(settings);
+            m_exaggerationIterations.loadSettingsFrom(settings);
+            m_initialMomentum.loadSettingsFrom(settings);
+            m_finalMomentum.loadSettingsFrom(settings);
+            m_momentumSwitchIteration.loadSettingsFrom(settings);
+        }
+        if (settings.containsKey(CFG_EARLY_STOPPING)) {
+            m_earlyStopping.loadSettingsFrom(settings);
+            m_klTolerance.loadSettingsFrom(settings);
+            m_minGradientNorm.loadSettingsFrom(settings);
+        }
+        if (settings.containsKey(CFG_SINGLE_PRECISION)) {
+            m_singlePrecision.loadSettingsFrom(settings);
+        }
+        if (settings.containsKey(CFG_PCA_REDUCTION)) {
+            m_pcaReduction.loadSettingsFrom(settings);
+            m_pcaComponents.loadSettingsFrom(settings);
+            m_pcaInitialization.loadSettingsFrom(settings);
+        }
+        if (settings.containsKey(CFG_INPUT_TYPE)) {
+            m_inputType.loadSettingsFrom(settings);
+            m_vectorColumn.loadSettingsFrom(settings);
+            m_vectorDistance.loadSettingsFrom(settings);
+        }
+        if (settings.containsKey(CFG_MULTIPLE_RUNS)) {
+            m_multipleRuns.loadSettingsFrom(settings);
+            m_perplexities.loadSettingsFrom(settings);
+            m_seeds.loadSettingsFrom(settings);
+            m_runsOutput.loadSettingsFrom(settings);
+        }
+        if (settings.containsKey(CFG_EMBEDDING_ONLY)) {
+            m_embeddingOnly.loadSettingsFrom(settings);
+        }
     }
 
     /**
@@ -414,35 +1235,35 @@ protected void loadValidatedSettingsFrom(final NodeSettingsRO settings) throws I
      */
     @Override
     protected void reset() {
-        // nothing to reset
+        // a resumable run keeps its checkpoint across resets (e.g. after cancellation), the fingerprint guards
+        // against resuming with different input data or settings
+        if (!m_resumable.getBooleanValue()) {
+            m_checkpoint = null;
+        }
     }
 
     private static class EmbeddingCellFactory extends AbstractCellFactory {
 
-        private final double[][] m_embedding;
+        private final double[] m_embedding;
 
         private final int m_nCols;
 
         private final DataCell[] m_missingCells;
 
-        private final Iterator<Integer> m_missingIterator;
-
-        private int m_nextMissingIdx;
+        private final BitSet m_missingRows;
 
         private int m_embeddingIdx = 0;
 
         private int m_rowIdx = -1;
 
-        EmbeddingCellFactory(final double[][] embedding, final DataColumnSpec[] specs,
-            final Iterable<Integer> missings) {
+        EmbeddingCellFactory(final double[] embedding, final DataColumnSpec[] specs, final BitSet missingRows) {
             super(false, specs);
             m_embedding = embedding;
             m_nCols = specs.length;
             final MissingCell missingCell = new MissingCell("Missing value in the input of t-SNE.");
             m_missingCells = new DataCell[m_nCols];
             Arrays.fill(m_missingCells, missingCell);
-            m_missingIterator = missings.iterator();
-            advanceMissingPointer();
+            m_missingRows = missingRows;
         }
 
         /**
@@ -451,22 +1272,18 @@ private static class EmbeddingCellFactory extends AbstractCellFactory {
         @Override
         public DataCell[] getCells(final DataRow row) {
             m_rowIdx++;
-            if (m_rowIdx == m_nextMissingIdx) {
-                advanceMissingPointer();
+            if (m_missingRows.get(m_rowIdx)) {
                 return m_missingCells;
             }
             final DataCell[] cells = new DataCell[m_nCols];
+            final int offset = m_embeddingIdx * m_nCols;
             for (int i = 0; i < m_nCols; i++) {
-                cells[i] = new DoubleCell(m_embedding[m_embeddingIdx][i]);
+                cells[i] = new DoubleCell(m_embedding[offset + i]);
             }
             m_embeddingIdx++;
             return cells;
         }
 
-        private void advanceMissingPointer() {
-            m_nextMissingIdx = m_missingIterator.hasNext() ? m_missingIterator.next() : -1;
-        }
-
     }
 
 }
@@ -46,8 +46,11 @@
 
 package org.knime.ext.tsne.node;
 
+import java.util.List;
 import java.util.function.Supplier;
 
+import org.knime.core.data.vector.bitvector.BitVectorValue;
+import org.knime.core.data.vector.bytevector.ByteVectorValue;
 import org.knime.core.webui.node.dialog.defaultdialog.internal.button.SimpleButtonWidget;
 import org.knime.core.webui.node.dialog.defaultdialog.internal.widget.TypedStringFilterWidgetInternal;
 import org.knime.core.webui.node.dialog.defaultdialog.util.updates.StateComputationFailureException;
@@ -70,11 +73,15 @@
 import org.knime.node.parameters.updates.ValueReference;
 import org.knime.node.parameters.updates.util.BooleanReference;
 import org.knime.node.parameters.widget.choices.ChoicesProvider;
+import org.knime.node.parameters.widget.choices.Label;
+import org.knime.node.parameters.widget.choices.ValueSwitchWidget;
 import org.knime.node.parameters.widget.choices.filter.ColumnFilter;
 import org.knime.node.parameters.widget.choices.util.ColumnSelectionUtil;
+import org.knime.node.parameters.widget.choices.util.CompatibleColumnsProvider;
 import org.knime.node.parameters.widget.choices.util.CompatibleColumnsProvider.DoubleColumnsProvider;
 import org.knime.node.parameters.widget.number.NumberInputWidget;
 import org.knime.node.parameters.widget.number.NumberInputWidgetValidation.MaxValidation;
+import org.knime.node.parameters.widget.number.NumberInputWidgetValidation.MinValidation.IsNonNegativeValidation;
 import org.knime.node.parameters.widget.number.NumberInputWidgetValidation.MinValidation.IsPositiveDoubleValidation;
 import org.knime.node.parameters.widget.number.NumberInputWidgetValidation.MinValidation.IsPositiveIntegerValidation;
 import org.knime.node.parameters.widget.text.TextInputWidget;
@@ -89,16 +96,46 @@
 @SuppressWarnings("restriction")
 final class TsneNodeParameters implements NodeParameters {
 
+    @Persist(configKey = TsneNodeModel.CFG_INPUT_TYPE)
+    @Widget(title = "Input", description = """
+            How the rows that are embedded are given. Only numeric columns yield a t-SNE model for the
+            t-SNE Apply node, because new rows can't be placed into the embedding without features.
+            PCA is only available for numeric columns.
+            """)
+    @ValueSwitchWidget
+    @ValueReference(InputTypeRef.class)
+    InputType m_inputType = InputType.COLUMNS;
+
     @Persistor(FeaturesPersistor.class)
     @Widget(title = "Columns", description = """
-            Select the columns that are included by t-SNE i.e. the original features. Note that currently
-            only numerical columns are supported.
+            Select the columns that are included by t-SNE i.e. the original features. For a distance matrix,
+            select one column per row of the table, where the i-th selected column holds the distances to the
+            i-th row.
             """)
     @ChoicesProvider(DoubleColumnsProvider.class)
     @TypedStringFilterWidgetInternal(hideTypeFilter = true)
     @ValueReference(FeaturesRef.class)
+    @Effect(predicate = UsesColumns.class, type = EffectType.SHOW)
     ColumnFilter m_features = new ColumnFilter();
 
+    @Persist(configKey = TsneNodeModel.CFG_VECTOR_COLUMN)
+    @Widget(title = "Vector column", description = """
+            The bit or byte vector column, e.g. molecular fingerprints. Vectors of different lengths are
+            padded with zeros.
+            """)
+    @ChoicesProvider(VectorColumnsProvider.class)
+    @Effect(predicate = UsesVectors.class, type = EffectType.SHOW)
+    String m_vectorColumn = "";
+
+    @Persist(configKey = TsneNodeModel.CFG_VECTOR_DISTANCE)
+    @Widget(title = "Vector distance", description = """
+            The distance between two vectors. It is computed on whole words of the packed vectors, which is
+            much cheaper than expanding the vectors into numeric columns.
+            """)
+    @ValueSwitchWidget
+    @Effect(predicate = UsesVectors.class, type = EffectType.SHOW)
+    VectorDistance m_vectorDistance = VectorDistance.TANIMOTO;
+
     @Persist(configKey = TsneNodeModel.CFG_OUTPUT_DIMENSIONS)
     @Widget(title = "Dimension(s) to reduce to", description = """
             The number of dimension of the target embedding (for visualization typically 2 or 3).
@@ -115,12 +152,92 @@ The number of dimension of the target embedding (for visualization typically 2 o
     @NumberInputWidget(minValidation = IsPositiveIntegerValidation.class)
     int m_iterations = 1000;
 
+    @Persist(configKey = TsneNodeModel.CFG_EARLY_EXAGGERATION)
+    @Widget(title = "Early exaggeration", description = """
+            The factor by which the input similarities are multiplied during the first iterations. A strong
+            exaggeration forms tight, well separated clusters early on, which the remaining iterations then
+            arrange.
+            """)
+    @NumberInputWidget(minValidation = IsPositiveDoubleValidation.class)
+    double m_earlyExaggeration = 12.0;
+
+    @Persist(configKey = TsneNodeModel.CFG_EXAGGERATION_ITERATIONS)
+    @Widget(title = "Exaggeration iterations", description = """
+            The number of iterations at the beginning of the optimization during which the early
+            exaggeration is applied.
+            """)
+    @NumberInputWidget(minValidation = IsNonNegativeValidation.class)
+    int m_exaggerationIterations = 250;
+
+    @Persist(configKey = TsneNodeModel.CFG_INITIAL_MOMENTUM)
+    @Widget(title = "Initial momentum", description = """
+            The momentum of the gradient descent before the momentum switch iteration.
+            """)
+    @NumberInputWidget(minValidation = IsNonNegativeValidation.class, maxValidation = IsValidMomentum.class)
+    double m_initialMomentum = 0.5;
+
+    @Persist(configKey = TsneNodeModel.CFG_FINAL_MOMENTUM)
+    @Widget(title = "Final momentum", description = """
+            The momentum of the gradient descent from the momentum switch iteration on.
+            """)
+    @NumberInputWidget(minValidation = IsNonNegativeValidation.class, maxValidation = IsValidMomentum.class)
+    double m_finalMomentum = 0.8;
+
+    @Persist(configKey = TsneNodeModel.CFG_MOMENTUM_SWITCH_ITERATION)
+    @Widget(title = "Momentum switch iteration", description = """
+            The iteration at which the gradient descent switches from the initial to the final momentum.
+            """)
+    @NumberInputWidget(minValidation = IsNonNegativeValidation.class)
+    int m_momentumSwitchIteration = 250;
+
+    @Persist(configKey = TsneNodeModel.CFG_EARLY_STOPPING)
+    @Widget(title = "Stop early on convergence", description = """
+            If enabled, the optimization stops before the configured number of iterations once it has
+            converged. After the early exaggeration phase, the Kullback-Leibler divergence is evaluated
+            every 50 iterations. The number of iterations that were actually performed and the final
+            divergence are available as the flow variables <i>tsne-iterations</i> and
+            <i>tsne-kl-divergence</i>.
+            """)
+    @ValueReference(EarlyStoppingRef.class)
+    boolean m_earlyStopping;
+
+    @Persist(configKey = TsneNodeModel.CFG_KL_TOLERANCE)
+    @Widget(title = "Divergence tolerance", description = """
+            The optimization stops if the Kullback-Leibler divergence decreased by less than this fraction
+            since the previous evaluation.
+            """)
+    @NumberInputWidget(minValidation = IsNonNegativeValidation.class)
+    @Effect(predicate = EarlyStoppingPredicate.class, type = EffectType.SHOW)
+    double m_klTolerance = 1e-4;
+
+    @Persist(configKey = TsneNodeModel.CFG_MIN_GRADIENT_NORM)
+    @Widget(title = "Minimum gradient norm", description = """
+            The optimization stops if the norm of the gradient falls below this value.
+            """)
+    @NumberInputWidget(minValidation = IsNonNegativeValidation.class)
+    @Effect(predicate = EarlyStoppingPredicate.class, type = EffectType.SHOW)
+    double m_minGradientNorm = 1e-7;
+
+    @Persist(configKey = TsneNodeModel.CFG_REPULSION_METHOD)
+    @Widget(title = "Repulsion approximation", description = """
+            The approximation of the repulsive forces between all pairs of points, which dominates the
+            runtime of each iteration.
+            """)
+    @ValueSwitchWidget
+    @ValueReference(RepulsionMethodRef.class)
+    RepulsionMethod m_repulsionMethod = RepulsionMethod.BARNES_HUT;
+
     @Persist(configKey = TsneNodeModel.CFG_THETA)
+    @Effect(predicate = IsBarnesHut.class, type = EffectType.SHOW)
     @Widget(title = "Theta", description = """
             Controls the tradeoff between runtime and accuracy of the Barnes-Hut approximation algorithm for
             t-SNE. Lower values result in a more accurate approximation at the cost of higher runtimes and
             memory demands. A theta of zero results in the originally proposed t-SNE algorithm. However, for
             most datasets a theta of 0.5 does not result in a perceivable loss of quality.
+            The exact algorithm keeps the similarities of all pairs of rows in memory and supports at most
+            46,340 rows. It uses the optimization schedule of earlier versions of this node instead of the
+            exaggeration and momentum settings: a learning rate of 500, an early exaggeration of 4 up to
+            iteration 100 and a momentum that switches from 0.5 to 0.8 at iteration 20.
             """)
     @NumberInputWidget(minValidation = IsPositiveDoubleValidation.class)
     double m_theta = 0.5;
@@ -133,13 +250,93 @@ The number of dimension of the target embedding (for visualization typically 2 o
             less than or equal to (Number of rows - 1) / 3.
             """)
     @NumberInputWidget(minValidation = IsPositiveDoubleValidation.class)
+    @Effect(predicate = MultipleRunsPredicate.class, type = EffectType.HIDE)
     double m_perplexity = 30.0;
 
+    @Persist(configKey = TsneNodeModel.CFG_MULTIPLE_RUNS)
+    @Widget(title = "Compare several perplexities and seeds", description = """
+            If enabled, one embedding is learned for every combination of the listed perplexities and seeds,
+            e.g. to choose the perplexity. The nearest neighbors are searched only once, for the largest
+            perplexity, and the runs are optimized concurrently on the available threads. Checkpoints and the
+            t-SNE model are not available for several runs, the flow variables describe the first run.
+            """)
+    @ValueReference(MultipleRunsRef.class)
+    boolean m_multipleRuns;
+
+    @Persist(configKey = TsneNodeModel.CFG_PERPLEXITIES)
+    @Widget(title = "Perplexities", description = """
+            The comma-separated perplexities of the runs, which replace the single perplexity.
+            """)
+    @Effect(predicate = MultipleRunsPredicate.class, type = EffectType.SHOW)
+    String m_perplexities = "5, 30, 50";
+
+    @Persist(configKey = TsneNodeModel.CFG_SEEDS)
+    @Widget(title = "Seeds", description = """
+            The comma-separated seeds of the initial embeddings of the runs. If empty, every perplexity is run
+            once with the seed setting.
+            """)
+    @Effect(predicate = MultipleRunsPredicate.class, type = EffectType.SHOW)
+    String m_seeds = "";
+
+    @Persist(configKey = TsneNodeModel.CFG_RUNS_OUTPUT)
+    @Widget(title = "Output of several runs", description = """
+            How the embeddings of the runs are output.
+            """)
+    @ValueSwitchWidget
+    @Effect(predicate = MultipleRunsPredicate.class, type = EffectType.SHOW)
+    RunsOutput m_runsOutput = RunsOutput.COLUMN_GROUPS;
+
+    @Persist(configKey = TsneNodeModel.CFG_NEIGHBOR_SEARCH_METHOD)
+    @Widget(title = "Neighbor search", description = """
+            The search for the 3 * perplexity nearest neighbors of each row that define the input
+            similarities. For large or high-dimensional tables, the exact search dominates the runtime and an
+            approximate search is considerably faster. The exact t-SNE algorithm (theta of zero) compares all
+            pairs of rows and does not use this setting.
+            """)
+    @ValueSwitchWidget
+    @ValueReference(NeighborSearchMethodRef.class)
+    NeighborSearchMethod m_neighborSearchMethod = NeighborSearchMethod.VANTAGE_POINT_TREE;
+
+    @Persist(configKey = TsneNodeModel.CFG_NEIGHBOR_SEARCH_ACCURACY)
+    @Effect(predicate = IsApproximateNeighborSearch.class, type = EffectType.SHOW)
+    @Widget(title = "Neighbor search accuracy", description = """
+            Controls the tradeoff between recall and runtime of the approximate neighbor search. Values
+            range from 0 (fastest) to 1 (finds the largest share of the true nearest neighbors).
+            """)
+    @NumberInputWidget(minValidation = IsNonNegativeValidation.class, maxValidation = IsAtMostOne.class)
+    double m_neighborSearchAccuracy = 0.5;
+
+    @Persist(configKey = TsneNodeModel.CFG_PCA_REDUCTION)
+    @Widget(title = "Reduce dimensionality with PCA", description = """
+            If enabled, the input is projected onto its leading principal components before the input
+            similarities are computed. For wide tables this considerably speeds up the neighbor search and
+            reduces noise. The components are computed by a randomized singular value decomposition and the
+            projection is stored in the model, so the t-SNE Apply node reduces new rows in the same way.
+            """)
+    @ValueReference(PcaReductionRef.class)
+    boolean m_pcaReduction;
+
+    @Persist(configKey = TsneNodeModel.CFG_PCA_COMPONENTS)
+    @Widget(title = "Number of principal components", description = """
+            The number of principal components the input is reduced to. It must not be smaller than the
+            number of output dimensions. If the input has at most this many columns, it is not reduced.
+            """)
+    @NumberInputWidget(minValidation = IsPositiveIntegerValidation.class)
+    @Effect(predicate = PcaReductionPredicate.class, type = EffectType.SHOW)
+    int m_pcaComponents = 50;
+
+    @Persist(configKey = TsneNodeModel.CFG_PCA_INITIALIZATION)
+    @Widget(title = "Initialize with PCA", description = """
+            If enabled, the optimization starts from the leading principal components of the input instead
+            of random points. This preserves more of the global structure of the data and makes the result
+            less dependent on the seed.
+            """)
+    boolean m_pcaInitialization;
+
     @Persist(configKey = TsneNodeModel.CFG_NUMBER_OF_THREADS)
     @Widget(title = "Number of threads", description = """
             Number of threads used for parallel computation. The default is set to the number of cores your
-            computer has and usually doesn't require tuning. Note that no parallelization is used if theta is
-            zero because the exact t-SNE algorithm isn't parallelizable.
+            computer has and usually doesn't require tuning.
             """)
     @NumberInputWidget(minValidation = IsPositiveIntegerValidation.class)
     int m_numberOfThreads = getDefaultNumberOfThreads();
@@ -149,12 +346,50 @@ static int getDefaultNumberOfThreads() {
         return Runtime.getRuntime().availableProcessors();
     }
 
+    @Persist(configKey = TsneNodeModel.CFG_SINGLE_PRECISION)
+    @Widget(title = "Single precision", description = """
+            If enabled, the input data and the input similarities are stored in single instead of double
+            precision, which roughly halves the memory consumption for large tables. The embedding differs
+            from the one computed in double precision only by rounding effects, which the optimization may
+            amplify to a visually different but equally good embedding.
+            """)
+    boolean m_singlePrecision;
+
+    @Persist(configKey = TsneNodeModel.CFG_RESUMABLE)
+    @Widget(title = "Resume from checkpoint", description = """
+            If enabled, the state of the optimization is checkpointed regularly, and an execution continues
+            from the last checkpoint instead of starting over, e.g. after the node was cancelled or when the
+            number of iterations is increased after a finished run. Checkpoints are only used if the input
+            data and all settings that affect the input similarities are unchanged. The last checkpoint is
+            saved with the workflow once the node is executed.
+            """)
+    @ValueReference(ResumableRef.class)
+    boolean m_resumable;
+
+    @Persist(configKey = TsneNodeModel.CFG_CHECKPOINT_INTERVAL)
+    @Widget(title = "Checkpoint interval", description = """
+            The number of iterations between two checkpoints.
+            """)
+    @NumberInputWidget(minValidation = IsPositiveIntegerValidation.class)
+    @Effect(predicate = ResumablePredicate.class, type = EffectType.SHOW)
+    int m_checkpointInterval = 50;
+
     @Persist(configKey = TsneNodeModel.CFG_REMOVE_ORIGINAL_COLUMNS)
     @Widget(title = "Remove original data columns", description = """
             Check this box if you want to remove the columns used to learn the embedding.
             """)
+    @Effect(predicate = EmbeddingOnlyPredicate.class, type = EffectType.HIDE)
     boolean m_removeOriginalColumns;
 
+    @Persist(configKey = TsneNodeModel.CFG_EMBEDDING_ONLY)
+    @Widget(title = "Output only row ID and embedding", description = """
+            If checked, the output table consists only of the row IDs and the embedding instead of the input
+            table with the embedding appended. The coordinates are then written directly into the columnar
+            output, which is considerably faster and needs less memory for large tables.
+            """)
+    @ValueReference(EmbeddingOnlyRef.class)
+    boolean m_embeddingOnly;
+
     @Persist(configKey = TsneNodeModel.CFG_FAIL_ON_MISSING_VALUES)
     @Widget(title = "Fail if missing values are encountered", description = """
             If this box is checked, the node fails if it encounters a missing value in one of the columns
@@ -192,9 +427,151 @@ static int getDefaultNumberOfThreads() {
     static final class FeaturesRef implements ParameterReference<ColumnFilter> {
     }
 
+    static final class InputTypeRef implements ParameterReference<InputType> {
+    }
+
+    static final class UsesColumns implements EffectPredicateProvider {
+
+        @Override
+        public EffectPredicate init(final PredicateInitializer i) {
+            return i.getEnum(InputTypeRef.class).isOneOf(InputType.COLUMNS, InputType.DISTANCE_MATRIX);
+        }
+
+    }
+
+    static final class UsesVectors implements EffectPredicateProvider {
+
+        @Override
+        public EffectPredicate init(final PredicateInitializer i) {
+            return i.getEnum(InputTypeRef.class).isOneOf(InputType.VECTOR);
+        }
+
+    }
+
+    static final class VectorColumnsProvider extends CompatibleColumnsProvider {
+
+        VectorColumnsProvider() {
+            super(List.of(BitVectorValue.class, ByteVectorValue.class));
+        }
+
+    }
+
     static final class UseSeedRef implements BooleanReference {
     }
 
+    static final class ResumableRef implements BooleanReference {
+    }
+
+    static final class MultipleRunsRef implements BooleanReference {
+    }
+
+    static final class MultipleRunsPredicate implements EffectPredicateProvider {
+
+        @Override
+        public EffectPredicate init(final PredicateInitializer i) {
+            return i.getPredicate(MultipleRunsRef.class);
+        }
+
+    }
+
+    static final class EmbeddingOnlyRef implements BooleanReference {
+    }
+
+    static final class EmbeddingOnlyPredicate implements EffectPredicateProvider {
+
+        @Override
+        public EffectPredicate init(final PredicateInitializer i) {
+            return i.getPredicate(EmbeddingOnlyRef.class);
+        }
+
+    }
+
+    static final class ResumablePredicate implements EffectPredicateProvider {
+
+        @Override
+        public EffectPredicate init(final PredicateInitializer i) {
+            return i.getPredicate(ResumableRef.class);
+        }
+
+    }
+
+    static final class PcaReductionRef implements BooleanReference {
+    }
+
+    static final class PcaReductionPredicate implements EffectPredicateProvider {
+
+        @Override
+        public EffectPredicate init(final PredicateInitializer i) {
+            return i.getPredicate(PcaReductionRef.class);
+        }
+
+    }
+
+    static final class EarlyStoppingRef implements BooleanReference {
+    }
+
+    static final class EarlyStoppingPredicate implements EffectPredicateProvider {
+
+        @Override
+        public EffectPredicate init(final PredicateInitializer i) {
+            return i.getPredicate(EarlyStoppingRef.class);
+        }
+
+    }
+
+    static final class RepulsionMethodRef implements ParameterReference<RepulsionMethod> {
+    }
+
+    static final class NeighborSearchMethodRef implements ParameterReference<NeighborSearchMethod> {
+    }
+
+    static final class IsApproximateNeighborSearch implements EffectPredicateProvider {
+
+        @Override
+        public EffectPredicate init(final PredicateInitializer i) {
+            return i.getEnum(NeighborSearchMethodRef.class).isOneOf(NeighborSearchMethod.RANDOM_PROJECTION_FOREST,
+                NeighborSearchMethod.NN_DESCENT);
+        }
+
+    }
+
+    static final class IsAtMostOne extends MaxValidation {
+
+        @Override
+        public double getMax() {
+            return 1;
+        }
+
+        @Override
+        public boolean isExclusive() {
+            return false;
+        }
+
+    }
+
+    static final class IsValidMomentum extends MaxValidation {
+
+        @Override
+        public double getMax() {
+            return 0.99;
+        }
+
+        @Override
+        public boolean isExclusive() {
+            return false;
+        }
+
+    }
+
+    static final class IsBarnesHut implements EffectPredicateProvider {
+
+        @Override
+        public EffectPredicate init(final PredicateInitializer i) {
+            return i.getEnum(RepulsionMethodRef.class).isOneOf(RepulsionMethod.BARNES_HUT);
+        }
+
+    }
+
     static final class DrawSeedButtonRef implements ButtonReference {
     }
 
@@ -214,10 +591,13 @@ static final class MaxOutputDimensionsValidationProvider implements StateProvide
 
         Supplier<ColumnFilter> m_featuresSupplier;
 
+        Supplier<InputType> m_inputTypeSupplier;
+
         @Override
         public void init(final StateProviderInitializer initializer) {
             initializer.computeBeforeOpenDialog();
             m_featuresSupplier = initializer.computeFromValueSupplier(FeaturesRef.class);
+            m_inputTypeSupplier = initializer.computeFromValueSupplier(InputTypeRef.class);
         }
 
         @Override
@@ -228,6 +608,17 @@ public MaxValidation computeState(final NodeParametersInput parametersInput)
                 throw new StateComputationFailureException();
             }
             final var inSpec = inSpecOpt.get();
+            if (m_inputTypeSupplier.get() != InputType.COLUMNS) {
+                // distances don't bound the number of output dimensions
+                return new MaxValidation() {
+
+                    @Override
+                    public double getMax() {
+                        return Integer.MAX_VALUE;
+                    }
+
+                };
+            }
 
             final ColumnFilter features = m_featuresSupplier.get();
             final var inputDimensionality = features.filter(ColumnSelectionUtil.getDoubleColumns(inSpec)).length;
@@ -266,6 +657,100 @@ public String computeState(final NodeParametersInput parametersInput) {
         }
     }
 
+    enum InputType {
+
+        @Label(value = "Numeric columns", description = """
+                Each row is a point whose coordinates are the selected numeric columns.
+                """)
+        COLUMNS,
+
+        @Label(value = "Distance matrix", description = """
+                The selected numeric columns form a precomputed, square matrix of finite, non-negative
+                distances between the rows, e.g. the output of a distance computation. The matrix must be
+                symmetric with zeros on its diagonal. The exact neighbor search assumes that the distances form
+                a metric. As the matrix needs one column per row and is held in memory as a whole, it is only
+                practical for up to a few thousand rows and can't have more than 46,340 rows.
+                """)
+        DISTANCE_MATRIX,
+
+        @Label(value = "Bit/byte vector", description = """
+                Each row is a bit or byte vector, e.g. a molecular fingerprint, which is stored packed into
+                words. The approximate neighbor searches start from random neighbors and refine them with
+                nearest-neighbor descent.
+                """)
+        VECTOR;
+
+    }
+
+    enum VectorDistance {
+
+        @Label(value = "Tanimoto", description = """
+                One minus the Tanimoto (Jaccard) similarity. For byte vectors, the sum of the minimal counts is
+                divided by the sum of the maximal counts.
+                """)
+        TANIMOTO,
+
+        @Label(value = "Hamming", description = """
+                The number of differing bits. For byte vectors, the sum of the absolute count differences.
+                """)
+        HAMMING;
+
+    }
+
+    enum RunsOutput {
+
+        @Label(value = "Column groups", description = """
+                Appends one group of embedding columns per run, named after its perplexity and seed.
+                """)
+        COLUMN_GROUPS,
+
+        @Label(value = "Long table", description = """
+                Repeats the rows once per run, with the perplexity and the seed of the run in additional
+                columns. The row IDs are suffixed by the index of the run.
+                """)
+        LONG_TABLE;
+
+    }
+
+    enum RepulsionMethod {
+
+        @Label(value = "Barnes-Hut", description = """
+                Approximates the forces with a space-partitioning tree. The accuracy is controlled by theta.
+                """)
+        BARNES_HUT,
+
+        @Label(value = "Interpolation (FFT)", description = """
+                Interpolates the forces on a regular grid and evaluates them with the fast Fourier transform
+                (FIt-SNE). Its runtime grows linearly with the number of rows, which makes it the faster choice
+                for large tables (hundreds of thousands of rows and more). Supports at most 2 output dimensions.
+                """)
+        INTERPOLATION;
+
+    }
+
+    enum NeighborSearchMethod {
+
+        @Label(value = "Exact", description = """
+                Finds the exact nearest neighbors with a vantage-point tree.
+                """)
+        VANTAGE_POINT_TREE,
+
+        @Label(value = "Random projection forest", description = """
+                Compares each row with the rows that end up in the same leaf of a forest of random projection
+                trees. Higher accuracies use more trees.
+                """)
+        RANDOM_PROJECTION_FOREST,
+
+        @Label(value = "NN-descent", description = """
+                Starts from a small random projection forest and iteratively improves the neighbors by
+                comparing each row with the neighbors of its neighbors. Usually reaches a higher recall than the
+                random projection forest in the same time. Higher accuracies explore more candidates and allow
+                more iterations.
+                """)
+        NN_DESCENT;
+
+    }
+
     static final class FeaturesPersistor extends LegacyColumnFilterPersistor {
 
         protected FeaturesPersistor() {
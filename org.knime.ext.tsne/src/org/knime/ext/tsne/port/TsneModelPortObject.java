@@ -0,0 +1,169 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ *
+ */
+package org.knime.ext.tsne.port;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.zip.ZipEntry;
+
+import javax.swing.JComponent;
+
+import org.knime.core.node.CanceledExecutionException;
+import org.knime.core.node.ExecutionMonitor;
+import org.knime.core.node.port.AbstractPortObject;
+import org.knime.core.node.port.PortObjectSpec;
+import org.knime.core.node.port.PortObjectZipInputStream;
+import org.knime.core.node.port.PortObjectZipOutputStream;
+import org.knime.core.node.port.PortType;
+import org.knime.core.node.port.PortTypeRegistry;
+import org.knime.ext.tsne.algorithm.TsneModel;
+
+/**
+ * Port object holding a learned t-SNE embedding together with its reference data, which allows to place new rows
+ * into the embedding. The model is stored in a compact binary format because the reference data is usually large.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+public final class TsneModelPortObject extends AbstractPortObject {
+
+    /** The port type. */
+    public static final PortType TYPE = PortTypeRegistry.getInstance().getPortType(TsneModelPortObject.class);
+
+    private static final String ZIP_ENTRY = "tsne-model.bin";
+
+    private TsneModelPortObjectSpec m_spec;
+
+    private TsneModel m_model;
+
+    /**
+     * @noreference This class is not intended to be referenced by clients.
+     */
+    public static final class Serializer extends AbstractPortObjectSerializer<TsneModelPortObject> {
+    }
+
+    /** Don't use, framework constructor. */
+    public TsneModelPortObject() {
+
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param spec the spec
+     * @param model the learned model
+     */
+    public TsneModelPortObject(final TsneModelPortObjectSpec spec, final TsneModel model) {
+        m_spec = spec;
+        m_model = model;
+    }
+
+    /**
+     * Returns the learned model.
+     *
+     * @return the model
+     */
+    public TsneModel getModel() {
+        return m_model;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getSummary() {
+        return String.format("t-SNE model with %s reference rows, %s features and %s output dimensions",
+            m_model.getNumRows(), m_model.getNumCols(), m_model.getOutputDimensions());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public TsneModelPortObjectSpec getSpec() {
+        return m_spec;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public JComponent[] getViews() {
+        return new JComponent[0];
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void save(final PortObjectZipOutputStream out, final ExecutionMonitor exec)
+        throws IOException, CanceledExecutionException {
+        out.putNextEntry(new ZipEntry(ZIP_ENTRY));
+        // the zip stream must stay open, hence only flush the wrapping streams
+        final DataOutputStream dataOut = new DataOutputStream(new BufferedOutputStream(out));
+        m_model.save(dataOut);
+        dataOut.flush();
+        out.closeEntry();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void load(final PortObjectZipInputStream in, final PortObjectSpec spec, final ExecutionMonitor exec)
+        throws IOException, CanceledExecutionException {
+        final ZipEntry entry = in.getNextEntry();
+        if (entry == null || !ZIP_ENTRY.equals(entry.getName())) {
+            throw new IOException("Expected zip entry '" + ZIP_ENTRY + "' but got " + entry);
+        }
+        m_model = TsneModel.load(new DataInputStream(new BufferedInputStream(in)));
+        m_spec = (TsneModelPortObjectSpec)spec;
+    }
+
+}
@@ -0,0 +1,130 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ *
+ */
+package org.knime.ext.tsne.port;
+
+import org.knime.core.node.InvalidSettingsException;
+import org.knime.core.node.ModelContentRO;
+import org.knime.core.node.ModelContentWO;
+import org.knime.core.node.port.AbstractSimplePortObjectSpec;
+
+/**
+ * Spec of the {@link TsneModelPortObject} holding the feature columns and the number of output dimensions.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+public final class TsneModelPortObjectSpec extends AbstractSimplePortObjectSpec {
+
+    /** Config key of the feature column names. */
+    private static final String CFG_FEATURES = "features";
+
+    /** Config key of the number of output dimensions. */
+    private static final String CFG_OUTPUT_DIMENSIONS = "outputDimensions";
+
+    /** The feature column names in the order the model expects them. */
+    private String[] m_features;
+
+    /** The number of output dimensions. */
+    private int m_outputDimensions;
+
+    /**
+     * @noreference This class is not intended to be referenced by clients.
+     */
+    public static final class Serializer extends AbstractSimplePortObjectSpecSerializer<TsneModelPortObjectSpec> {
+    }
+
+    /** Don't use, framework constructor. */
+    public TsneModelPortObjectSpec() {
+
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param features the feature column names
+     * @param outputDimensions the number of output dimensions
+     */
+    public TsneModelPortObjectSpec(final String[] features, final int outputDimensions) {
+        m_features = features;
+        m_outputDimensions = outputDimensions;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void save(final ModelContentWO model) {
+        model.addStringArray(CFG_FEATURES, m_features);
+        model.addInt(CFG_OUTPUT_DIMENSIONS, m_outputDimensions);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void load(final ModelContentRO model) throws InvalidSettingsException {
+        m_features = model.getStringArray(CFG_FEATURES);
+        m_outputDimensions = model.getInt(CFG_OUTPUT_DIMENSIONS);
+    }
+
+    /**
+     * Returns the feature column names.
+     *
+     * @return the feature column names in the order the model expects them
+     */
+    public String[] getFeatures() {
+        return m_features;
+    }
+
+    /**
+     * Returns the number of output dimensions.
+     *
+     * @return the number of output dimensions
+     */
+    public int getOutputDimensions() {
+        return m_outputDimensions;
+    }
+}
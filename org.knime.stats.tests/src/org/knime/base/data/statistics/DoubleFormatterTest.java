@@ -0,0 +1,172 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ *
+ */
+package org.knime.base.data.statistics;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.text.DecimalFormat;
+import java.text.NumberFormat;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests that {@link DoubleFormatter} formats like the {@link DecimalFormat}s selected by {@link FormatDoubles}, also
+ * when it is used by several threads.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+final class DoubleFormatterTest {
+
+    private static final int NUM_THREADS = 8;
+
+    /** The special values, zeros, ties of the fixed and of the scientific formats and their neighbours. */
+    private static final double[] SPECIAL_VALUES = {Double.NaN, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY,
+        0d, -0d, Double.MIN_VALUE, -Double.MIN_VALUE, Double.MAX_VALUE, -Double.MAX_VALUE, 0.5, 1.5, 2.5, -2.5, 0.125,
+        0.375, -0.625, 0.0625, 1.00005, 1.00015, 2.675, 0.00045, -0.00035, 1.0005, 12.3455, 1234.5625, 999.9995,
+        9.99995, 99999.99995, 0.99999, -0.00005, 1E-5, 1.2345E-7, 1.2355E-7, 9.9995E-4, 123456789.5, 1.0625E10,
+        -2.0005E12, 1E9, 999999999.99, 1E15, 1.5E18, 123456.0005, Math.PI, -Math.E, Math.nextUp(0.5),
+        Math.nextDown(0.5), Math.nextUp(2.5), Math.nextDown(2.5), 5E-5, -5E-5, 5E-4, 18405, -79745, 1.5E20};
+
+    private static List<NumberFormat> formats() {
+        final FormatDoubles formatDoubles = new FormatDoubles();
+        final List<NumberFormat> formats = new ArrayList<NumberFormat>();
+        formats.add((NumberFormat)FormatDoubles.SMALL_FORMAT.clone());
+        formats.add((NumberFormat)FormatDoubles.NORMAL_FORMAT.clone());
+        formats.add((NumberFormat)FormatDoubles.LARGE_FORMAT.clone());
+        formats.add((NumberFormat)FormatDoubles.VERY_LARGE_FORMAT.clone());
+        formats.add(formatDoubles.formatterForNumbers(1.5, 12.25, 3));
+        formats.add(formatDoubles.formatterForNumbers(0.001, 1234.5));
+        formats.add(formatDoubles.formatterForNumbers(1E10, 3));
+        formats.add(formatDoubles.formatterWithSamePrecisio(0.1, 0.15, 3.7));
+        formats.add(formatDoubles.formatterWithSamePrecisio(1, 2, 1000));
+        formats.add(formatDoubles.formatterWithSamePrecisio(1E9, 1.5E9, 1.2E9));
+        formats.add(formatDoubles.formatterWithSamePrecisio(1E9, 1.01E9, 1.2E9));
+        return formats;
+    }
+
+    /** Values of all magnitudes, with few digits (so many ties), with many digits and integral values. */
+    private static double[] randomValues() {
+        final Random random = new Random(3);
+        final double[] values = new double[20000];
+        for (int i = 0; i < values.length; i++) {
+            final double scale = Math.pow(10, random.nextInt(30) - 15);
+            final double value = i % 2 == 0 ? random.nextInt(100000) / 1E4 : random.nextDouble() * 10;
+            values[i] = (random.nextBoolean() ? -1 : 1) * value * scale;
+            if (i % 3 == 0) {
+                values[i] = Math.rint(values[i]);
+            }
+        }
+        return values;
+    }
+
+    private static String pattern(final NumberFormat format) {
+        return format instanceof DecimalFormat ? ((DecimalFormat)format).toPattern() : format.toString();
+    }
+
+    private static void assertFormatsLike(final NumberFormat format, final double... values) {
+        final DoubleFormatter formatter = DoubleFormatter.of(format);
+        for (double d : values) {
+            assertThat(formatter.format(d)).as("%s with %s", Double.toString(d), pattern(format))
+                .isEqualTo(format.format(d));
+        }
+    }
+
+    /** NaN, the infinities, the zeros and the ties are formatted like {@link DecimalFormat} formats them. */
+    @Test
+    void testSpecialValues() {
+        for (NumberFormat format : formats()) {
+            assertFormatsLike(format, SPECIAL_VALUES);
+        }
+    }
+
+    /** Positive and negative values of all magnitudes are formatted like {@link DecimalFormat} formats them. */
+    @Test
+    void testRandomValues() {
+        final double[] values = randomValues();
+        for (NumberFormat format : formats()) {
+            assertFormatsLike(format, values);
+        }
+    }
+
+    /** A formatter used by several threads at the same time formats like {@link DecimalFormat} formats alone. */
+    @Test
+    void testConcurrentUse() throws InterruptedException, ExecutionException {
+        final double[] values = randomValues();
+        final ExecutorService executor = Executors.newFixedThreadPool(NUM_THREADS);
+        try {
+            for (NumberFormat format : formats()) {
+                final String[] expected = new String[values.length];
+                for (int i = 0; i < values.length; i++) {
+                    expected[i] = format.format(values[i]);
+                }
+                final DoubleFormatter formatter = DoubleFormatter.of(format);
+                final List<Future<String[]>> results = new ArrayList<Future<String[]>>();
+                for (int t = 0; t < NUM_THREADS; t++) {
+                    results.add(executor.submit(() -> {
+                        final String[] formatted = new String[values.length];
+                        for (int i = 0; i < values.length; i++) {
+                            formatted[i] = formatter.format(values[i]);
+                        }
+                        return formatted;
+                    }));
+                }
+                for (Future<String[]> result : results) {
+                    assertThat(result.get()).as("concurrently with %s", pattern(format)).isEqualTo(expected);
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
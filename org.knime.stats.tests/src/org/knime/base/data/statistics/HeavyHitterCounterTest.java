@@ -0,0 +1,173 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ *
+ */
+package org.knime.base.data.statistics;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the exact counts, the error bound and the merging of {@link HeavyHitterCounter}s against the true counts.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+final class HeavyHitterCounterTest {
+
+    private static final int NUM_VALUES = 100000;
+
+    private static final int NUM_DISTINCT = 1000;
+
+    /** Values with a skewed distribution, where few values are frequent and most are rare. */
+    private static int[] createValues(final int n, final long seed) {
+        final Random random = new Random(seed);
+        final int[] values = new int[n];
+        for (int i = 0; i < n; i++) {
+            values[i] = (int)Math.min(NUM_DISTINCT - 1, Math.floor(Math.abs(random.nextGaussian()) * 30));
+        }
+        return values;
+    }
+
+    private static HeavyHitterCounter<Integer> count(final int capacity, final int[] values, final int from,
+        final int to) {
+        final HeavyHitterCounter<Integer> counter = new HeavyHitterCounter<Integer>(capacity);
+        for (int i = from; i < to; i++) {
+            counter.add(Integer.valueOf(values[i]));
+        }
+        return counter;
+    }
+
+    private static Map<Integer, Integer> trueCounts(final int[] values) {
+        final Map<Integer, Integer> counts = new HashMap<Integer, Integer>();
+        for (final int value : values) {
+            counts.merge(Integer.valueOf(value), Integer.valueOf(1), Integer::sum);
+        }
+        return counts;
+    }
+
+    /**
+     * Asserts that every count overestimates the true count by at most the maximal error, which is at most the number
+     * of values divided by the capacity, and that every value that occurs more often than that is counted.
+     */
+    private static void assertWithinErrorBound(final HeavyHitterCounter<Integer> counter,
+        final Map<Integer, Integer> trueCounts) {
+        final long maxError = counter.getMaxError();
+        final long bound = counter.getTotal() / counter.getCapacity();
+        assertThat(maxError).as("maximal error").isLessThanOrEqualTo(bound);
+        final Map<Integer, Integer> topValues = counter.getTopValues();
+        for (final Entry<Integer, Integer> entry : topValues.entrySet()) {
+            final int trueCount = trueCounts.get(entry.getKey()).intValue();
+            assertThat(entry.getValue().intValue()).as("count of %s", entry.getKey())
+                .isGreaterThanOrEqualTo(trueCount).isLessThanOrEqualTo(trueCount + maxError);
+        }
+        for (final Entry<Integer, Integer> entry : trueCounts.entrySet()) {
+            if (entry.getValue().intValue() > bound) {
+                assertThat(topValues.containsKey(entry.getKey())).as("%s is counted", entry.getKey()).isTrue();
+            }
+        }
+    }
+
+    @Test
+    void testExactUpToCapacity() {
+        final int[] values = {3, 1, 3, 2, 3, 1, 4, 3};
+        for (final int capacity : new int[]{4, 5, 100}) {
+            final HeavyHitterCounter<Integer> counter = count(capacity, values, 0, values.length);
+            assertThat(counter.getTotal()).isEqualTo(values.length);
+            assertThat(counter.getMaxError()).as("maximal error with capacity %s", capacity).isEqualTo(0);
+            assertThat(counter.getTopValues()).isEqualTo(Map.of(3, 4, 1, 2, 2, 1, 4, 1));
+            assertThat(counter.getTopValues(2).keySet().toArray()).isDeepEqualTo(new Object[]{3, 1});
+        }
+    }
+
+    @Test
+    void testErrorBound() {
+        final int[] values = createValues(NUM_VALUES, 1);
+        final Map<Integer, Integer> trueCounts = trueCounts(values);
+        for (final int capacity : new int[]{1, 10, 50}) {
+            final HeavyHitterCounter<Integer> counter = count(capacity, values, 0, values.length);
+            assertThat(counter.getMaxError()).as("maximal error with capacity %s", capacity).isGreaterThan(0);
+            assertWithinErrorBound(counter, trueCounts);
+        }
+    }
+
+    @Test
+    void testMergeKeepsErrorBound() {
+        final int[] values = createValues(NUM_VALUES, 2);
+        final Map<Integer, Integer> trueCounts = trueCounts(values);
+        for (final int capacity : new int[]{10, 50}) {
+            final HeavyHitterCounter<Integer> counter = count(capacity, values, 0, NUM_VALUES / 3);
+            counter.merge(count(capacity, values, NUM_VALUES / 3, NUM_VALUES / 2));
+            counter.merge(count(capacity, values, NUM_VALUES / 2, NUM_VALUES));
+            assertThat(counter.getTotal()).isEqualTo(NUM_VALUES);
+            assertWithinErrorBound(counter, trueCounts);
+        }
+    }
+
+    @Test
+    void testMergeOfExactCountersIsExact() {
+        final int[] values = {1, 2, 2, 3, 3, 3, 4, 4, 4, 4};
+        final HeavyHitterCounter<Integer> counter = count(4, values, 0, 5);
+        counter.merge(count(4, values, 5, values.length));
+        assertThat(counter.getMaxError()).isEqualTo(0);
+        assertThat(counter.getTopValues()).isEqualTo(Map.of(1, 1, 2, 2, 3, 3, 4, 4));
+        //five distinct values do not fit into four counters
+        counter.merge(count(4, new int[]{5}, 0, 1));
+        assertThat(counter.getMaxError()).isGreaterThan(0);
+    }
+
+    @Test
+    void testMergeRejectsOtherCapacity() {
+        assertThatThrownBy(() -> new HeavyHitterCounter<Integer>(4).merge(new HeavyHitterCounter<Integer>(5)))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+}
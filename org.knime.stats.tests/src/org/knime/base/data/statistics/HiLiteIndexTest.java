@@ -0,0 +1,305 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ *
+ */
+package org.knime.base.data.statistics;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.knime.core.data.DataCell;
+import org.knime.core.data.DataColumnSpecCreator;
+import org.knime.core.data.DataRow;
+import org.knime.core.data.DataTable;
+import org.knime.core.data.DataTableSpec;
+import org.knime.core.data.DataType;
+import org.knime.core.data.DataValue;
+import org.knime.core.data.RowIterator;
+import org.knime.core.data.RowKey;
+import org.knime.core.data.container.DataContainer;
+import org.knime.core.data.def.DefaultRow;
+import org.knime.core.data.def.DoubleCell;
+import org.knime.core.data.def.StringCell;
+import org.knime.core.node.CanceledExecutionException;
+import org.knime.core.node.ExecutionMonitor;
+import org.knime.core.node.property.hilite.HiLiteHandler;
+import org.knime.core.util.Pair;
+
+/**
+ * Tests that the {@link HiLiteIndex} assigns the same row keys to every bin and nominal value as the row key sets of
+ * {@link HistogramColumn#construct(Map, DataTable, Set)}, also after saving and loading and when it is loaded from
+ * the data array of older versions.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+final class HiLiteIndexTest {
+
+    /** More rows than the initial capacity of the {@link HiLiteIndex.Builder}. */
+    private static final int NUM_ROWS = 3000;
+
+    private static final String[] COLUMNS = {"x", "y", "s"};
+
+    private static final Set<String> NOMINAL_COLUMNS = Collections.singleton("s");
+
+    private static final DataTableSpec SPEC = new DataTableSpec(
+        new DataColumnSpecCreator(COLUMNS[0], DoubleCell.TYPE).createSpec(),
+        new DataColumnSpecCreator(COLUMNS[1], DoubleCell.TYPE).createSpec(),
+        new DataColumnSpecCreator(COLUMNS[2], StringCell.TYPE).createSpec());
+
+    /** Rows with normally and uniformly distributed values, some missing values and a few nominal values. */
+    private static List<DataRow> createRows() {
+        final Random random = new Random(11);
+        final List<DataRow> rows = new ArrayList<DataRow>(NUM_ROWS);
+        for (int r = 0; r < NUM_ROWS; r++) {
+            rows.add(new DefaultRow(new RowKey("Row" + r), new DoubleCell(random.nextGaussian()),
+                r % 10 == 0 ? DataType.getMissingCell() : new DoubleCell(random.nextDouble() * 100),
+                r % 13 == 0 ? DataType.getMissingCell() : new StringCell("v" + random.nextInt(5))));
+        }
+        return rows;
+    }
+
+    private static DataTable table(final List<DataRow> rows) {
+        return new DataTable() {
+            @Override
+            public DataTableSpec getDataTableSpec() {
+                return SPEC;
+            }
+
+            @Override
+            public RowIterator iterator() {
+                final Iterator<DataRow> it = rows.iterator();
+                return new RowIterator() {
+                    @Override
+                    public boolean hasNext() {
+                        return it.hasNext();
+                    }
+
+                    @Override
+                    public DataRow next() {
+                        return it.next();
+                    }
+                };
+            }
+        };
+    }
+
+    /** Computes the histograms and the index of the numeric and nominal columns of {@code table}. */
+    private static Pair<Map<Integer, ? extends HistogramModel<?>>, HiLiteIndex> histogramsWithKeys(
+        final DataTable table) throws CanceledExecutionException {
+        final double[] mins = new double[COLUMNS.length], maxs = new double[COLUMNS.length],
+                means = new double[COLUMNS.length];
+        for (int c = 0; c < 2; c++) {
+            mins[c] = Double.POSITIVE_INFINITY;
+            maxs[c] = Double.NEGATIVE_INFINITY;
+            int count = 0;
+            for (DataRow row : table) {
+                final DataCell cell = row.getCell(c);
+                if (!cell.isMissing()) {
+                    final double value = ((DoubleCell)cell).getDoubleValue();
+                    mins[c] = Math.min(mins[c], value);
+                    maxs[c] = Math.max(maxs[c], value);
+                    means[c] += value;
+                    count++;
+                }
+            }
+            means[c] /= count;
+        }
+        return HistogramColumn.getDefaultInstance().histogramsWithKeys(table, new HiLiteHandler(), mins, maxs, means,
+            NOMINAL_COLUMNS, new HashMap<Integer, HeavyHitterCounter<DataCell>>(), new ExecutionMonitor(),
+            COLUMNS);
+    }
+
+    /** The row keys by their ordinals in {@code index}. */
+    private static RowKey[] keys(final HiLiteIndex index, final List<DataRow> rows) {
+        final RowKey[] keys = new RowKey[index.getRowCount()];
+        for (DataRow row : rows) {
+            keys[index.rows(Collections.singleton(row.getKey())).nextSetBit(0)] = row.getKey();
+        }
+        return keys;
+    }
+
+    /** The keys of the rows whose id is {@code id}. */
+    private static Set<RowKey> keysOf(final int[] ids, final int id, final RowKey[] keys) {
+        final Set<RowKey> ret = new HashSet<RowKey>();
+        for (int r = 0; r < ids.length; r++) {
+            if (ids[r] == id) {
+                ret.add(keys[r]);
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * The bins and values of every column have the same row keys as the row key sets of
+     * {@link HistogramColumn#construct(Map, DataTable, Set)}.
+     */
+    @Test
+    void testRowKeysOfEveryBinAndValue() throws CanceledExecutionException {
+        final List<DataRow> rows = createRows();
+        final DataTable table = table(rows);
+        final Pair<Map<Integer, ? extends HistogramModel<?>>, HiLiteIndex> result = histogramsWithKeys(table);
+        final HiLiteIndex index = result.getSecond();
+        assertThat(index.getRowCount()).isEqualTo(NUM_ROWS);
+        final RowKey[] keys = keys(index, rows);
+        final Pair<Map<Integer, Map<Integer, Set<RowKey>>>, Map<Integer, Map<DataValue, Set<RowKey>>>> expected =
+            HistogramColumn.construct(result.getFirst(), table, NOMINAL_COLUMNS);
+        assertThat(expected.getFirst().keySet()).containsExactlyInAnyOrder(0, 1);
+        for (Entry<Integer, Map<Integer, Set<RowKey>>> column : expected.getFirst().entrySet()) {
+            final int[] bins = index.getBins(column.getKey().intValue());
+            final int numBins = result.getFirst().get(column.getKey()).getBins().size();
+            for (int bin = 0; bin < numBins; bin++) {
+                assertThat(keysOf(bins, bin, keys)).as("column %d, bin %d", column.getKey(), bin)
+                    .isEqualTo(column.getValue().getOrDefault(Integer.valueOf(bin), Collections.emptySet()));
+            }
+        }
+        assertThat(expected.getSecond().keySet()).containsExactly(2);
+        for (Entry<Integer, Map<DataValue, Set<RowKey>>> column : expected.getSecond().entrySet()) {
+            final int[] ids = index.getValueIds(column.getKey().intValue());
+            final DataCell[] values = index.getValues(column.getKey().intValue());
+            assertThat(values).hasSize(column.getValue().size());
+            for (int id = 0; id < values.length; id++) {
+                assertThat(keysOf(ids, id, keys)).as("column %d, value %s", column.getKey(), values[id])
+                    .isEqualTo(column.getValue().get(values[id]));
+            }
+        }
+    }
+
+    /** The rows of consecutive ranges merged in order have the bins and values of the rows added to one builder. */
+    @Test
+    void testMerge() {
+        final HiLiteIndex.Builder all = new HiLiteIndex.Builder(new int[]{0}, new int[]{1});
+        final HiLiteIndex.Builder first = new HiLiteIndex.Builder(new int[]{0}, new int[]{1});
+        final HiLiteIndex.Builder second = new HiLiteIndex.Builder(new int[]{0}, new int[]{1});
+        final String[] values = {"b", "a", null, "c", "a", "b"};
+        for (int r = 0; r < values.length; r++) {
+            for (HiLiteIndex.Builder builder : new HiLiteIndex.Builder[]{all, r < 3 ? first : second}) {
+                final int row = builder.addRow(new RowKey("Row" + r));
+                if (r % 4 != 3) {
+                    builder.setBin(0, row, r % 3);
+                }
+                if (values[r] != null) {
+                    builder.setValue(0, row, new StringCell(values[r]));
+                }
+            }
+        }
+        first.merge(second);
+        final HiLiteIndex expected = all.build(), merged = first.build();
+        assertThat(merged.getRowCount()).isEqualTo(values.length);
+        assertThat(merged.getBins(0)).containsExactly(expected.getBins(0));
+        assertThat(merged.getBins(0)).containsExactly(0, 1, 2, HiLiteIndex.NONE, 1, 2);
+        assertThat(merged.getValueIds(1)).containsExactly(expected.getValueIds(1));
+        assertThat(merged.getValues(1)).containsExactly(expected.getValues(1));
+        assertThat(merged.getValueIds(1)).containsExactly(0, 1, HiLiteIndex.NONE, 2, 1, 0);
+        assertThat(merged.rows(List.of(new RowKey("Row4"), new RowKey("unknown"))).stream().toArray())
+            .containsExactly(4);
+    }
+
+    /** Counts the rows of each bin, also through the bins of the value ids. */
+    @Test
+    void testCount() {
+        final int[] ids = {0, 1, HiLiteIndex.NONE, 1, 2, 0};
+        final BitSet rows = new BitSet();
+        rows.set(0, ids.length);
+        assertThat(HiLiteIndex.count(ids, null, rows, 3)).containsExactly(2, 2, 1);
+        assertThat(HiLiteIndex.count(ids, new int[]{1, 0, 1}, rows, 2)).containsExactly(2, 3);
+        rows.clear(0);
+        assertThat(HiLiteIndex.count(ids, null, rows, 2)).containsExactly(1, 2);
+    }
+
+    /** The saved index is loaded with the same bins and values of the rows. */
+    @Test
+    void testSaveAndLoad(@TempDir final File dir) throws IOException, CanceledExecutionException {
+        final List<DataRow> rows = createRows();
+        final HiLiteIndex index = histogramsWithKeys(table(rows)).getSecond();
+        final File file = new File(dir, "hiliteindex.gz");
+        index.save(file, new ExecutionMonitor());
+        assertSameRows(index, HiLiteIndex.load(file), rows);
+    }
+
+    /** The index created from the data array saved by older versions is the index of the scanned table. */
+    @Test
+    void testLoadFromDataArray(@TempDir final File dir) throws IOException, CanceledExecutionException {
+        final List<DataRow> rows = createRows();
+        final DataTable table = table(rows);
+        final Pair<Map<Integer, ? extends HistogramModel<?>>, HiLiteIndex> result = histogramsWithKeys(table);
+        final File dataArray = new File(dir, "dataarray.gz");
+        DataContainer.writeToZip(table, dataArray, new ExecutionMonitor());
+        final HiLiteIndex loaded =
+            HistogramColumn.loadHiLiteIndex(dataArray, result.getFirst(), COLUMNS, NOMINAL_COLUMNS);
+        assertSameRows(result.getSecond(), loaded, rows);
+    }
+
+    /** Asserts that both indices have the same rows with the same bins and values of every column. */
+    private static void assertSameRows(final HiLiteIndex expected, final HiLiteIndex actual,
+        final List<DataRow> rows) {
+        assertThat(actual.getRowCount()).isEqualTo(expected.getRowCount());
+        final RowKey[] expectedKeys = keys(expected, rows), actualKeys = keys(actual, rows);
+        assertThat(actualKeys).containsExactly(expectedKeys);
+        for (int c = 0; c < 2; c++) {
+            assertThat(actual.getBins(c)).as("bins of column %d", c).containsExactly(expected.getBins(c));
+        }
+        final int[] expectedIds = expected.getValueIds(2), actualIds = actual.getValueIds(2);
+        final DataCell[] expectedValues = expected.getValues(2), actualValues = actual.getValues(2);
+        for (int r = 0; r < expectedIds.length; r++) {
+            assertThat(actualIds[r] == HiLiteIndex.NONE ? null : actualValues[actualIds[r]]).as("value of row %d", r)
+                .isEqualTo(expectedIds[r] == HiLiteIndex.NONE ? null : expectedValues[expectedIds[r]]);
+        }
+    }
+}
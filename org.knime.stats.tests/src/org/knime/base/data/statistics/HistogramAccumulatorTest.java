@@ -0,0 +1,222 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ *
+ */
+package org.knime.base.data.statistics;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.knime.base.data.statistics.HistogramColumn.HistogramNumericModel;
+import org.knime.core.data.DataCell;
+import org.knime.core.data.DataColumnSpecCreator;
+import org.knime.core.data.DataRow;
+import org.knime.core.data.DataTableSpec;
+import org.knime.core.data.DataType;
+import org.knime.core.data.DoubleValue;
+import org.knime.core.data.RowKey;
+import org.knime.core.data.def.DefaultRow;
+import org.knime.core.data.def.DoubleCell;
+import org.knime.core.data.def.StringCell;
+
+/**
+ * Tests that the {@link HistogramAccumulator} counts the same values per bin, hilited values per bin and values per
+ * histogram as the former binning, which looked up the column of each histogram by its name and added every cell to
+ * its model.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+final class HistogramAccumulatorTest {
+
+    private static final int NUM_ROWS = 200;
+
+    private static final int NUM_BINS = 5;
+
+    private static final double MAX = 10;
+
+    private static final DataTableSpec SPEC = new DataTableSpec(
+        new DataColumnSpecCreator("a", DoubleCell.TYPE).createSpec(),
+        new DataColumnSpecCreator("s", StringCell.TYPE).createSpec(),
+        new DataColumnSpecCreator("b", DoubleCell.TYPE).createSpec());
+
+    /** The histogram columns, in another order than in the table, like the columns selected in the node. */
+    private static final String[] HISTOGRAM_COLUMNS = {"b", "a"};
+
+    /** Values in [0, 10] including both bounds, interspersed with NaN, infinities and missing values. */
+    private static List<DataRow> createRows() {
+        final Random random = new Random(5);
+        final List<DataRow> rows = new ArrayList<DataRow>(NUM_ROWS);
+        for (int r = 0; r < NUM_ROWS; r++) {
+            rows.add(new DefaultRow(new RowKey("Row" + r), value(r, random), new StringCell("v" + r % 3),
+                value(r + 3, random)));
+        }
+        return rows;
+    }
+
+    private static DataCell value(final int r, final Random random) {
+        switch (r % 11) {
+            case 0:
+                return DataType.getMissingCell();
+            case 1:
+                return new DoubleCell(Double.NaN);
+            case 2:
+                return new DoubleCell(r % 2 == 0 ? Double.POSITIVE_INFINITY : Double.NEGATIVE_INFINITY);
+            case 3:
+                return new DoubleCell(r % 2 == 0 ? 0 : MAX);
+            default:
+                return new DoubleCell(random.nextDouble() * MAX);
+        }
+    }
+
+    private static Set<RowKey> hiLitKeys(final List<DataRow> rows) {
+        final Set<RowKey> keys = new HashSet<RowKey>();
+        for (int r = 0; r < rows.size(); r += 3) {
+            keys.add(rows.get(r).getKey());
+        }
+        return keys;
+    }
+
+    /** The empty histograms, the keys are the indices of their columns in {@link #HISTOGRAM_COLUMNS}. */
+    private static Map<Integer, HistogramNumericModel> createHistograms() {
+        final Map<Integer, HistogramNumericModel> histograms = new HashMap<Integer, HistogramNumericModel>();
+        for (int c = 0; c < HISTOGRAM_COLUMNS.length; c++) {
+            histograms.put(Integer.valueOf(c),
+                new HistogramNumericModel(0, MAX, NUM_BINS, c, HISTOGRAM_COLUMNS[c], 0, MAX, MAX / 2));
+        }
+        return histograms;
+    }
+
+    /** The binning before the {@link HistogramAccumulator}, which resolved the column of every cell by its name. */
+    private static Map<Integer, HistogramNumericModel> binPerCell(final List<DataRow> rows,
+        final Set<RowKey> hiLitKeys) {
+        final Map<Integer, HistogramNumericModel> histograms = createHistograms();
+        final String[] columnNames = SPEC.getColumnNames();
+        for (final DataRow dataRow : rows) {
+            final boolean isHiLited = hiLitKeys.contains(dataRow.getKey());
+            for (final Entry<Integer, HistogramNumericModel> entry : histograms.entrySet()) {
+                final int columnIndexInTable = Arrays.asList(columnNames).indexOf(entry.getValue().getColName());
+                final DataCell cell = dataRow.getCell(columnIndexInTable);
+                if (!cell.isMissing()) {
+                    final double d = ((DoubleValue)cell).getDoubleValue();
+                    if (Double.isNaN(d) || Double.isInfinite(d)) {
+                        continue;
+                    }
+                    entry.getValue().addValue(cell, isHiLited);
+                }
+            }
+        }
+        return histograms;
+    }
+
+    /** Accumulates the rows in ranges of {@code rangeSize} rows, which are merged like in the parallel scan. */
+    private static Map<Integer, HistogramNumericModel> accumulate(final List<DataRow> rows,
+        final Set<RowKey> hiLitKeys, final int rangeSize) {
+        final Map<Integer, HistogramNumericModel> histograms = createHistograms();
+        final HistogramAccumulator accumulator = new HistogramAccumulator(SPEC, histograms, false, 0);
+        for (int from = 0; from < rows.size(); from += rangeSize) {
+            final HistogramAccumulator range = new HistogramAccumulator(SPEC, histograms, false, 0);
+            for (final DataRow row : rows.subList(from, Math.min(rows.size(), from + rangeSize))) {
+                range.add(row, hiLitKeys.contains(row.getKey()));
+            }
+            accumulator.merge(range);
+        }
+        accumulator.finish();
+        return histograms;
+    }
+
+    private static void assertSameCounts(final Map<Integer, HistogramNumericModel> actual,
+        final Map<Integer, HistogramNumericModel> expected) {
+        assertThat(actual.keySet()).isEqualTo(expected.keySet());
+        for (final Integer key : expected.keySet()) {
+            final HistogramNumericModel actualModel = actual.get(key);
+            final HistogramNumericModel expectedModel = expected.get(key);
+            assertThat(actualModel.getRowCount()).as("row count of %s", key).isEqualTo(expectedModel.getRowCount());
+            assertThat(actualModel.getMaxCount()).as("max count of %s", key).isEqualTo(expectedModel.getMaxCount());
+            for (int b = 0; b < NUM_BINS; b++) {
+                final HistogramModel.Bin<?> actualBin = actualModel.getBins().get(b);
+                final HistogramModel.Bin<?> expectedBin = expectedModel.getBins().get(b);
+                assertThat(actualBin.getCount()).as("count of bin %s of %s", b, key)
+                    .isEqualTo(expectedBin.getCount());
+                assertThat(actualBin.getHiLited()).as("hilited of bin %s of %s", b, key)
+                    .isEqualTo(expectedBin.getHiLited());
+            }
+        }
+    }
+
+    @Test
+    void testSameCountsAsBinningPerCell() {
+        final List<DataRow> rows = createRows();
+        final Set<RowKey> hiLitKeys = hiLitKeys(rows);
+        final Map<Integer, HistogramNumericModel> expected = binPerCell(rows, hiLitKeys);
+        assertSameCounts(accumulate(rows, hiLitKeys, rows.size()), expected);
+        //the values at the bounds are counted, the non-finite and missing values are not
+        assertThat(expected.get(Integer.valueOf(1)).getRowCount()).isEqualTo(144);
+    }
+
+    @Test
+    void testSameCountsWhenRangesAreMerged() {
+        final List<DataRow> rows = createRows();
+        final Set<RowKey> hiLitKeys = hiLitKeys(rows);
+        assertSameCounts(accumulate(rows, hiLitKeys, 17), binPerCell(rows, hiLitKeys));
+    }
+
+    @Test
+    void testSameCountsWithoutHiLitRows() {
+        final List<DataRow> rows = createRows();
+        final Set<RowKey> none = new HashSet<RowKey>();
+        assertSameCounts(accumulate(rows, none, rows.size()), binPerCell(rows, none));
+    }
+
+}
@@ -0,0 +1,301 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ *
+ */
+package org.knime.base.data.statistics;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.knime.base.data.statistics.HistogramColumn.HistogramNumericModel;
+import org.knime.base.data.statistics.HistogramColumn.ImageFormats;
+import org.knime.core.data.DataCell;
+import org.knime.core.data.DataColumnSpec;
+import org.knime.core.data.DataColumnSpecCreator;
+import org.knime.core.data.DataRow;
+import org.knime.core.data.DataTableSpec;
+import org.knime.core.data.DataType;
+import org.knime.core.data.RowKey;
+import org.knime.core.data.def.DefaultRow;
+import org.knime.core.data.def.DoubleCell;
+import org.knime.core.data.def.StringCell;
+import org.knime.core.data.filestore.internal.NotInWorkflowDataRepository;
+import org.knime.core.node.BufferedDataContainer;
+import org.knime.core.node.BufferedDataTable;
+import org.knime.core.node.CanceledExecutionException;
+import org.knime.core.node.DefaultNodeProgressMonitor;
+import org.knime.core.node.ExecutionContext;
+import org.knime.core.node.Node;
+import org.knime.core.node.NodeFactory;
+import org.knime.core.node.NodeModel;
+import org.knime.core.node.port.PortType;
+import org.knime.core.node.property.hilite.HiLiteHandler;
+import org.knime.core.node.workflow.SingleNodeContainer;
+import org.knime.core.node.workflow.virtual.parchunk.VirtualParallelizedChunkPortObjectInNodeFactory;
+
+/**
+ * Tests that the scan of {@link HistogramColumn} yields the same histograms, quantile sketches and most frequent
+ * values for any number of threads, and that the images rendered by several threads keep the order of the rows.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+final class HistogramColumnTest {
+
+    /** Several ranges of 2^16 rows and an incomplete last one, so that the ranges are scanned concurrently. */
+    private static final int NUM_ROWS = 3 * (1 << 16) + 1234;
+
+    private static final String[] COLUMNS = {"x", "s"};
+
+    private static final double[] MINS = {-5, Double.NaN};
+
+    private static final double[] MAXS = {5, Double.NaN};
+
+    private static final double[] MEANS = {0, Double.NaN};
+
+    /** More columns than threads, so that the images of several columns are rendered at the same time. */
+    private static final int NUM_RENDERED_COLUMNS = 24;
+
+    private ExecutionContext m_exec;
+
+    private BufferedDataTable m_table;
+
+    private HiLiteHandler m_hiLiteHandler;
+
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    @BeforeEach
+    void createTable() {
+        final NodeFactory<NodeModel> factory =
+            (NodeFactory)new VirtualParallelizedChunkPortObjectInNodeFactory(new PortType[0]);
+        m_exec = new ExecutionContext(new DefaultNodeProgressMonitor(), new Node(factory),
+            SingleNodeContainer.MemoryPolicy.CacheSmallInMemory, NotInWorkflowDataRepository.newInstance());
+        final BufferedDataContainer container = m_exec.createDataContainer(
+            new DataTableSpec(new DataColumnSpecCreator(COLUMNS[0], DoubleCell.TYPE).createSpec(),
+                new DataColumnSpecCreator(COLUMNS[1], StringCell.TYPE).createSpec()));
+        final Set<RowKey> hiLitKeys = new HashSet<RowKey>();
+        final Random random = new Random(3);
+        for (int r = 0; r < NUM_ROWS; r++) {
+            final DataCell x;
+            if (r % 101 == 0) {
+                x = DataType.getMissingCell();
+            } else if (r % 103 == 0) {
+                x = new DoubleCell(r % 2 == 0 ? Double.NaN : Double.POSITIVE_INFINITY);
+            } else {
+                x = new DoubleCell(Math.max(-5, Math.min(5, random.nextGaussian())));
+            }
+            //skewed values, so that the counters of the most frequent values have to evict some
+            final DataCell s = new StringCell("v" + (int)Math.floor(Math.abs(random.nextGaussian()) * 20));
+            final RowKey key = RowKey.createRowKey((long)r);
+            container.addRowToTable(new DefaultRow(key, x, s));
+            if (r % 7 == 0) {
+                hiLitKeys.add(key);
+            }
+        }
+        container.close();
+        m_hiLiteHandler = new HiLiteHandler();
+        m_hiLiteHandler.fireHiLiteEvent(hiLitKeys);
+        m_table = container.getTable();
+    }
+
+    @AfterEach
+    void clearTable() {
+        m_exec.clearTable(m_table);
+    }
+
+    @Test
+    void testSameResultsForAnyNumberOfThreads() throws CanceledExecutionException {
+        final Map<Integer, HeavyHitterCounter<DataCell>> expectedTopValues =
+            new HashMap<Integer, HeavyHitterCounter<DataCell>>();
+        final HistogramNumericModel expected = scan(1, expectedTopValues);
+        for (final int numThreads : new int[]{2, 3, 8}) {
+            final Map<Integer, HeavyHitterCounter<DataCell>> topValues =
+                new HashMap<Integer, HeavyHitterCounter<DataCell>>();
+            final HistogramNumericModel actual = scan(numThreads, topValues);
+
+            assertThat(actual.getRowCount()).as("row count with %s threads", numThreads)
+                .isEqualTo(expected.getRowCount());
+            final List<? extends HistogramModel.Bin<?>> bins = actual.getBins();
+            for (int b = 0; b < bins.size(); b++) {
+                assertThat(bins.get(b).getCount()).as("count of bin %s with %s threads", b, numThreads)
+                    .isEqualTo(expected.getBins().get(b).getCount());
+                assertThat(bins.get(b).getHiLited()).as("hilited of bin %s with %s threads", b, numThreads)
+                    .isEqualTo(expected.getBins().get(b).getHiLited());
+            }
+
+            assertThat(actual.getQuantileSketch().getLevels()).as("quantile sketch with %s threads", numThreads)
+                .isDeepEqualTo(expected.getQuantileSketch().getLevels());
+
+            assertThat(topValues.keySet()).isEqualTo(expectedTopValues.keySet());
+            for (final Integer column : expectedTopValues.keySet()) {
+                final HeavyHitterCounter<DataCell> counter = topValues.get(column);
+                final HeavyHitterCounter<DataCell> expectedCounter = expectedTopValues.get(column);
+                assertThat(counter.getTopValues()).as("top values with %s threads", numThreads)
+                    .isEqualTo(expectedCounter.getTopValues());
+                assertThat(counter.getTotal()).isEqualTo(expectedCounter.getTotal());
+                assertThat(counter.getMaxError()).isEqualTo(expectedCounter.getMaxError());
+            }
+        }
+    }
+
+    private HistogramNumericModel scan(final int numThreads,
+        final Map<Integer, HeavyHitterCounter<DataCell>> topValues) throws CanceledExecutionException {
+        final HistogramColumn histogramColumn = HistogramColumn.getDefaultInstance().withNumberOfThreads(numThreads)
+            .withQuantileError(0.01).withTopValues(10, List.of(COLUMNS[1]));
+        final Map<Integer, ? extends HistogramModel<?>> histograms = histogramColumn.histograms(m_table,
+            m_hiLiteHandler, MINS, MAXS, MEANS, topValues, m_exec.createSubProgress(0), COLUMNS);
+        assertThat(histograms.keySet()).containsExactly(0);
+        return (HistogramNumericModel)histograms.get(0);
+    }
+
+    @Test
+    void testNumericImagesKeepTheRowOrder() throws CanceledExecutionException {
+        final DataColumnSpec[] specs = new DataColumnSpec[NUM_RENDERED_COLUMNS];
+        final String[] columns = new String[NUM_RENDERED_COLUMNS];
+        final Map<Integer, HistogramNumericModel> histograms = new HashMap<Integer, HistogramNumericModel>();
+        for (int c = 0; c < NUM_RENDERED_COLUMNS; c++) {
+            columns[c] = "x" + c;
+            specs[c] = new DataColumnSpecCreator(columns[c], DoubleCell.TYPE).createSpec();
+            //the bits of the column index are the heights of the bins, so the images differ for each column
+            final HistogramNumericModel histogram = new HistogramNumericModel(0, 10, 5, c, columns[c], 0, 10, 5);
+            for (int b = 0; b < 5; b++) {
+                histogram.setBin(b, 2 * b, 2 * b + 2, 1 + (c >> b & 1));
+            }
+            histogram.setMaxCount(2);
+            histogram.setRowCount(20);
+            histograms.put(Integer.valueOf(c), histogram);
+        }
+        final BufferedDataContainer data = m_exec.createDataContainer(new DataTableSpec(specs));
+        data.close();
+        final BufferedDataContainer stats = m_exec.createDataContainer(
+            new DataTableSpec(new DataColumnSpecCreator("Column", StringCell.TYPE).createSpec()));
+        for (final String column : columns) {
+            stats.addRowToTable(new DefaultRow(column, new StringCell(column)));
+        }
+        stats.close();
+
+        final List<DataCell> expected = numericImages(1, data.getTable(), stats.getTable(), histograms, columns);
+        assertThat(new HashSet<DataCell>(expected)).hasSameSizeAs(expected);
+        for (final int numThreads : new int[]{2, 3, 8}) {
+            assertThat(numericImages(numThreads, data.getTable(), stats.getTable(), histograms, columns))
+                .as("images with %s threads", numThreads).isEqualTo(expected);
+        }
+    }
+
+    @Test
+    void testNominalImagesKeepTheRowOrder() throws CanceledExecutionException {
+        final DataColumnSpec[] specs = new DataColumnSpec[NUM_RENDERED_COLUMNS];
+        final List<String> columns = new ArrayList<String>();
+        for (int c = 0; c < NUM_RENDERED_COLUMNS; c++) {
+            columns.add("s" + c);
+            specs[c] = new DataColumnSpecCreator(columns.get(c), StringCell.TYPE).createSpec();
+        }
+        final List<Map<DataCell, Integer>> nominalValues = new ArrayList<Map<DataCell, Integer>>();
+        final BufferedDataContainer container = m_exec.createDataContainer(new DataTableSpec(specs));
+        for (int r = 0; r < 50; r++) {
+            final DataCell[] cells = new DataCell[NUM_RENDERED_COLUMNS];
+            for (int c = 0; c < NUM_RENDERED_COLUMNS; c++) {
+                //the number of values differs for each column, so do the images
+                cells[c] = new StringCell("v" + r % (c + 2));
+                if (r == 0) {
+                    nominalValues.add(new LinkedHashMap<DataCell, Integer>());
+                }
+                nominalValues.get(c).merge(cells[c], Integer.valueOf(1), Integer::sum);
+            }
+            container.addRowToTable(new DefaultRow(RowKey.createRowKey((long)r), cells));
+        }
+        container.close();
+        final Statistics3Table statTable = new Statistics3Table(container.getTable(), false, 0,
+            List.<String> of(), m_exec.createSubExecutionContext(0));
+
+        final List<DataCell> expected = nominalImages(1, statTable, nominalValues, columns);
+        assertThat(new HashSet<DataCell>(expected)).hasSameSizeAs(expected);
+        for (final int numThreads : new int[]{2, 3, 8}) {
+            assertThat(nominalImages(numThreads, statTable, nominalValues, columns))
+                .as("images with %s threads", numThreads).isEqualTo(expected);
+        }
+    }
+
+    private List<DataCell> numericImages(final int numThreads, final BufferedDataTable data,
+        final BufferedDataTable stats, final Map<Integer, HistogramNumericModel> histograms, final String[] columns)
+        throws CanceledExecutionException {
+        final HistogramColumn histogramColumn = HistogramColumn.getDefaultInstance().withNumberOfThreads(numThreads)
+            .withImageFormat(ImageFormats.PNG);
+        final BufferedDataTable table = m_exec.createColumnRearrangeTable(stats,
+            histogramColumn.createColumnRearranger(data, stats, histograms, Integer.MAX_VALUE, columns),
+            m_exec.createSilentSubExecutionContext(0));
+        return images(table, List.of(columns));
+    }
+
+    private List<DataCell> nominalImages(final int numThreads, final Statistics3Table statTable,
+        final List<Map<DataCell, Integer>> nominalValues, final List<String> columns) {
+        final HistogramColumn histogramColumn = HistogramColumn.getDefaultInstance().withNumberOfThreads(numThreads)
+            .withImageFormat(ImageFormats.PNG);
+        return images(histogramColumn.nominalTable(statTable, nominalValues, new HiLiteHandler(), m_exec,
+            Integer.MAX_VALUE), columns);
+    }
+
+    /** The images in the last column of the rows of {@code columns}, which have to be in this order. */
+    private static List<DataCell> images(final BufferedDataTable table, final List<String> columns) {
+        final List<String> keys = new ArrayList<String>();
+        final List<DataCell> images = new ArrayList<DataCell>();
+        for (final DataRow row : table) {
+            keys.add(row.getKey().getString());
+            images.add(row.getCell(row.getNumCells() - 1));
+        }
+        assertThat(keys).isEqualTo(columns);
+        return images;
+    }
+
+}
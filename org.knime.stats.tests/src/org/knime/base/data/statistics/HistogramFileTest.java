@@ -0,0 +1,216 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ *
+ */
+package org.knime.base.data.statistics;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.knime.base.data.statistics.HistogramColumn.BinNumberSelectionStrategy;
+import org.knime.base.data.statistics.HistogramColumn.HistogramNominalModel;
+import org.knime.base.data.statistics.HistogramColumn.HistogramNumericModel;
+import org.knime.core.data.DataValue;
+import org.knime.core.data.MissingCell;
+import org.knime.core.data.RowKey;
+import org.knime.core.data.def.StringCell;
+import org.knime.core.node.InvalidSettingsException;
+
+/**
+ * Tests that the histograms written by {@link HistogramFile} are read back from the memory-mapped file, and that
+ * the {@code histograms.xml.gz} files of older versions are still loaded.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+final class HistogramFileTest {
+
+    private static final double MEAN = 4.25;
+
+    private static final double[] MEANS = {MEAN, Double.NaN, MEAN};
+
+    /** A numeric histogram of the values from 0 to 10 in 5 bins, optionally with a quantile sketch. */
+    private static HistogramNumericModel numeric(final int colIdx, final boolean withSketch) {
+        final HistogramNumericModel hd = new HistogramNumericModel(0, 10, 5, colIdx, "numeric " + colIdx, 0.5, 9.5,
+            MEAN);
+        final int[] counts = {3, 0, 7, 1, 4};
+        for (int i = 0; i < counts.length; i++) {
+            hd.setBin(i, 2 * i, 2 * i + 2, counts[i]);
+        }
+        hd.setMaxCount(7);
+        hd.setRowCount(15);
+        if (withSketch) {
+            final QuantileSketch sketch = new QuantileSketch(0.01);
+            for (int i = 0; i < 1000; i++) {
+                sketch.update((i * 37 % 1000) / 100.0);
+            }
+            hd.setQuantileSketch(sketch);
+        }
+        return hd;
+    }
+
+    /** A nominal histogram with a value that is not ASCII and a missing value. */
+    private static HistogramNominalModel nominal(final int colIdx) {
+        final Map<DataValue, Integer> values = new LinkedHashMap<DataValue, Integer>();
+        values.put(new StringCell("a"), Integer.valueOf(5));
+        values.put(new StringCell("über"), Integer.valueOf(2));
+        values.put(new MissingCell(null), Integer.valueOf(1));
+        return new HistogramNominalModel(values, colIdx, "nominal " + colIdx, 8);
+    }
+
+    private static void assertSameHistogram(final HistogramModel<?> expected, final HistogramModel<?> actual) {
+        assertThat(actual.getColIndex()).isEqualTo(expected.getColIndex());
+        assertThat(actual.getColName()).isEqualTo(expected.getColName());
+        assertThat(actual.getMaxCount()).isEqualTo(expected.getMaxCount());
+        assertThat(actual.getRowCount()).isEqualTo(expected.getRowCount());
+        assertThat(actual.getBins()).hasSameSizeAs(expected.getBins());
+        for (int i = 0; i < expected.getBins().size(); i++) {
+            final HistogramModel.Bin<?> expectedBin = expected.getBins().get(i), actualBin = actual.getBins().get(i);
+            assertThat(actualBin.getDef()).as("bin %d of %s", i, expected.getColName())
+                .isEqualTo(expectedBin.getDef());
+            assertThat(actualBin.getCount()).as("count %d of %s", i, expected.getColName())
+                .isEqualTo(expectedBin.getCount());
+        }
+        if (expected instanceof HistogramNumericModel) {
+            assertThat(actual).isInstanceOf(HistogramNumericModel.class);
+            final HistogramNumericModel e = (HistogramNumericModel)expected, a = (HistogramNumericModel)actual;
+            assertThat(a.getMin()).isEqualTo(e.getMin());
+            assertThat(a.getMax()).isEqualTo(e.getMax());
+            assertThat(a.getMean()).isEqualTo(e.getMean());
+            if (e.getQuantileSketch() == null) {
+                assertThat(a.getQuantileSketch()).isNull();
+            } else {
+                assertThat(a.getQuantileSketch().getEpsilon()).isEqualTo(e.getQuantileSketch().getEpsilon());
+                assertThat(a.getQuantileSketch().getLevels()).isEqualTo(e.getQuantileSketch().getLevels());
+                assertThat(a.getQuantileSketch().quantiles(0.25, 0.5, 0.75))
+                    .containsExactly(e.getQuantileSketch().quantiles(0.25, 0.5, 0.75));
+            }
+        } else {
+            assertThat(actual).isInstanceOf(HistogramNominalModel.class);
+        }
+    }
+
+    /** The numeric and nominal histograms are read with their bins, counts and quantile sketches. */
+    @Test
+    void testWriteAndRead(@TempDir final File dir) throws IOException {
+        final Map<Integer, HistogramModel<?>> histograms = new HashMap<Integer, HistogramModel<?>>();
+        histograms.put(Integer.valueOf(0), numeric(0, false));
+        histograms.put(Integer.valueOf(1), nominal(1));
+        histograms.put(Integer.valueOf(2), numeric(2, true));
+        final File file = new File(dir, "histograms.bin");
+        HistogramFile.write(histograms, file);
+        assertThat(HistogramFile.isHistogramFile(file)).isTrue();
+        final Map<Integer, HistogramModel<?>> read = HistogramFile.read(file, MEANS);
+        assertThat(read.keySet()).containsExactlyInAnyOrder(0, 1, 2);
+        for (Integer colIdx : histograms.keySet()) {
+            assertSameHistogram(histograms.get(colIdx), read.get(colIdx));
+        }
+    }
+
+    /** An empty {@link Map} of histograms is written and read. */
+    @Test
+    void testWriteAndReadEmpty(@TempDir final File dir) throws IOException {
+        final File file = new File(dir, "histograms.bin");
+        HistogramFile.write(new HashMap<Integer, HistogramModel<?>>(), file);
+        assertThat(HistogramFile.read(file, new double[0])).isEmpty();
+    }
+
+    /** The histograms saved by older versions are loaded, but they are not mistaken for the binary format. */
+    @Test
+    void testLoadHistogramsXmlGz(@TempDir final File dir) throws IOException, InvalidSettingsException {
+        final Map<Integer, HistogramModel<?>> histograms = new HashMap<Integer, HistogramModel<?>>();
+        histograms.put(Integer.valueOf(0), numeric(0, false));
+        histograms.put(Integer.valueOf(2), numeric(2, true));
+        final File file = new File(dir, "histograms.xml.gz");
+        HistogramColumn.saveHistogramData(histograms, file);
+        assertThat(HistogramFile.isHistogramFile(file)).isFalse();
+        assertThatThrownBy(() -> HistogramFile.read(file, MEANS)).isInstanceOf(IOException.class);
+        final Map<Integer, Map<Integer, Set<RowKey>>> numericKeys = new HashMap<Integer, Map<Integer, Set<RowKey>>>();
+        final Map<Integer, ? extends HistogramModel<?>> loaded =
+            HistogramColumn.loadHistograms(file, numericKeys, BinNumberSelectionStrategy.DecimalRange, MEANS);
+        assertThat(loaded.keySet()).containsExactlyInAnyOrder(0, 2);
+        assertThat(numericKeys.keySet()).containsExactlyInAnyOrder(0, 2);
+        for (Integer colIdx : histograms.keySet()) {
+            assertSameHistogram(histograms.get(colIdx), loaded.get(colIdx));
+        }
+    }
+
+    /** Truncated files and files of unknown versions are rejected with an {@link IOException}. */
+    @Test
+    void testInvalidFiles(@TempDir final File dir) throws IOException {
+        final Map<Integer, HistogramModel<?>> histograms = new HashMap<Integer, HistogramModel<?>>();
+        histograms.put(Integer.valueOf(2), numeric(2, true));
+        final File file = new File(dir, "histograms.bin");
+        HistogramFile.write(histograms, file);
+        final byte[] bytes = Files.readAllBytes(file.toPath());
+        final File truncated = new File(dir, "truncated.bin");
+        Files.write(truncated.toPath(), Arrays.copyOf(bytes, bytes.length - 9));
+        assertThat(HistogramFile.isHistogramFile(truncated)).isTrue();
+        assertThatThrownBy(() -> HistogramFile.read(truncated, MEANS)).isInstanceOf(IOException.class);
+        final File newer = new File(dir, "newer.bin");
+        try (final DataOutputStream out = new DataOutputStream(new FileOutputStream(newer))) {
+            out.write(bytes, 0, Integer.BYTES);
+            out.writeInt(HistogramFile.VERSION + 1);
+            out.write(bytes, 2 * Integer.BYTES, bytes.length - 2 * Integer.BYTES);
+        }
+        assertThatThrownBy(() -> HistogramFile.read(newer, MEANS)).isInstanceOf(IOException.class);
+        final File empty = new File(dir, "empty.bin");
+        Files.write(empty.toPath(), new byte[0]);
+        assertThat(HistogramFile.isHistogramFile(empty)).isFalse();
+        assertThatThrownBy(() -> HistogramFile.read(empty, MEANS)).isInstanceOf(IOException.class);
+    }
+}
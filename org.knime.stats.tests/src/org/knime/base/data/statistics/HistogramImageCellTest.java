@@ -0,0 +1,169 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ *
+ */
+package org.knime.base.data.statistics;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.knime.base.data.statistics.HistogramColumn.HistogramNominalModel;
+import org.knime.base.data.statistics.HistogramColumn.HistogramNumericModel;
+import org.knime.base.data.statistics.HistogramColumn.ImageFormats;
+import org.knime.base.data.statistics.HistogramImageCell.PngHistogramCell;
+import org.knime.base.data.statistics.HistogramImageCell.SvgHistogramCell;
+import org.knime.core.data.DataCell;
+import org.knime.core.data.DataValue;
+import org.knime.core.data.MissingCell;
+import org.knime.core.data.def.StringCell;
+import org.knime.core.data.image.png.PNGImageValue;
+
+/**
+ * Tests that the lazily rendered {@link HistogramImageCell}s render the same images as the ones rendered when the
+ * table is created, also after they were written and read back.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+final class HistogramImageCellTest {
+
+    /** Not the default size, so that a size lost on the way to the rendering fails the tests. */
+    private static final int WIDTH = 123, HEIGHT = 45;
+
+    private static HistogramNumericModel numeric() {
+        final HistogramNumericModel hd = new HistogramNumericModel(0, 10, 5, 2, "numeric", 0.5, 9.5, 4.25);
+        final int[] counts = {3, 0, 7, 1, 4};
+        for (int i = 0; i < counts.length; i++) {
+            hd.setBin(i, 2 * i, 2 * i + 2, counts[i]);
+        }
+        hd.setMaxCount(7);
+        hd.setRowCount(15);
+        return hd;
+    }
+
+    private static HistogramNominalModel nominal() {
+        final Map<DataValue, Integer> values = new LinkedHashMap<DataValue, Integer>();
+        values.put(new StringCell("a"), Integer.valueOf(5));
+        values.put(new StringCell("über"), Integer.valueOf(2));
+        values.put(new MissingCell(null), Integer.valueOf(1));
+        return new HistogramNominalModel(values, 3, "nominal", 8);
+    }
+
+    private static HistogramColumn histogramColumn(final ImageFormats format) {
+        return HistogramColumn.getDefaultInstance().withImageFormat(format).withHistogramWidth(WIDTH)
+            .withHistogramHeight(HEIGHT).withShowMinMax(true);
+    }
+
+    private static void assertSameImage(final ImageFormats format, final HistogramModel<?> histogramData,
+        final boolean paintLabels) {
+        final DataCell eager = histogramColumn(format).renderImageCell(histogramData, paintLabels);
+        final HistogramImageCell lazy =
+            HistogramImageCell.create(format, histogramData, WIDTH, HEIGHT, true, paintLabels);
+        assertThat(lazy.getImageCell()).as("%s image of %s", format, histogramData.getColName()).isEqualTo(eager);
+    }
+
+    @Test
+    void testLazyPngIsTheEagerImage() {
+        for (final boolean paintLabels : new boolean[]{false, true}) {
+            assertSameImage(ImageFormats.PNG, numeric(), paintLabels);
+            assertSameImage(ImageFormats.PNG, nominal(), paintLabels);
+        }
+    }
+
+    @Test
+    void testLazySvgIsTheEagerImage() {
+        for (final boolean paintLabels : new boolean[]{false, true}) {
+            assertSameImage(ImageFormats.SVG, numeric(), paintLabels);
+            assertSameImage(ImageFormats.SVG, nominal(), paintLabels);
+        }
+    }
+
+    @Test
+    void testLazyPngContentIsTheEagerContent() {
+        final PNGImageValue eager =
+            (PNGImageValue)histogramColumn(ImageFormats.PNG).renderImageCell(numeric(), true);
+        final PNGImageValue lazy =
+            (PNGImageValue)HistogramImageCell.create(ImageFormats.PNG, numeric(), WIDTH, HEIGHT, true, true);
+        assertThat(lazy.getImageContent().getByteArray()).isEqualTo(eager.getImageContent().getByteArray());
+    }
+
+    @Test
+    void testReadCellsRenderTheWrittenImage() throws IOException {
+        for (final HistogramModel<?> histogramData : new HistogramModel<?>[]{numeric(), nominal()}) {
+            final PngHistogramCell png =
+                (PngHistogramCell)HistogramImageCell.create(ImageFormats.PNG, histogramData, WIDTH, HEIGHT, true,
+                    true);
+            final PngHistogramCell readPng = new PngHistogramCell(new DataInputStream(written(png)));
+            assertThat(readPng).isEqualTo(png);
+            assertThat(readPng.getImageContent().getByteArray())
+                .isEqualTo(((PNGImageValue)histogramColumn(ImageFormats.PNG).renderImageCell(histogramData, true))
+                    .getImageContent().getByteArray());
+
+            final SvgHistogramCell svg =
+                (SvgHistogramCell)HistogramImageCell.create(ImageFormats.SVG, histogramData, WIDTH, HEIGHT, true,
+                    true);
+            final SvgHistogramCell readSvg = new SvgHistogramCell(new DataInputStream(written(svg)));
+            assertThat(readSvg).isEqualTo(svg);
+            assertThat(readSvg.getImageCell())
+                .isEqualTo(histogramColumn(ImageFormats.SVG).renderImageCell(histogramData, true));
+        }
+    }
+
+    private static ByteArrayInputStream written(final HistogramImageCell cell) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (final DataOutputStream output = new DataOutputStream(bytes)) {
+            cell.write(output);
+        }
+        return new ByteArrayInputStream(bytes.toByteArray());
+    }
+
+}
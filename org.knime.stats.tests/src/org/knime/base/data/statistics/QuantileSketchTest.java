@@ -0,0 +1,201 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ *
+ */
+package org.knime.base.data.statistics;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the rank error, the merging and the restoring of {@link QuantileSketch}es against the sorted values.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+final class QuantileSketchTest {
+
+    private static final int NUM_VALUES = 100000;
+
+    private static final double[] ERRORS = {0.05, 0.01, 0.002};
+
+    /** Normally distributed values with some outliers, in random order. */
+    private static double[] createValues(final int n) {
+        final Random random = new Random(7);
+        final double[] values = new double[n];
+        for (int i = 0; i < n; i++) {
+            values[i] = random.nextGaussian() * (i % 7 == 0 ? 10 : 1);
+        }
+        return values;
+    }
+
+    /**
+     * Asserts that the rank of each approximated quantile is within {@code epsilon} times the number of values of the
+     * requested rank.
+     */
+    private static void assertRankError(final QuantileSketch sketch, final double[] values, final double epsilon) {
+        final double[] sorted = values.clone();
+        Arrays.sort(sorted);
+        final int n = sorted.length;
+        for (int p = 0; p <= 100; p++) {
+            final double probability = p / 100.0;
+            final double quantile = sketch.quantile(probability);
+            // the rows before the first and after the last occurrence of the quantile
+            final int lower = lowerBound(sorted, quantile);
+            final int upper = lowerBound(sorted, Math.nextUp(quantile));
+            assertThat(upper).as("%s is one of the values", quantile).isGreaterThan(lower);
+            final double rank = probability * n;
+            final double error = rank < lower ? lower - rank : rank > upper ? rank - upper : 0;
+            assertThat(error / n).as("relative rank error of the %s quantile", probability)
+                .isLessThanOrEqualTo(epsilon);
+        }
+    }
+
+    /** @return The number of values that are smaller than {@code value}. */
+    private static int lowerBound(final double[] sorted, final double value) {
+        int low = 0;
+        int high = sorted.length;
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (sorted[mid] < value) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    @Test
+    void testRankError() {
+        final double[] values = createValues(NUM_VALUES);
+        for (final double epsilon : ERRORS) {
+            final QuantileSketch sketch = new QuantileSketch(epsilon);
+            for (final double value : values) {
+                sketch.update(value);
+            }
+            assertThat(sketch.getCount()).isEqualTo(NUM_VALUES);
+            assertRankError(sketch, values, epsilon);
+        }
+    }
+
+    @Test
+    void testFewValuesAreExact() {
+        final double[] values = createValues(11);
+        final QuantileSketch sketch = new QuantileSketch(0.01);
+        for (final double value : values) {
+            sketch.update(value);
+        }
+        final double[] sorted = values.clone();
+        Arrays.sort(sorted);
+        assertThat(sketch.quantiles(0, 0.5, 1)).containsExactly(sorted[0], sorted[5], sorted[10]);
+    }
+
+    @Test
+    void testMerge() {
+        final double[] values = createValues(NUM_VALUES);
+        for (final double epsilon : ERRORS) {
+            // parts of different sizes
+            final int[] ends = {NUM_VALUES / 10, NUM_VALUES / 2, NUM_VALUES};
+            final QuantileSketch merged = new QuantileSketch(epsilon);
+            int start = 0;
+            for (final int end : ends) {
+                final QuantileSketch part = new QuantileSketch(epsilon);
+                for (int i = start; i < end; i++) {
+                    part.update(values[i]);
+                }
+                merged.merge(part);
+                assertThat(part.getCount()).isEqualTo(end - start);
+                start = end;
+            }
+            assertThat(merged.getCount()).isEqualTo(NUM_VALUES);
+            assertRankError(merged, values, epsilon);
+        }
+    }
+
+    @Test
+    void testRestoreFromLevels() {
+        final double[] values = createValues(NUM_VALUES);
+        final QuantileSketch sketch = new QuantileSketch(0.01);
+        for (final double value : values) {
+            sketch.update(value);
+        }
+        final QuantileSketch restored = new QuantileSketch(sketch.getEpsilon(), sketch.getLevels());
+        assertThat(restored.getEpsilon()).isEqualTo(0.01);
+        assertThat(restored.getCount()).isEqualTo(sketch.getCount());
+        assertThat(restored.getLevels()).isDeepEqualTo(sketch.getLevels());
+        final double[] probabilities = {0, 0.05, 0.25, 0.5, 0.75, 0.95, 1};
+        assertThat(restored.quantiles(probabilities)).containsExactly(sketch.quantiles(probabilities));
+        // the restored sketch keeps working
+        restored.update(1);
+        sketch.update(1);
+        assertThat(restored.quantiles(probabilities)).containsExactly(sketch.quantiles(probabilities));
+    }
+
+    @Test
+    void testEmptyAndNaN() {
+        final QuantileSketch sketch = new QuantileSketch(0.01);
+        assertThat(sketch.quantile(0.5)).isNaN();
+        sketch.update(Double.NaN);
+        assertThat(sketch.getCount()).isZero();
+        assertThat(sketch.quantile(0.5)).isNaN();
+        sketch.update(3);
+        assertThat(sketch.quantiles(0, 0.5, 1)).containsExactly(3, 3, 3);
+    }
+
+    @Test
+    void testInvalidArguments() {
+        assertThatThrownBy(() -> new QuantileSketch(0)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new QuantileSketch(1)).isInstanceOf(IllegalArgumentException.class);
+        final QuantileSketch sketch = new QuantileSketch(0.01);
+        sketch.update(1);
+        assertThatThrownBy(() -> sketch.quantile(1.5)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> sketch.merge(new QuantileSketch(0.02))).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -46,9 +46,12 @@
 
 package org.knime.base.node.stats.viz.extended;
 
+import static org.assertj.core.api.Assertions.assertThat;
+
 import java.io.FileInputStream;
 import java.io.IOException;
 
+import org.junit.jupiter.api.Test;
 import org.knime.core.data.DataTableSpec;
 import org.knime.core.data.DataType;
 import org.knime.core.data.def.DoubleCell;
@@ -82,6 +85,19 @@ private static SnapshotTestConfiguration getConfig() {
             .build();
     }
 
+    /**
+     * The settings file was saved by 5.6, the settings that were added later must load the behavior of that version.
+     */
+    @Test
+    void testLoadSettingsWithoutNewKeys() {
+        final ExtendedStatisticsNodeParameters parameters = readSettings();
+        assertThat(parameters.m_numberOfThreads).isEqualTo(1);
+        assertThat(parameters.m_approximateQuantiles).isFalse();
+        assertThat(parameters.m_quantileError).isEqualTo(0.01);
+        assertThat(parameters.m_countTopValues).isFalse();
+        assertThat(parameters.m_lazyImages).isFalse();
+    }
+
     private static ExtendedStatisticsNodeParameters readSettings() {
         try {
             var path = getSnapshotPath(ExtendedStatisticsNodeParameters.class).getParent().resolve("node_settings")
@@ -0,0 +1,115 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ *
+ */
+package org.knime.base.data.statistics;
+
+import java.text.DecimalFormat;
+import java.text.NumberFormat;
+
+/**
+ * A formatter of {@code double} values, which can be shared by threads without synchronization unlike
+ * {@link NumberFormat}s. Each thread formats with its own clone of a {@link NumberFormat}, like the ones selected by
+ * {@link FormatDoubles}, so the numbers are formatted exactly like that format formats them.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ * @since 5.12
+ */
+public final class DoubleFormatter {
+
+    ///only cloned, never used to format, so it can be shared by the threads
+    private final NumberFormat m_format;
+
+    private final ThreadLocal<NumberFormat> m_threadFormat;
+
+    private DoubleFormatter(final NumberFormat format) {
+        m_format = format;
+        m_threadFormat = ThreadLocal.withInitial(() -> (NumberFormat)m_format.clone());
+    }
+
+    /**
+     * Creates a formatter formatting like {@code format}.
+     *
+     * @param format A {@link NumberFormat}, usually a {@link DecimalFormat}. It is not modified and not used by the
+     *            formatter.
+     * @return The formatter formatting like {@code format}.
+     */
+    public static DoubleFormatter of(final NumberFormat format) {
+        if (format instanceof DecimalFormat) {
+            //the clones of a DecimalFormat share the digit buffer of the original once it formatted a number, so the
+            //formats of the threads are cloned from a new one with the same settings
+            final DecimalFormat decimalFormat = (DecimalFormat)format;
+            final DecimalFormat copy =
+                new DecimalFormat(decimalFormat.toPattern(), decimalFormat.getDecimalFormatSymbols());
+            copy.setPositivePrefix(decimalFormat.getPositivePrefix());
+            copy.setPositiveSuffix(decimalFormat.getPositiveSuffix());
+            copy.setNegativePrefix(decimalFormat.getNegativePrefix());
+            copy.setNegativeSuffix(decimalFormat.getNegativeSuffix());
+            copy.setMultiplier(decimalFormat.getMultiplier());
+            copy.setGroupingUsed(decimalFormat.isGroupingUsed());
+            copy.setGroupingSize(decimalFormat.getGroupingSize());
+            copy.setDecimalSeparatorAlwaysShown(decimalFormat.isDecimalSeparatorAlwaysShown());
+            copy.setMaximumIntegerDigits(decimalFormat.getMaximumIntegerDigits());
+            copy.setMinimumIntegerDigits(decimalFormat.getMinimumIntegerDigits());
+            copy.setMaximumFractionDigits(decimalFormat.getMaximumFractionDigits());
+            copy.setMinimumFractionDigits(decimalFormat.getMinimumFractionDigits());
+            copy.setRoundingMode(decimalFormat.getRoundingMode());
+            copy.setParseIntegerOnly(decimalFormat.isParseIntegerOnly());
+            copy.setParseBigDecimal(decimalFormat.isParseBigDecimal());
+            return new DoubleFormatter(copy);
+        }
+        return new DoubleFormatter((NumberFormat)format.clone());
+    }
+
+    /**
+     * Formats a number.
+     *
+     * @param d A number.
+     * @return {@code d} formatted.
+     */
+    public String format(final double d) {
+        return m_threadFormat.get().format(d);
+    }
+}
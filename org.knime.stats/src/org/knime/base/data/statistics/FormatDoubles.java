@@ -89,6 +89,18 @@ public NumberFormat formatterForNumbers(final double... ds) {
         return nf;
     }
 
+    /**
+     * Selects the thread-safe formatter appropriate for all the numbers, like
+     * {@link #formatterForNumbers(double...)}.
+     *
+     * @param ds The numbers.
+     * @return The {@link DoubleFormatter} appropriate to format them.
+     * @since 5.12
+     */
+    public DoubleFormatter doubleFormatterForNumbers(final double... ds) {
+        return DoubleFormatter.of(formatterForNumbers(ds));
+    }
+
     /** for numbers less than 0.0001. */
     public static final DecimalFormat SMALL_FORMAT = new DecimalFormat("0.000E0",
         DecimalFormatSymbols.getInstance(Locale.US));
@@ -105,6 +117,10 @@ public NumberFormat formatterForNumbers(final double... ds) {
     public static final DecimalFormat VERY_LARGE_FORMAT = new DecimalFormat("0.000E0",
         DecimalFormatSymbols.getInstance(Locale.US));
 
+    ///the shared formats are not thread-safe, these formatters are used instead of them
+    private static final DoubleFormatter SMALL_FORMATTER = DoubleFormatter.of(SMALL_FORMAT),
+            LARGE_FORMATTER = DoubleFormatter.of(LARGE_FORMAT);
+
     /**
      * Selects the {@link NumberFormatter} appropriate for the number.
      *
@@ -192,6 +208,16 @@ public final NumberFormat formatterWithSamePrecisio(final double... in) {
         return best;
     }
 
+    /**
+     * @param in Different double numbers, but none of them {@link Double#isInfinite() infinite} or {@link Double#NaN}.
+     * @return A thread-safe {@link DoubleFormatter} for the numbers which usually makes them distinct, like
+     *         {@link #formatterWithSamePrecisio(double...)}.
+     * @since 5.12
+     */
+    public final DoubleFormatter doubleFormatterWithSamePrecision(final double... in) {
+        return DoubleFormatter.of(formatterWithSamePrecisio(in));
+    }
+
     private static final String[] formatWithSamePrecision(final double[] in) {
         Set<String> unique = new LinkedHashSet<String>();
         // over the number of decimal digits, start with none, then add more until string values are unique.
@@ -219,10 +245,11 @@ private static final String[] formatWithSamePrecision(final double[] in) {
      */
     public NumberFormat minimalFormatterForNumbers(final double... ds) {
         NumberFormat[] options = new NumberFormat[]{LARGE_FORMAT, SMALL_FORMAT};
+        DoubleFormatter[] formatters = new DoubleFormatter[]{LARGE_FORMATTER, SMALL_FORMATTER};
         int[][] lengths = new int[options.length][ds.length];
         for (int i = 0; i < ds.length; i++) {
             for (int j = 0; j < options.length; j++) {
-                lengths[j][i] = options[j].format(ds[i]).length();
+                lengths[j][i] = formatters[j].format(ds[i]).length();
             }
         }
         int[] sums = new int[options.length];
@@ -0,0 +1,291 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ *
+ */
+package org.knime.base.data.statistics;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Counts the most frequent values of a column with a fixed number of counters (the Space-Saving algorithm). When a
+ * new value arrives and all counters are in use, the counter with the smallest count is taken over by the new value
+ * and keeps its count as the possible error. The memory is therefore bounded by the capacity regardless of the
+ * number of distinct values.
+ * <p>
+ * The counts are exact as long as there are at most {@code capacity} distinct values. Otherwise, every count
+ * overestimates the occurrences of its value by at most {@link #getMaxError()}, which is at most the number of
+ * added values divided by the capacity, and every value that occurs more often than that is counted. Counters of
+ * disjoint parts of a column can be combined with {@link #merge(HeavyHitterCounter)}, which keeps these bounds. To
+ * get accurate counts of the {@code k} most frequent values, the capacity should be a multiple of {@code k}.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ * @param <T> The type of the values.
+ * @since 5.12
+ */
+public final class HeavyHitterCounter<T> {
+
+    ///the initial number of counters, so that large capacities cost no memory for columns with few values
+    private static final int INITIAL_SIZE = 16;
+
+    private final int m_capacity;
+
+    ///value -> its counter
+    private final Map<T, Integer> m_counters;
+
+    ///the values, counts and errors of the counters, the arrays grow up to the capacity
+    private final List<T> m_values;
+
+    private long[] m_counts;
+
+    private long[] m_errors;
+
+    ///the counters in a binary min-heap ordered by their counts
+    private int[] m_heap;
+
+    ///the positions of the counters in the heap
+    private int[] m_positions;
+
+    ///the number of added values
+    private long m_total;
+
+    ///whether a value was not counted, i.e. its counter was taken over or it was dropped by a merge
+    private boolean m_evicted;
+
+    /**
+     * Creates a counter without values.
+     *
+     * @param capacity The maximal number of counted values, at least {@code 1}.
+     */
+    public HeavyHitterCounter(final int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("The capacity must be positive: " + capacity);
+        }
+        m_capacity = capacity;
+        m_counters = new HashMap<T, Integer>();
+        m_values = new ArrayList<T>();
+        final int initialSize = Math.min(capacity, INITIAL_SIZE);
+        m_counts = new long[initialSize];
+        m_errors = new long[initialSize];
+        m_heap = new int[initialSize];
+        m_positions = new int[initialSize];
+    }
+
+    /**
+     * Grows the arrays of the counters to hold at least {@code size} counters.
+     */
+    private void ensureSize(final int size) {
+        if (size > m_counts.length) {
+            final int newSize = (int)Math.min(m_capacity, Math.max(size, 2L * m_counts.length));
+            m_counts = Arrays.copyOf(m_counts, newSize);
+            m_errors = Arrays.copyOf(m_errors, newSize);
+            m_heap = Arrays.copyOf(m_heap, newSize);
+            m_positions = Arrays.copyOf(m_positions, newSize);
+        }
+    }
+
+    /**
+     * @return The maximal number of counted values.
+     */
+    public int getCapacity() {
+        return m_capacity;
+    }
+
+    /**
+     * @return The number of added values.
+     */
+    public long getTotal() {
+        return m_total;
+    }
+
+    /**
+     * @return The largest possible overestimation of a count, {@code 0} if the counts are exact.
+     */
+    public long getMaxError() {
+        return m_evicted ? m_counts[m_heap[0]] : 0;
+    }
+
+    /**
+     * Counts an occurrence of a value.
+     *
+     * @param value A value, not {@code null}.
+     */
+    public void add(final T value) {
+        m_total++;
+        final Integer counter = m_counters.get(value);
+        if (counter != null) {
+            m_counts[counter.intValue()]++;
+            siftDown(m_positions[counter.intValue()]);
+        } else if (m_values.size() < m_capacity) {
+            final int c = m_values.size();
+            ensureSize(c + 1);
+            m_values.add(value);
+            m_counters.put(value, Integer.valueOf(c));
+            m_counts[c] = 1;
+            m_heap[c] = c;
+            m_positions[c] = c;
+            siftUp(c);
+        } else {
+            //the value takes over the counter with the smallest count
+            m_evicted = true;
+            final int c = m_heap[0];
+            m_counters.remove(m_values.get(c));
+            m_values.set(c, value);
+            m_counters.put(value, Integer.valueOf(c));
+            m_errors[c] = m_counts[c];
+            m_counts[c]++;
+            siftDown(0);
+        }
+    }
+
+    /**
+     * Adds the counts of a counter of other values with the same capacity. A value that is not counted by one of the
+     * counters gets its smallest count, which bounds its occurrences, and the values with the largest counts are
+     * kept.
+     *
+     * @param other The counter of other values, which is not modified.
+     */
+    public void merge(final HeavyHitterCounter<T> other) {
+        if (m_capacity != other.m_capacity) {
+            throw new IllegalArgumentException(
+                "Cannot merge counters with different capacities: " + m_capacity + ", " + other.m_capacity);
+        }
+        final long missing = getMaxError(), otherMissing = other.getMaxError();
+        final Map<T, long[]> merged = new LinkedHashMap<T, long[]>();
+        for (int c = 0; c < m_values.size(); ++c) {
+            final Integer o = other.m_counters.get(m_values.get(c));
+            merged.put(m_values.get(c),
+                new long[]{m_counts[c] + (o == null ? otherMissing : other.m_counts[o.intValue()]),
+                    m_errors[c] + (o == null ? otherMissing : other.m_errors[o.intValue()])});
+        }
+        for (int o = 0; o < other.m_values.size(); ++o) {
+            if (!m_counters.containsKey(other.m_values.get(o))) {
+                merged.put(other.m_values.get(o),
+                    new long[]{other.m_counts[o] + missing, other.m_errors[o] + missing});
+            }
+        }
+        final List<Map.Entry<T, long[]>> entries = new ArrayList<Map.Entry<T, long[]>>(merged.entrySet());
+        entries.sort(Comparator.comparingLong((final Map.Entry<T, long[]> e) -> e.getValue()[0]).reversed());
+        m_counters.clear();
+        m_values.clear();
+        ensureSize(Math.min(m_capacity, entries.size()));
+        for (int c = 0; c < Math.min(m_capacity, entries.size()); ++c) {
+            m_values.add(entries.get(c).getKey());
+            m_counters.put(entries.get(c).getKey(), Integer.valueOf(c));
+            m_counts[c] = entries.get(c).getValue()[0];
+            m_errors[c] = entries.get(c).getValue()[1];
+        }
+        //the counts are descending, so the reversed order of the counters is a min-heap
+        final int size = m_values.size();
+        for (int p = 0; p < size; ++p) {
+            m_heap[p] = size - 1 - p;
+            m_positions[size - 1 - p] = p;
+        }
+        m_total += other.m_total;
+        m_evicted |= other.m_evicted || entries.size() > m_capacity;
+    }
+
+    /**
+     * @return The counted values and their counts in descending order of the counts.
+     */
+    public Map<T, Integer> getTopValues() {
+        return getTopValues(m_capacity);
+    }
+
+    /**
+     * @param maxValues The maximal number of returned values.
+     * @return The at most {@code maxValues} counted values with the largest counts and their counts in descending
+     *         order of the counts.
+     */
+    public Map<T, Integer> getTopValues(final int maxValues) {
+        final List<Integer> counters = new ArrayList<Integer>(m_counters.values());
+        //ties are ordered by the counters, so the order does not depend on the hash codes
+        counters.sort(null);
+        counters.sort(Comparator.comparingLong((final Integer c) -> m_counts[c.intValue()]).reversed());
+        final Map<T, Integer> ret = new LinkedHashMap<T, Integer>();
+        for (Integer c : counters.subList(0, Math.min(maxValues, counters.size()))) {
+            final long count = m_counts[c.intValue()];
+            ret.put(m_values.get(c.intValue()), Integer.valueOf((int)Math.min(Integer.MAX_VALUE, count)));
+        }
+        return ret;
+    }
+
+    private void siftUp(final int position) {
+        int p = position;
+        while (p > 0 && m_counts[m_heap[(p - 1) / 2]] > m_counts[m_heap[p]]) {
+            swap(p, (p - 1) / 2);
+            p = (p - 1) / 2;
+        }
+    }
+
+    private void siftDown(final int position) {
+        final int size = m_values.size();
+        int p = position;
+        while (2 * p + 1 < size) {
+            int child = 2 * p + 1;
+            if (child + 1 < size && m_counts[m_heap[child + 1]] < m_counts[m_heap[child]]) {
+                child++;
+            }
+            if (m_counts[m_heap[p]] <= m_counts[m_heap[child]]) {
+                return;
+            }
+            swap(p, child);
+            p = child;
+        }
+    }
+
+    private void swap(final int p, final int q) {
+        final int c = m_heap[p];
+        m_heap[p] = m_heap[q];
+        m_heap[q] = c;
+        m_positions[m_heap[p]] = p;
+        m_positions[m_heap[q]] = q;
+    }
+}
@@ -0,0 +1,456 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ *
+ */
+package org.knime.base.data.statistics;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.knime.core.data.DataCell;
+import org.knime.core.data.DataColumnSpec;
+import org.knime.core.data.DataColumnSpecCreator;
+import org.knime.core.data.DataRow;
+import org.knime.core.data.DataTable;
+import org.knime.core.data.DataTableSpec;
+import org.knime.core.data.DataType;
+import org.knime.core.data.IntValue;
+import org.knime.core.data.RowIterator;
+import org.knime.core.data.RowKey;
+import org.knime.core.data.container.DataContainer;
+import org.knime.core.data.def.DefaultRow;
+import org.knime.core.data.def.IntCell;
+import org.knime.core.node.CanceledExecutionException;
+import org.knime.core.node.ExecutionMonitor;
+
+/**
+ * The bins of the rows of a table in its numeric histograms and the values of its nominal columns, which are needed
+ * to count the hilited rows of the histograms. Instead of a set of row keys for every bin and value, the row keys
+ * are stored once in the order of the rows and each column stores the bin or value of every row in an {@code int}
+ * array, so the hilited rows of a bin are counted from the {@link BitSet} of the hilited row ordinals.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ * @since 5.12
+ */
+public final class HiLiteIndex {
+
+    /** The id of the rows that are in no bin or have a missing value. */
+    static final int NONE = -1;
+
+    private static final String BINS = "bins ";
+
+    private static final String VALUES = "values ";
+
+    private static final HiLiteIndex EMPTY = new HiLiteIndex(new RowKey[0],
+        Collections.<Integer, int[]> emptyMap(), Collections.<Integer, int[]> emptyMap(),
+        Collections.<Integer, DataCell[]> emptyMap());
+
+    ///row ordinal -> row key
+    private final RowKey[] m_keys;
+
+    ///numeric column index -> row ordinal -> bin index
+    private final Map<Integer, int[]> m_bins;
+
+    ///nominal column index -> row ordinal -> value id
+    private final Map<Integer, int[]> m_valueIds;
+
+    ///nominal column index -> value id -> value
+    private final Map<Integer, DataCell[]> m_values;
+
+    ///row key -> row ordinal, created when it is first needed
+    private Map<RowKey, Integer> m_ordinals;
+
+    private HiLiteIndex(final RowKey[] keys, final Map<Integer, int[]> bins, final Map<Integer, int[]> valueIds,
+        final Map<Integer, DataCell[]> values) {
+        m_keys = keys;
+        m_bins = bins;
+        m_valueIds = valueIds;
+        m_values = values;
+    }
+
+    /**
+     * @return An index without rows.
+     */
+    public static HiLiteIndex empty() {
+        return EMPTY;
+    }
+
+    /**
+     * @return The number of rows.
+     */
+    public int getRowCount() {
+        return m_keys.length;
+    }
+
+    /**
+     * @param column The index of a numeric column.
+     * @return The bin index of each row, {@link #NONE} for no bin, or {@code null} if the column is not indexed.
+     */
+    int[] getBins(final int column) {
+        return m_bins.get(Integer.valueOf(column));
+    }
+
+    /**
+     * @param column The index of a nominal column.
+     * @return The value id of each row, {@link #NONE} for missing values, or {@code null} if the column is not
+     *         indexed.
+     */
+    int[] getValueIds(final int column) {
+        return m_valueIds.get(Integer.valueOf(column));
+    }
+
+    /**
+     * @param column The index of a nominal column.
+     * @return The values by their ids, or {@code null} if the column is not indexed.
+     */
+    DataCell[] getValues(final int column) {
+        return m_values.get(Integer.valueOf(column));
+    }
+
+    /**
+     * @param keys Row keys, unknown keys are ignored.
+     * @return The ordinals of the rows with {@code keys}.
+     */
+    synchronized BitSet rows(final Iterable<RowKey> keys) {
+        final BitSet rows = new BitSet(m_keys.length);
+        for (RowKey key : keys) {
+            if (m_ordinals == null) {
+                m_ordinals = new HashMap<RowKey, Integer>(m_keys.length * 4 / 3 + 1);
+                for (int r = 0; r < m_keys.length; ++r) {
+                    m_ordinals.put(m_keys[r], Integer.valueOf(r));
+                }
+            }
+            final Integer row = m_ordinals.get(key);
+            if (row != null) {
+                rows.set(row.intValue());
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Counts the rows of each bin.
+     *
+     * @param ids The bin or value id of each row.
+     * @param binOfId The bin of each id, {@code null} if the ids are the bins.
+     * @param rows The ordinals of the counted rows.
+     * @param numBins The number of bins.
+     * @return The number of {@code rows} in each bin.
+     */
+    static int[] count(final int[] ids, final int[] binOfId, final BitSet rows, final int numBins) {
+        final int[] counts = new int[numBins];
+        for (int r = rows.nextSetBit(0); r >= 0; r = rows.nextSetBit(r + 1)) {
+            final int id = ids[r];
+            final int bin = id == NONE || binOfId == null ? id : binOfId[id];
+            if (bin >= 0 && bin < numBins) {
+                counts[bin]++;
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * Saves the index as a table of the row keys with a column of the bin indices of each numeric column and a
+     * column of the values of each nominal column.
+     *
+     * @param file The destination file.
+     * @param exec The {@link ExecutionMonitor}.
+     * @throws IOException Problem writing the file.
+     * @throws CanceledExecutionException Execution was cancelled.
+     */
+    public void save(final File file, final ExecutionMonitor exec) throws IOException, CanceledExecutionException {
+        final List<Integer> numericColumns = new ArrayList<Integer>(m_bins.keySet());
+        final List<Integer> nominalColumns = new ArrayList<Integer>(m_valueIds.keySet());
+        Collections.sort(numericColumns);
+        Collections.sort(nominalColumns);
+        final DataColumnSpec[] colSpecs = new DataColumnSpec[numericColumns.size() + nominalColumns.size()];
+        int col = 0;
+        for (Integer column : numericColumns) {
+            colSpecs[col++] = new DataColumnSpecCreator(BINS + column, IntCell.TYPE).createSpec();
+        }
+        for (Integer column : nominalColumns) {
+            DataType type = null;
+            for (DataCell value : m_values.get(column)) {
+                type = type == null ? value.getType() : DataType.getCommonSuperType(type, value.getType());
+            }
+            colSpecs[col++] = new DataColumnSpecCreator(VALUES + column,
+                type == null ? DataType.getType(DataCell.class) : type).createSpec();
+        }
+        final DataTableSpec spec = new DataTableSpec(colSpecs);
+        final DataTable table = new DataTable() {
+            @Override
+            public DataTableSpec getDataTableSpec() {
+                return spec;
+            }
+
+            @Override
+            public RowIterator iterator() {
+                return new RowIterator() {
+                    private int m_row;
+
+                    @Override
+                    public boolean hasNext() {
+                        return m_row < m_keys.length;
+                    }
+
+                    @Override
+                    public DataRow next() {
+                        final DataCell[] cells = new DataCell[colSpecs.length];
+                        int c = 0;
+                        for (Integer column : numericColumns) {
+                            final int bin = m_bins.get(column)[m_row];
+                            cells[c++] = bin == NONE ? DataType.getMissingCell() : new IntCell(bin);
+                        }
+                        for (Integer column : nominalColumns) {
+                            final int id = m_valueIds.get(column)[m_row];
+                            cells[c++] = id == NONE ? DataType.getMissingCell() : m_values.get(column)[id];
+                        }
+                        return new DefaultRow(m_keys[m_row++], cells);
+                    }
+                };
+            }
+        };
+        DataContainer.writeToZip(table, file, exec);
+    }
+
+    /**
+     * Loads an index saved by {@link #save(File, ExecutionMonitor)}.
+     *
+     * @param file The saved index.
+     * @return The loaded index.
+     * @throws IOException Problem reading the file.
+     */
+    public static HiLiteIndex load(final File file) throws IOException {
+        final DataTable table = DataContainer.readFromZip(file);
+        final DataTableSpec spec = table.getDataTableSpec();
+        final List<Integer> numericColumns = new ArrayList<Integer>(), nominalColumns = new ArrayList<Integer>();
+        for (DataColumnSpec colSpec : spec) {
+            final String name = colSpec.getName();
+            if (name.startsWith(BINS)) {
+                numericColumns.add(Integer.valueOf(name.substring(BINS.length())));
+            } else if (name.startsWith(VALUES)) {
+                nominalColumns.add(Integer.valueOf(name.substring(VALUES.length())));
+            } else {
+                throw new IOException("Unexpected column in the HiLite index: " + name);
+            }
+        }
+        final Builder builder = new Builder(numericColumns.stream().mapToInt(Integer::intValue).toArray(),
+            nominalColumns.stream().mapToInt(Integer::intValue).toArray());
+        for (DataRow dataRow : table) {
+            final int row = builder.addRow(dataRow.getKey());
+            for (int n = 0; n < numericColumns.size(); ++n) {
+                final DataCell cell = dataRow.getCell(n);
+                if (!cell.isMissing()) {
+                    builder.setBin(n, row, ((IntValue)cell).getIntValue());
+                }
+            }
+            for (int n = 0; n < nominalColumns.size(); ++n) {
+                final DataCell cell = dataRow.getCell(numericColumns.size() + n);
+                if (!cell.isMissing()) {
+                    builder.setValue(n, row, cell);
+                }
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * Collects the index row by row. The builders of consecutive row ranges can be combined with
+     * {@link #merge(Builder)}.
+     */
+    static final class Builder {
+
+        private static final int INITIAL_CAPACITY = 1024;
+
+        private final int[] m_numericColumns;
+
+        private final int[] m_nominalColumns;
+
+        private RowKey[] m_keys = new RowKey[INITIAL_CAPACITY];
+
+        private int m_rowCount;
+
+        ///the bin indices for each numeric column
+        private final int[][] m_bins;
+
+        ///the value ids for each nominal column
+        private final int[][] m_valueIds;
+
+        ///value -> value id for each nominal column
+        private final List<Map<DataCell, Integer>> m_dictionaries;
+
+        /**
+         * @param numericColumns The indices of the numeric columns.
+         * @param nominalColumns The indices of the nominal columns.
+         */
+        Builder(final int[] numericColumns, final int[] nominalColumns) {
+            m_numericColumns = numericColumns.clone();
+            m_nominalColumns = nominalColumns.clone();
+            m_bins = new int[numericColumns.length][];
+            m_valueIds = new int[nominalColumns.length][];
+            m_dictionaries = new ArrayList<Map<DataCell, Integer>>(nominalColumns.length);
+            for (int n = 0; n < m_bins.length; ++n) {
+                m_bins[n] = newIds(INITIAL_CAPACITY);
+            }
+            for (int n = 0; n < m_valueIds.length; ++n) {
+                m_valueIds[n] = newIds(INITIAL_CAPACITY);
+                m_dictionaries.add(new LinkedHashMap<DataCell, Integer>());
+            }
+        }
+
+        private static int[] newIds(final int length) {
+            final int[] ids = new int[length];
+            Arrays.fill(ids, NONE);
+            return ids;
+        }
+
+        private static int[] grow(final int[] ids, final int length) {
+            final int[] ret = Arrays.copyOf(ids, length);
+            Arrays.fill(ret, ids.length, length, NONE);
+            return ret;
+        }
+
+        private void ensureCapacity(final int rowCount) {
+            if (rowCount <= m_keys.length) {
+                return;
+            }
+            final int length = (int)Math.min(Integer.MAX_VALUE - 8, Math.max(rowCount, 2L * m_keys.length));
+            m_keys = Arrays.copyOf(m_keys, length);
+            for (int n = 0; n < m_bins.length; ++n) {
+                m_bins[n] = grow(m_bins[n], length);
+            }
+            for (int n = 0; n < m_valueIds.length; ++n) {
+                m_valueIds[n] = grow(m_valueIds[n], length);
+            }
+        }
+
+        /**
+         * Adds a row without bins and values.
+         *
+         * @param key The key of the row.
+         * @return The ordinal of the row.
+         */
+        int addRow(final RowKey key) {
+            ensureCapacity(m_rowCount + 1);
+            m_keys[m_rowCount] = key;
+            return m_rowCount++;
+        }
+
+        /**
+         * @param numeric The position of the column in the numeric columns.
+         * @param row The ordinal of the row.
+         * @param bin The bin of the row.
+         */
+        void setBin(final int numeric, final int row, final int bin) {
+            m_bins[numeric][row] = bin;
+        }
+
+        /**
+         * @param nominal The position of the column in the nominal columns.
+         * @param row The ordinal of the row.
+         * @param value The non-missing value of the row.
+         */
+        void setValue(final int nominal, final int row, final DataCell value) {
+            final Map<DataCell, Integer> dictionary = m_dictionaries.get(nominal);
+            m_valueIds[nominal][row] = dictionary.computeIfAbsent(value, v -> Integer.valueOf(dictionary.size()))
+                .intValue();
+        }
+
+        /**
+         * Appends the rows of a builder of the same columns.
+         *
+         * @param other The builder of the following rows, which must not be used afterwards.
+         */
+        void merge(final Builder other) {
+            final int offset = m_rowCount;
+            ensureCapacity(m_rowCount + other.m_rowCount);
+            System.arraycopy(other.m_keys, 0, m_keys, offset, other.m_rowCount);
+            for (int n = 0; n < m_bins.length; ++n) {
+                System.arraycopy(other.m_bins[n], 0, m_bins[n], offset, other.m_rowCount);
+            }
+            for (int n = 0; n < m_valueIds.length; ++n) {
+                //the ids of the other values are replaced by the ids of this dictionary
+                final Map<DataCell, Integer> dictionary = m_dictionaries.get(n);
+                final int[] ids = new int[other.m_dictionaries.get(n).size()];
+                for (Entry<DataCell, Integer> entry : other.m_dictionaries.get(n).entrySet()) {
+                    ids[entry.getValue().intValue()] =
+                        dictionary.computeIfAbsent(entry.getKey(), v -> Integer.valueOf(dictionary.size())).intValue();
+                }
+                for (int r = 0; r < other.m_rowCount; ++r) {
+                    final int id = other.m_valueIds[n][r];
+                    m_valueIds[n][offset + r] = id == NONE ? NONE : ids[id];
+                }
+            }
+            m_rowCount += other.m_rowCount;
+        }
+
+        /**
+         * @return The index of the added rows.
+         */
+        HiLiteIndex build() {
+            final Map<Integer, int[]> bins = new HashMap<Integer, int[]>();
+            for (int n = 0; n < m_bins.length; ++n) {
+                bins.put(Integer.valueOf(m_numericColumns[n]), Arrays.copyOf(m_bins[n], m_rowCount));
+            }
+            final Map<Integer, int[]> valueIds = new HashMap<Integer, int[]>();
+            final Map<Integer, DataCell[]> values = new HashMap<Integer, DataCell[]>();
+            for (int n = 0; n < m_valueIds.length; ++n) {
+                valueIds.put(Integer.valueOf(m_nominalColumns[n]), Arrays.copyOf(m_valueIds[n], m_rowCount));
+                values.put(Integer.valueOf(m_nominalColumns[n]),
+                    m_dictionaries.get(n).keySet().toArray(new DataCell[m_dictionaries.get(n).size()]));
+            }
+            return new HiLiteIndex(Arrays.copyOf(m_keys, m_rowCount), bins, valueIds, values);
+        }
+    }
+}
@@ -0,0 +1,247 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ *
+ */
+package org.knime.base.data.statistics;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.knime.base.data.statistics.HistogramColumn.HistogramNumericModel;
+import org.knime.core.data.DataCell;
+import org.knime.core.data.DataRow;
+import org.knime.core.data.DataTableSpec;
+import org.knime.core.data.DoubleValue;
+
+/**
+ * Accumulates the numeric histograms of a table and, optionally, the {@link HiLiteIndex} of their bins and of the
+ * values of nominal columns, so that all of them are computed in a single scan of the rows. The column indices are
+ * resolved once and the bins are counted in primitive arrays, which are written to the models by {@link #finish()},
+ * together with the {@link QuantileSketch}es of the values if requested. The most frequent values of nominal columns
+ * can be counted in bounded memory with {@link HeavyHitterCounter}s in the same scan. The accumulators of
+ * consecutive row ranges can be combined with {@link #merge(HistogramAccumulator)}.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+final class HistogramAccumulator {
+
+    ///the models, ordered by their column index
+    private final HistogramNumericModel[] m_models;
+
+    ///the indices of the columns of the models in the table
+    private final int[] m_numericIndices;
+
+    private final int[][] m_counts;
+
+    private final int[][] m_hiLited;
+
+    private final int[] m_rowCounts;
+
+    ///the sketches of the values for each model, null if the quantiles are not approximated
+    private final QuantileSketch[] m_quantiles;
+
+    ///the indices of the nominal columns in the table
+    private final int[] m_nominalIndices;
+
+    ///the bins and nominal values of the rows, null if the keys are not collected
+    private final HiLiteIndex.Builder m_index;
+
+    ///the indices of the columns whose most frequent values are counted
+    private int[] m_topValueIndices = new int[0];
+
+    private List<HeavyHitterCounter<DataCell>> m_topValues = new ArrayList<HeavyHitterCounter<DataCell>>();
+
+    /**
+     * @param spec The spec of the scanned table.
+     * @param histograms The empty numeric histograms, the keys are the indices of their columns.
+     * @param collectKeys Whether to collect the {@link HiLiteIndex} of the bins and of the nominal values.
+     * @param quantileError The relative rank error of the {@link QuantileSketch}es, {@code 0} to not create them.
+     * @param nominalIndices The indices of the nominal columns in the table whose values are indexed.
+     */
+    HistogramAccumulator(final DataTableSpec spec, final Map<Integer, HistogramNumericModel> histograms,
+        final boolean collectKeys, final double quantileError, final int... nominalIndices) {
+        final List<Integer> colIndices = new ArrayList<Integer>(histograms.keySet());
+        colIndices.sort(null);
+        m_models = new HistogramNumericModel[colIndices.size()];
+        m_numericIndices = new int[m_models.length];
+        m_counts = new int[m_models.length][];
+        m_hiLited = new int[m_models.length][];
+        m_rowCounts = new int[m_models.length];
+        m_quantiles = quantileError > 0 ? new QuantileSketch[m_models.length] : null;
+        for (int m = 0; m < m_models.length; ++m) {
+            m_models[m] = histograms.get(colIndices.get(m));
+            m_numericIndices[m] = spec.findColumnIndex(m_models[m].getColName());
+            m_counts[m] = new int[m_models[m].getBins().size()];
+            m_hiLited[m] = new int[m_models[m].getBins().size()];
+            if (m_quantiles != null) {
+                m_quantiles[m] = new QuantileSketch(quantileError);
+            }
+        }
+        m_nominalIndices = collectKeys ? nominalIndices.clone() : new int[0];
+        final int[] modelColIndices = new int[m_models.length];
+        for (int m = 0; m < m_models.length; ++m) {
+            modelColIndices[m] = m_models[m].getColIndex();
+        }
+        m_index = collectKeys ? new HiLiteIndex.Builder(modelColIndices, m_nominalIndices) : null;
+    }
+
+    /**
+     * Counts the most frequent values of columns, too.
+     *
+     * @param capacity The number of counted values per column.
+     * @param colIndices The indices of the columns in the table.
+     * @return This accumulator.
+     */
+    HistogramAccumulator withTopValues(final int capacity, final int... colIndices) {
+        m_topValueIndices = colIndices.clone();
+        m_topValues = new ArrayList<HeavyHitterCounter<DataCell>>(colIndices.length);
+        for (int t = 0; t < colIndices.length; ++t) {
+            m_topValues.add(new HeavyHitterCounter<DataCell>(capacity));
+        }
+        return this;
+    }
+
+    /**
+     * Adds a row of the table.
+     *
+     * @param row The row.
+     * @param isHiLited Whether the row is hilited.
+     */
+    void add(final DataRow row, final boolean isHiLited) {
+        final int ordinal = m_index != null ? m_index.addRow(row.getKey()) : -1;
+        for (int m = 0; m < m_models.length; ++m) {
+            final DataCell cell = row.getCell(m_numericIndices[m]);
+            if (cell.isMissing()) {
+                continue;
+            }
+            final double value = ((DoubleValue)cell).getDoubleValue();
+            if (m_quantiles != null && !Double.isNaN(value) && !Double.isInfinite(value)) {
+                //like the bins, the quantiles ignore non-finite values
+                m_quantiles[m].update(value);
+            }
+            final int bin = m_models[m].findBin(value);
+            if (m_index != null) {
+                //non-finite values are in bin -1, which is not counted
+                m_index.setBin(m, ordinal, bin);
+            }
+            if (bin >= 0) {
+                m_counts[m][bin]++;
+                if (isHiLited) {
+                    m_hiLited[m][bin]++;
+                }
+                m_rowCounts[m]++;
+            }
+        }
+        for (int n = 0; n < m_nominalIndices.length; ++n) {
+            final DataCell cell = row.getCell(m_nominalIndices[n]);
+            if (!cell.isMissing()) {
+                m_index.setValue(n, ordinal, cell);
+            }
+        }
+        for (int t = 0; t < m_topValueIndices.length; ++t) {
+            final DataCell cell = row.getCell(m_topValueIndices[t]);
+            if (!cell.isMissing()) {
+                m_topValues.get(t).add(cell);
+            }
+        }
+    }
+
+    /**
+     * Adds the counts and the index of an accumulator of the same histograms that scanned the following rows.
+     *
+     * @param other The other accumulator, which must not be used afterwards.
+     */
+    void merge(final HistogramAccumulator other) {
+        for (int m = 0; m < m_models.length; ++m) {
+            for (int b = 0; b < m_counts[m].length; ++b) {
+                m_counts[m][b] += other.m_counts[m][b];
+                m_hiLited[m][b] += other.m_hiLited[m][b];
+            }
+            m_rowCounts[m] += other.m_rowCounts[m];
+            if (m_quantiles != null) {
+                m_quantiles[m].merge(other.m_quantiles[m]);
+            }
+        }
+        if (m_index != null) {
+            m_index.merge(other.m_index);
+        }
+        for (int t = 0; t < m_topValueIndices.length; ++t) {
+            m_topValues.get(t).merge(other.m_topValues.get(t));
+        }
+    }
+
+    /**
+     * Writes the counts and the quantile sketches to the histograms.
+     */
+    void finish() {
+        for (int m = 0; m < m_models.length; ++m) {
+            m_models[m].setCounts(m_counts[m], m_hiLited[m], m_rowCounts[m]);
+            if (m_quantiles != null) {
+                m_models[m].setQuantileSketch(m_quantiles[m]);
+            }
+        }
+    }
+
+    /**
+     * @return The {@link HiLiteIndex} of the scanned rows, or {@code null} if the keys are not collected.
+     */
+    HiLiteIndex getHiLiteIndex() {
+        return m_index != null ? m_index.build() : null;
+    }
+
+    /**
+     * @return The column index to counter of the most frequent values {@link Map}.
+     */
+    Map<Integer, HeavyHitterCounter<DataCell>> getTopValues() {
+        final Map<Integer, HeavyHitterCounter<DataCell>> topValues =
+            new HashMap<Integer, HeavyHitterCounter<DataCell>>();
+        for (int t = 0; t < m_topValueIndices.length; ++t) {
+            topValues.put(Integer.valueOf(m_topValueIndices[t]), m_topValues.get(t));
+        }
+        return topValues;
+    }
+}
@@ -64,18 +64,24 @@
 import java.math.BigDecimal;
 import java.math.MathContext;
 import java.math.RoundingMode;
-import java.text.NumberFormat;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
 import java.util.zip.GZIPInputStream;
 import java.util.zip.GZIPOutputStream;
 
@@ -101,10 +107,13 @@
 import org.knime.core.data.DataValue;
 import org.knime.core.data.DoubleValue;
 import org.knime.core.data.MissingCell;
+import org.knime.core.data.NominalValue;
 import org.knime.core.data.RowKey;
+import org.knime.core.data.container.CloseableRowIterator;
 import org.knime.core.data.container.ColumnRearranger;
 import org.knime.core.data.container.DataContainer;
 import org.knime.core.data.container.SingleCellFactory;
+import org.knime.core.data.container.filter.TableFilter;
 import org.knime.core.data.def.DefaultRow;
 import org.knime.core.data.def.IntCell;
 import org.knime.core.data.def.StringCell;
@@ -117,6 +126,7 @@
 import org.knime.core.node.ExecutionContext;
 import org.knime.core.node.ExecutionMonitor;
 import org.knime.core.node.InvalidSettingsException;
+import org.knime.core.node.KNIMEConstants;
 import org.knime.core.node.NodeLogger;
 import org.knime.core.node.NodeSettings;
 import org.knime.core.node.config.Config;
@@ -125,6 +135,7 @@
 import org.knime.core.node.property.hilite.HiLiteListener;
 import org.knime.core.node.property.hilite.KeyEvent;
 import org.knime.core.util.Pair;
+import org.knime.core.util.ThreadPool;
 import org.w3c.dom.DOMImplementation;
 import org.w3c.dom.Document;
 import org.w3c.dom.svg.SVGDocument;
@@ -147,6 +158,18 @@ public class HistogramColumn implements Cloneable {
      */
     private static final BigDecimal FIVE = new BigDecimal(5);
 
+    /**
+     * The rows are accumulated in ranges of this size that are merged in order, so the histograms, quantile sketches
+     * and most frequent values do not depend on the number of threads.
+     */
+    private static final long ROWS_PER_RANGE = 1 << 16;
+
+    /** The number of rows after which the scan of a range checks for cancellation and reports its progress. */
+    private static final int ROWS_PER_PROGRESS = 1 << 10;
+
+    /** The number of rows per rendering thread that are queued for the cell factory of the histograms. */
+    private static final int RENDER_QUEUE_SIZE = 10;
+
     /**
      * The visual view for {@link HistogramModel}s.
      */
@@ -159,6 +182,14 @@ private final class HistogramComponent extends JPanel implements HiLiteListener,
 
         private final Map<Integer, Set<RowKey>> m_rowKeys;
 
+        private final HiLiteIndex m_index;
+
+        ///the bin or value id of each row of the index
+        private final int[] m_ids;
+
+        ///the bin of each id, null if the ids are the bins
+        private final int[] m_binOfId;
+
         private final boolean m_paintLabels;
 
         /**
@@ -170,6 +201,29 @@ private HistogramComponent(final HistogramModel<?> hd, final HiLiteHandler hlHan
             this.m_hlHandler = hlHandler;
             m_hlHandler.addHiLiteListener(this);
             this.m_rowKeys = rowKeys;
+            m_index = null;
+            m_ids = null;
+            m_binOfId = null;
+            m_paintLabels = paintLabels;
+            hiLite(new KeyEvent("", hlHandler.getHiLitKeys()));
+            addMouseMotionListener(this);
+        }
+
+        /**
+         * @param hd A {@link HistogramModel}.
+         * @param index The {@link HiLiteIndex} of the rows.
+         * @param ids The bin or value id of each row of {@code index}, {@code null} if the column is not indexed.
+         * @param binOfId The bin of each id, {@code null} if the ids are the bins.
+         */
+        private HistogramComponent(final HistogramModel<?> hd, final HiLiteHandler hlHandler,
+            final HiLiteIndex index, final int[] ids, final int[] binOfId, final boolean paintLabels) {
+            this.m_hd = hd;
+            this.m_hlHandler = hlHandler;
+            m_hlHandler.addHiLiteListener(this);
+            m_rowKeys = null;
+            m_index = index;
+            m_ids = ids;
+            m_binOfId = binOfId;
             m_paintLabels = paintLabels;
             hiLite(new KeyEvent("", hlHandler.getHiLitKeys()));
             addMouseMotionListener(this);
@@ -204,6 +258,17 @@ public void hiLite(final KeyEvent event) {
          * @param delta
          */
         private void update(final KeyEvent event, final int delta) {
+            if (m_ids != null) {
+                final int[] counts =
+                    HiLiteIndex.count(m_ids, m_binOfId, m_index.rows(event.keys()), m_hd.getBins().size());
+                for (int bin = 0; bin < counts.length; ++bin) {
+                    if (counts[bin] > 0) {
+                        m_hd.getBins().get(bin).setHiLited(m_hd.getBins().get(bin).getHiLited() + delta * counts[bin]);
+                    }
+                }
+                repaint();
+                return;
+            }
             if (m_rowKeys == null) {
                 return;
             }
@@ -348,11 +413,19 @@ public static HistogramColumn getDefaultInstance() {
 
     private static final String BIN_VALUES = "bin values";
 
+    private static final String QUANTILE_SKETCH = "quantile sketch";
+
+    private static final String QUANTILE_ERROR = "error";
+
+    private static final String QUANTILE_LEVELS = "levels";
+
+    private static final String QUANTILE_LEVEL = "level ";
+
     /**
      * A class to store the statistics on a numeric column.
      */
     static class HistogramNumericModel extends HistogramModel<Pair<Double, Double>> {
-        private final NumberFormat m_format;
+        private final DoubleFormatter m_format;
 
         private final BinNumberSelectionStrategy m_strategy;
 
@@ -390,8 +463,8 @@ public String getTooltip() {
              * @param num A number.
              * @return The {@link String} formatted to two digits.
              */
-            private synchronized String num(final Double num) {
-                return m_format.format(num);
+            private String num(final Double num) {
+                return m_format.format(num.doubleValue());
             }
 
             /**
@@ -435,7 +508,7 @@ public String getText() {
                 binStarts[i] = min + i * m_width;
                 getBins().add(new NumericBin(binStarts[i], min + (i + 1) * m_width));
             }
-            m_format = new FormatDoubles().formatterForNumbers(binStarts);
+            m_format = new FormatDoubles().doubleFormatterForNumbers(binStarts);
         }
 
         ///min and max values in the column.
@@ -446,24 +519,35 @@ public String getText() {
         ///width of a bin (bin's max - bin's min)
         private final double m_width;
 
+        ///the sketch of the values, null if the quantiles are not approximated
+        private QuantileSketch m_quantiles;
+
         @Override
         public int findBin(final DataValue v) {
             if (v instanceof DoubleValue) {
-                DoubleValue dv = (DoubleValue)v;
-                double d = dv.getDoubleValue();
-                if (Double.isNaN(d) || Double.isInfinite(d)) {
-                    return -1;
-                }
-                if (d < m_min || d > m_max) {
-                    throw new IllegalArgumentException("Value out of range: " + v + " [" + m_min + ", " + m_max + "]");
-                }
-                int idx = (int)Math.floor((d - m_min) / m_width);
-                int min = Math.min(idx, getBins().size() - 1);
-                return min;
+                return findBin(((DoubleValue)v).getDoubleValue());
             }
             return -1;
         }
 
+        /**
+         * Finds the bin of a primitive value.
+         *
+         * @param d A value.
+         * @return The index of the bin or {@code -1} if {@code d} is not finite.
+         */
+        int findBin(final double d) {
+            if (Double.isNaN(d) || Double.isInfinite(d)) {
+                return -1;
+            }
+            if (d < m_min || d > m_max) {
+                throw new IllegalArgumentException("Value out of range: " + d + " [" + m_min + ", " + m_max + "]");
+            }
+            int idx = (int)Math.floor((d - m_min) / m_width);
+            int min = Math.min(idx, getBins().size() - 1);
+            return min;
+        }
+
         /**
          * {@inheritDoc}
          */
@@ -474,6 +558,33 @@ protected HistogramModel<Pair<Double, Double>> createUninitializedClone() {
                 getColName(), m_realMin, m_realMax, m_mean);
         }
 
+        /**
+         * @return the min value of the first bin
+         */
+        double getMin() {
+            return m_min;
+        }
+
+        /**
+         * @return the max value of the last bin
+         */
+        double getMax() {
+            return m_max;
+        }
+
+        /**
+         * Replaces a bin with a restored one.
+         *
+         * @param i the index of the bin
+         * @param binMin the min value of the bin
+         * @param binMax the max value of the bin
+         * @param count the number of values in the bin
+         */
+        void setBin(final int i, final double binMin, final double binMax, final int count) {
+            getBins().set(i, new NumericBin(binMin, binMax));
+            getBins().get(i).setCount(count);
+        }
+
         /**
          * @return the realMin
          */
@@ -494,6 +605,20 @@ public double getRealMax() {
         public double getMean() {
             return m_mean;
         }
+
+        /**
+         * @return the sketch of the values, or {@code null} if the quantiles are not approximated
+         */
+        QuantileSketch getQuantileSketch() {
+            return m_quantiles;
+        }
+
+        /**
+         * @param quantiles the sketch of the values
+         */
+        void setQuantileSketch(final QuantileSketch quantiles) {
+            m_quantiles = quantiles;
+        }
     }
 
     static class HistogramNominalModel extends HistogramModel<DataValue> {
@@ -798,6 +923,16 @@ private static boolean hasLargePrimeDivisor(final int binCount) {
 
     private boolean m_showMinMax = false;
 
+    private int m_numThreads = 1;
+
+    private double m_quantileError = 0;
+
+    private int m_topValueCapacity = 0;
+
+    private Set<String> m_topValueColumns = Collections.emptySet();
+
+    private boolean m_lazyImages = false;
+
     /**
      * @param numOfBins The new number of bins.
      * @return The instance with the {@code numOfBins} bins.
@@ -876,6 +1011,67 @@ public HistogramColumn withShowMinMax(final boolean showMinMax) {
         return ret;
     }
 
+    /**
+     * @param numThreads The number of threads that collect the histogram data of disjoint row ranges and render the
+     *            histogram images.
+     * @return The instance with {@code numThreads} threads.
+     * @since 5.12
+     */
+    public HistogramColumn withNumberOfThreads(final int numThreads) {
+        final HistogramColumn ret = safeClone();
+        ret.m_numThreads = Math.max(1, numThreads);
+        return ret;
+    }
+
+    /**
+     * @param quantileError The relative rank error of the approximated quantiles of the numeric columns, or
+     *            {@code 0} to not approximate them.
+     * @return The instance with {@code quantileError} for the {@link QuantileSketch}es.
+     * @since 5.12
+     */
+    public HistogramColumn withQuantileError(final double quantileError) {
+        final HistogramColumn ret = safeClone();
+        ret.m_quantileError = quantileError;
+        return ret;
+    }
+
+    /**
+     * @param capacity The number of values that are counted per column, at least {@code 1}.
+     * @param columns The nominal columns whose most frequent values are counted by {@link HeavyHitterCounter}s
+     *            while the histograms are computed.
+     * @return The instance counting the most frequent values of {@code columns}.
+     * @since 5.12
+     */
+    public HistogramColumn withTopValues(final int capacity, final Collection<String> columns) {
+        final HistogramColumn ret = safeClone();
+        ret.m_topValueCapacity = Math.max(1, capacity);
+        ret.m_topValueColumns = new LinkedHashSet<String>(columns);
+        return ret;
+    }
+
+    /**
+     * @param lazyImages Whether the histogram cells keep only the bins and render their images on first access (see
+     *            {@link HistogramImageCell}) instead of rendering them when the table is created.
+     * @return The instance creating lazily rendered histogram cells if {@code lazyImages}.
+     * @since 5.12
+     */
+    public HistogramColumn withLazyImages(final boolean lazyImages) {
+        final HistogramColumn ret = safeClone();
+        ret.m_lazyImages = lazyImages;
+        return ret;
+    }
+
+    /**
+     * @param histogram A histogram computed by a {@link HistogramColumn}.
+     * @return The sketch of the values of a numeric {@code histogram}, or {@code null} if it is nominal or the
+     *         quantiles were not approximated (see {@link #withQuantileError(double)}).
+     * @since 5.12
+     */
+    public static QuantileSketch getQuantileSketch(final HistogramModel<?> histogram) {
+        return histogram instanceof HistogramNumericModel ? ((HistogramNumericModel)histogram).getQuantileSketch()
+            : null;
+    }
+
     /**
      * @return private clone of this.
      * @throws IllegalStateException when clone is not supported. Should not happen.
@@ -973,27 +1169,19 @@ public static Pair<Map<Integer, Map<Integer, Set<RowKey>>>, Map<Integer, Map<Dat
      * Updates the HiLite information within the {@link HistogramNumericModel} buckets.
      *
      * @param input The input {@link HistogramNumericModel}.
-     * @param buckets The buckets belonging to the column of {@code input}.
+     * @param index The {@link HiLiteIndex} of the rows.
      * @param hlHandler The {@link HiLiteHandler}.
      * @return The updated {@link HistogramNumericModel}.
      */
-    HistogramNumericModel updateHiLiteInfo(final HistogramNumericModel input, final Map<Integer, Set<RowKey>> buckets,
+    HistogramNumericModel updateHiLiteInfo(final HistogramNumericModel input, final HiLiteIndex index,
         final HiLiteHandler hlHandler) {
-        //        HistogramData ret = new HistogramData(input.m_min, input.m_max, input.m_bins.length, input.m_colIndex);
-        //        ret.m_maxCount = input.m_maxCount;
         HistogramNumericModel ret = (HistogramNumericModel)input.clone();
-        for (int idx = ret.getBins().size(); idx-- > 0;) {
-            //ret.m_bins[idx].m_count = input.m_bins[idx].m_count;
-            Integer keyIdx = Integer.valueOf(idx);
-            if (buckets.containsKey(keyIdx)) {
-                Set<RowKey> keys = buckets.get(keyIdx);
-                int hiLited = 0;
-                for (RowKey rowKey : keys) {
-                    if (hlHandler.isHiLit(rowKey)) {
-                        hiLited++;
-                    }
-                }
-                ret.getBins().get(idx).setHiLited(hiLited);
+        final int[] bins = index.getBins(input.getColIndex());
+        if (bins != null) {
+            final int[] hiLited =
+                HiLiteIndex.count(bins, null, index.rows(hlHandler.getHiLitKeys()), ret.getBins().size());
+            for (int idx = ret.getBins().size(); idx-- > 0;) {
+                ret.getBins().get(idx).setHiLited(hiLited[idx]);
             }
         }
         return ret;
@@ -1019,13 +1207,42 @@ HistogramNumericModel updateHiLiteInfo(final HistogramNumericModel input, final
         final double[] mins, final double[] maxs, final double[] means, final int maxBins, final String... columns)
         throws CanceledExecutionException {
         exec.setMessage("Collecting histogram data");
-        final Map<Integer, HistogramNumericModel> histograms =
-            histogramsPrivate(data, hlHandler, mins, maxs, means, columns);
-        exec.setMessage("Generating histogram");
-        ColumnRearranger rearranger = createColumnRearranger(data, stats, histograms, maxBins, columns);
+        final Map<Integer, HistogramNumericModel> histograms = histogramsPrivate(data, hlHandler, mins, maxs, means,
+            new HashMap<Integer, HeavyHitterCounter<DataCell>>(), exec.createSubProgress(0.5), columns);
         return Pair.<BufferedDataTable, Map<Integer, ? extends HistogramModel<?>>> create(
-            exec.createColumnRearrangeTable(stats, rearranger, exec), histograms);
+            appendHistograms(exec.createSubExecutionContext(0.5), data, stats, histograms, maxBins, columns),
+            histograms);
+
+    }
 
+    /**
+     * Adds the already computed histograms to the {@code stats} table.
+     *
+     * @param exec The {@link ExecutionContext}.
+     * @param data The original table.
+     * @param stats The table to add the column.
+     * @param histograms The numeric histograms, for example from
+     *            {@link #histogramsWithKeys(DataTable, HiLiteHandler, double[], double[], double[], Set, Map,
+     *            ExecutionMonitor, String...)}.
+     * @param maxBins The maximum number of bins till we draw labels.
+     * @param columns The columns to summarize as a histogram.
+     * @return The histogram added to the {@code stats} table.
+     * @throws CanceledExecutionException Cancelled.
+     * @since 5.12
+     */
+    @SuppressWarnings("unchecked")
+    public BufferedDataTable appendHistograms(final ExecutionContext exec, final BufferedDataTable data,
+        final BufferedDataTable stats, final Map<Integer, ? extends HistogramModel<?>> histograms, final int maxBins,
+        final String... columns) throws CanceledExecutionException {
+        for (Entry<Integer, ?> entry : histograms.entrySet()) {
+            if (!(entry.getValue() instanceof HistogramNumericModel)) {
+                throw new IllegalStateException("Not a histogram data: " + entry.getValue().getClass() + "\n" + entry);
+            }
+        }
+        exec.setMessage("Generating histogram");
+        ColumnRearranger rearranger = createColumnRearranger(data, stats,
+            (Map<Integer, HistogramNumericModel>)histograms, maxBins, columns);
+        return exec.createColumnRearrangeTable(stats, rearranger, exec);
     }
 
     /**
@@ -1041,7 +1258,7 @@ ColumnRearranger createColumnRearranger(final BufferedDataTable data, final Buff
         final Map<Integer, HistogramNumericModel> histograms, final int maxBinCount, final String... columns) {
         ColumnRearranger rearranger = new ColumnRearranger(stats.getDataTableSpec());
         final DataColumnSpec spec = createHistogramColumnSpec();
-        rearranger.append(new SingleCellFactory(true, spec) {
+        final SingleCellFactory factory = new SingleCellFactory(true, spec) {
             String[] m_sortedColumns = columns.clone();
             {
                 Arrays.sort(m_sortedColumns);
@@ -1064,7 +1281,12 @@ public DataCell getCell(final DataRow row) {
                 return createImageCell(histogramData, false);
             }
 
-        });
+        };
+        if (m_numThreads > 1) {
+            //the images are rendered by at most m_numThreads workers, the rows keep their order
+            factory.setParallelProcessing(true, m_numThreads, RENDER_QUEUE_SIZE * m_numThreads);
+        }
+        rearranger.append(factory);
         return rearranger;
     }
 
@@ -1132,7 +1354,7 @@ protected void paintMinMax(final HistogramModel<?> histogramData, final Graphics
             HistogramNumericModel hnm = (HistogramNumericModel)histogramData;
 
             double realMin = hnm.getRealMin(), realMax = hnm.getRealMax();
-            NumberFormat formatter = new FormatDoubles().formatterWithSamePrecisio(realMin, realMax);
+            DoubleFormatter formatter = new FormatDoubles().doubleFormatterWithSamePrecision(realMin, realMax);
             String min = formatter.format(realMin);
             String max = formatter.format(realMax);
             FontMetrics fm = g.getFontMetrics();
@@ -1149,8 +1371,10 @@ protected void paintMinMax(final HistogramModel<?> histogramData, final Graphics
                 g.drawString(min, minPos + 1, m_height);
                 g.drawString(max, (int)(maxPos - maxBounds.getWidth() - 1), m_height);
             } else if (min.equals(max)) {
-                g.drawString(min, (m_width = (int)maxBounds.getWidth()) / 2, m_height);
-                g.drawLine(m_width / 2, height, m_width / 2, height + MIN_MAX_AREA_HEIGHT / 3);
+                //m_width is not changed, this instance is shared by the rendering threads
+                final int width = (int)maxBounds.getWidth();
+                g.drawString(min, width / 2, m_height);
+                g.drawLine(width / 2, height, width / 2, height + MIN_MAX_AREA_HEIGHT / 3);
             }
         }
     }
@@ -1242,12 +1466,213 @@ private int upperPosition(final int referenceCount, final int count) {
      */
     public Map<Integer, ? extends HistogramModel<?>> histograms(final DataTable data, final HiLiteHandler hlHandler,
         final double[] mins, final double[] maxs, final double[] means, final String... columns) {
-        return histogramsPrivate(data, hlHandler, mins, maxs, means, columns);
+        try {
+            return histogramsPrivate(data, hlHandler, mins, maxs, means,
+                new HashMap<Integer, HeavyHitterCounter<DataCell>>(), new ExecutionMonitor(), columns);
+        } catch (CanceledExecutionException e) {
+            //a new monitor is never cancelled
+            throw new IllegalStateException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Computes the histograms for the selected numeric columns and counts the most frequent values of the columns
+     * set by {@link #withTopValues(int, Collection)} in the same scan.
+     *
+     * @param data The input data.
+     * @param hlHandler The {@link HiLiteHandler}.
+     * @param mins The minimum values. (Preferably non-infinite.)
+     * @param maxs The maximum values. (Preferably non-infinite.)
+     * @param means The mean values. (Preferably non-NaN.)
+     * @param topValues Output: the column index to counter of the most frequent values {@link Map}.
+     * @param exec The {@link ExecutionMonitor} of the scan.
+     * @param columns The name of the columns.
+     * @return The numeric {@link HistogramModel} for {@code columns} from {@code data} (where the keys are the array
+     *         indices from {@code columns}).
+     * @throws CanceledExecutionException Cancelled.
+     * @since 5.12
+     */
+    public Map<Integer, ? extends HistogramModel<?>> histograms(final DataTable data, final HiLiteHandler hlHandler,
+        final double[] mins, final double[] maxs, final double[] means,
+        final Map<Integer, HeavyHitterCounter<DataCell>> topValues, final ExecutionMonitor exec,
+        final String... columns) throws CanceledExecutionException {
+        return histogramsPrivate(data, hlHandler, mins, maxs, means, topValues, exec, columns);
+    }
+
+    /**
+     * Computes the numeric histograms together with the {@link HiLiteIndex} of their bins and of the values of the
+     * nominal columns in a single scan of {@code data}.
+     *
+     * @param data The input data.
+     * @param hlHandler The {@link HiLiteHandler}.
+     * @param mins The minimum values. (Preferably non-infinite.)
+     * @param maxs The maximum values. (Preferably non-infinite.)
+     * @param means The mean values. (Preferably non-NaN.)
+     * @param nominalColumnNames The nominal column names.
+     * @param topValues Output: the column index to counter of the most frequent values {@link Map} of the columns
+     *            set by {@link #withTopValues(int, Collection)}.
+     * @param exec The {@link ExecutionMonitor} of the scan.
+     * @param columns The name of the columns.
+     * @return A {@link Pair} of the histograms, where the keys are the array indices from {@code columns}, and the
+     *         {@link HiLiteIndex} of the rows.
+     * @throws CanceledExecutionException Cancelled.
+     * @since 5.12
+     */
+    public Pair<Map<Integer, ? extends HistogramModel<?>>, HiLiteIndex> histogramsWithKeys(final DataTable data,
+            final HiLiteHandler hlHandler, final double[] mins, final double[] maxs, final double[] means,
+            final Set<String> nominalColumnNames, final Map<Integer, HeavyHitterCounter<DataCell>> topValues,
+            final ExecutionMonitor exec, final String... columns) throws CanceledExecutionException {
+        final Map<Integer, HistogramNumericModel> histograms = createNumericModels(data, mins, maxs, means, columns);
+        final DataTableSpec tableSpec = data.getDataTableSpec();
+        final List<Integer> nominalIndices = new ArrayList<Integer>();
+        for (String column : columns) {
+            final int colIndex = tableSpec.findColumnIndex(column);
+            final DataColumnSpec colSpec = tableSpec.getColumnSpec(colIndex);
+            if ((colSpec.getType().isCompatible(DoubleValue.class) || colSpec.getType().isCompatible(
+                NominalValue.class)) && (colSpec.getDomain().hasValues() || nominalColumnNames.contains(column))) {
+                nominalIndices.add(Integer.valueOf(colIndex));
+            }
+        }
+        final int[] nominalColIndices = nominalIndices.stream().mapToInt(Integer::intValue).toArray();
+        final HistogramAccumulator accumulator = accumulate(data, hlHandler, exec,
+            () -> createAccumulator(tableSpec, histograms, true, nominalColIndices));
+        topValues.putAll(accumulator.getTopValues());
+        return new Pair<Map<Integer, ? extends HistogramModel<?>>, HiLiteIndex>(histograms,
+            accumulator.getHiLiteIndex());
+    }
+
+    /**
+     * Scans {@code data} with the accumulators created by {@code accumulators}, one per range of
+     * {@value #ROWS_PER_RANGE} rows, and merges them in the order of the ranges, so the result does not depend on the
+     * number of threads. The ranges of buffered tables are scanned concurrently on the KNIME thread pool.
+     */
+    private HistogramAccumulator accumulate(final DataTable data, final HiLiteHandler hlHandler,
+        final ExecutionMonitor exec, final Supplier<HistogramAccumulator> accumulators)
+        throws CanceledExecutionException {
+        final Set<RowKey> hiLitKeys = hlHandler.getHiLitKeys();
+        final long numRows = data instanceof BufferedDataTable ? ((BufferedDataTable)data).size() : -1;
+        final long numRanges = (numRows + ROWS_PER_RANGE - 1) / ROWS_PER_RANGE;
+        if (m_numThreads < 2 || numRanges < 2) {
+            HistogramAccumulator accumulator = null;
+            HistogramAccumulator range = accumulators.get();
+            long row = 0;
+            for (DataRow dataRow : data) {
+                if (row % ROWS_PER_PROGRESS == 0) {
+                    exec.checkCanceled();
+                    if (numRows > 0) {
+                        exec.setProgress(row / (double)numRows);
+                    }
+                }
+                if (row > 0 && row % ROWS_PER_RANGE == 0) {
+                    accumulator = merge(accumulator, range);
+                    range = accumulators.get();
+                }
+                range.add(dataRow, !hiLitKeys.isEmpty() && hiLitKeys.contains(dataRow.getKey()));
+                ++row;
+            }
+            accumulator = merge(accumulator, range);
+            accumulator.finish();
+            return accumulator;
+        }
+        final BufferedDataTable table = (BufferedDataTable)data;
+        final ThreadPool pool = KNIMEConstants.GLOBAL_THREAD_POOL.createSubPool(m_numThreads);
+        //at most two ranges per thread are scanned or wait to be merged
+        final Deque<Future<HistogramAccumulator>> pending = new ArrayDeque<Future<HistogramAccumulator>>();
+        try {
+            HistogramAccumulator accumulator = null;
+            long next = 0;
+            while (next < numRanges || !pending.isEmpty()) {
+                while (next < numRanges && pending.size() < 2 * m_numThreads) {
+                    final long from = next * ROWS_PER_RANGE, to = Math.min(numRows, from + ROWS_PER_RANGE) - 1;
+                    pending.add(pool.enqueue(scanRange(table, from, to, hiLitKeys,
+                        exec.createSubProgress((to - from + 1) / (double)numRows), accumulators)));
+                    ++next;
+                }
+                accumulator = merge(accumulator, pending.poll().get());
+            }
+            accumulator.finish();
+            return accumulator;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CanceledExecutionException(e.getMessage());
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof CanceledExecutionException) {
+                throw (CanceledExecutionException)e.getCause();
+            }
+            throw new IllegalStateException(e.getCause().getMessage(), e.getCause());
+        } finally {
+            for (Future<HistogramAccumulator> range : pending) {
+                range.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * @return The task that scans the rows {@code from} to {@code to} (inclusive) of {@code table}.
+     */
+    private static Callable<HistogramAccumulator> scanRange(final BufferedDataTable table, final long from,
+        final long to, final Set<RowKey> hiLitKeys, final ExecutionMonitor exec,
+        final Supplier<HistogramAccumulator> accumulators) {
+        return () -> {
+            final HistogramAccumulator accumulator = accumulators.get();
+            try (CloseableRowIterator it = table.filter(TableFilter.filterRangeOfRows(from, to))) {
+                for (long row = 0; it.hasNext(); ++row) {
+                    if (row % ROWS_PER_PROGRESS == 0) {
+                        exec.checkCanceled();
+                        exec.setProgress(row / (double)(to - from + 1));
+                    }
+                    final DataRow dataRow = it.next();
+                    accumulator.add(dataRow, !hiLitKeys.isEmpty() && hiLitKeys.contains(dataRow.getKey()));
+                }
+            }
+            exec.setProgress(1);
+            return accumulator;
+        };
+    }
+
+    /**
+     * Merges {@code range} into the accumulator of the previous ranges.
+     *
+     * @return {@code range} if there are no previous ranges, else {@code accumulator}.
+     */
+    private static HistogramAccumulator merge(final HistogramAccumulator accumulator,
+        final HistogramAccumulator range) {
+        if (accumulator == null) {
+            return range;
+        }
+        accumulator.merge(range);
+        return accumulator;
     }
 
     private Map<Integer, HistogramNumericModel> histogramsPrivate(final DataTable data, final HiLiteHandler hlHandler,
-        final double[] mins, final double[] maxs, final double[] means, final String... columns) {
+        final double[] mins, final double[] maxs, final double[] means,
+        final Map<Integer, HeavyHitterCounter<DataCell>> topValues, final ExecutionMonitor exec,
+        final String... columns) throws CanceledExecutionException {
+        final Map<Integer, HistogramNumericModel> histograms = createNumericModels(data, mins, maxs, means, columns);
+        topValues.putAll(accumulate(data, hlHandler, exec,
+            () -> createAccumulator(data.getDataTableSpec(), histograms, false)).getTopValues());
+        return histograms;
+    }
 
+    /**
+     * Creates an accumulator of the histograms with the quantile sketches and top value counters of this instance.
+     */
+    private HistogramAccumulator createAccumulator(final DataTableSpec spec,
+        final Map<Integer, HistogramNumericModel> histograms, final boolean collectKeys, final int... nominalIndices) {
+        final int[] topValueIndices = new int[m_topValueColumns.size()];
+        int t = 0;
+        for (String column : m_topValueColumns) {
+            topValueIndices[t++] = spec.findColumnIndex(column);
+        }
+        return new HistogramAccumulator(spec, histograms, collectKeys, m_quantileError, nominalIndices)
+            .withTopValues(Math.max(1, m_topValueCapacity), topValueIndices);
+    }
+
+    /**
+     * Creates the empty numeric histograms of the numeric {@code columns} with finite bounds.
+     */
+    private Map<Integer, HistogramNumericModel> createNumericModels(final DataTable data, final double[] mins,
+        final double[] maxs, final double[] means, final String... columns) {
         final Map<Integer, HistogramNumericModel> histograms = new HashMap<Integer, HistogramNumericModel>();
         for (int columnIndex = 0; columnIndex < columns.length; ++columnIndex) {
             String column = columns[columnIndex];
@@ -1269,26 +1694,6 @@ private Map<Integer, HistogramNumericModel> histogramsPrivate(final DataTable da
 
             }
         }
-        final Set<RowKey> hiLitKeys = hlHandler.getHiLitKeys();
-        String[] columnNames = data.getDataTableSpec().getColumnNames();
-
-        for (DataRow dataRow : data) {
-            final boolean isHiLited = hiLitKeys.contains(dataRow.getKey());
-            for (Entry<Integer, HistogramNumericModel> entry : histograms.entrySet()) {
-                String colName = entry.getValue().getColName();
-                int columnIndexInTable =  Arrays.asList(columnNames).indexOf(colName);
-                //DataCell cell = dataRow.getCell(entry.getKey().intValue());
-                DataCell cell = dataRow.getCell(columnIndexInTable);
-                if (!cell.isMissing()) {
-                    final double d = ((DoubleValue)cell).getDoubleValue();
-                    if (Double.isNaN(d) || Double.isInfinite(d)) {
-                        continue;
-                    }
-                    final HistogramNumericModel hd = entry.getValue();
-                    hd.addValue(cell, isHiLited);
-                }
-            }
-        }
         return histograms;
     }
 
@@ -1361,7 +1766,8 @@ protected static BigDecimal scaled5(final int scale) {
      * @return The {@link DataColumnSpec} for the column to be created.
      */
     public DataColumnSpec createHistogramColumnSpec() {
-        final DataColumnSpecCreator columnSpecCreator = new DataColumnSpecCreator(m_colName, m_format.getDataType());
+        final DataColumnSpecCreator columnSpecCreator = new DataColumnSpecCreator(m_colName,
+            m_lazyImages ? HistogramImageCell.getDataType(m_format) : m_format.getDataType());
         if (m_format == ImageFormats.SVG) {
             final Map<String, String> widthAndHeight = new LinkedHashMap<String, String>();
             widthAndHeight.put(SvgValueRenderer.OPTION_KEEP_ASPECT_RATIO, Boolean.toString(true));
@@ -1433,6 +1839,62 @@ public DataColumnSpec createHistogramColumnSpec() {
                 numericKeys), nominalKeys);
     }
 
+    /**
+     * Creates the {@link HiLiteIndex} from the data array that was saved by
+     * {@link #saveHistograms(Map, Map, Map, File, DataArray, File, ExecutionMonitor)}.
+     *
+     * @param dataArrayGz The data array file with the values of the numeric and nominal columns.
+     * @param histograms The numeric histograms, the keys are the column indices.
+     * @param columnNames The names of the columns of the input table.
+     * @param nominalColumns The nominal columns.
+     * @return The {@link HiLiteIndex} of the rows of the data array.
+     * @throws IOException Failed to read the file.
+     * @since 5.12
+     */
+    public static HiLiteIndex loadHiLiteIndex(final File dataArrayGz,
+        final Map<Integer, ? extends HistogramModel<?>> histograms, final String[] columnNames,
+        final Set<String> nominalColumns) throws IOException {
+        final KnowsRowCountTable table = DataContainer.readFromZip(dataArrayGz);
+        final DataTableSpec spec = table.getDataTableSpec();
+        //the data array only contains some of the columns, so they are looked up by their names
+        final List<HistogramNumericModel> numerics = new ArrayList<HistogramNumericModel>();
+        final List<Integer> numericIndices = new ArrayList<Integer>();
+        for (HistogramModel<?> hd : histograms.values()) {
+            final int index = spec.findColumnIndex(hd.getColName());
+            if (hd instanceof HistogramNumericModel && index >= 0) {
+                numerics.add((HistogramNumericModel)hd);
+                numericIndices.add(Integer.valueOf(index));
+            }
+        }
+        final List<Integer> nominals = new ArrayList<Integer>(), nominalIndices = new ArrayList<Integer>();
+        for (int i = 0; i < columnNames.length; ++i) {
+            final int index = spec.findColumnIndex(columnNames[i]);
+            if (nominalColumns.contains(columnNames[i]) && index >= 0) {
+                nominals.add(Integer.valueOf(i));
+                nominalIndices.add(Integer.valueOf(index));
+            }
+        }
+        final HiLiteIndex.Builder builder =
+            new HiLiteIndex.Builder(numerics.stream().mapToInt(HistogramModel::getColIndex).toArray(),
+                nominals.stream().mapToInt(Integer::intValue).toArray());
+        for (DataRow dataRow : table) {
+            final int row = builder.addRow(dataRow.getKey());
+            for (int n = 0; n < numerics.size(); ++n) {
+                final DataCell cell = dataRow.getCell(numericIndices.get(n).intValue());
+                if (!cell.isMissing() && cell instanceof DoubleValue) {
+                    builder.setBin(n, row, numerics.get(n).findBin((DoubleValue)cell));
+                }
+            }
+            for (int n = 0; n < nominals.size(); ++n) {
+                final DataCell cell = dataRow.getCell(nominalIndices.get(n).intValue());
+                if (!cell.isMissing()) {
+                    builder.setValue(n, row, cell);
+                }
+            }
+        }
+        return builder.build();
+    }
+
     /**
      * Loads the histograms and fills the content of {@code numericKeys}.
      *
@@ -1450,6 +1912,21 @@ public DataColumnSpec createHistogramColumnSpec() {
         return loadHistogramsPrivate(histogramsGz, numericKeys, strategy, means);
     }
 
+    /**
+     * Loads the histograms saved by {@link #saveHistogramsBinary(Map, File)}. The file is memory-mapped, so the bin
+     * boundaries and counts are read directly into their arrays.
+     *
+     * @param histogramsFile The file for the histograms.
+     * @param means The mean values for the numeric columns.
+     * @return The {@link Map} from the column indices to the {@link HistogramModel}s.
+     * @throws IOException Problem reading the file, or it is not a histogram file of a supported version.
+     * @since 5.12
+     */
+    public static Map<Integer, ? extends HistogramModel<?>> loadHistogramsBinary(final File histogramsFile,
+        final double[] means) throws IOException {
+        return HistogramFile.read(histogramsFile, means);
+    }
+
     private static Map<Integer, HistogramNumericModel> loadHistogramsPrivate(final File histogramsGz,
         final Map<Integer, Map<Integer, Set<RowKey>>> numericKeys, final BinNumberSelectionStrategy strategy,
         final double[] means) throws IOException, InvalidSettingsException {
@@ -1471,11 +1948,18 @@ private static Map<Integer, HistogramNumericModel> loadHistogramsPrivate(final F
             HistogramNumericModel histogramData =
                 new HistogramNumericModel(min, max, binMins.length, colIdx, colName, min, max, mean);
             for (int i = binMins.length; i-- > 0;) {
-                histogramData.getBins().set(i, histogramData.new NumericBin(binMins[i], binMaxes[i]));
-                histogramData.getBins().get(i).setCount(binCounts[i]);
+                histogramData.setBin(i, binMins[i], binMaxes[i], binCounts[i]);
             }
             histogramData.setMaxCount(maxCount);
             histogramData.setRowCount(rowCount);
+            if (h.containsKey(QUANTILE_SKETCH)) {
+                final Config q = h.getConfig(QUANTILE_SKETCH);
+                final double[][] levels = new double[q.getInt(QUANTILE_LEVELS)][];
+                for (int level = 0; level < levels.length; ++level) {
+                    levels[level] = q.getDoubleArray(QUANTILE_LEVEL + level);
+                }
+                histogramData.setQuantileSketch(new QuantileSketch(q.getDouble(QUANTILE_ERROR), levels));
+            }
             assert Math.abs(histogramData.m_width - width) < 1e-9: "histogram data width: " + histogramData.m_width + " width: " + width;
             histograms.put(colIdx, histogramData);
             numericKeys.put(colIdx, new HashMap<Integer, Set<RowKey>>());
@@ -1582,6 +2066,20 @@ private static void saveRowKeys(final Map<Integer, Map<Integer, Set<RowKey>>> bu
         DataContainer.writeToZip(subTable, dataArrayFile, exec);
     }
 
+    /**
+     * Saves the numeric and nominal histograms to a file in a versioned binary format, which can be read with
+     * {@link #loadHistogramsBinary(File, double[])}.
+     *
+     * @param histograms The histogram models associated to the column indices.
+     * @param histogramsFile The output file.
+     * @throws IOException File write problem.
+     * @since 5.12
+     */
+    public static void saveHistogramsBinary(final Map<Integer, ?> histograms, final File histogramsFile)
+        throws IOException {
+        HistogramFile.write(histograms, histogramsFile);
+    }
+
     /**
      * Saves the numeric histogram data to a file.
      *
@@ -1626,6 +2124,15 @@ public static void saveHistogramData(final Map<Integer, ?> histograms, final Fil
                 h.addDoubleArray(BIN_MINS, minValues);
                 h.addDoubleArray(BIN_MAXES, maxValues);
                 h.addIntArray(BIN_COUNTS, counts);
+                if (hd.getQuantileSketch() != null) {
+                    final Config q = h.addConfig(QUANTILE_SKETCH);
+                    q.addDouble(QUANTILE_ERROR, hd.getQuantileSketch().getEpsilon());
+                    final double[][] levels = hd.getQuantileSketch().getLevels();
+                    q.addInt(QUANTILE_LEVELS, levels.length);
+                    for (int level = 0; level < levels.length; ++level) {
+                        q.addDoubleArray(QUANTILE_LEVEL + level, levels[level]);
+                    }
+                }
             } else {
                 throw new IllegalStateException("Illegal argument: " + colIdx + ": " + object.getClass() + "\n   "
                     + object);
@@ -1708,6 +2215,59 @@ public JComponent createComponent(final Object histogramDescription, final int w
         return ret;
     }
 
+    /**
+     * Constructs the visual representation of a numeric histogram, whose hilited rows are counted with a
+     * {@link HiLiteIndex}.
+     *
+     * @param histogramDescription Data representation of the histogram.
+     * @param width Width of the component.
+     * @param height Height of the component.
+     * @param hiLiteHandler The {@link HiLiteHandler} for the input data.
+     * @param index The {@link HiLiteIndex} of the input data.
+     * @param maxBinSize The maximum number of bins till we draw labels.
+     * @return The histogram of the column.
+     * @since 5.12
+     */
+    public JComponent createComponent(final Object histogramDescription, final int width, final int height,
+        final HiLiteHandler hiLiteHandler, final HiLiteIndex index, final int maxBinSize) {
+        JPanel ret;
+        if (histogramDescription instanceof HistogramModel) {
+            final HistogramModel<?> hd = (HistogramModel<?>)histogramDescription;
+            ret = new HistogramComponent(hd, hiLiteHandler, index, index.getBins(hd.getColIndex()), null, false);
+        } else {
+            ret = new JPanel();
+        }
+        ret.setPreferredSize(new Dimension(width, height));
+        return ret;
+    }
+
+    /**
+     * Constructs the visual representation of a nominal histogram, whose hilited rows are counted with a
+     * {@link HiLiteIndex}.
+     *
+     * @param nominalModel The histogram of the nominal values.
+     * @param width Width of the component.
+     * @param height Height of the component.
+     * @param hiLiteHandler The {@link HiLiteHandler} for the input data.
+     * @param index The {@link HiLiteIndex} of the input data.
+     * @param column The index of the column.
+     * @param maxBinSize The maximum number of bins till we draw labels.
+     * @return The histogram of the column.
+     * @since 5.12
+     */
+    public JComponent createNominalComponent(final HistogramModel<?> nominalModel, final int width, final int height,
+        final HiLiteHandler hiLiteHandler, final HiLiteIndex index, final int column, final int maxBinSize) {
+        final DataCell[] values = index.getValues(column);
+        final int[] binOfId = new int[values == null ? 0 : values.length];
+        for (int id = 0; id < binOfId.length; ++id) {
+            binOfId[id] = nominalModel.findBin(values[id]);
+        }
+        final JPanel ret =
+            new HistogramComponent(nominalModel, hiLiteHandler, index, index.getValueIds(column), binOfId, false);
+        ret.setPreferredSize(new Dimension(width, height));
+        return ret;
+    }
+
     /**
      * Append the nominal rows to the histogram table.
      *
@@ -1758,14 +2318,40 @@ public BufferedDataTable appendNominal(final BufferedDataTable numericWithHistog
      * @see #createNominalHistogramTableSpec()
      */
     public BufferedDataTable nominalTable(final Statistics3Table statTable, final HiLiteHandler hlHandler,
+        final ExecutionContext exec, final int maxBinCount) {
+        return nominalTable(statTable, statTable.getNominalValues(), hlHandler, exec, maxBinCount);
+    }
+
+    /**
+     * Creates the nominal table (histogram with number of missing values) from nominal value counts that were not
+     * computed by the statistics table, like the most frequent values counted by {@link HeavyHitterCounter}s.
+     *
+     * @param statTable The statistics table.
+     * @param nominalValueList The value to count {@link Map}s for each column, {@code null} for non-nominal
+     *            columns.
+     * @param hlHandler The {@link HiLiteHandler}.
+     * @param exec An {@link ExecutionContext}.
+     * @param maxBinCount The maximum number of bins when we put labels to the histogram.
+     * @return The table containing the histograms.
+     * @see #createNominalHistogramTableSpec()
+     * @since 5.12
+     */
+    public BufferedDataTable nominalTable(final Statistics3Table statTable,
+        final List<Map<DataCell, Integer>> nominalValueList, final HiLiteHandler hlHandler,
         final ExecutionContext exec, final int maxBinCount) {
         DataTableSpec tableSpec = createNominalHistogramTableSpec();
         BufferedDataContainer nominals = exec.createDataContainer(tableSpec);
-        for (int i = 0; i < statTable.getNominalValues().size(); ++i) {
-            Map<DataCell, Integer> nominalValues = statTable.getNominalValues(i);
-            if (nominalValues == null) {
-                continue;
+        final List<HistogramModel<?>> models = new ArrayList<HistogramModel<?>>();
+        for (int i = 0; i < nominalValueList.size(); ++i) {
+            Map<DataCell, Integer> nominalValues = nominalValueList.get(i);
+            if (nominalValues != null) {
+                models.add(new HistogramNominalModel(new LinkedHashMap<DataValue, Integer>(nominalValues), i,
+                    statTable.getColumnNames()[i], statTable.getRowCount()));
             }
+        }
+        final List<DataCell> images = createImageCells(models, maxBinCount);
+        for (int m = 0; m < models.size(); ++m) {
+            final int i = models.get(m).getColIndex();
             final String colName = statTable.getColumnNames()[i];
             DataCell[] row = new DataCell[tableSpec.getNumColumns()];
             for (int u = row.length; u-- > 0;) {
@@ -1773,10 +2359,7 @@ public BufferedDataTable nominalTable(final Statistics3Table statTable, final Hi
             }
             row[0] = new StringCell(colName);
             row[1] = new IntCell(statTable.getNumberMissingValues()[i]);
-            HistogramNominalModel model =
-                new HistogramNominalModel(new LinkedHashMap<DataValue, Integer>(nominalValues), i, colName,
-                    statTable.getRowCount());
-            row[row.length - 1] = createImageCell(model, maxBinCount >= model.getBins().size());
+            row[row.length - 1] = images.get(m);
             nominals.addRowToTable(new DefaultRow(colName, row));
         }
         nominals.close();
@@ -1848,12 +2431,65 @@ void paint(final HistogramModel<?> histogramData, final boolean paintLabels, fin
         }
     }
 
+    /**
+     * Creates the image cells of histograms. They are rendered concurrently by at most
+     * {@link #withNumberOfThreads(int) the number of threads} if there are more threads.
+     *
+     * @param histograms The {@link HistogramModel}s.
+     * @param maxBinCount The maximum number of bins till we draw labels.
+     * @return The image cells in the order of {@code histograms}.
+     */
+    private List<DataCell> createImageCells(final List<HistogramModel<?>> histograms, final int maxBinCount) {
+        final List<DataCell> images = new ArrayList<DataCell>(histograms.size());
+        final int numThreads = Math.min(m_numThreads, histograms.size());
+        if (numThreads < 2 || m_lazyImages) {
+            for (HistogramModel<?> histogramData : histograms) {
+                images.add(createImageCell(histogramData, maxBinCount >= histogramData.getBins().size()));
+            }
+            return images;
+        }
+        final ThreadPool pool = KNIMEConstants.GLOBAL_THREAD_POOL.createSubPool(numThreads);
+        final List<Future<DataCell>> rendered = new ArrayList<Future<DataCell>>(histograms.size());
+        try {
+            for (HistogramModel<?> histogramData : histograms) {
+                rendered.add(pool.enqueue(
+                    () -> createImageCell(histogramData, maxBinCount >= histogramData.getBins().size())));
+            }
+            for (Future<DataCell> image : rendered) {
+                images.add(image.get());
+            }
+            return images;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e.getMessage(), e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause().getMessage(), e.getCause());
+        } finally {
+            for (Future<DataCell> image : rendered) {
+                image.cancel(true);
+            }
+        }
+    }
+
     /**
      * @param histogramData A {@link HistogramModel}.
      * @param paintLabels Should we paint the labels too?
-     * @return The PNG or SVG image cell according to the format.
+     * @return The PNG or SVG image cell according to the format, a {@link HistogramImageCell} rendering it on first
+     *         access if the images are lazy.
      */
     private DataCell createImageCell(final HistogramModel<?> histogramData, final boolean paintLabels) {
+        if (m_lazyImages) {
+            return HistogramImageCell.create(m_format, histogramData, m_width, m_height, m_showMinMax, paintLabels);
+        }
+        return renderImageCell(histogramData, paintLabels);
+    }
+
+    /**
+     * @param histogramData A {@link HistogramModel}.
+     * @param paintLabels Should we paint the labels too?
+     * @return The rendered PNG or SVG image cell according to the format.
+     */
+    DataCell renderImageCell(final HistogramModel<?> histogramData, final boolean paintLabels) {
         switch (m_format) {
             case PNG:
                 return createPngImageCell(histogramData, paintLabels);
@@ -0,0 +1,312 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ *
+ */
+package org.knime.base.data.statistics;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.knime.base.data.statistics.HistogramColumn.HistogramNominalModel;
+import org.knime.base.data.statistics.HistogramColumn.HistogramNumericModel;
+import org.knime.core.data.DataValue;
+import org.knime.core.data.MissingCell;
+import org.knime.core.data.StringValue;
+import org.knime.core.data.def.StringCell;
+import org.knime.core.util.Pair;
+
+/**
+ * Reads and writes histogram models in a versioned binary format, which is read from a memory-mapped file. The file
+ * starts with a magic number and the format version, followed by a table of the strings (the column names and the
+ * nominal values) and the histograms, whose bin boundaries and counts are stored as primitive arrays:
+ *
+ * <pre>
+ * int magic, int version
+ * int #strings, (int #bytes, UTF-8 bytes)*
+ * int #histograms, histogram*
+ * numeric histogram: byte 0, int column index, int name, int max count, int row count, int #bins,
+ *     double min, double max, double[#bins] bin minimums, double[#bins] bin maximums, int[#bins] counts,
+ *     byte has sketch, [double error, int #levels, (int #values, double[#values])*]
+ * nominal histogram: byte 1, int column index, int name, int max count, int row count, int #bins,
+ *     int[#bins] values (-1 for missing values), int[#bins] counts
+ * </pre>
+ *
+ * All numbers are big-endian, strings are referenced by their indices in the string table.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ */
+final class HistogramFile {
+
+    /** The magic number at the start of the files ({@code "KHST"}). */
+    private static final int MAGIC = 0x4B485354;
+
+    /** The current version of the format. */
+    static final int VERSION = 1;
+
+    private static final byte NUMERIC = 0;
+
+    private static final byte NOMINAL = 1;
+
+    private static final int MISSING = -1;
+
+    private HistogramFile() {
+    }
+
+    /**
+     * Writes the histograms to a file.
+     *
+     * @param histograms The {@link HistogramNumericModel}s and {@link HistogramNominalModel}s associated to the
+     *            column indices.
+     * @param file The output file.
+     * @throws IOException File write problem.
+     */
+    static void write(final Map<Integer, ?> histograms, final File file) throws IOException {
+        final List<Integer> colIndices = new ArrayList<Integer>(histograms.keySet());
+        Collections.sort(colIndices);
+        final Map<String, Integer> strings = new LinkedHashMap<String, Integer>();
+        for (Integer colIdx : colIndices) {
+            final Object object = histograms.get(colIdx);
+            if (!(object instanceof HistogramNumericModel || object instanceof HistogramNominalModel)) {
+                throw new IllegalStateException("Illegal argument: " + colIdx + ": " + object.getClass() + "\n   "
+                    + object);
+            }
+            final HistogramModel<?> hd = (HistogramModel<?>)object;
+            assert hd.getColIndex() == colIdx.intValue() : "colIdx: " + colIdx + ", but: " + hd.getColIndex();
+            stringIndex(strings, hd.getColName());
+            if (hd instanceof HistogramNominalModel) {
+                for (HistogramModel.Bin<?> bin : hd.getBins()) {
+                    if (bin.getDef() instanceof StringValue) {
+                        stringIndex(strings, ((StringValue)bin.getDef()).getStringValue());
+                    }
+                }
+            }
+        }
+        try (final DataOutputStream out =
+            new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(strings.size());
+            for (String string : strings.keySet()) {
+                final byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+            out.writeInt(colIndices.size());
+            for (Integer colIdx : colIndices) {
+                final HistogramModel<?> hd = (HistogramModel<?>)histograms.get(colIdx);
+                out.writeByte(hd instanceof HistogramNumericModel ? NUMERIC : NOMINAL);
+                out.writeInt(hd.getColIndex());
+                out.writeInt(strings.get(hd.getColName()).intValue());
+                out.writeInt(hd.getMaxCount());
+                out.writeInt(hd.getRowCount());
+                out.writeInt(hd.getBins().size());
+                if (hd instanceof HistogramNumericModel) {
+                    writeNumeric((HistogramNumericModel)hd, out);
+                } else {
+                    for (HistogramModel.Bin<?> bin : hd.getBins()) {
+                        out.writeInt(bin.getDef() instanceof StringValue
+                            ? strings.get(((StringValue)bin.getDef()).getStringValue()).intValue() : MISSING);
+                    }
+                    for (HistogramModel.Bin<?> bin : hd.getBins()) {
+                        out.writeInt(bin.getCount());
+                    }
+                }
+            }
+        }
+    }
+
+    private static void stringIndex(final Map<String, Integer> strings, final String string) {
+        strings.computeIfAbsent(string, s -> Integer.valueOf(strings.size()));
+    }
+
+    private static void writeNumeric(final HistogramNumericModel hd, final DataOutputStream out) throws IOException {
+        out.writeDouble(hd.getMin());
+        out.writeDouble(hd.getMax());
+        for (HistogramModel.Bin<Pair<Double, Double>> bin : hd.getBins()) {
+            out.writeDouble(bin.getDef().getFirst().doubleValue());
+        }
+        for (HistogramModel.Bin<Pair<Double, Double>> bin : hd.getBins()) {
+            out.writeDouble(bin.getDef().getSecond().doubleValue());
+        }
+        for (HistogramModel.Bin<Pair<Double, Double>> bin : hd.getBins()) {
+            out.writeInt(bin.getCount());
+        }
+        final QuantileSketch sketch = hd.getQuantileSketch();
+        out.writeByte(sketch == null ? 0 : 1);
+        if (sketch != null) {
+            out.writeDouble(sketch.getEpsilon());
+            final double[][] levels = sketch.getLevels();
+            out.writeInt(levels.length);
+            for (double[] level : levels) {
+                out.writeInt(level.length);
+                for (double value : level) {
+                    out.writeDouble(value);
+                }
+            }
+        }
+    }
+
+    /**
+     * @param file A file.
+     * @return Whether {@code file} starts like the files written by {@link #write(Map, File)}.
+     * @throws IOException Problem reading the file.
+     */
+    static boolean isHistogramFile(final File file) throws IOException {
+        try (final FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            final ByteBuffer header = ByteBuffer.allocate(Integer.BYTES);
+            while (header.hasRemaining() && channel.read(header) >= 0) {
+                //read the magic number
+            }
+            header.flip();
+            return header.remaining() == Integer.BYTES && header.getInt() == MAGIC;
+        }
+    }
+
+    /**
+     * Reads the histograms from a file written by {@link #write(Map, File)}.
+     *
+     * @param file The input file.
+     * @param means The mean values of the numeric columns.
+     * @return The {@link Map} from the column indices to the {@link HistogramModel}s.
+     * @throws IOException Problem reading the file, or the file is not a histogram file of a supported version.
+     */
+    static Map<Integer, HistogramModel<?>> read(final File file, final double[] means) throws IOException {
+        try (final FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            final ByteBuffer buffer = channel.map(MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.remaining() < 2 * Integer.BYTES || buffer.getInt() != MAGIC) {
+                throw new IOException("Not a histogram file: " + file);
+            }
+            final int version = buffer.getInt();
+            if (version < 1 || version > VERSION) {
+                throw new IOException("Unsupported version of the histogram file " + file + ": " + version);
+            }
+            final String[] strings = new String[buffer.getInt()];
+            for (int s = 0; s < strings.length; ++s) {
+                final byte[] bytes = new byte[buffer.getInt()];
+                buffer.get(bytes);
+                strings[s] = new String(bytes, StandardCharsets.UTF_8);
+            }
+            final Map<Integer, HistogramModel<?>> histograms = new HashMap<Integer, HistogramModel<?>>();
+            for (int h = buffer.getInt(); h-- > 0;) {
+                final byte kind = buffer.get();
+                final int colIdx = buffer.getInt();
+                final String colName = strings[buffer.getInt()];
+                final int maxCount = buffer.getInt();
+                final int rowCount = buffer.getInt();
+                final int numBins = buffer.getInt();
+                final HistogramModel<?> hd;
+                if (kind == NUMERIC) {
+                    hd = readNumeric(buffer, colIdx, colName, numBins, means[colIdx]);
+                } else if (kind == NOMINAL) {
+                    final int[] values = ints(buffer, numBins);
+                    final int[] counts = ints(buffer, numBins);
+                    final Map<DataValue, Integer> bins = new LinkedHashMap<DataValue, Integer>();
+                    for (int i = 0; i < numBins; ++i) {
+                        bins.put(values[i] == MISSING ? new MissingCell(null) : new StringCell(strings[values[i]]),
+                            Integer.valueOf(counts[i]));
+                    }
+                    hd = new HistogramNominalModel(bins, colIdx, colName, rowCount);
+                } else {
+                    throw new IOException("Unknown histogram type in " + file + ": " + kind);
+                }
+                hd.setMaxCount(maxCount);
+                hd.setRowCount(rowCount);
+                histograms.put(Integer.valueOf(colIdx), hd);
+            }
+            return histograms;
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new IOException("Truncated or corrupt histogram file: " + file, e);
+        }
+    }
+
+    private static HistogramNumericModel readNumeric(final ByteBuffer buffer, final int colIdx, final String colName,
+        final int numBins, final double mean) {
+        final double min = buffer.getDouble(), max = buffer.getDouble();
+        final double[] binMins = doubles(buffer, numBins), binMaxes = doubles(buffer, numBins);
+        final int[] counts = ints(buffer, numBins);
+        final HistogramNumericModel hd = new HistogramNumericModel(min, max, numBins, colIdx, colName, min, max, mean);
+        for (int i = numBins; i-- > 0;) {
+            hd.setBin(i, binMins[i], binMaxes[i], counts[i]);
+        }
+        if (buffer.get() != 0) {
+            final double epsilon = buffer.getDouble();
+            final double[][] levels = new double[buffer.getInt()][];
+            for (int level = 0; level < levels.length; ++level) {
+                levels[level] = doubles(buffer, buffer.getInt());
+            }
+            hd.setQuantileSketch(new QuantileSketch(epsilon, levels));
+        }
+        return hd;
+    }
+
+    private static double[] doubles(final ByteBuffer buffer, final int length) {
+        final double[] ret = new double[length];
+        buffer.asDoubleBuffer().get(ret);
+        buffer.position(buffer.position() + length * Double.BYTES);
+        return ret;
+    }
+
+    private static int[] ints(final ByteBuffer buffer, final int length) {
+        final int[] ret = new int[length];
+        buffer.asIntBuffer().get(ret);
+        buffer.position(buffer.position() + length * Integer.BYTES);
+        return ret;
+    }
+}
@@ -0,0 +1,503 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ *
+ */
+package org.knime.base.data.statistics;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import org.knime.base.data.statistics.HistogramColumn.HistogramNominalModel;
+import org.knime.base.data.statistics.HistogramColumn.HistogramNumericModel;
+import org.knime.base.data.statistics.HistogramColumn.ImageFormats;
+import org.knime.base.data.xml.SvgValue;
+import org.knime.core.data.DataCell;
+import org.knime.core.data.DataCellDataInput;
+import org.knime.core.data.DataCellDataOutput;
+import org.knime.core.data.DataCellSerializer;
+import org.knime.core.data.DataType;
+import org.knime.core.data.DataValue;
+import org.knime.core.data.MissingCell;
+import org.knime.core.data.StringValue;
+import org.knime.core.data.def.StringCell;
+import org.knime.core.data.image.ImageContent;
+import org.knime.core.data.image.ImageValue;
+import org.knime.core.data.image.png.PNGImageContent;
+import org.knime.core.data.image.png.PNGImageValue;
+import org.knime.core.util.Pair;
+import org.w3c.dom.svg.SVGDocument;
+
+/**
+ * A histogram image that keeps only the bins of its {@link HistogramModel} and the size of the image. The image is
+ * rendered when it is first accessed, so tables with many histograms are created without rendering them. The
+ * rendered images are kept in a cache of the {@value #CACHE_SIZE} most recently used ones, keyed by the bins, the
+ * size and the format.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ * @since 5.12
+ */
+public abstract class HistogramImageCell extends DataCell {
+    private static final long serialVersionUID = 1L;
+
+    /** The maximal number of rendered images that are kept. */
+    static final int CACHE_SIZE = 256;
+
+    ///the rendered images in access order
+    private static final Map<HistogramImageCell, DataCell> RENDERED =
+        Collections.synchronizedMap(new LinkedHashMap<HistogramImageCell, DataCell>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<HistogramImageCell, DataCell> eldest) {
+                return size() > CACHE_SIZE;
+            }
+        });
+
+    private final int m_colIndex;
+
+    private final String m_colName;
+
+    private final int m_rowCount;
+
+    private final int m_maxCount;
+
+    ///the min, max, real min, real max and mean of a numeric histogram, null for nominal ones
+    private final double[] m_range;
+
+    ///the bin boundaries of a numeric histogram, null for nominal ones
+    private final double[] m_binMins, m_binMaxes;
+
+    ///the values of a nominal histogram (null for missing values), null for numeric ones
+    private final String[] m_values;
+
+    private final int[] m_counts;
+
+    private final int m_width, m_height;
+
+    private final boolean m_showMinMax, m_paintLabels;
+
+    /**
+     * Creates a cell from the bins of a histogram.
+     *
+     * @param histogramData A {@link HistogramNumericModel} or a {@link HistogramNominalModel}.
+     * @param width The width of the image.
+     * @param height The height of the image.
+     * @param showMinMax Whether the min and max values are shown.
+     * @param paintLabels Whether the labels of the bins are painted.
+     */
+    HistogramImageCell(final HistogramModel<?> histogramData, final int width, final int height,
+        final boolean showMinMax, final boolean paintLabels) {
+        m_colIndex = histogramData.getColIndex();
+        m_colName = histogramData.getColName();
+        m_rowCount = histogramData.getRowCount();
+        m_maxCount = histogramData.getMaxCount();
+        final int numBins = histogramData.getBins().size();
+        m_counts = new int[numBins];
+        for (int i = 0; i < numBins; ++i) {
+            m_counts[i] = histogramData.getBins().get(i).getCount();
+        }
+        if (histogramData instanceof HistogramNumericModel) {
+            final HistogramNumericModel hnm = (HistogramNumericModel)histogramData;
+            m_range = new double[]{hnm.getMin(), hnm.getMax(), hnm.getRealMin(), hnm.getRealMax(), hnm.getMean()};
+            m_binMins = new double[numBins];
+            m_binMaxes = new double[numBins];
+            for (int i = 0; i < numBins; ++i) {
+                final Pair<Double, Double> def = hnm.getBins().get(i).getDef();
+                m_binMins[i] = def.getFirst().doubleValue();
+                m_binMaxes[i] = def.getSecond().doubleValue();
+            }
+            m_values = null;
+        } else {
+            m_range = null;
+            m_binMins = null;
+            m_binMaxes = null;
+            m_values = new String[numBins];
+            for (int i = 0; i < numBins; ++i) {
+                final Object def = histogramData.getBins().get(i).getDef();
+                m_values[i] = def instanceof DataCell && ((DataCell)def).isMissing() ? null
+                    : def instanceof StringValue ? ((StringValue)def).getStringValue() : String.valueOf(def);
+            }
+        }
+        m_width = width;
+        m_height = height;
+        m_showMinMax = showMinMax;
+        m_paintLabels = paintLabels;
+    }
+
+    /**
+     * Reads a cell written by {@link #write(DataOutput)}.
+     *
+     * @param input The input.
+     * @throws IOException Problem reading the input.
+     */
+    HistogramImageCell(final DataInput input) throws IOException {
+        m_colIndex = input.readInt();
+        m_colName = input.readUTF();
+        m_rowCount = input.readInt();
+        m_maxCount = input.readInt();
+        m_width = input.readInt();
+        m_height = input.readInt();
+        m_showMinMax = input.readBoolean();
+        m_paintLabels = input.readBoolean();
+        final boolean numeric = input.readBoolean();
+        final int numBins = input.readInt();
+        m_counts = new int[numBins];
+        for (int i = 0; i < numBins; ++i) {
+            m_counts[i] = input.readInt();
+        }
+        if (numeric) {
+            m_range = new double[5];
+            for (int i = 0; i < m_range.length; ++i) {
+                m_range[i] = input.readDouble();
+            }
+            m_binMins = new double[numBins];
+            m_binMaxes = new double[numBins];
+            for (int i = 0; i < numBins; ++i) {
+                m_binMins[i] = input.readDouble();
+                m_binMaxes[i] = input.readDouble();
+            }
+            m_values = null;
+        } else {
+            m_range = null;
+            m_binMins = null;
+            m_binMaxes = null;
+            m_values = new String[numBins];
+            for (int i = 0; i < numBins; ++i) {
+                m_values[i] = input.readBoolean() ? input.readUTF() : null;
+            }
+        }
+    }
+
+    /**
+     * Writes the bins and the size of the image.
+     *
+     * @param output The output.
+     * @throws IOException Problem writing the output.
+     */
+    void write(final DataOutput output) throws IOException {
+        output.writeInt(m_colIndex);
+        output.writeUTF(m_colName);
+        output.writeInt(m_rowCount);
+        output.writeInt(m_maxCount);
+        output.writeInt(m_width);
+        output.writeInt(m_height);
+        output.writeBoolean(m_showMinMax);
+        output.writeBoolean(m_paintLabels);
+        output.writeBoolean(m_range != null);
+        output.writeInt(m_counts.length);
+        for (int count : m_counts) {
+            output.writeInt(count);
+        }
+        if (m_range != null) {
+            for (double d : m_range) {
+                output.writeDouble(d);
+            }
+            for (int i = 0; i < m_counts.length; ++i) {
+                output.writeDouble(m_binMins[i]);
+                output.writeDouble(m_binMaxes[i]);
+            }
+        } else {
+            for (String value : m_values) {
+                output.writeBoolean(value != null);
+                if (value != null) {
+                    output.writeUTF(value);
+                }
+            }
+        }
+    }
+
+    /**
+     * Creates a cell of the histogram image type of a format.
+     *
+     * @param format The image format.
+     * @param histogramData A {@link HistogramNumericModel} or a {@link HistogramNominalModel}.
+     * @param width The width of the image.
+     * @param height The height of the image.
+     * @param showMinMax Whether the min and max values are shown.
+     * @param paintLabels Whether the labels of the bins are painted.
+     * @return The not yet rendered image cell.
+     */
+    static HistogramImageCell create(final ImageFormats format, final HistogramModel<?> histogramData,
+        final int width, final int height, final boolean showMinMax, final boolean paintLabels) {
+        switch (format) {
+            case PNG:
+                return new PngHistogramCell(histogramData, width, height, showMinMax, paintLabels);
+            case SVG:
+                return new SvgHistogramCell(histogramData, width, height, showMinMax, paintLabels);
+            default:
+                throw new UnsupportedOperationException("Not supported image format: " + format.name());
+        }
+    }
+
+    /**
+     * @param format An image format.
+     * @return The {@link DataType} of the not yet rendered images in {@code format}.
+     */
+    static DataType getDataType(final ImageFormats format) {
+        switch (format) {
+            case PNG:
+                return PngHistogramCell.TYPE;
+            case SVG:
+                return SvgHistogramCell.TYPE;
+            default:
+                throw new UnsupportedOperationException("Not supported image format: " + format.name());
+        }
+    }
+
+    /**
+     * @return The format of the image.
+     */
+    abstract ImageFormats getFormat();
+
+    /**
+     * @return The rendered image, from the cache if it was rendered recently.
+     */
+    final DataCell getImageCell() {
+        DataCell image = RENDERED.get(this);
+        if (image == null) {
+            image = HistogramColumn.getDefaultInstance().withImageFormat(getFormat()).withHistogramWidth(m_width)
+                .withHistogramHeight(m_height).withShowMinMax(m_showMinMax).renderImageCell(toModel(), m_paintLabels);
+            RENDERED.put(this, image);
+        }
+        return image;
+    }
+
+    /**
+     * @return The histogram restored from the bins.
+     */
+    private HistogramModel<?> toModel() {
+        final HistogramModel<?> histogramData;
+        if (m_range != null) {
+            final HistogramNumericModel hnm = new HistogramNumericModel(m_range[0], m_range[1], m_counts.length,
+                m_colIndex, m_colName, m_range[2], m_range[3], m_range[4]);
+            for (int i = 0; i < m_counts.length; ++i) {
+                hnm.setBin(i, m_binMins[i], m_binMaxes[i], m_counts[i]);
+            }
+            histogramData = hnm;
+        } else {
+            final Map<DataValue, Integer> bins = new LinkedHashMap<DataValue, Integer>();
+            for (int i = 0; i < m_values.length; ++i) {
+                bins.put(m_values[i] == null ? new MissingCell(null) : new StringCell(m_values[i]),
+                    Integer.valueOf(m_counts[i]));
+            }
+            histogramData = new HistogramNominalModel(bins, m_colIndex, m_colName, m_rowCount);
+        }
+        histogramData.setMaxCount(m_maxCount);
+        histogramData.setRowCount(m_rowCount);
+        return histogramData;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        return "Histogram [column=" + m_colName + ", bins=" + m_counts.length + ", size=" + m_width + "x" + m_height
+            + "]";
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected boolean equalsDataCell(final DataCell dc) {
+        final HistogramImageCell other = (HistogramImageCell)dc;
+        return m_colIndex == other.m_colIndex && m_rowCount == other.m_rowCount && m_maxCount == other.m_maxCount
+            && m_width == other.m_width && m_height == other.m_height && m_showMinMax == other.m_showMinMax
+            && m_paintLabels == other.m_paintLabels && m_colName.equals(other.m_colName)
+            && Arrays.equals(m_counts, other.m_counts) && Arrays.equals(m_range, other.m_range)
+            && Arrays.equals(m_binMins, other.m_binMins) && Arrays.equals(m_binMaxes, other.m_binMaxes)
+            && Arrays.equals(m_values, other.m_values);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int hashCode() {
+        return Objects.hash(m_colName, Integer.valueOf(m_width), Integer.valueOf(m_height))
+            + 31 * (Arrays.hashCode(m_counts) + 31 * (Arrays.hashCode(m_binMins) + 31 * Arrays.hashCode(m_values)));
+    }
+
+    /**
+     * A histogram that is rendered as an SVG image.
+     */
+    public static final class SvgHistogramCell extends HistogramImageCell implements SvgValue, ImageValue {
+        private static final long serialVersionUID = 1L;
+
+        /** The type of the cells. */
+        public static final DataType TYPE = DataType.getType(SvgHistogramCell.class);
+
+        SvgHistogramCell(final HistogramModel<?> histogramData, final int width, final int height,
+            final boolean showMinMax, final boolean paintLabels) {
+            super(histogramData, width, height, showMinMax, paintLabels);
+        }
+
+        SvgHistogramCell(final DataInput input) throws IOException {
+            super(input);
+        }
+
+        @Override
+        ImageFormats getFormat() {
+            return ImageFormats.SVG;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public SVGDocument getDocument() {
+            return ((SvgValue)getImageCell()).getDocument();
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public ImageContent getImageContent() {
+            return ((ImageValue)getImageCell()).getImageContent();
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public String getImageExtension() {
+            return ((ImageValue)getImageCell()).getImageExtension();
+        }
+    }
+
+    /**
+     * A histogram that is rendered as a PNG image.
+     */
+    public static final class PngHistogramCell extends HistogramImageCell implements PNGImageValue {
+        private static final long serialVersionUID = 1L;
+
+        /** The type of the cells. */
+        public static final DataType TYPE = DataType.getType(PngHistogramCell.class);
+
+        PngHistogramCell(final HistogramModel<?> histogramData, final int width, final int height,
+            final boolean showMinMax, final boolean paintLabels) {
+            super(histogramData, width, height, showMinMax, paintLabels);
+        }
+
+        PngHistogramCell(final DataInput input) throws IOException {
+            super(input);
+        }
+
+        @Override
+        ImageFormats getFormat() {
+            return ImageFormats.PNG;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public PNGImageContent getImageContent() {
+            return ((PNGImageValue)getImageCell()).getImageContent();
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public String getImageExtension() {
+            return ((PNGImageValue)getImageCell()).getImageExtension();
+        }
+    }
+
+    /**
+     * Serializer for {@link SvgHistogramCell}s.
+     *
+     * @noreference This class is not intended to be referenced by clients.
+     */
+    public static final class SvgHistogramCellSerializer implements DataCellSerializer<SvgHistogramCell> {
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void serialize(final SvgHistogramCell cell, final DataCellDataOutput output) throws IOException {
+            cell.write(output);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public SvgHistogramCell deserialize(final DataCellDataInput input) throws IOException {
+            return new SvgHistogramCell(input);
+        }
+    }
+
+    /**
+     * Serializer for {@link PngHistogramCell}s.
+     *
+     * @noreference This class is not intended to be referenced by clients.
+     */
+    public static final class PngHistogramCellSerializer implements DataCellSerializer<PngHistogramCell> {
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void serialize(final PngHistogramCell cell, final DataCellDataOutput output) throws IOException {
+            cell.write(output);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public PngHistogramCell deserialize(final DataCellDataInput input) throws IOException {
+            return new PngHistogramCell(input);
+        }
+    }
+}
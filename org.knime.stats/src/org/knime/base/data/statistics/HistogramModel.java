@@ -160,6 +160,25 @@ int addValue(final DataValue v, final boolean hiLited) {
         return min;
     }
 
+    /**
+     * Replaces the bin counts with counts that were accumulated outside of the model.
+     *
+     * @param counts The number of values per bin.
+     * @param hiLited The number of hilited values per bin.
+     * @param rowCount The number of values.
+     */
+    void setCounts(final int[] counts, final int[] hiLited, final int rowCount) {
+        int maxCount = 0;
+        for (int i = 0; i < counts.length; ++i) {
+            Bin<Def> bin = m_bins.get(i);
+            bin.setCount(counts[i]);
+            bin.setHiLited(hiLited[i]);
+            maxCount = Math.max(maxCount, counts[i]);
+        }
+        m_maxCount = maxCount;
+        m_rowCount = rowCount;
+    }
+
     /**
      * Finds the bin number based on value ({@code v})
      *
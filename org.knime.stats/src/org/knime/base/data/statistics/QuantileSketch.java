@@ -0,0 +1,298 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ *
+ */
+package org.knime.base.data.statistics;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * A mergeable sketch of the distribution of a numeric column that approximates its quantiles in a bounded amount of
+ * memory (a KLL sketch). The values are collected in levels of compactors; when a level is full its sorted values
+ * are halved by keeping every other one, which is promoted with twice the weight to the next level. The offset of
+ * the kept values alternates instead of being random, so the same sequence of values always gives the same result.
+ * <p>
+ * The error of the rank of the returned quantiles is about {@code epsilon} times the number of values. Sketches of
+ * disjoint parts of a column can be combined with {@link #merge(QuantileSketch)}.
+ *
+ * @author KNIME AG, Zurich, Switzerland
+ * @since 5.12
+ */
+public final class QuantileSketch {
+
+    /** The ratio of the capacities of two consecutive levels. */
+    private static final double CAPACITY_DECAY = 2.0 / 3;
+
+    /** The capacity of the top level is {@code K_FACTOR / epsilon}. */
+    private static final double K_FACTOR = 2;
+
+    private static final int MIN_CAPACITY = 2;
+
+    private final double m_epsilon;
+
+    private final int m_k;
+
+    ///the values of the levels, the values of level h have the weight 2^h
+    private double[][] m_levels = new double[0][];
+
+    private int[] m_sizes = new int[0];
+
+    ///whether the next compaction of a level keeps the values at odd positions
+    private boolean[] m_oddOffsets = new boolean[0];
+
+    ///the number of retained values
+    private int m_size;
+
+    ///the number of retained values that triggers a compaction
+    private int m_maxSize;
+
+    ///the number of added values
+    private long m_count;
+
+    /**
+     * Creates an empty sketch.
+     *
+     * @param epsilon The relative error of the ranks, must be in {@code (0, 1)}.
+     */
+    public QuantileSketch(final double epsilon) {
+        if (!(epsilon > 0 && epsilon < 1)) {
+            throw new IllegalArgumentException("The error must be between 0 and 1 (exclusive): " + epsilon);
+        }
+        m_epsilon = epsilon;
+        m_k = (int)Math.ceil(K_FACTOR / epsilon);
+        grow();
+    }
+
+    /**
+     * Restores a sketch from its {@link #getLevels() levels}.
+     *
+     * @param epsilon The relative error of the ranks.
+     * @param levels The retained values of each level.
+     */
+    QuantileSketch(final double epsilon, final double[][] levels) {
+        this(epsilon);
+        while (m_levels.length < levels.length) {
+            grow();
+        }
+        for (int h = 0; h < levels.length; ++h) {
+            append(h, levels[h], levels[h].length);
+            m_count += (long)levels[h].length << h;
+        }
+    }
+
+    /**
+     * @return The relative error of the ranks.
+     */
+    public double getEpsilon() {
+        return m_epsilon;
+    }
+
+    /**
+     * @return The number of added values.
+     */
+    public long getCount() {
+        return m_count;
+    }
+
+    /**
+     * Adds a value, {@link Double#NaN} values are ignored.
+     *
+     * @param value A value of the column.
+     */
+    public void update(final double value) {
+        if (Double.isNaN(value)) {
+            return;
+        }
+        if (m_sizes[0] == m_levels[0].length) {
+            m_levels[0] = Arrays.copyOf(m_levels[0], Math.max(MIN_CAPACITY, 2 * m_levels[0].length));
+        }
+        m_levels[0][m_sizes[0]++] = value;
+        m_size++;
+        m_count++;
+        if (m_size >= m_maxSize) {
+            compress();
+        }
+    }
+
+    /**
+     * Adds the values of a sketch with the same error.
+     *
+     * @param other The sketch of other values, which is not modified.
+     */
+    public void merge(final QuantileSketch other) {
+        if (m_epsilon != other.m_epsilon) {
+            throw new IllegalArgumentException(
+                "Cannot merge sketches with different errors: " + m_epsilon + ", " + other.m_epsilon);
+        }
+        while (m_levels.length < other.m_levels.length) {
+            grow();
+        }
+        for (int h = 0; h < other.m_levels.length; ++h) {
+            append(h, other.m_levels[h], other.m_sizes[h]);
+        }
+        m_count += other.m_count;
+        while (m_size >= m_maxSize) {
+            compress();
+        }
+    }
+
+    /**
+     * @param probability A probability in {@code [0, 1]}.
+     * @return The approximate quantile, or {@link Double#NaN} if no values were added.
+     */
+    public double quantile(final double probability) {
+        return quantiles(probability)[0];
+    }
+
+    /**
+     * Computes several quantiles at once.
+     *
+     * @param probabilities The probabilities in {@code [0, 1]}.
+     * @return The approximate quantiles, {@link Double#NaN} values if no values were added.
+     */
+    public double[] quantiles(final double... probabilities) {
+        final double[] ret = new double[probabilities.length];
+        if (m_count == 0) {
+            Arrays.fill(ret, Double.NaN);
+            return ret;
+        }
+        //the retained values with their weights, in ascending order
+        final double[] values = new double[m_size];
+        final long[] weights = new long[m_size];
+        int i = 0;
+        for (int h = 0; h < m_levels.length; ++h) {
+            for (int j = 0; j < m_sizes[h]; ++j, ++i) {
+                values[i] = m_levels[h][j];
+                weights[i] = 1L << h;
+            }
+        }
+        final Integer[] order = new Integer[m_size];
+        for (int j = 0; j < m_size; ++j) {
+            order[j] = Integer.valueOf(j);
+        }
+        Arrays.sort(order, Comparator.comparingDouble(j -> values[j.intValue()]));
+        for (int p = 0; p < probabilities.length; ++p) {
+            if (!(probabilities[p] >= 0 && probabilities[p] <= 1)) {
+                throw new IllegalArgumentException("Not a probability: " + probabilities[p]);
+            }
+            final double rank = probabilities[p] * m_count;
+            long weight = 0;
+            ret[p] = values[order[m_size - 1].intValue()];
+            for (final Integer j : order) {
+                weight += weights[j.intValue()];
+                if (weight >= rank) {
+                    ret[p] = values[j.intValue()];
+                    break;
+                }
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * @return The retained values of each level, the values of level {@code h} have the weight {@code 2^h}.
+     */
+    double[][] getLevels() {
+        final double[][] levels = new double[m_levels.length][];
+        for (int h = 0; h < levels.length; ++h) {
+            levels[h] = Arrays.copyOf(m_levels[h], m_sizes[h]);
+        }
+        return levels;
+    }
+
+    private int capacity(final int level) {
+        final int height = m_levels.length - level - 1;
+        return Math.max(MIN_CAPACITY, (int)Math.ceil(m_k * Math.pow(CAPACITY_DECAY, height)));
+    }
+
+    private void grow() {
+        final int levels = m_levels.length + 1;
+        m_levels = Arrays.copyOf(m_levels, levels);
+        m_levels[levels - 1] = new double[0];
+        m_sizes = Arrays.copyOf(m_sizes, levels);
+        m_oddOffsets = Arrays.copyOf(m_oddOffsets, levels);
+        m_maxSize = 0;
+        for (int h = 0; h < levels; ++h) {
+            m_maxSize += capacity(h);
+        }
+    }
+
+    private void append(final int level, final double[] values, final int length) {
+        final int size = m_sizes[level] + length;
+        if (size > m_levels[level].length) {
+            m_levels[level] = Arrays.copyOf(m_levels[level], Math.max(size, 2 * m_levels[level].length));
+        }
+        System.arraycopy(values, 0, m_levels[level], m_sizes[level], length);
+        m_sizes[level] = size;
+        m_size += length;
+    }
+
+    /** Compacts the lowest full level into the next one. */
+    private void compress() {
+        for (int h = 0; h < m_levels.length; ++h) {
+            if (m_sizes[h] >= capacity(h)) {
+                if (h + 1 == m_levels.length) {
+                    grow();
+                }
+                final double[] level = m_levels[h];
+                final int size = m_sizes[h];
+                Arrays.sort(level, 0, size);
+                //an odd value out stays in the level
+                final int rest = size % 2;
+                final int offset = rest + (m_oddOffsets[h] ? 1 : 0);
+                m_oddOffsets[h] = !m_oddOffsets[h];
+                final double[] promoted = new double[size / 2];
+                for (int i = 0; i < promoted.length; ++i) {
+                    promoted[i] = level[offset + 2 * i];
+                }
+                m_sizes[h] = rest;
+                m_size -= size - rest;
+                append(h + 1, promoted, promoted.length);
+                return;
+            }
+        }
+    }
+}
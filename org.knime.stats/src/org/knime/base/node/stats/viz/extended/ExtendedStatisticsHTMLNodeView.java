@@ -51,13 +51,9 @@
 import java.text.NumberFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collections;
 import java.util.Iterator;
-import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
-import java.util.Set;
 
 import javax.swing.JEditorPane;
 import javax.swing.JLabel;
@@ -74,6 +70,7 @@
 import javax.swing.text.html.HTMLEditorKit.HTMLFactory;
 import javax.swing.text.html.ObjectView;
 
+import org.knime.base.data.statistics.HiLiteIndex;
 import org.knime.base.data.statistics.HistogramColumn;
 import org.knime.base.data.statistics.HistogramColumn.BinNumberSelectionStrategy;
 import org.knime.base.data.statistics.HistogramModel;
@@ -81,9 +78,7 @@
 import org.knime.base.node.util.DoubleFormat;
 import org.knime.core.data.DataCell;
 import org.knime.core.data.DataColumnSpec;
-import org.knime.core.data.DataValue;
 import org.knime.core.data.DoubleValue;
-import org.knime.core.data.RowKey;
 import org.knime.core.node.NodeView;
 import org.knime.core.node.property.hilite.HiLiteHandler;
 
@@ -169,9 +164,9 @@ private String createTopBottom(final Statistics3Table statTable) {
         if (statTable != null) {
             int colIdx = 0;
             for (DataColumnSpec spec : statTable.getSpec()) {
-                if (statTable.getNominalValues(colIdx) != null) {
+                if (getNodeModel().getNominalValues(colIdx) != null) {
                     columnNames.add(spec.getName());
-                    nominals.add(statTable.getNominalValues(colIdx));
+                    nominals.add(getNodeModel().getNominalValues(colIdx));
                 }
                 ++colIdx;
             }
@@ -293,7 +288,7 @@ private StringBuilder renderNominal(final Statistics3Table statTable) {
             int i = 0, colIdx = 0;
             if (statTable != null) {
                 for (DataColumnSpec spec : statTable.getSpec()) {
-                    if (statTable.getNominalValues(colIdx) != null) {
+                    if (getNodeModel().getNominalValues(colIdx) != null) {
                         String cssClass = i % 2 == 0 ? "even" : "odd";
                         int columnIndex = statTable.getSpec().findColumnIndex(spec.getName());
                         renderNominalRow(statTable, columnIndex, ret, cssClass);
@@ -425,7 +420,7 @@ private void renderRow(final Statistics3Table statTable, final int row, final St
         buffer.append("<td valign=\"" + ROW_VERTICAL_ALIGN + "\">");
         buffer.append(escapeHtml(statTable.getSpec().getColumnSpec(row).getName()));
         buffer.append("</td>");
-        for (double v : new double[]{statTable.getMin()[row], statTable.getMean(row), statTable.getMedian(row),
+        for (double v : new double[]{statTable.getMin()[row], statTable.getMean(row), getNodeModel().getMedian(row),
             statTable.getMax()[row], statTable.getStandardDeviation(row), statTable.getSkewness(row), statTable.getKurtosis(row),}) {
             buffer.append("<td class=\"numeric\" valign=\"" + ROW_VERTICAL_ALIGN + "\">");
             buffer.append(Double.isNaN(v) ? "?" : DoubleFormat.formatDouble(v));
@@ -619,14 +614,14 @@ protected Component createComponent(final int colId, final HistogramColumn hc) {
                 return new JLabel("No model");
             }
             final Map<Integer, ?> histograms = model.getHistograms();
-            final Map<Integer, Map<Integer, Set<RowKey>>> buckets = model.getBuckets();
+            final HiLiteIndex hiLiteIndex = model.getHiLiteIndex();
             final HiLiteHandler inHiLiteHandler = model.getInHiLiteHandler(0);
-            if (histograms == null || buckets == null || inHiLiteHandler == null) {
+            if (histograms == null || hiLiteIndex == null || inHiLiteHandler == null) {
                 return new JLabel("No model");
             }
             return hc.createComponent(histograms.get(colId), model.getHistogramWidth().getIntValue(), model
                 .getHistogramHeight().getIntValue(), model.getEnableHiLite().getBooleanValue() ? inHiLiteHandler
-                : new HiLiteHandler(), buckets.get(colId), model.numOfNominalValues());
+                : new HiLiteHandler(), hiLiteIndex, model.numOfNominalValues());
         }
     }
 
@@ -649,21 +644,13 @@ public NominalViewFactory(final ExtendedStatisticsNodeModel model, final Statist
         protected Component createComponent(final int colId, final HistogramColumn hc) {
             ExtendedStatisticsNodeModel model = getModel();
             final HistogramModel<?> nominalModel =
-                hc.fromNominalModel(getStatTable().getNominalValues(colId), colId, getStatTable().getSpec()
+                hc.fromNominalModel(model.getNominalValues(colId), colId, getStatTable().getSpec()
                     .getColumnSpec(colId).getName());
             nominalModel.setRowCount(getStatTable().getRowCount());
-            Map<DataValue, Set<RowKey>> values = model.getNominalKeys().get(colId);
-            if (values == null) {
-                values = Collections.emptyMap();
-            }
-            Map<Integer, Set<RowKey>> rowKeys = new LinkedHashMap<Integer, Set<RowKey>>();
-            for (Entry<DataValue, Set<RowKey>> entry : values.entrySet()) {
-                int bin = nominalModel.findBin(entry.getKey());
-                rowKeys.put(bin, entry.getValue());
-            }
-            return hc.createComponent(nominalModel, model.getHistogramWidth().getIntValue(), model.getHistogramHeight()
-                .getIntValue(), model.getEnableHiLite().getBooleanValue() ? model.getInHiLiteHandler(0)
-                : new HiLiteHandler(), rowKeys, model.numOfNominalValues());
+            return hc.createNominalComponent(nominalModel, model.getHistogramWidth().getIntValue(),
+                model.getHistogramHeight().getIntValue(), model.getEnableHiLite().getBooleanValue()
+                    ? model.getInHiLiteHandler(0) : new HiLiteHandler(), model.getHiLiteIndex(), colId,
+                model.numOfNominalValues());
         }
     }
 }
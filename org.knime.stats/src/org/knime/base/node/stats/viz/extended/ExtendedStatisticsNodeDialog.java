@@ -67,6 +67,12 @@ class ExtendedStatisticsNodeDialog extends DefaultNodeSettingsPane {
     protected ExtendedStatisticsNodeDialog() {
         addDialogComponent(new DialogComponentBoolean(ExtendedStatisticsNodeModel.createMedianModel(),
             "Calculate median values (computationally expensive)"));
+        addDialogComponent(new DialogComponentBoolean(ExtendedStatisticsNodeModel.createApproximateQuantiles(),
+            "Approximate median and quantiles"));
+        addDialogComponent(new DialogComponentNumber(ExtendedStatisticsNodeModel.createQuantileError(),
+            "Quantile error: ", 0.01));
+        addDialogComponent(new DialogComponentNumber(ExtendedStatisticsNodeModel.createNumberOfThreads(),
+            "Number of threads: ", 1));
         createNewGroup("Nominal values");
         m_filterModel = ExtendedStatisticsNodeModel.createNominalFilterModel();
         addDialogComponent(new DialogComponentColumnFilter2(m_filterModel, 0, false));
@@ -80,6 +86,8 @@ protected ExtendedStatisticsNodeDialog() {
             new DialogComponentNumber(ExtendedStatisticsNodeModel.createNominalValuesModelOutput(),
                 "Max no. of possible values per column (in output table): ", 5);
         addDialogComponent(numNomValueCompOutput);
+        addDialogComponent(new DialogComponentBoolean(ExtendedStatisticsNodeModel.createCountTopValues(),
+            "Count only the most frequent values"));
         addDialogComponent(new DialogComponentBoolean(ExtendedStatisticsNodeModel.createEnableHiLite(), "Enable HiLite"));
         createNewTab("Histogram");
         addDialogComponent(new DialogComponentStringSelection(ExtendedStatisticsNodeModel.createImageFormat(),
@@ -88,5 +96,7 @@ protected ExtendedStatisticsNodeDialog() {
         addDialogComponent(new DialogComponentNumberEdit(ExtendedStatisticsNodeModel.createHistogramHeight(),
             "Height: "));
         addDialogComponent(new DialogComponentBoolean(ExtendedStatisticsNodeModel.createShowMinMax(), "Show min/max values"));
+        addDialogComponent(new DialogComponentBoolean(ExtendedStatisticsNodeModel.createLazyImages(),
+            "Render histograms on first access"));
     }
 }
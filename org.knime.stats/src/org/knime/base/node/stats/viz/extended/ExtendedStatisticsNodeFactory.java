@@ -117,13 +117,15 @@ public boolean hasDialog() {
     );
     private static final List<PortDescription> OUTPUT_PORTS = List.of(
             fixedPort("Statistics Table", """
-                Table with numeric values.
+                Table with numeric values. If the median and quantiles are approximated, the 5th percentile, the
+                first and third quartiles and the 95th percentile are appended.
                 """),
             fixedPort("Nominal Histogram Table", """
                 Table with all nominal value histograms.
                 """),
             fixedPort("Occurrences Table", """
-                Table with all nominal values and their counts.
+                Table with all nominal values and their counts, or only the most frequent ones if they are counted
+                in bounded memory.
                 """)
     );
     private static final List<ViewDescription> VIEWS = List.of(
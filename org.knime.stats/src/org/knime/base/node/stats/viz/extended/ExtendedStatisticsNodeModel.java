@@ -48,38 +48,53 @@
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Set;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
+import org.knime.base.data.statistics.HeavyHitterCounter;
+import org.knime.base.data.statistics.HiLiteIndex;
 import org.knime.base.data.statistics.HistogramColumn;
 import org.knime.base.data.statistics.HistogramColumn.BinNumberSelectionStrategy;
 import org.knime.base.data.statistics.HistogramColumn.ImageFormats;
 import org.knime.base.data.statistics.HistogramModel;
+import org.knime.base.data.statistics.QuantileSketch;
 import org.knime.base.data.statistics.Statistics3Table;
-import org.knime.base.node.util.DataArray;
-import org.knime.base.node.util.DefaultDataArray;
 import org.knime.core.data.BooleanValue;
 import org.knime.core.data.DataCell;
 import org.knime.core.data.DataColumnSpec;
 import org.knime.core.data.DataColumnSpecCreator;
+import org.knime.core.data.DataRow;
 import org.knime.core.data.DataTable;
 import org.knime.core.data.DataTableSpec;
 import org.knime.core.data.DataTableSpecCreator;
-import org.knime.core.data.DataValue;
+import org.knime.core.data.DataType;
 import org.knime.core.data.DoubleValue;
 import org.knime.core.data.IntValue;
 import org.knime.core.data.LongValue;
 import org.knime.core.data.NominalValue;
 import org.knime.core.data.RowKey;
 import org.knime.core.data.StringValue;
+import org.knime.core.data.container.AbstractCellFactory;
 import org.knime.core.data.container.CloseableTable;
 import org.knime.core.data.container.ColumnRearranger;
+import org.knime.core.data.container.SingleCellFactory;
+import org.knime.core.data.def.DefaultRow;
+import org.knime.core.data.def.DoubleCell;
+import org.knime.core.data.def.IntCell;
+import org.knime.core.node.BufferedDataContainer;
 import org.knime.core.node.BufferedDataTable;
 import org.knime.core.node.CanceledExecutionException;
 import org.knime.core.node.ExecutionContext;
@@ -91,6 +106,7 @@
 import org.knime.core.node.NodeSettingsWO;
 import org.knime.core.node.defaultnodesettings.SettingsModelBoolean;
 import org.knime.core.node.defaultnodesettings.SettingsModelColumnFilter2;
+import org.knime.core.node.defaultnodesettings.SettingsModelDoubleBounded;
 import org.knime.core.node.defaultnodesettings.SettingsModelInteger;
 import org.knime.core.node.defaultnodesettings.SettingsModelIntegerBounded;
 import org.knime.core.node.defaultnodesettings.SettingsModelString;
@@ -168,10 +184,62 @@ class ExtendedStatisticsNodeModel extends NodeModel {
     /** The default value for showing the min/max(/mean) values on the x axis. */
     protected static final boolean DEFAULT_SHOW_MIN_MAX = true;
 
+    /** The configuration key for the number of threads. */
+    static final String CFGKEY_NUM_THREADS = "number of threads";
+
+    /** The default number of threads, a single one as before the setting was added. */
+    static final int DEFAULT_NUM_THREADS = 1;
+
+    /** The configuration key for approximating the median and quantiles instead of computing the exact median. */
+    static final String CFGKEY_APPROXIMATE_QUANTILES = "approximate quantiles";
+
+    static final boolean DEFAULT_APPROXIMATE_QUANTILES = false;
+
+    /** The configuration key for the relative rank error of the approximated quantiles. */
+    static final String CFGKEY_QUANTILE_ERROR = "quantile error";
+
+    static final double DEFAULT_QUANTILE_ERROR = 0.01;
+
+    /** The largest relative rank error of the approximated quantiles. */
+    static final double MAX_QUANTILE_ERROR = 0.5;
+
+    /** The probabilities of the approximated quantiles that are appended to the statistics table. */
+    private static final double[] QUANTILE_PROBABILITIES = {0.05, 0.25, 0.75, 0.95};
+
+    private static final String[] QUANTILE_NAMES =
+        {"5th percentile", "First quartile", "Third quartile", "95th percentile"};
+
+    /** The name of the median column of {@link Statistics3Table#getStatisticsSpecification()}. */
+    private static final String MEDIAN = "Median";
+
+    /** The configuration key for counting only the most frequent nominal values in bounded memory. */
+    static final String CFGKEY_COUNT_TOP_VALUES = "count top values";
+
+    static final boolean DEFAULT_COUNT_TOP_VALUES = false;
+
+    /**
+     * The number of counted values per output value, so that the counts of the output values are rarely
+     * overestimated.
+     */
+    private static final long TOP_VALUES_CAPACITY_FACTOR = 10;
+
+    /** The configuration key for rendering the histogram images on first access instead of during execution. */
+    static final String CFGKEY_LAZY_IMAGES = "lazy images";
+
+    static final boolean DEFAULT_LAZY_IMAGES = false;
+
+    private static final String TOP_VALUES_GZ = "topvalues.xml.gz";
+
+    /** The histograms that were saved before the binary format was introduced. */
     private static final String HISTOGRAMS_GZ = "histograms.xml.gz";
 
+    private static final String HISTOGRAMS_BIN = "histograms.bin";
+
+    /** The projection of the input table that was saved before the {@link HiLiteIndex} was introduced. */
     private static final String DATA_ARRAY_GZ = "dataarray.gz";
 
+    private static final String HILITE_INDEX_GZ = "hiliteindex.gz";
+
     private static final BinNumberSelectionStrategy BIN_SELECTION_STRATEGY = BinNumberSelectionStrategy.DecimalRange;
 
     /** Set to true when the settings are loaded the first time (after load or after confirming the dialog). Used
@@ -223,6 +291,42 @@ protected static SettingsModelBoolean createShowMinMax() {
         return new SettingsModelBoolean(CFGKEY_SHOW_MIN_MAX, DEFAULT_SHOW_MIN_MAX);
     }
 
+    /**
+     * @return int model for the number of threads that collect the histogram data and render the images
+     */
+    static SettingsModelIntegerBounded createNumberOfThreads() {
+        return new SettingsModelIntegerBounded(CFGKEY_NUM_THREADS, DEFAULT_NUM_THREADS, 1, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @return boolean model to approximate the median and quantiles
+     */
+    static SettingsModelBoolean createApproximateQuantiles() {
+        return new SettingsModelBoolean(CFGKEY_APPROXIMATE_QUANTILES, DEFAULT_APPROXIMATE_QUANTILES);
+    }
+
+    /**
+     * @return double model for the relative rank error of the approximated quantiles
+     */
+    static SettingsModelDoubleBounded createQuantileError() {
+        return new SettingsModelDoubleBounded(CFGKEY_QUANTILE_ERROR, DEFAULT_QUANTILE_ERROR, Double.MIN_VALUE,
+            MAX_QUANTILE_ERROR);
+    }
+
+    /**
+     * @return boolean model to count only the most frequent nominal values
+     */
+    static SettingsModelBoolean createCountTopValues() {
+        return new SettingsModelBoolean(CFGKEY_COUNT_TOP_VALUES, DEFAULT_COUNT_TOP_VALUES);
+    }
+
+    /**
+     * @return boolean model to render the histogram images on first access
+     */
+    static SettingsModelBoolean createLazyImages() {
+        return new SettingsModelBoolean(CFGKEY_LAZY_IMAGES, DEFAULT_LAZY_IMAGES);
+    }
+
     /**
      * @return create nominal filter model
      */
@@ -263,19 +367,26 @@ static SettingsModelIntegerBounded createNominalValuesModelOutput() {
 
     private SettingsModelBoolean m_showMinMax = createShowMinMax();
 
-    /// column index -> nominal value -> keys
-    private Map<Integer, Map<DataValue, Set<RowKey>>> m_nominalKeys =
-        new HashMap<Integer, Map<DataValue, Set<RowKey>>>();
+    private final SettingsModelIntegerBounded m_numThreads = createNumberOfThreads();
+
+    private final SettingsModelBoolean m_approximateQuantiles = createApproximateQuantiles();
+
+    private final SettingsModelDoubleBounded m_quantileError = createQuantileError();
 
-    /// column index -> bucket index -> keys
-    private Map<Integer, Map<Integer, Set<RowKey>>> m_buckets = new HashMap<Integer, Map<Integer, Set<RowKey>>>();
+    private final SettingsModelBoolean m_countTopValues = createCountTopValues();
+
+    private final SettingsModelBoolean m_lazyImages = createLazyImages();
+
+    /// column index -> most frequent values and their counts, null if the statistics table counted the values
+    private List<Map<DataCell, Integer>> m_topValues;
+
+    /// the bins and nominal values of the rows to count the hilited rows
+    private HiLiteIndex m_hiLiteIndex = HiLiteIndex.empty();
 
     private Map<Integer, ? extends HistogramModel<?>> m_histograms;
 
     //private Map<Integer, DataType> m_nominalTypes;
 
-    private DataArray m_subTable;
-
     private final SettingsModelBoolean m_computeMedian = createMedianModel();
 
     private final SettingsModelIntegerBounded m_nominalValues = createNominalValuesModel();
@@ -306,22 +417,31 @@ protected BufferedDataTable[] execute(final BufferedDataTable[] inData, final Ex
         DataTableSpec dataSpec = inData[0].getDataTableSpec();
         List<String> includes = nominalColumns(dataSpec);
         m_statTable =
-            new Statistics3Table(inData[0], m_computeMedian.getBooleanValue(), numOfNominalValuesOutput(), includes,
-                init);
+            new Statistics3Table(inData[0], m_computeMedian.getBooleanValue() && !approximateQuantiles(),
+                numOfNominalValuesOutput(), countTopValues() ? Collections.<String> emptyList() : includes, init);
         if (getStatTable().getWarning() != null) {
             setWarningMessage(getStatTable().getWarning());
         }
         final BufferedDataTable[] ret = new BufferedDataTable[3];
-        try (final CloseableTable nominalValueTable = getStatTable().createNominalValueTable(includes)) {
-            final BufferedDataTable outTableOccurrences =
-                    exec.createBufferedDataTable(nominalValueTable, exec.createSubProgress(0.5));
-            final DataTableSpec newSpec = renamedOccurrencesSpec(outTableOccurrences.getSpec());
-            ret[2] = exec.createSpecReplacerTable(outTableOccurrences, newSpec);
+        if (!countTopValues()) {
+            m_topValues = null;
+            try (final CloseableTable nominalValueTable = getStatTable().createNominalValueTable(includes)) {
+                final BufferedDataTable outTableOccurrences =
+                        exec.createBufferedDataTable(nominalValueTable, exec.createSubProgress(0.5));
+                final DataTableSpec newSpec = renamedOccurrencesSpec(outTableOccurrences.getSpec());
+                ret[2] = exec.createSpecReplacerTable(outTableOccurrences, newSpec);
+            }
         }
         ExecutionContext table = exec.createSubExecutionContext(initPercent);
         ret[0] = getStatTable().createStatisticsInColumnsTable(table);
         ExecutionContext histogram = exec.createSubExecutionContext(1.0 / 2);
-        final HistogramColumn histogramColumn = createHistogramColumn();
+        final HistogramColumn histogramColumn = countTopValues() && numOfNominalValuesOutput() > 0
+            ? createHistogramColumn().withTopValues(
+                (int)Math.min(Integer.MAX_VALUE, TOP_VALUES_CAPACITY_FACTOR * numOfNominalValuesOutput()), includes)
+            : createHistogramColumn();
+        //the most frequent values are counted while the histograms are computed
+        final Map<Integer, HeavyHitterCounter<DataCell>> topValues =
+            new HashMap<Integer, HeavyHitterCounter<DataCell>>();
         HiLiteHandler hlHandler = getEnableHiLite().getBooleanValue() ? getInHiLiteHandler(0) : new HiLiteHandler();
         double[] mins = getStatTable().getMin(), maxes = getStatTable().getMax(), means = getStatTable().getMean();
         for (int i = 0; i < maxes.length; i++) {
@@ -339,46 +459,203 @@ protected BufferedDataTable[] execute(final BufferedDataTable[] inData, final Ex
                 maxes[i] = ((DoubleValue)max).getDoubleValue();
             }
         }
-        Pair<BufferedDataTable, Map<Integer, ? extends HistogramModel<?>>> pair =
-            histogramColumn.process(histogram, inData[0], hlHandler, ret[0], mins, maxes, means, numOfNominalValues(),
-                getColumnNames());
-        //        final BufferedDataTable outTable =
-        //            histogramColumn.appendNominal(pair.getFirst(), getStatTable(), hlHandler, exec, numOfNominalValues());
-        ret[0] = pair.getFirst();
-        ret[1] = histogramColumn.nominalTable(getStatTable(), hlHandler, exec, numOfNominalValues());
+        histogram.setMessage("Collecting histogram data");
+        //the bins need the minimums and maximums of the statistics table, so the histograms are always collected in a
+        //second scan of the input; without HiLite this is the only other scan like before, with HiLite the same scan
+        //also collects the HiLite index
         if (m_enableHiLite.getBooleanValue()) {
-            double rest = 1 - initPercent * 2 - 1.0 / 2;
-            ExecutionContext projection = exec.createSubExecutionContext(rest / 2);
-            ColumnRearranger rearranger = new ColumnRearranger(dataSpec);
-            Set<String> colNames = new HashSet<String>(Arrays.asList(getColumnNames()));
-            for (DataColumnSpec spec : rearranger.createSpec()) {
-                if ((!spec.getType().isCompatible(DoubleValue.class) && !spec.getType()
-                    .isCompatible(NominalValue.class)) || !colNames.contains(spec.getName())) {
-                    rearranger.remove(spec.getName());
-                }
-            }
-            ExecutionContext save = exec.createSubExecutionContext(rest / 2);
-            m_subTable =
-                new DefaultDataArray(projection.createColumnRearrangeTable(inData[0], rearranger, projection), 1,
-                    inData[0].getRowCount(), save);
-            m_histograms = histogramColumn.histograms(inData[0], getInHiLiteHandler(0), mins, maxes, means, getColumnNames());
             Set<String> nominalColumns = new LinkedHashSet<String>();
             for (int i = 0; i < inData[0].getSpec().getNumColumns(); ++i) {
-                Map<DataCell, Integer> nominalValues = getStatTable().getNominalValues(i);
-                if (nominalValues != null) {
-                    nominalColumns.add(inData[0].getSpec().getColumnSpec(i).getName());
+                final String name = inData[0].getSpec().getColumnSpec(i).getName();
+                if (countTopValues() ? includes.contains(name) : getStatTable().getNominalValues(i) != null) {
+                    nominalColumns.add(name);
                 }
             }
-            final Pair<Map<Integer, Map<Integer, Set<RowKey>>>, Map<Integer, Map<DataValue, Set<RowKey>>>> bucketsAndNominals =
-                HistogramColumn.construct(m_histograms, m_subTable, nominalColumns);
-            m_buckets = bucketsAndNominals.getFirst();
-            m_nominalKeys = bucketsAndNominals.getSecond();
+            //the histograms and the index of their bins and of the nominal values are collected in one scan
+            final Pair<Map<Integer, ? extends HistogramModel<?>>, HiLiteIndex> histogramsAndIndex = histogramColumn
+                .histogramsWithKeys(inData[0], hlHandler, mins, maxes, means, nominalColumns, topValues,
+                    histogram.createSubProgress(0.5), getColumnNames());
+            m_histograms = histogramsAndIndex.getFirst();
+            m_hiLiteIndex = histogramsAndIndex.getSecond();
+        } else {
+            m_hiLiteIndex = HiLiteIndex.empty();
+            m_histograms = histogramColumn.histograms(inData[0], hlHandler, mins, maxes, means, topValues,
+                histogram.createSubProgress(0.5), getColumnNames());
+        }
+        if (approximateQuantiles()) {
+            ret[0] = appendQuantiles(exec.createSubExecutionContext(0), dataSpec, ret[0]);
+        }
+        ret[0] = histogramColumn.appendHistograms(histogram.createSubExecutionContext(0.5), inData[0], ret[0],
+            m_histograms, numOfNominalValues(), getColumnNames());
+        if (countTopValues()) {
+            m_topValues = new ArrayList<Map<DataCell, Integer>>();
+            final List<String> approximated = new ArrayList<String>();
+            long maxError = 0;
+            for (int i = 0; i < dataSpec.getNumColumns(); ++i) {
+                final HeavyHitterCounter<DataCell> counter = topValues.get(Integer.valueOf(i));
+                if (counter != null) {
+                    m_topValues.add(counter.getTopValues(numOfNominalValuesOutput()));
+                    if (counter.getMaxError() > 0) {
+                        approximated.add(dataSpec.getColumnSpec(i).getName());
+                        maxError = Math.max(maxError, counter.getMaxError());
+                    }
+                } else {
+                    m_topValues.add(includes.contains(dataSpec.getColumnSpec(i).getName())
+                        ? new LinkedHashMap<DataCell, Integer>() : null);
+                }
+            }
+            if (!approximated.isEmpty()) {
+                final String warning = "The counts of the most frequent values of " + approximated
+                    + " are approximate, they overestimate the occurrences by at most " + maxError + ".";
+                setWarningMessage(getStatTable().getWarning() == null ? warning
+                    : getStatTable().getWarning() + "\n" + warning);
+            }
+            ret[1] = histogramColumn.nominalTable(getStatTable(), m_topValues, hlHandler, exec, numOfNominalValues());
+            ret[2] = createTopValuesTable(exec.createSubExecutionContext(0), dataSpec, includes);
         } else {
-            m_histograms = pair.getSecond();
+            ret[1] = histogramColumn.nominalTable(getStatTable(), hlHandler, exec, numOfNominalValues());
         }
         return ret;
     }
 
+    /**
+     * @return Whether only the most frequent nominal values are counted, in bounded memory.
+     */
+    private boolean countTopValues() {
+        return m_countTopValues.getBooleanValue();
+    }
+
+    /**
+     * Creates the occurrences table from the most frequent values, in the same format as
+     * {@link Statistics3Table#createNominalValueTable(List)}.
+     *
+     * @param exec The {@link ExecutionContext}.
+     * @param dataSpec The input {@link DataTableSpec}.
+     * @param includes The selected nominal columns.
+     * @return The table with the values and their counts and relative frequencies, by descending counts.
+     * @throws CanceledExecutionException Execution was cancelled.
+     */
+    private BufferedDataTable createTopValuesTable(final ExecutionContext exec, final DataTableSpec dataSpec,
+        final List<String> includes) throws CanceledExecutionException {
+        final DataTableSpec spec = renamedOccurrencesSpec(Statistics3Table.createOutSpecNominal(dataSpec, includes));
+        CheckUtils.checkState(spec.getNumColumns() == 3 * includes.size(),
+            "Expected three columns per nominal column but got %s", spec);
+        final List<Iterator<Entry<DataCell, Integer>>> values = new ArrayList<Iterator<Entry<DataCell, Integer>>>();
+        for (String column : includes) {
+            values.add(m_topValues.get(dataSpec.findColumnIndex(column)).entrySet().iterator());
+        }
+        final double rowCount = getStatTable().getRowCount();
+        final BufferedDataContainer container = exec.createDataContainer(spec);
+        for (long row = 0; values.stream().anyMatch(Iterator::hasNext); ++row) {
+            exec.checkCanceled();
+            final DataCell[] cells = new DataCell[spec.getNumColumns()];
+            for (int c = 0; c < values.size(); ++c) {
+                if (values.get(c).hasNext()) {
+                    final Entry<DataCell, Integer> entry = values.get(c).next();
+                    cells[3 * c] = entry.getKey();
+                    cells[3 * c + 1] = new IntCell(entry.getValue().intValue());
+                    cells[3 * c + 2] = new DoubleCell(entry.getValue().intValue() / rowCount);
+                } else {
+                    Arrays.fill(cells, 3 * c, 3 * c + 3, DataType.getMissingCell());
+                }
+            }
+            container.addRowToTable(new DefaultRow(RowKey.createRowKey(row), cells));
+        }
+        container.close();
+        return container.getTable();
+    }
+
+    /**
+     * @param column The index of a column.
+     * @return The nominal values and their counts of the column, {@code null} if it is not nominal.
+     */
+    Map<DataCell, Integer> getNominalValues(final int column) {
+        return m_topValues != null ? m_topValues.get(column) : getStatTable().getNominalValues(column);
+    }
+
+    /**
+     * @return Whether the median and the quantiles are approximated by the sketches of the histograms instead of
+     *         computing the exact median.
+     */
+    private boolean approximateQuantiles() {
+        return m_computeMedian.getBooleanValue() && m_approximateQuantiles.getBooleanValue();
+    }
+
+    /**
+     * @return The specs of the approximated quantile columns.
+     */
+    private static DataColumnSpec[] createQuantileColumnSpecs() {
+        final DataColumnSpec[] specs = new DataColumnSpec[QUANTILE_NAMES.length];
+        for (int i = 0; i < specs.length; ++i) {
+            specs[i] = new DataColumnSpecCreator(QUANTILE_NAMES[i], DoubleCell.TYPE).createSpec();
+        }
+        return specs;
+    }
+
+    /**
+     * Replaces the median of the statistics table with the approximation of the quantile sketches and appends the
+     * other approximated quantiles.
+     *
+     * @param exec The {@link ExecutionContext}.
+     * @param dataSpec The input {@link DataTableSpec}.
+     * @param stats The statistics table, its row keys are the column names.
+     * @return The adjusted statistics table.
+     * @throws CanceledExecutionException Execution was cancelled.
+     */
+    private BufferedDataTable appendQuantiles(final ExecutionContext exec, final DataTableSpec dataSpec,
+        final BufferedDataTable stats) throws CanceledExecutionException {
+        //the median followed by the appended quantiles of each column
+        final Map<String, double[]> quantiles = new HashMap<String, double[]>();
+        final double[] probabilities = new double[QUANTILE_PROBABILITIES.length + 1];
+        probabilities[0] = 0.5;
+        System.arraycopy(QUANTILE_PROBABILITIES, 0, probabilities, 1, QUANTILE_PROBABILITIES.length);
+        for (HistogramModel<?> histogram : m_histograms.values()) {
+            final QuantileSketch sketch = HistogramColumn.getQuantileSketch(histogram);
+            if (sketch != null) {
+                quantiles.put(dataSpec.getColumnSpec(histogram.getColIndex()).getName(),
+                    sketch.quantiles(probabilities));
+            }
+        }
+        final ColumnRearranger rearranger = new ColumnRearranger(stats.getDataTableSpec());
+        final int medianIndex = stats.getDataTableSpec().findColumnIndex(MEDIAN);
+        if (medianIndex >= 0) {
+            rearranger.replace(new SingleCellFactory(stats.getDataTableSpec().getColumnSpec(medianIndex)) {
+                @Override
+                public DataCell getCell(final DataRow row) {
+                    final double[] values = quantiles.get(row.getKey().getString());
+                    return values == null ? DataType.getMissingCell() : new DoubleCell(values[0]);
+                }
+            }, medianIndex);
+        }
+        rearranger.append(new AbstractCellFactory(createQuantileColumnSpecs()) {
+            @Override
+            public DataCell[] getCells(final DataRow row) {
+                final double[] values = quantiles.get(row.getKey().getString());
+                final DataCell[] cells = new DataCell[QUANTILE_PROBABILITIES.length];
+                for (int i = 0; i < cells.length; ++i) {
+                    cells[i] = values == null ? DataType.getMissingCell() : new DoubleCell(values[i + 1]);
+                }
+                return cells;
+            }
+        });
+        return exec.createColumnRearrangeTable(stats, rearranger, exec);
+    }
+
+    /**
+     * @param column The index of a numeric column.
+     * @return The exact median, or the approximated one if the quantiles are approximated, {@link Double#NaN} if it
+     *         is not available.
+     */
+    double getMedian(final int column) {
+        final Statistics3Table statTable = getStatTable();
+        final double median = statTable.getMedian(column);
+        if (!Double.isNaN(median) || m_histograms == null || m_histograms.get(Integer.valueOf(column)) == null) {
+            return median;
+        }
+        final QuantileSketch sketch = HistogramColumn.getQuantileSketch(m_histograms.get(Integer.valueOf(column)));
+        return sketch == null ? median : sketch.quantile(0.5);
+    }
+
     /**
      * @param dataSpec The input {@link DataTableSpec}.
      * @return The selected nominal columns.
@@ -420,7 +697,10 @@ HistogramColumn createHistogramColumn() {
             .withImageFormat(getImageFormat().getStringValue()).withHistogramWidth(getHistogramWidth().getIntValue())
             .withHistogramHeight(getHistogramHeight().getIntValue())
             .withBinSelectionStrategy(BinNumberSelectionStrategy.DecimalRange)
-            .withShowMinMax(getShowMinMax().getBooleanValue());
+            .withShowMinMax(getShowMinMax().getBooleanValue())
+            .withNumberOfThreads(m_numThreads.getIntValue())
+            .withLazyImages(m_lazyImages.getBooleanValue())
+            .withQuantileError(approximateQuantiles() ? m_quantileError.getDoubleValue() : 0);
     }
 
     /**
@@ -429,9 +709,8 @@ HistogramColumn createHistogramColumn() {
     @Override
     protected void reset() {
         m_statTable = null;
-        m_nominalKeys.clear();
-        m_buckets.clear();
-
+        m_topValues = null;
+        m_hiLiteIndex = HiLiteIndex.empty();
     }
 
     /**
@@ -449,6 +728,15 @@ String[] getNominalColumnNames() {
         if (statTable == null) {
             return null;
         }
+        if (m_topValues != null) {
+            final List<String> names = new ArrayList<String>();
+            for (int i = 0; i < m_topValues.size(); ++i) {
+                if (m_topValues.get(i) != null) {
+                    names.add(statTable.getColumnNames()[i]);
+                }
+            }
+            return names.toArray(new String[names.size()]);
+        }
         return statTable.extractNominalColumns(nominalColumns(statTable.getSpec()));
     }
 
@@ -486,6 +774,9 @@ protected int numOfNominalValuesOutput() {
 
     /** @return nominal value and frequency for each column */
     List<Map<DataCell, Integer>> getNominals() {
+        if (m_topValues != null) {
+            return m_topValues;
+        }
         Statistics3Table statTable = getStatTable();
         return statTable != null ? statTable.getNominalValues() : Collections.<Map<DataCell, Integer>>emptyList();
     }
@@ -509,6 +800,9 @@ protected DataTableSpec[] configure(final DataTableSpec[] inSpecs) throws Invali
         DataTableSpecCreator specCreator = new DataTableSpecCreator(Statistics3Table.getStatisticsSpecification());
         final HistogramColumn hc = createHistogramColumn();
         final DataColumnSpec histogramColumnSpec = hc.createHistogramColumnSpec();
+        if (approximateQuantiles()) {
+            specCreator.addColumns(createQuantileColumnSpecs());
+        }
         specCreator.addColumns(histogramColumnSpec);
         ret[0] = specCreator.createSpec();
         ret[1] = hc.createNominalHistogramTableSpec();
@@ -530,6 +824,11 @@ protected void saveSettingsTo(final NodeSettingsWO settings) {
         getHistogramHeight().saveSettingsTo(settings);
         getEnableHiLite().saveSettingsTo(settings);
         getShowMinMax().saveSettingsTo(settings);
+        m_numThreads.saveSettingsTo(settings);
+        m_approximateQuantiles.saveSettingsTo(settings);
+        m_quantileError.saveSettingsTo(settings);
+        m_countTopValues.saveSettingsTo(settings);
+        m_lazyImages.saveSettingsTo(settings);
     }
 
     /**
@@ -546,6 +845,19 @@ protected void loadValidatedSettingsFrom(final NodeSettingsRO settings) throws I
         getHistogramHeight().loadSettingsFrom(settings);
         getEnableHiLite().loadSettingsFrom(settings);
         getShowMinMax().loadSettingsFrom(settings);
+        if (settings.containsKey(CFGKEY_NUM_THREADS)) {
+            m_numThreads.loadSettingsFrom(settings);
+        }
+        if (settings.containsKey(CFGKEY_APPROXIMATE_QUANTILES)) {
+            m_approximateQuantiles.loadSettingsFrom(settings);
+            m_quantileError.loadSettingsFrom(settings);
+        }
+        if (settings.containsKey(CFGKEY_COUNT_TOP_VALUES)) {
+            m_countTopValues.loadSettingsFrom(settings);
+        }
+        if (settings.containsKey(CFGKEY_LAZY_IMAGES)) {
+            m_lazyImages.loadSettingsFrom(settings);
+        }
         m_hasSettings = true;
     }
 
@@ -569,6 +881,23 @@ protected void validateSettings(final NodeSettingsRO settings) throws InvalidSet
         getHistogramHeight().validateSettings(settings);
         getEnableHiLite().validateSettings(settings);
         getShowMinMax().validateSettings(settings);
+        // added in 5.12, older workflows use a single thread
+        if (settings.containsKey(CFGKEY_NUM_THREADS)) {
+            m_numThreads.validateSettings(settings);
+        }
+        // added in 5.12, older workflows compute the exact median
+        if (settings.containsKey(CFGKEY_APPROXIMATE_QUANTILES)) {
+            m_approximateQuantiles.validateSettings(settings);
+            m_quantileError.validateSettings(settings);
+        }
+        // added in 5.12, older workflows count all nominal values
+        if (settings.containsKey(CFGKEY_COUNT_TOP_VALUES)) {
+            m_countTopValues.validateSettings(settings);
+        }
+        // added in 5.12, older workflows render the images during execution
+        if (settings.containsKey(CFGKEY_LAZY_IMAGES)) {
+            m_lazyImages.validateSettings(settings);
+        }
     }
 
     /**
@@ -583,41 +912,40 @@ protected void loadInternals(final File internDir, final ExecutionMonitor exec)
         } catch (InvalidSettingsException ise) {
             throw new IOException(ise);
         }
+        m_topValues = loadTopValues(new File(internDir, TOP_VALUES_GZ));
         double[] means = getStatTable().getMean();
+        File histogramsBin = new File(internDir, HISTOGRAMS_BIN);
+        File histogramsGz = new File(internDir, HISTOGRAMS_GZ);
+        try {
+            if (histogramsBin.exists()) {
+                m_histograms = HistogramColumn.loadHistogramsBinary(histogramsBin, means);
+            } else {
+                //saved by an older version
+                m_histograms = HistogramColumn.loadHistograms(histogramsGz,
+                    new HashMap<Integer, Map<Integer, Set<RowKey>>>(), BIN_SELECTION_STRATEGY, means);
+            }
+        } catch (InvalidSettingsException e) {
+            if (m_enableHiLite.getBooleanValue()) {
+                getLogger().error("Failed to load settings for the HiLite, please rerun.", e);
+            }
+            m_histograms = Collections.emptyMap();
+        }
+        m_hiLiteIndex = HiLiteIndex.empty();
         if (m_enableHiLite.getBooleanValue()) {
-            File histogramsGz = new File(internDir, HISTOGRAMS_GZ);
-            File dataArrayGz = new File(internDir, DATA_ARRAY_GZ);
-            try {
+            File hiLiteIndexGz = new File(internDir, HILITE_INDEX_GZ);
+            if (hiLiteIndexGz.exists()) {
+                m_hiLiteIndex = HiLiteIndex.load(hiLiteIndexGz);
+            } else if (new File(internDir, DATA_ARRAY_GZ).exists()) {
+                //saved by an older version
                 Set<String> nominalColumnNames = new LinkedHashSet<String>();
                 String[] columnNames = getStatTable().getColumnNames();
                 for (int i = 0; i < columnNames.length; ++i) {
-                    if (getStatTable().getNominalValues(i) != null) {
+                    if (getNominalValues(i) != null) {
                         nominalColumnNames.add(columnNames[i]);
                     }
                 }
-                Pair<Pair<Map<Integer, ? extends HistogramModel<?>>, Map<Integer, Map<Integer, Set<RowKey>>>>, Map<Integer, Map<DataValue, Set<RowKey>>>> ppair =
-                    HistogramColumn.loadHistograms(histogramsGz, dataArrayGz, nominalColumnNames, BIN_SELECTION_STRATEGY, means);
-                m_histograms = ppair.getFirst().getFirst();
-                m_buckets = ppair.getFirst().getSecond();
-                m_nominalKeys = ppair.getSecond();
-                //                m_nominalTypes = ppair.getSecond().getSecond();
-            } catch (InvalidSettingsException e) {
-                getLogger().error("Failed to load settings for the HiLite, please rerun.", e);
-                m_histograms = Collections.emptyMap();
-                m_buckets = Collections.emptyMap();
-                m_nominalKeys = Collections.emptyMap();
-                //                m_nominalTypes = Collections.emptyMap();
-            }
-        } else {
-            File histogramsGz = new File(internDir, HISTOGRAMS_GZ);
-            m_nominalKeys = Collections.emptyMap();
-            try {
-                m_buckets = new HashMap<Integer, Map<Integer, Set<RowKey>>>();
-                m_histograms = HistogramColumn.loadHistograms(histogramsGz, m_buckets, BIN_SELECTION_STRATEGY, means);
-                m_buckets.clear();
-            } catch (InvalidSettingsException e) {
-                m_histograms = Collections.emptyMap();
-                m_buckets = Collections.emptyMap();
+                m_hiLiteIndex = HistogramColumn.loadHiLiteIndex(new File(internDir, DATA_ARRAY_GZ), m_histograms,
+                    columnNames, nominalColumnNames);
             }
         }
     }
@@ -632,14 +960,66 @@ protected void saveInternals(final File internDir, final ExecutionMonitor exec)
         getStatTable().save(sett);
         sett.saveToXML(new FileOutputStream(
                 new File(internDir, sett.getKey())));
+        if (m_topValues != null) {
+            saveTopValues(new File(internDir, TOP_VALUES_GZ));
+        }
+        File histograms = new File(internDir, HISTOGRAMS_BIN);
+        HistogramColumn.saveHistogramsBinary(m_histograms, histograms);
         if (m_enableHiLite.getBooleanValue()) {
-            File histograms = new File(internDir, HISTOGRAMS_GZ);
-            File dataArray = new File(internDir, DATA_ARRAY_GZ);
-            HistogramColumn.saveHistograms(m_histograms, m_buckets, m_nominalKeys/*, m_nominalTypes*/, histograms,
-                m_subTable, dataArray, exec);
-        } else {
-            File histograms = new File(internDir, HISTOGRAMS_GZ);
-            HistogramColumn.saveHistogramData(m_histograms, histograms);
+            m_hiLiteIndex.save(new File(internDir, HILITE_INDEX_GZ), exec);
+        }
+    }
+
+    /**
+     * Saves the most frequent values of the nominal columns.
+     *
+     * @param file The destination file.
+     * @throws IOException Problem writing the file.
+     */
+    private void saveTopValues(final File file) throws IOException {
+        final NodeSettings sett = new NodeSettings(TOP_VALUES_GZ);
+        for (int i = 0; i < m_topValues.size(); ++i) {
+            final Map<DataCell, Integer> values = m_topValues.get(i);
+            if (values != null) {
+                final NodeSettingsWO column = sett.addNodeSettings(Integer.toString(i));
+                column.addDataCellArray("values", values.keySet().toArray(new DataCell[values.size()]));
+                column.addIntArray("counts", values.values().stream().mapToInt(Integer::intValue).toArray());
+            }
+        }
+        try (final OutputStream os = new GZIPOutputStream(new FileOutputStream(file))) {
+            sett.saveToXML(os);
+        }
+    }
+
+    /**
+     * @param file The file of the most frequent values of the nominal columns.
+     * @return The most frequent values for each column, or {@code null} if they were counted by the statistics table.
+     * @throws IOException Problem reading the file.
+     */
+    private List<Map<DataCell, Integer>> loadTopValues(final File file) throws IOException {
+        if (!file.exists()) {
+            return null;
+        }
+        try (final InputStream is = new GZIPInputStream(new FileInputStream(file))) {
+            final NodeSettingsRO sett = NodeSettings.loadFromXML(is);
+            final List<Map<DataCell, Integer>> topValues = new ArrayList<Map<DataCell, Integer>>();
+            for (int i = 0; i < getStatTable().getColumnNames().length; ++i) {
+                if (!sett.containsKey(Integer.toString(i))) {
+                    topValues.add(null);
+                    continue;
+                }
+                final NodeSettingsRO column = sett.getNodeSettings(Integer.toString(i));
+                final DataCell[] values = column.getDataCellArray("values");
+                final int[] counts = column.getIntArray("counts");
+                final Map<DataCell, Integer> map = new LinkedHashMap<DataCell, Integer>();
+                for (int v = 0; v < values.length; ++v) {
+                    map.put(values[v], Integer.valueOf(counts[v]));
+                }
+                topValues.add(map);
+            }
+            return topValues;
+        } catch (InvalidSettingsException e) {
+            throw new IOException(e);
         }
     }
 
@@ -686,17 +1066,10 @@ public SettingsModelBoolean getShowMinMax() {
     }
 
     /**
-     * @return the buckets (modifiable)
-     */
-    protected Map<Integer, Map<Integer, Set<RowKey>>> getBuckets() {
-        return m_buckets;
-    }
-
-    /**
-     * @return the nominalKeys
+     * @return the index of the bins and nominal values of the rows
      */
-    public Map<Integer, Map<DataValue, Set<RowKey>>> getNominalKeys() {
-        return m_nominalKeys;
+    HiLiteIndex getHiLiteIndex() {
+        return m_hiLiteIndex;
     }
 
     /**
@@ -55,14 +55,22 @@
 import org.knime.node.parameters.persistence.Persist;
 import org.knime.node.parameters.persistence.Persistor;
 import org.knime.node.parameters.persistence.legacy.LegacyColumnFilterPersistor;
+import org.knime.node.parameters.updates.Effect;
+import org.knime.node.parameters.updates.Effect.EffectType;
+import org.knime.node.parameters.updates.EffectPredicate;
+import org.knime.node.parameters.updates.EffectPredicateProvider;
 import org.knime.node.parameters.updates.ParameterReference;
+import org.knime.node.parameters.updates.ValueReference;
+import org.knime.node.parameters.updates.util.BooleanReference;
 import org.knime.node.parameters.widget.choices.ChoicesProvider;
 import org.knime.node.parameters.widget.choices.Label;
 import org.knime.node.parameters.widget.choices.ValueSwitchWidget;
 import org.knime.node.parameters.widget.choices.filter.ColumnFilter;
 import org.knime.node.parameters.widget.choices.util.AllColumnsProvider;
 import org.knime.node.parameters.widget.number.NumberInputWidget;
+import org.knime.node.parameters.widget.number.NumberInputWidgetValidation.MaxValidation;
 import org.knime.node.parameters.widget.number.NumberInputWidgetValidation.MinValidation.IsNonNegativeValidation;
+import org.knime.node.parameters.widget.number.NumberInputWidgetValidation.MinValidation.IsPositiveDoubleValidation;
 import org.knime.node.parameters.widget.number.NumberInputWidgetValidation.MinValidation.IsPositiveIntegerValidation;
 
 /**
@@ -91,8 +99,43 @@ interface HistogramSection {
             divides the distribution into two halves of the same number of values.
             """)
     @Persist(configKey = ExtendedStatisticsNodeModel.CFGKEY_COMPUTE_MEDIAN)
+    @ValueReference(ComputeMedianRef.class)
     boolean m_computeMedian = ExtendedStatisticsNodeModel.DEFAULT_COMPUTE_MEDIAN;
 
+    @Widget(title = "Approximate median and quantiles", description = """
+
+            If checked, the median is approximated by a sketch of each numeric column that is collected
+            together with the histogram data, instead of sorting all columns. This needs only a bounded amount
+            of memory per column and additionally outputs the 5th and 95th percentiles and the first and
+            third quartiles.
+            """)
+    @Persist(configKey = ExtendedStatisticsNodeModel.CFGKEY_APPROXIMATE_QUANTILES)
+    @Effect(predicate = ComputeMedianPredicate.class, type = EffectType.SHOW)
+    @ValueReference(ApproximateQuantilesRef.class)
+    boolean m_approximateQuantiles = ExtendedStatisticsNodeModel.DEFAULT_APPROXIMATE_QUANTILES;
+
+    @Widget(title = "Quantile error", description = """
+
+            The error of the rank of the approximated quantiles relative to the number of values, e.g. with
+            0.01 the rank of the returned median is within 1% of the rows of the exact one. Smaller errors
+            need more memory.
+            """)
+    @NumberInputWidget(minValidation = IsPositiveDoubleValidation.class, maxValidation = IsAtMostHalf.class)
+    @Persist(configKey = ExtendedStatisticsNodeModel.CFGKEY_QUANTILE_ERROR)
+    @Effect(predicate = ApproximateQuantilesPredicate.class, type = EffectType.SHOW)
+    double m_quantileError = ExtendedStatisticsNodeModel.DEFAULT_QUANTILE_ERROR;
+
+    @Widget(title = "Number of threads", description = """
+            The number of threads that collect the histogram data and render the histogram images. Large tables
+            are split into row ranges that are scanned concurrently and whose results are combined in the order of
+            the rows, and the images of the columns are rendered concurrently, so the output does not depend on the
+            number of threads. The moments, extrema and value counts are computed by a single thread in a preceding
+            scan.
+            """)
+    @NumberInputWidget(minValidation = IsPositiveIntegerValidation.class)
+    @Persist(configKey = ExtendedStatisticsNodeModel.CFGKEY_NUM_THREADS)
+    int m_numberOfThreads = ExtendedStatisticsNodeModel.DEFAULT_NUM_THREADS;
+
     @Layout(NominalValuesSection.class)
     @Widget(title = "Column filter", description = """
             Filter columns for counting all possible values.
@@ -118,6 +161,17 @@ categorical values per column (displayed in the node view!).
     @Persist(configKey = ExtendedStatisticsNodeModel.CFGKEY_NUM_NOMINAL_VALUES_OUTPUT)
     int m_nominalValuesOutput = ExtendedStatisticsNodeModel.DEFAULT_NUM_NOMINAL_VALUES_OUTPUT;
 
+    @Layout(NominalValuesSection.class)
+    @Widget(title = "Count only the most frequent values", description = """
+            If checked, only ten times as many values per column as are written to the output table are counted,
+            with a fixed amount of memory regardless of the number of distinct values. The counts are exact if a
+            column has no more distinct values, otherwise they can overestimate the occurrences by at most the
+            number of rows divided by ten times the maximum number of values per column, and the node warns that
+            the counts are approximate.
+            """)
+    @Persist(configKey = ExtendedStatisticsNodeModel.CFGKEY_COUNT_TOP_VALUES)
+    boolean m_countTopValues = ExtendedStatisticsNodeModel.DEFAULT_COUNT_TOP_VALUES;
+
     @Layout(NominalValuesSection.class)
     @Widget(title = "Enable HiLite", description = """
             Enable HiLite functionality for interactive highlighting of data points.
@@ -156,9 +210,55 @@ categorical values per column (displayed in the node view!).
     @Persist(configKey = ExtendedStatisticsNodeModel.CFGKEY_SHOW_MIN_MAX)
     boolean m_showMinMax = ExtendedStatisticsNodeModel.DEFAULT_SHOW_MIN_MAX;
 
+    @Layout(HistogramSection.class)
+    @Widget(title = "Render histograms on first access", description = """
+            If checked, the histogram cells keep only the bins and render their images when they are first
+            displayed, which saves most of the execution time for tables with many columns.
+            """)
+    @Persist(configKey = ExtendedStatisticsNodeModel.CFGKEY_LAZY_IMAGES)
+    boolean m_lazyImages = ExtendedStatisticsNodeModel.DEFAULT_LAZY_IMAGES;
+
     static final class NominlaColumnFilterRef implements ParameterReference<ColumnFilter> {
     }
 
+    static final class ComputeMedianRef implements BooleanReference {
+    }
+
+    static final class ComputeMedianPredicate implements EffectPredicateProvider {
+
+        @Override
+        public EffectPredicate init(final PredicateInitializer i) {
+            return i.getPredicate(ComputeMedianRef.class);
+        }
+
+    }
+
+    static final class ApproximateQuantilesRef implements BooleanReference {
+    }
+
+    static final class ApproximateQuantilesPredicate implements EffectPredicateProvider {
+
+        @Override
+        public EffectPredicate init(final PredicateInitializer i) {
+            return i.getPredicate(ComputeMedianRef.class).and(i.getPredicate(ApproximateQuantilesRef.class));
+        }
+
+    }
+
+    static final class IsAtMostHalf extends MaxValidation {
+
+        @Override
+        public double getMax() {
+            return ExtendedStatisticsNodeModel.MAX_QUANTILE_ERROR;
+        }
+
+        @Override
+        public boolean isExclusive() {
+            return false;
+        }
+
+    }
+
     static final class NominalColumnFilterPersistor extends LegacyColumnFilterPersistor {
 
         NominalColumnFilterPersistor() {